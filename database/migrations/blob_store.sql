@@ -0,0 +1,66 @@
+-- ================================================
+-- MagicTech Management System
+-- Blob Store Migration
+-- Version: 1.0
+-- ================================================
+
+-- Workflow attachments (Excel/ZIP files of the workflow steps) and quotation
+-- PDFs are stored as files in the content-addressed BlobStore
+-- (magictech.blob-store.path); rows keep the SHA-256 key of the content.
+-- The blobs table indexes the stored files and counts their references.
+-- Run this script if the tables are not auto-created by Hibernate.
+
+CREATE TABLE IF NOT EXISTS blobs (
+    blob_key VARCHAR(64) PRIMARY KEY,
+    size_bytes BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    released_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_blobs_released ON blobs(released_at);
+
+-- The store directory every desk must share. BlobStore creates this table on
+-- startup, registers the id it finds (or writes) in <store>/store-id and
+-- refuses to start on a directory holding another id.
+CREATE TABLE IF NOT EXISTS blob_store (
+    id INTEGER PRIMARY KEY CHECK (id = 1),
+    store_id VARCHAR(36) NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+ALTER TABLE site_survey_data ADD COLUMN IF NOT EXISTS excel_blob_key VARCHAR(64);
+ALTER TABLE site_survey_data ADD COLUMN IF NOT EXISTS zip_blob_key VARCHAR(64);
+ALTER TABLE sizing_pricing_data ADD COLUMN IF NOT EXISTS excel_blob_key VARCHAR(64);
+ALTER TABLE sizing_pricing_data ADD COLUMN IF NOT EXISTS zip_blob_key VARCHAR(64);
+ALTER TABLE bank_guarantee_data ADD COLUMN IF NOT EXISTS excel_blob_key VARCHAR(64);
+ALTER TABLE bank_guarantee_data ADD COLUMN IF NOT EXISTS zip_blob_key VARCHAR(64);
+ALTER TABLE project_cost_data ADD COLUMN IF NOT EXISTS excel_blob_key VARCHAR(64);
+ALTER TABLE project_cost_data ADD COLUMN IF NOT EXISTS zip_blob_key VARCHAR(64);
+ALTER TABLE quotation_designs ADD COLUMN IF NOT EXISTS pdf_blob_key VARCHAR(64);
+ALTER TABLE quotation_designs ADD COLUMN IF NOT EXISTS original_pdf_blob_key VARCHAR(64);
+
+-- Existing BYTEA content is copied into the store on startup by
+-- BlobColumnMigration. The BYTEA values are kept: desks still running an older
+-- version read them, and they are the only copy until the keys are checked.
+--
+-- Once every desk runs this version (each has started, so each sees the shared
+-- store) and this query returns no rows, clear and drop the old columns:
+--
+-- SELECT 'site_survey_data' AS t, id FROM site_survey_data
+--     WHERE (excel_file IS NOT NULL AND excel_blob_key IS NULL) OR (zip_file IS NOT NULL AND zip_blob_key IS NULL)
+-- UNION ALL SELECT 'sizing_pricing_data', id FROM sizing_pricing_data
+--     WHERE (excel_file IS NOT NULL AND excel_blob_key IS NULL) OR (zip_file IS NOT NULL AND zip_blob_key IS NULL)
+-- UNION ALL SELECT 'bank_guarantee_data', id FROM bank_guarantee_data
+--     WHERE (excel_file IS NOT NULL AND excel_blob_key IS NULL) OR (zip_file IS NOT NULL AND zip_blob_key IS NULL)
+-- UNION ALL SELECT 'project_cost_data', id FROM project_cost_data
+--     WHERE (excel_file IS NOT NULL AND excel_blob_key IS NULL) OR (zip_file IS NOT NULL AND zip_blob_key IS NULL)
+-- UNION ALL SELECT 'quotation_designs', id FROM quotation_designs
+--     WHERE (pdf_data IS NOT NULL AND pdf_blob_key IS NULL) OR (original_pdf_data IS NOT NULL AND original_pdf_blob_key IS NULL);
+--
+-- ALTER TABLE site_survey_data DROP COLUMN IF EXISTS excel_file, DROP COLUMN IF EXISTS zip_file;
+-- ALTER TABLE sizing_pricing_data DROP COLUMN IF EXISTS excel_file, DROP COLUMN IF EXISTS zip_file;
+-- ALTER TABLE bank_guarantee_data DROP COLUMN IF EXISTS excel_file, DROP COLUMN IF EXISTS zip_file;
+-- ALTER TABLE project_cost_data DROP COLUMN IF EXISTS excel_file, DROP COLUMN IF EXISTS zip_file;
+-- ALTER TABLE quotation_designs DROP COLUMN IF EXISTS pdf_data, DROP COLUMN IF EXISTS original_pdf_data;
+-- VACUUM FULL site_survey_data, sizing_pricing_data, bank_guarantee_data, project_cost_data, quotation_designs;
@@ -0,0 +1,31 @@
+-- ================================================
+-- MagicTech Management System
+-- Custom Fields JSONB Migration
+-- Version: 1.0
+-- ================================================
+
+-- storage_items.custom_fields moves from TEXT to JSONB so custom columns can be
+-- filtered and sorted in SQL. Blank values become NULL; text that is not valid
+-- JSON is kept as a JSON string instead of failing the conversion.
+-- DatabaseSchemaFixer runs the same conversion at startup while the column is still TEXT.
+
+UPDATE storage_items SET custom_fields = NULL WHERE btrim(custom_fields) = '';
+
+DO $$
+DECLARE
+    r record;
+BEGIN
+    FOR r IN SELECT id, custom_fields FROM storage_items WHERE custom_fields IS NOT NULL LOOP
+        BEGIN
+            PERFORM r.custom_fields::jsonb;
+        EXCEPTION WHEN others THEN
+            UPDATE storage_items SET custom_fields = to_jsonb(r.custom_fields)::text WHERE id = r.id;
+        END;
+    END LOOP;
+END $$;
+
+ALTER TABLE storage_items ALTER COLUMN custom_fields TYPE jsonb USING custom_fields::jsonb;
+
+-- Containment filters (custom_fields @> '{"warranty": "2 years"}')
+CREATE INDEX IF NOT EXISTS idx_storage_items_custom_fields
+    ON storage_items USING gin (custom_fields);
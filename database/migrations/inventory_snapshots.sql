@@ -0,0 +1,29 @@
+-- ================================================
+-- MagicTech Management System
+-- Inventory Snapshots Migration
+-- Version: 1.0
+-- ================================================
+
+-- Compressed point-in-time copies of storage_item_locations quantities written
+-- by InventorySnapshotService: a FULL snapshot daily and DELTA snapshots
+-- (changed/removed rows only) during the day. Historical stock is rebuilt
+-- from the nearest FULL snapshot plus its deltas.
+-- Run this script if the table is not auto-created by Hibernate.
+
+CREATE SEQUENCE IF NOT EXISTS inventory_snapshots_id_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS inventory_snapshots (
+    id BIGINT PRIMARY KEY DEFAULT nextval('inventory_snapshots_id_seq'),
+    snapshot_type VARCHAR(10) NOT NULL,
+    taken_at TIMESTAMP NOT NULL,
+    base_snapshot_id BIGINT,
+    row_count INTEGER NOT NULL,
+    payload BYTEA NOT NULL,
+
+    CONSTRAINT chk_snapshot_type CHECK (snapshot_type IN ('FULL', 'DELTA'))
+);
+
+ALTER SEQUENCE inventory_snapshots_id_seq OWNED BY inventory_snapshots.id;
+
+CREATE INDEX IF NOT EXISTS idx_inventory_snapshots_type_taken ON inventory_snapshots(snapshot_type, taken_at);
+CREATE INDEX IF NOT EXISTS idx_inventory_snapshots_base ON inventory_snapshots(base_snapshot_id, taken_at);
@@ -0,0 +1,16 @@
+-- ================================================
+-- MagicTech Management System
+-- Keyset Pagination Indexes
+-- Version: 1.0
+-- ================================================
+
+-- Storage tables load one page at a time, continuing after the last row's key
+-- instead of reading the whole catalog. These indexes serve those range scans.
+-- Hibernate creates them on startup (ddl-auto=update); run this script on
+-- databases where schema updates are disabled.
+
+-- Catalog pages: ORDER BY product_name, id with (product_name, id) > (?, ?)
+CREATE INDEX IF NOT EXISTS idx_storage_items_name_id ON storage_items(product_name, id);
+
+-- Location sheet pages: storage_location_id = ? AND id > ? ORDER BY id
+CREATE INDEX IF NOT EXISTS idx_storage_item_locations_location_id ON storage_item_locations(storage_location_id, id);
@@ -0,0 +1,14 @@
+-- ================================================
+-- MagicTech Management System
+-- Low-Stock Alerts Migration
+-- Version: 1.0
+-- ================================================
+
+-- Rows with a minimum stock level, read by LowStockAlertEngine when an item
+-- changes and by its nightly sweep. Location rows without a minimum can never
+-- be low, so they are left out of the index.
+-- LowStockAlertEngine also creates this index at startup.
+
+CREATE INDEX IF NOT EXISTS idx_storage_item_locations_min_level
+    ON storage_item_locations (storage_item_id, min_stock_level)
+    WHERE active = true AND min_stock_level IS NOT NULL;
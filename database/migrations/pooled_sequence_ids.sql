@@ -0,0 +1,66 @@
+-- ================================================
+-- MagicTech Management System
+-- Pooled Sequence ID Migration
+-- Version: 1.0
+-- ================================================
+
+-- Entities now take ids from <table>_id_seq with Hibernate's pooled optimizer
+-- (allocationSize = 50) instead of IDENTITY, which lets inserts be batched.
+-- Existing BIGSERIAL / identity columns already own a sequence with that name;
+-- it only needs to increment by 50. Raising the increment never re-issues an id,
+-- so this is safe while other desks are still running.
+-- DatabaseSchemaFixer applies the same change at startup.
+
+DO $$
+DECLARE
+    seq TEXT;
+BEGIN
+    FOREACH seq IN ARRAY ARRAY[
+        'availability_requests_id_seq',
+        'bank_guarantee_data_id_seq',
+        'customer_cost_breakdowns_id_seq',
+        'customer_documents_id_seq',
+        'customer_elements_id_seq',
+        'customer_notes_id_seq',
+        'customer_schedules_id_seq',
+        'customer_tasks_id_seq',
+        'customers_id_seq',
+        'device_registrations_id_seq',
+        'email_settings_id_seq',
+        'missing_item_requests_id_seq',
+        'notification_user_status_id_seq',
+        'notifications_id_seq',
+        'project_cost_breakdowns_id_seq',
+        'project_cost_data_id_seq',
+        'project_documents_id_seq',
+        'project_elements_id_seq',
+        'project_notes_id_seq',
+        'project_schedules_id_seq',
+        'project_tasks_id_seq',
+        'project_workflows_id_seq',
+        'projects_id_seq',
+        'quotation_designs_id_seq',
+        'sales_contracts_id_seq',
+        'sales_order_items_id_seq',
+        'sales_orders_id_seq',
+        'site_survey_data_id_seq',
+        'site_survey_requests_id_seq',
+        'sizing_pricing_data_id_seq',
+        'stock_movements_id_seq',
+        'stock_reservations_id_seq',
+        'storage_column_configs_id_seq',
+        'storage_item_locations_id_seq',
+        'storage_items_id_seq',
+        'storage_locations_id_seq',
+        'users_id_seq',
+        'workflow_step_completions_id_seq'
+    ]
+    LOOP
+        IF EXISTS (SELECT 1 FROM pg_sequences WHERE sequencename = seq AND increment_by <> 50) THEN
+            EXECUTE format('ALTER SEQUENCE %I INCREMENT BY 50', seq);
+        END IF;
+    END LOOP;
+END $$;
+
+-- The id column default is no longer needed by the application, but is kept so
+-- manual INSERTs without an id keep working.
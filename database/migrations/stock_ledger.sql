@@ -0,0 +1,58 @@
+-- ================================================
+-- MagicTech Management System
+-- Stock Movement Ledger Migration
+-- Version: 1.0
+-- ================================================
+
+-- Append-only ledger written by StockLedger for every deduction, return,
+-- receipt, transfer and inventory check. Quantities on storage_items and
+-- storage_item_locations are changed with conditional UPDATE statements.
+-- Run this script if the table is not auto-created by Hibernate.
+
+CREATE TABLE IF NOT EXISTS stock_movements (
+    id BIGSERIAL PRIMARY KEY,
+    storage_item_id BIGINT NOT NULL,
+    movement_type VARCHAR(30) NOT NULL,
+    quantity_delta INTEGER NOT NULL,
+    from_location_id BIGINT,
+    to_location_id BIGINT,
+    reference VARCHAR(100),
+    performed_by VARCHAR(100),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT chk_movement_type CHECK (movement_type IN ('DEDUCTION', 'RETURN', 'RECEIPT', 'TRANSFER', 'INVENTORY_CHECK'))
+);
+
+-- Stock added to a location is recorded as RECEIPT (tables created before it existed)
+ALTER TABLE stock_movements DROP CONSTRAINT IF EXISTS chk_movement_type;
+ALTER TABLE stock_movements ADD CONSTRAINT chk_movement_type
+    CHECK (movement_type IN ('DEDUCTION', 'RETURN', 'RECEIPT', 'TRANSFER', 'INVENTORY_CHECK'));
+
+CREATE INDEX IF NOT EXISTS idx_stock_movements_item ON stock_movements(storage_item_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_stock_movements_reference ON stock_movements(reference);
+
+-- Quantities can no longer be driven below zero by conditional updates;
+-- guard against any remaining direct writes as well.
+ALTER TABLE storage_items DROP CONSTRAINT IF EXISTS chk_storage_items_quantity_non_negative;
+ALTER TABLE storage_items ADD CONSTRAINT chk_storage_items_quantity_non_negative CHECK (quantity >= 0) NOT VALID;
+
+-- ================================================
+-- Soft stock reservations (StockReservationService)
+-- ================================================
+
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    id BIGSERIAL PRIMARY KEY,
+    storage_item_id BIGINT NOT NULL,
+    holder_key VARCHAR(100) NOT NULL UNIQUE,
+    quantity INTEGER NOT NULL,
+    created_by VARCHAR(100),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_item ON stock_reservations(storage_item_id);
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_expires ON stock_reservations(expires_at);
+
+ALTER TABLE sales_order_items ADD COLUMN IF NOT EXISTS stock_reserved BOOLEAN DEFAULT false;
+-- NULL for lines saved before reservations (their stock was deducted when they were added)
+ALTER TABLE sales_order_items ADD COLUMN IF NOT EXISTS stock_deducted BOOLEAN;
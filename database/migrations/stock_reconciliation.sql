@@ -0,0 +1,42 @@
+-- ================================================
+-- MagicTech Management System
+-- Stock Reconciliation Migration
+-- Version: 1.0
+-- ================================================
+
+-- Drift reports written by StockReconciliationService: one row per item whose
+-- storage_items.quantity differed from the sum of its active
+-- storage_item_locations quantities during a reconciliation run.
+-- Run this script if the table is not auto-created by Hibernate.
+
+CREATE SEQUENCE IF NOT EXISTS stock_drift_reports_id_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS stock_drift_reports (
+    id BIGINT PRIMARY KEY DEFAULT nextval('stock_drift_reports_id_seq'),
+    run_started_at TIMESTAMP NOT NULL,
+    storage_item_id BIGINT NOT NULL,
+    item_quantity INTEGER NOT NULL,
+    location_quantity INTEGER NOT NULL,
+    drift INTEGER NOT NULL,
+    action VARCHAR(30) NOT NULL,
+    detected_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT chk_drift_action CHECK (action IN ('REPORTED', 'CORRECTED', 'CORRECTION_SKIPPED',
+                                                  'ITEM_ONLY_MOVEMENTS'))
+);
+
+-- Tables created before ITEM_ONLY_MOVEMENTS existed (also drops the check Hibernate generates)
+ALTER TABLE stock_drift_reports DROP CONSTRAINT IF EXISTS stock_drift_reports_action_check;
+ALTER TABLE stock_drift_reports DROP CONSTRAINT IF EXISTS chk_drift_action;
+ALTER TABLE stock_drift_reports ADD CONSTRAINT chk_drift_action CHECK (action IN ('REPORTED', 'CORRECTED',
+    'CORRECTION_SKIPPED', 'ITEM_ONLY_MOVEMENTS'));
+
+ALTER SEQUENCE stock_drift_reports_id_seq OWNED BY stock_drift_reports.id;
+
+CREATE INDEX IF NOT EXISTS idx_stock_drift_reports_run ON stock_drift_reports(run_started_at);
+CREATE INDEX IF NOT EXISTS idx_stock_drift_reports_item ON stock_drift_reports(storage_item_id, detected_at);
+
+
+-- The per-item location totals are served by the unique
+-- (storage_item_id, storage_location_id) index on storage_item_locations; the
+-- item-only movement sum by idx_stock_movements_item (storage_item_id, created_at).
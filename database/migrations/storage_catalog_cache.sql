@@ -0,0 +1,13 @@
+-- ================================================
+-- MagicTech Management System
+-- Storage Catalog Cache Migration
+-- Version: 1.0
+-- ================================================
+
+-- Rows added or changed since a point in time, read by StorageCatalogCache
+-- when it refreshes after missed Redis deltas. New rows only have date_added,
+-- so the index covers the same expression the query filters on.
+-- StorageCatalogCache also creates this index at startup.
+
+CREATE INDEX IF NOT EXISTS idx_storage_items_changed
+    ON storage_items ((COALESCE(last_updated, date_added)));
@@ -0,0 +1,18 @@
+-- ================================================
+-- MagicTech Management System
+-- Storage Catalog Search Index
+-- Version: 1.0
+-- ================================================
+
+-- Storage search matches a substring of manufacture, product name, code and
+-- serial number. A pg_trgm GIN index on that combined text lets the LIKE
+-- '%term%' lookups read only matching entries instead of scanning
+-- storage_items. StorageSearchService runs the same statements at startup;
+-- without pg_trgm it falls back to an in-memory n-gram index.
+-- The index expression must stay identical to StorageItemRepository.SEARCH_DOCUMENT.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_storage_items_search_trgm ON storage_items
+    USING gin ((lower(coalesce(manufacture, '') || ' ' || product_name || ' ' ||
+                      coalesce(code, '') || ' ' || coalesce(serial_number, ''))) gin_trgm_ops);
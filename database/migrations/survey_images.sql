@@ -0,0 +1,22 @@
+-- ================================================
+-- MagicTech Management System
+-- Survey Images Migration
+-- Version: 1.0
+-- ================================================
+
+-- Pictures embedded in survey workbooks are stored in the BlobStore (with a
+-- JPEG thumbnail); parsed JSON keeps only "imageKey" / "thumbnailKey".
+-- SurveyImageMigration moves Base64 pictures of older workflow_parsed_data
+-- rows into the store on startup. It scans the table until one run moves
+-- every row, then records itself here and no longer scans.
+-- Run this script if the table is not created on startup.
+
+CREATE TABLE IF NOT EXISTS completed_migrations (
+    name VARCHAR(100) PRIMARY KEY,
+    completed_at TIMESTAMP NOT NULL
+);
+
+-- Desks still running an older version write Base64 pictures again. Once
+-- they are all updated, run the migration once more on the next start:
+--
+-- DELETE FROM completed_migrations WHERE name = 'survey_images_to_blob_store';
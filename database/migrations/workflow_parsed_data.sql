@@ -0,0 +1,46 @@
+-- ================================================
+-- MagicTech Management System
+-- Workflow Parsed Data Migration
+-- Version: 1.0
+-- ================================================
+
+-- JSON parsed from workflow step uploads moves out of the step tables into
+-- workflow_parsed_data. The step entities only map parsed_data_id, so
+-- workflow and dashboard lookups no longer read the (often large) JSON;
+-- it is loaded on demand through ProjectWorkflowService.getParsedData.
+-- Run this script if the table is not auto-created by Hibernate.
+
+CREATE SEQUENCE IF NOT EXISTS workflow_parsed_data_id_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS workflow_parsed_data (
+    id BIGINT PRIMARY KEY DEFAULT nextval('workflow_parsed_data_id_seq'),
+    parsed_data TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+ALTER SEQUENCE workflow_parsed_data_id_seq OWNED BY workflow_parsed_data.id;
+
+ALTER TABLE site_survey_data ADD COLUMN IF NOT EXISTS parsed_data_id BIGINT;
+ALTER TABLE sizing_pricing_data ADD COLUMN IF NOT EXISTS parsed_data_id BIGINT;
+ALTER TABLE bank_guarantee_data ADD COLUMN IF NOT EXISTS parsed_data_id BIGINT;
+ALTER TABLE project_cost_data ADD COLUMN IF NOT EXISTS parsed_data_id BIGINT;
+
+-- Existing parsed_data values are copied over on startup by
+-- DatabaseSchemaFixer.moveParsedDataOut. The old values are kept: desks still
+-- running an older version read and write them, and rows they write get
+-- copied on the next start.
+--
+-- Once every desk runs this version (and has started once since the last
+-- older desk stopped) and this query returns no rows, clear and drop the old
+-- columns:
+--
+-- SELECT 'site_survey_data' AS t, id FROM site_survey_data WHERE parsed_data IS NOT NULL AND parsed_data_id IS NULL
+-- UNION ALL SELECT 'sizing_pricing_data', id FROM sizing_pricing_data WHERE parsed_data IS NOT NULL AND parsed_data_id IS NULL
+-- UNION ALL SELECT 'bank_guarantee_data', id FROM bank_guarantee_data WHERE parsed_data IS NOT NULL AND parsed_data_id IS NULL
+-- UNION ALL SELECT 'project_cost_data', id FROM project_cost_data WHERE parsed_data IS NOT NULL AND parsed_data_id IS NULL;
+--
+-- ALTER TABLE site_survey_data DROP COLUMN IF EXISTS parsed_data;
+-- ALTER TABLE sizing_pricing_data DROP COLUMN IF EXISTS parsed_data;
+-- ALTER TABLE bank_guarantee_data DROP COLUMN IF EXISTS parsed_data;
+-- ALTER TABLE project_cost_data DROP COLUMN IF EXISTS parsed_data;
+-- VACUUM FULL site_survey_data, sizing_pricing_data, bank_guarantee_data, project_cost_data;
@@ -0,0 +1,49 @@
+package com.magictech.core.api;
+
+import com.magictech.modules.storage.service.InventorySnapshotService;
+import com.magictech.modules.storage.service.InventorySnapshotService.HistoricalStock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * REST API for historical stock (audits, project cost disputes)
+ * Accessible remotely at: http://your-server:8085/api/storage/history
+ */
+@RestController
+@RequestMapping("/api/storage/history")
+@CrossOrigin(origins = "*")
+public class InventoryHistoryController {
+
+    @Autowired
+    private InventorySnapshotService snapshotService;
+
+    /**
+     * Stock at a point in time, optionally for one location and/or item
+     * GET /api/storage/history?at=2026-03-31T18:00:00&locationId=3&itemId=42
+     */
+    @GetMapping
+    public ResponseEntity<?> getStockAt(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at,
+            @RequestParam(required = false) Long locationId,
+            @RequestParam(required = false) Long itemId) {
+        try {
+            HistoricalStock stock = snapshotService.getStockAt(at, locationId, itemId);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("requestedAt", stock.requestedAt());
+            response.put("asOf", stock.asOf());
+            response.put("quantitiesByLocation", stock.quantitiesByLocation());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.magictech.core.api;
+
+import com.magictech.modules.storage.entity.StockDriftReport;
+import com.magictech.modules.storage.service.StockReconciliationService;
+import com.magictech.modules.storage.service.StockReconciliationService.DriftMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST API for stock drift between item quantities and location totals
+ * Accessible remotely at: http://your-server:8085/api/storage/drift
+ */
+@RestController
+@RequestMapping("/api/storage/drift")
+@CrossOrigin(origins = "*")
+public class StockDriftController {
+
+    @Autowired
+    private StockReconciliationService reconciliationService;
+
+    /**
+     * Drift metric of the last reconciliation run
+     * GET /api/storage/drift/metrics
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        return ResponseEntity.ok(toMap(reconciliationService.getLastMetrics()));
+    }
+
+    /**
+     * Most recent drift reports
+     * GET /api/storage/drift/reports?limit=100
+     */
+    @GetMapping("/reports")
+    public ResponseEntity<List<StockDriftReport>> getReports(@RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(reconciliationService.getRecentReports(Math.max(1, Math.min(limit, 1000))));
+    }
+
+    /**
+     * Drift history of one item
+     * GET /api/storage/drift/reports/item/{itemId}
+     */
+    @GetMapping("/reports/item/{itemId}")
+    public ResponseEntity<List<StockDriftReport>> getReportsForItem(@PathVariable Long itemId) {
+        return ResponseEntity.ok(reconciliationService.getReportsForItem(itemId));
+    }
+
+    /**
+     * Run a reconciliation now and return its metrics
+     * POST /api/storage/drift/reconcile
+     */
+    @PostMapping("/reconcile")
+    public ResponseEntity<Map<String, Object>> reconcile() {
+        return ResponseEntity.ok(toMap(reconciliationService.reconcile()));
+    }
+
+    private Map<String, Object> toMap(DriftMetrics metrics) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("policy", reconciliationService.getPolicy());
+        response.put("running", reconciliationService.isRunning());
+        if (metrics == null) {
+            response.put("hasRun", false);
+            return response;
+        }
+        response.put("hasRun", true);
+        response.put("runStartedAt", metrics.runStartedAt());
+        response.put("runFinishedAt", metrics.runFinishedAt());
+        response.put("completed", metrics.completed());
+        response.put("itemsScanned", metrics.itemsScanned());
+        response.put("itemsDrifted", metrics.itemsDrifted());
+        response.put("itemsCorrected", metrics.itemsCorrected());
+        response.put("correctionsSkipped", metrics.correctionsSkipped());
+        response.put("totalAbsoluteDrift", metrics.totalAbsoluteDrift());
+        response.put("maxAbsoluteDrift", metrics.maxAbsoluteDrift());
+        return response;
+    }
+}
@@ -0,0 +1,29 @@
+package com.magictech.core.api;
+
+import com.magictech.modules.storage.service.StorageFacetService;
+import com.magictech.modules.storage.service.StorageFacetService.Facets;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST API for storage filter facets (distinct values with item counts)
+ * Accessible remotely at: http://your-server:8085/api/storage/facets
+ */
+@RestController
+@RequestMapping("/api/storage/facets")
+@CrossOrigin(origins = "*")
+public class StorageFacetController {
+
+    @Autowired
+    private StorageFacetService facetService;
+
+    /**
+     * Manufacture, system type and workflow status counts, optionally limited to a search term
+     * GET /api/storage/facets?search=camera
+     */
+    @GetMapping
+    public ResponseEntity<Facets> getFacets(@RequestParam(required = false) String search) {
+        return ResponseEntity.ok(facetService.getFacets(search));
+    }
+}
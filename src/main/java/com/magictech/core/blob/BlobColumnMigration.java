@@ -0,0 +1,91 @@
+package com.magictech.core.blob;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Copies attachments stored in BYTEA columns into the BlobStore on startup
+ * (database/migrations/blob_store.sql).
+ *
+ * Rows are copied one by one, so the migration can stop and resume at any point. BlobStore
+ * refuses to start on a store directory the other desks do not share, so every key written
+ * here resolves on every desk. The BYTEA values are never cleared by this unattended step;
+ * the SQL script clears and drops them once an administrator has checked every key.
+ */
+@Component
+public class BlobColumnMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobColumnMigration.class);
+
+    private record ColumnMove(String table, String dataColumn, String keyColumn) {
+    }
+
+    private static final List<ColumnMove> MOVES = List.of(
+            new ColumnMove("site_survey_data", "excel_file", "excel_blob_key"),
+            new ColumnMove("site_survey_data", "zip_file", "zip_blob_key"),
+            new ColumnMove("sizing_pricing_data", "excel_file", "excel_blob_key"),
+            new ColumnMove("sizing_pricing_data", "zip_file", "zip_blob_key"),
+            new ColumnMove("bank_guarantee_data", "excel_file", "excel_blob_key"),
+            new ColumnMove("bank_guarantee_data", "zip_file", "zip_blob_key"),
+            new ColumnMove("project_cost_data", "excel_file", "excel_blob_key"),
+            new ColumnMove("project_cost_data", "zip_file", "zip_blob_key"),
+            new ColumnMove("quotation_designs", "pdf_data", "pdf_blob_key"),
+            new ColumnMove("quotation_designs", "original_pdf_data", "original_pdf_blob_key")
+    );
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BlobColumnMover mover;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(4) // After DatabaseSchemaFixer
+    public void migrateAttachments() {
+        for (ColumnMove move : MOVES) {
+            try {
+                migrateColumn(move);
+            } catch (Exception e) {
+                logger.error("Error copying {}.{} to the blob store", move.table(), move.dataColumn(), e);
+                // Don't throw - rows not copied yet are retried on the next start
+            }
+        }
+    }
+
+    private void migrateColumn(ColumnMove move) {
+        List<String> columns = jdbcTemplate.queryForList(
+                "SELECT column_name FROM information_schema.columns WHERE table_name = ? AND column_name IN (?, ?)",
+                String.class, move.table(), move.dataColumn(), move.keyColumn());
+        if (!columns.contains(move.dataColumn()) || !columns.contains(move.keyColumn())) {
+            return; // Already dropped, or the entity has not added the key column yet
+        }
+
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM " + move.table() + " WHERE " + move.dataColumn() + " IS NOT NULL AND " +
+                move.keyColumn() + " IS NULL ORDER BY id", Long.class);
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        logger.info("Copying {} values of {}.{} to the blob store...", ids.size(), move.table(), move.dataColumn());
+        int copied = 0;
+        for (Long id : ids) {
+            try {
+                if (mover.moveRow(move.table(), move.dataColumn(), move.keyColumn(), id)) {
+                    copied++;
+                }
+            } catch (Exception e) {
+                logger.warn("Could not copy {}.{} of row {}: {}", move.table(), move.dataColumn(), id, e.getMessage());
+            }
+        }
+        logger.info("Copied {} of {} values of {}.{}", copied, ids.size(), move.table(), move.dataColumn());
+    }
+}
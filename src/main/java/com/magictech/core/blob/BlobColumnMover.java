@@ -0,0 +1,53 @@
+package com.magictech.core.blob;
+
+import com.magictech.core.blob.BlobStore.BlobRef;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Copies one BYTEA value into the BlobStore; each row is its own transaction so the
+ * reference and the key column commit together (used by BlobColumnMigration).
+ * The BYTEA value is left in place - it is only cleared by the manual step in blob_store.sql.
+ */
+@Service
+@Transactional
+public class BlobColumnMover {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    /**
+     * Store {@code dataColumn} of the row and set {@code keyColumn}.
+     * Table and column names come from BlobColumnMigration, never from input.
+     * @return false if the row was already copied or has no data
+     */
+    public boolean moveRow(String table, String dataColumn, String keyColumn, long id) {
+        BlobRef ref = jdbcTemplate.query(
+                "SELECT " + dataColumn + " FROM " + table + " WHERE id = ? AND " + keyColumn + " IS NULL FOR UPDATE",
+                rs -> {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    try (InputStream content = rs.getBinaryStream(1)) {
+                        return content != null ? blobStore.put(content) : null;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, id);
+
+        if (ref == null) {
+            return false;
+        }
+        jdbcTemplate.update("UPDATE " + table + " SET " + keyColumn + " = ? WHERE id = ?", ref.key(), id);
+        return true;
+    }
+}
@@ -0,0 +1,76 @@
+package com.magictech.core.blob;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Blob Record Entity
+ * Index row of a file in the BlobStore, keyed by the SHA-256 of its content. ref_count is the
+ * number of entity columns pointing at the blob; rows released to zero are purged together
+ * with their file after a grace period. Rows are written by BlobStore with plain SQL.
+ */
+@Entity
+@Table(name = "blobs", indexes = {
+        @Index(name = "idx_blobs_released", columnList = "released_at")
+})
+public class BlobRecord {
+
+    // Lower-case hex SHA-256 of the content
+    @Id
+    @Column(name = "blob_key", length = 64)
+    private String blobKey;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // When ref_count last dropped to zero (null while referenced)
+    @Column(name = "released_at")
+    private LocalDateTime releasedAt;
+
+    // Getters and Setters
+    public String getBlobKey() {
+        return blobKey;
+    }
+
+    public void setBlobKey(String blobKey) {
+        this.blobKey = blobKey;
+    }
+
+    public Long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(Long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public Integer getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(Integer refCount) {
+        this.refCount = refCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getReleasedAt() {
+        return releasedAt;
+    }
+
+    public void setReleasedAt(LocalDateTime releasedAt) {
+        this.releasedAt = releasedAt;
+    }
+}
@@ -0,0 +1,366 @@
+package com.magictech.core.blob;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed file store for uploaded attachments.
+ *
+ * A file is stored once under the SHA-256 of its content (&lt;root&gt;/ab/cd/abcd...), so
+ * identical uploads share one file. Entities keep the key; the blobs table counts how many
+ * columns point at each key. put() and retain() add a reference and release() drops one, in
+ * the caller's transaction. Files are written to a temp file while hashing and moved into
+ * place, and read back as streams - content never passes through JPA.
+ *
+ * Files of rolled-back uploads and of blobs released for longer than the grace period are
+ * removed by the nightly purge.
+ *
+ * Desks sharing a database must share the store directory (magictech.blob-store.path, no
+ * default). The first desk to start writes a random store id into the directory and the
+ * blob_store table; a desk whose directory holds another id - or none - refuses to start,
+ * so no desk writes keys that the others cannot resolve.
+ */
+@Service
+@Transactional
+public class BlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobStore.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String TEMP_DIR = "tmp";
+    private static final String STORE_ID_FILE = "store-id";
+    // Keys checked per query when looking for orphan files
+    private static final int ORPHAN_BATCH_SIZE = 1000;
+
+    private static final String ADD_REFERENCE_SQL =
+            "INSERT INTO blobs (blob_key, size_bytes, ref_count, created_at) VALUES (?, ?, 1, ?) " +
+            "ON CONFLICT (blob_key) DO UPDATE SET ref_count = blobs.ref_count + 1, released_at = NULL";
+
+    private static final String RETAIN_SQL =
+            "UPDATE blobs SET ref_count = ref_count + 1, released_at = NULL WHERE blob_key = ?";
+
+    private static final String RELEASE_SQL =
+            "UPDATE blobs SET ref_count = GREATEST(ref_count - 1, 0), " +
+            "released_at = CASE WHEN ref_count <= 1 THEN ? ELSE released_at END WHERE blob_key = ?";
+
+    private static final String PURGE_RELEASED_SQL =
+            "DELETE FROM blobs WHERE ref_count = 0 AND released_at < ? RETURNING blob_key";
+
+    /**
+     * A stored blob: its key and content length
+     */
+    public record BlobRef(String key, long size) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${magictech.blob-store.path:}")
+    private String storePath;
+
+    @Value("${magictech.blob-store.purge-grace-hours:24}")
+    private long purgeGraceHours;
+
+    /**
+     * Refuse to start unless the store directory is the one every other desk uses
+     */
+    @PostConstruct
+    public void checkSharedStore() throws IOException {
+        if (storePath == null || storePath.isBlank()) {
+            throw new IllegalStateException("magictech.blob-store.path is not set. " +
+                    "It must point at a directory shared by every desk using this database.");
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS blob_store (" +
+                "id INTEGER PRIMARY KEY CHECK (id = 1), store_id VARCHAR(36) NOT NULL, created_at TIMESTAMP NOT NULL)");
+
+        Path idFile = root().resolve(STORE_ID_FILE);
+        List<String> registered = jdbcTemplate.queryForList("SELECT store_id FROM blob_store", String.class);
+        if (registered.isEmpty()) {
+            // First desk: claim the directory. Desks starting together on the same share
+            // read back the id the first of them wrote.
+            Files.createDirectories(root());
+            try {
+                Files.writeString(idFile, UUID.randomUUID().toString(), StandardOpenOption.CREATE_NEW);
+            } catch (FileAlreadyExistsException e) {
+                // Claimed by another desk
+            }
+            jdbcTemplate.update("INSERT INTO blob_store (id, store_id, created_at) VALUES (1, ?, ?) ON CONFLICT (id) DO NOTHING",
+                    Files.readString(idFile).trim(), Timestamp.valueOf(LocalDateTime.now()));
+            registered = jdbcTemplate.queryForList("SELECT store_id FROM blob_store", String.class);
+        }
+
+        String storeId = registered.get(0);
+        String localId = Files.exists(idFile) ? Files.readString(idFile).trim() : null;
+        if (!storeId.equals(localId)) {
+            throw new IllegalStateException("Blob store " + root().toAbsolutePath() + " is not the store shared by " +
+                    "the other desks (" + idFile.getFileName() + " should contain " + storeId + "). " +
+                    "Point magictech.blob-store.path at the shared directory.");
+        }
+        logger.info("Blob store {} verified (store id {})", root().toAbsolutePath(), storeId);
+    }
+
+    // ==================== Writing ====================
+
+    /**
+     * Store the content of a stream and add a reference to it.
+     * The stream is read to the end but not closed.
+     */
+    public BlobRef put(InputStream content) throws IOException {
+        Path tempDir = root().resolve(TEMP_DIR);
+        Files.createDirectories(tempDir);
+        Path temp = Files.createTempFile(tempDir, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE)) {
+                size = new DigestInputStream(content, digest).transferTo(out);
+            }
+            String key = HexFormat.of().formatHex(digest.digest());
+
+            // Reference first: a purge running now no longer sees the blob as released
+            jdbcTemplate.update(ADD_REFERENCE_SQL, key, size, Timestamp.valueOf(LocalDateTime.now()));
+
+            Path target = pathOf(key);
+            if (Files.exists(target)) {
+                // Same content already stored; keep the orphan sweep away from it
+                Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+            } else {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Stored concurrently by another upload of the same content
+                }
+            }
+            return new BlobRef(key, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public BlobRef put(byte[] content) throws IOException {
+        return put(new ByteArrayInputStream(content));
+    }
+
+    public BlobRef put(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return put(in);
+        }
+    }
+
+    /**
+     * Add a reference to a stored blob (another column now points at it)
+     */
+    public void retain(String key) {
+        if (key == null) {
+            return;
+        }
+        if (jdbcTemplate.update(RETAIN_SQL, key) == 0) {
+            throw new IllegalArgumentException("Blob not found: " + key);
+        }
+    }
+
+    /**
+     * Add a reference to each key (repeated keys count again) if all of them are stored.
+     * Unlike retain() a missing key is not an error, so the caller's transaction stays usable.
+     * @return false, and nothing retained, if any key is unknown
+     */
+    public boolean retainIfPresent(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return true;
+        }
+        if (!isIndexed(keys).containsAll(keys)) {
+            return false;
+        }
+        for (String key : keys) {
+            jdbcTemplate.update(RETAIN_SQL, key);
+        }
+        return true;
+    }
+
+    /**
+     * Drop a reference; the file is purged once no reference is left for the grace period
+     */
+    public void release(String key) {
+        if (key == null) {
+            return;
+        }
+        jdbcTemplate.update(RELEASE_SQL, Timestamp.valueOf(LocalDateTime.now()), key);
+    }
+
+    // ==================== Reading ====================
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public boolean exists(String key) {
+        return key != null && Files.exists(pathOf(key));
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public long size(String key) throws IOException {
+        return Files.size(pathOf(key));
+    }
+
+    /**
+     * Open a blob for reading; the caller closes the stream
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public InputStream open(String key) throws IOException {
+        Path path = pathOf(key);
+        if (!Files.exists(path)) {
+            throw new FileNotFoundException("Blob not found in store: " + key);
+        }
+        return new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE);
+    }
+
+    /**
+     * Stream a blob into a file (downloads)
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void copyTo(String key, Path target) throws IOException {
+        try (InputStream in = open(key)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * The whole content, for callers that need it in memory (parsers, PDF rendering)
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public byte[] readAllBytes(String key) throws IOException {
+        try (InputStream in = open(key)) {
+            return in.readAllBytes();
+        }
+    }
+
+    // ==================== Purge ====================
+
+    /**
+     * Delete blobs released for longer than the grace period, files without an index row
+     * (uploads whose transaction rolled back) and stale temp files
+     */
+    @Scheduled(cron = "${magictech.blob-store.purge-cron:0 15 3 * * *}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void purge() {
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusHours(purgeGraceHours);
+
+            List<String> released = jdbcTemplate.queryForList(PURGE_RELEASED_SQL, String.class,
+                    Timestamp.valueOf(cutoff));
+            int deleted = 0;
+            for (String key : released) {
+                // Re-check: the same content may have been uploaded again since
+                if (!isIndexed(List.of(key)).contains(key) && Files.deleteIfExists(pathOf(key))) {
+                    deleted++;
+                }
+            }
+
+            int orphans = purgeOrphanFiles(cutoff);
+            logger.info("Blob store purge: {} released blobs and {} orphan files deleted", deleted, orphans);
+        } catch (Exception e) {
+            logger.error("Blob store purge failed: {}", e.getMessage());
+        }
+    }
+
+    private int purgeOrphanFiles(LocalDateTime cutoff) throws IOException {
+        Path root = root();
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        FileTime olderThan = FileTime.from(Timestamp.valueOf(cutoff).toInstant());
+
+        List<Path> candidates = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root, 3)) {
+            files.filter(Files::isRegularFile)
+                 .filter(file -> !file.getParent().equals(root)) // store-id
+                 .filter(file -> isOlderThan(file, olderThan))
+                 .forEach(candidates::add);
+        }
+
+        int deleted = 0;
+        Map<String, Path> batch = new LinkedHashMap<>();
+        for (Path file : candidates) {
+            if (file.getParent().getFileName().toString().equals(TEMP_DIR)) {
+                // Upload that never finished
+                if (Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+                continue;
+            }
+            batch.put(file.getFileName().toString(), file);
+            if (batch.size() == ORPHAN_BATCH_SIZE) {
+                deleted += deleteUnindexed(batch);
+                batch.clear();
+            }
+        }
+        deleted += deleteUnindexed(batch);
+        return deleted;
+    }
+
+    private int deleteUnindexed(Map<String, Path> files) throws IOException {
+        if (files.isEmpty()) {
+            return 0;
+        }
+        Set<String> indexed = isIndexed(files.keySet());
+        int deleted = 0;
+        for (Map.Entry<String, Path> entry : files.entrySet()) {
+            if (!indexed.contains(entry.getKey()) && Files.deleteIfExists(entry.getValue())) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    private Set<String> isIndexed(Collection<String> keys) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT blob_key FROM blobs WHERE blob_key = ANY(?::varchar[])", String.class,
+                (Object) keys.toArray(new String[0])));
+    }
+
+    private static boolean isOlderThan(Path file, FileTime time) {
+        try {
+            return Files.getLastModifiedTime(file).compareTo(time) < 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    private Path root() {
+        return Paths.get(storePath);
+    }
+
+    private Path pathOf(String key) {
+        if (key == null || !key.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        }
+        return root().resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -64,6 +64,8 @@ public class DatabaseConfig {
         config.addDataSourceProperty("cachePrepStmts", "true");
         config.addDataSourceProperty("prepStmtCacheSize", "250");
         config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        // Let the driver collapse JDBC batches into multi-row INSERTs
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
 
         return new HikariDataSource(config);
     }
@@ -78,6 +80,7 @@ public class DatabaseConfig {
                 "com.magictech.core.auth",
                 "com.magictech.core.email",
                 "com.magictech.core.messaging.entity",
+                "com.magictech.core.blob",
                 "com.magictech.modules.storage.entity",
                 "com.magictech.modules.sales.entity",
                 "com.magictech.modules.projects.entity"
@@ -108,6 +111,9 @@ public class DatabaseConfig {
         properties.put("hibernate.order_inserts", "true");
         properties.put("hibernate.order_updates", "true");
         properties.put("hibernate.jdbc.batch_versioned_data", "true");
+        // Ids come from pooled sequences (allocationSize = 50). If a legacy sequence still
+        // increments by 1, use it as-is until DatabaseSchemaFixer aligns it instead of failing boot.
+        properties.put("hibernate.id.sequence.increment_size_mismatch_strategy", "FIX");
         return properties;
     }
 }
\ No newline at end of file
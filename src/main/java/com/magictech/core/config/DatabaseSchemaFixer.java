@@ -10,6 +10,8 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 /**
  * Fixes database schema issues on application startup
  */
@@ -18,6 +20,60 @@ public class DatabaseSchemaFixer {
 
     private static final Logger logger = LoggerFactory.getLogger(DatabaseSchemaFixer.class);
 
+    // Must match allocationSize on the entities' @SequenceGenerator
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    private static final String[] ID_SEQUENCES = {
+            "availability_requests_id_seq",
+            "bank_guarantee_data_id_seq",
+            "customer_cost_breakdowns_id_seq",
+            "customer_documents_id_seq",
+            "customer_elements_id_seq",
+            "customer_notes_id_seq",
+            "customer_schedules_id_seq",
+            "customer_tasks_id_seq",
+            "customers_id_seq",
+            "device_registrations_id_seq",
+            "email_settings_id_seq",
+            "inventory_snapshots_id_seq",
+            "missing_item_requests_id_seq",
+            "notification_user_status_id_seq",
+            "notifications_id_seq",
+            "project_cost_breakdowns_id_seq",
+            "project_cost_data_id_seq",
+            "project_documents_id_seq",
+            "project_elements_id_seq",
+            "project_notes_id_seq",
+            "project_schedules_id_seq",
+            "project_tasks_id_seq",
+            "project_workflows_id_seq",
+            "projects_id_seq",
+            "quotation_designs_id_seq",
+            "sales_contracts_id_seq",
+            "sales_order_items_id_seq",
+            "sales_orders_id_seq",
+            "site_survey_data_id_seq",
+            "site_survey_requests_id_seq",
+            "sizing_pricing_data_id_seq",
+            "stock_drift_reports_id_seq",
+            "stock_movements_id_seq",
+            "stock_reservations_id_seq",
+            "storage_column_configs_id_seq",
+            "storage_item_locations_id_seq",
+            "storage_items_id_seq",
+            "storage_locations_id_seq",
+            "users_id_seq",
+            "workflow_parsed_data_id_seq",
+            "workflow_step_completions_id_seq"
+    };
+
+    private static final String[] WORKFLOW_DATA_TABLES = {
+            "site_survey_data",
+            "sizing_pricing_data",
+            "bank_guarantee_data",
+            "project_cost_data"
+    };
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
@@ -41,6 +97,135 @@ public class DatabaseSchemaFixer {
         }
     }
 
+    /**
+     * Entity ids come from pooled sequences (allocationSize = 50). Tables created before the
+     * switch from IDENTITY own a sequence that increments by 1; Hibernate falls back to
+     * allocationSize 1 for those (see DatabaseConfig), so align them here and the pooled
+     * optimizer is used from the next start. Raising the increment never re-issues an id.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(2)
+    public void alignIdSequences() {
+        try {
+            List<String> outdated = jdbcTemplate.queryForList(
+                    "SELECT sequencename FROM pg_sequences WHERE sequencename = ANY(?) AND increment_by <> ?",
+                    String.class, ID_SEQUENCES, ID_ALLOCATION_SIZE);
+
+            for (String sequence : outdated) {
+                jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " INCREMENT BY " + ID_ALLOCATION_SIZE);
+                logger.info("Set {} to increment by {}", sequence, ID_ALLOCATION_SIZE);
+            }
+        } catch (Exception e) {
+            logger.error("Error aligning id sequences", e);
+            // Don't throw - ids are still generated, just one round trip each
+        }
+    }
+
+    /**
+     * storage_items.custom_fields was TEXT; custom column filters and sorts need jsonb
+     * (database/migrations/custom_fields_jsonb.sql). Invalid JSON is kept as a JSON string.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(3)
+    @Transactional
+    public void migrateCustomFieldsToJsonb() {
+        try {
+            List<String> types = jdbcTemplate.queryForList(
+                    "SELECT data_type FROM information_schema.columns " +
+                    "WHERE table_name = 'storage_items' AND column_name = 'custom_fields'", String.class);
+
+            if (!types.isEmpty() && "text".equalsIgnoreCase(types.get(0))) {
+                logger.info("Converting storage_items.custom_fields to jsonb...");
+                jdbcTemplate.execute("UPDATE storage_items SET custom_fields = NULL WHERE btrim(custom_fields) = ''");
+                jdbcTemplate.execute(
+                        "DO $$ DECLARE r record; BEGIN " +
+                        "FOR r IN SELECT id, custom_fields FROM storage_items WHERE custom_fields IS NOT NULL LOOP " +
+                        "BEGIN PERFORM r.custom_fields::jsonb; " +
+                        "EXCEPTION WHEN others THEN " +
+                        "UPDATE storage_items SET custom_fields = to_jsonb(r.custom_fields)::text WHERE id = r.id; " +
+                        "END; END LOOP; END $$");
+                jdbcTemplate.execute("ALTER TABLE storage_items ALTER COLUMN custom_fields TYPE jsonb USING custom_fields::jsonb");
+                logger.info("storage_items.custom_fields converted to jsonb");
+            }
+
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_storage_items_custom_fields " +
+                    "ON storage_items USING gin (custom_fields)");
+        } catch (Exception e) {
+            logger.error("Error converting custom_fields to jsonb", e);
+            // Don't throw - only custom column filters depend on it
+        }
+    }
+
+    /**
+     * parsed_data TEXT of the workflow step tables moved to workflow_parsed_data
+     * (database/migrations/workflow_parsed_data.sql) so step lookups read only metadata.
+     * Each legacy value without an id gets one from the table's sequence and is copied over.
+     * The legacy values are kept for desks still running an older version; clearing and
+     * dropping them is the manual step in workflow_parsed_data.sql. A row an older desk writes
+     * later is copied on the next start.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(5)
+    public void moveParsedDataOut() {
+        for (String table : WORKFLOW_DATA_TABLES) {
+            try {
+                List<String> columns = jdbcTemplate.queryForList(
+                        "SELECT column_name FROM information_schema.columns " +
+                        "WHERE table_name = ? AND column_name IN ('parsed_data', 'parsed_data_id')",
+                        String.class, table);
+                if (columns.size() < 2) {
+                    continue; // Already dropped, or parsed_data_id not added yet
+                }
+
+                // One statement: a value gets its id only together with its copy
+                int assigned = jdbcTemplate.update("WITH moved AS (UPDATE " + table +
+                        " SET parsed_data_id = nextval('workflow_parsed_data_id_seq') " +
+                        "WHERE parsed_data IS NOT NULL AND parsed_data_id IS NULL " +
+                        "RETURNING parsed_data_id, parsed_data, uploaded_at) " +
+                        "INSERT INTO workflow_parsed_data (id, parsed_data, created_at) " +
+                        "SELECT parsed_data_id, parsed_data, COALESCE(uploaded_at, now()) FROM moved");
+
+                if (assigned > 0) {
+                    logger.info("Copied {} parsed_data values of {} to workflow_parsed_data", assigned, table);
+                }
+            } catch (Exception e) {
+                logger.error("Error copying parsed_data of {}", table, e);
+                // Don't throw - the values stay in place until the next start
+            }
+        }
+    }
+
+    /**
+     * Stock added to a location is recorded as a RECEIPT movement. Movement type checks created
+     * before that type existed (database/migrations/stock_ledger.sql, or Hibernate's own) are
+     * replaced with one that allows it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(6)
+    @Transactional
+    public void allowReceiptMovements() {
+        try {
+            List<String> outdated = jdbcTemplate.queryForList(
+                    "SELECT conname FROM pg_constraint WHERE conrelid = to_regclass('stock_movements') " +
+                    "AND contype = 'c' AND pg_get_constraintdef(oid) LIKE '%movement_type%' " +
+                    "AND pg_get_constraintdef(oid) NOT LIKE '%RECEIPT%'", String.class);
+            if (outdated.isEmpty()) {
+                return;
+            }
+
+            for (String constraint : outdated) {
+                jdbcTemplate.execute("ALTER TABLE stock_movements DROP CONSTRAINT " + constraint);
+            }
+            jdbcTemplate.execute("ALTER TABLE stock_movements DROP CONSTRAINT IF EXISTS chk_movement_type");
+            jdbcTemplate.execute("ALTER TABLE stock_movements ADD CONSTRAINT chk_movement_type CHECK (movement_type IN " +
+                    "('DEDUCTION', 'RETURN', 'RECEIPT', 'TRANSFER', 'INVENTORY_CHECK'))");
+            logger.info("stock_movements now accepts RECEIPT movements");
+        } catch (Exception e) {
+            logger.error("Error updating the stock_movements movement type check", e);
+            // Don't throw - only adding stock to a location depends on it
+        }
+    }
+
     private void fixTableSchema(String tableName, Runnable recreateFunction) {
         try {
             logger.info("Checking {} table schema...", tableName);
@@ -55,19 +240,14 @@ public class DatabaseSchemaFixer {
                 return;
             }
 
-            // Check if table has zip_file column
+            // Check if table has ZIP support (zip_blob_key, or the legacy zip_file column
+            // that BlobColumnMigration empties into the blob store)
             String checkZipSql = "SELECT column_name FROM information_schema.columns " +
-                            "WHERE table_name = ? AND column_name = 'zip_file'";
+                            "WHERE table_name = ? AND column_name IN ('zip_file', 'zip_blob_key')";
 
-            boolean hasZipColumn = false;
-            try {
-                jdbcTemplate.queryForObject(checkZipSql, String.class, tableName);
-                hasZipColumn = true;
-            } catch (Exception e) {
-                // zip_file column doesn't exist
-            }
+            boolean hasZipColumn = !jdbcTemplate.queryForList(checkZipSql, String.class, tableName).isEmpty();
 
-            // Check if excel_file column has the correct type (bytea, not oid)
+            // Check if legacy excel_file column has the correct type (bytea, not oid)
             // Hibernate 6 with @Lob can create OID columns instead of BYTEA
             String checkTypeSql = "SELECT data_type FROM information_schema.columns " +
                             "WHERE table_name = ? AND column_name = 'excel_file'";
@@ -115,16 +295,16 @@ public class DatabaseSchemaFixer {
                 id BIGSERIAL PRIMARY KEY,
                 project_id BIGINT NOT NULL,
                 workflow_id BIGINT NOT NULL,
-                excel_file BYTEA,
+                excel_blob_key VARCHAR(64),
                 file_name VARCHAR(255),
                 file_size BIGINT,
                 mime_type VARCHAR(100),
-                zip_file BYTEA,
+                zip_blob_key VARCHAR(64),
                 zip_file_name VARCHAR(255),
                 zip_file_size BIGINT,
                 zip_mime_type VARCHAR(100),
                 file_type VARCHAR(20),
-                parsed_data TEXT,
+                parsed_data_id BIGINT,
                 survey_done_by VARCHAR(50),
                 survey_done_by_user VARCHAR(100),
                 survey_done_by_user_id BIGINT,
@@ -161,16 +341,16 @@ public class DatabaseSchemaFixer {
                 id BIGSERIAL PRIMARY KEY,
                 project_id BIGINT NOT NULL,
                 workflow_id BIGINT NOT NULL,
-                excel_file BYTEA,
+                excel_blob_key VARCHAR(64),
                 file_name VARCHAR(255),
                 file_size BIGINT,
                 mime_type VARCHAR(100),
-                zip_file BYTEA,
+                zip_blob_key VARCHAR(64),
                 zip_file_name VARCHAR(255),
                 zip_file_size BIGINT,
                 zip_mime_type VARCHAR(100),
                 file_type VARCHAR(20),
-                parsed_data TEXT,
+                parsed_data_id BIGINT,
                 uploaded_by VARCHAR(100) NOT NULL,
                 uploaded_by_id BIGINT,
                 uploaded_at TIMESTAMP NOT NULL,
@@ -206,16 +386,16 @@ public class DatabaseSchemaFixer {
                 id BIGSERIAL PRIMARY KEY,
                 project_id BIGINT NOT NULL,
                 workflow_id BIGINT NOT NULL,
-                excel_file BYTEA,
+                excel_blob_key VARCHAR(64),
                 file_name VARCHAR(255),
                 file_size BIGINT,
                 mime_type VARCHAR(100),
-                zip_file BYTEA,
+                zip_blob_key VARCHAR(64),
                 zip_file_name VARCHAR(255),
                 zip_file_size BIGINT,
                 zip_mime_type VARCHAR(100),
                 file_type VARCHAR(20),
-                parsed_data TEXT,
+                parsed_data_id BIGINT,
                 uploaded_by VARCHAR(100) NOT NULL,
                 uploaded_by_id BIGINT,
                 uploaded_at TIMESTAMP NOT NULL,
@@ -251,16 +431,16 @@ public class DatabaseSchemaFixer {
                 id BIGSERIAL PRIMARY KEY,
                 project_id BIGINT NOT NULL,
                 workflow_id BIGINT NOT NULL,
-                excel_file BYTEA,
+                excel_blob_key VARCHAR(64),
                 file_name VARCHAR(255),
                 file_size BIGINT,
                 mime_type VARCHAR(100),
-                zip_file BYTEA,
+                zip_blob_key VARCHAR(64),
                 zip_file_name VARCHAR(255),
                 zip_file_size BIGINT,
                 zip_mime_type VARCHAR(100),
                 file_type VARCHAR(20),
-                parsed_data TEXT,
+                parsed_data_id BIGINT,
                 uploaded_by VARCHAR(100) NOT NULL,
                 uploaded_by_id BIGINT,
                 uploaded_at TIMESTAMP NOT NULL,
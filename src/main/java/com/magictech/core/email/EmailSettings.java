@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
 public class EmailSettings {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_settings_seq")
+    @SequenceGenerator(name = "email_settings_seq", sequenceName = "email_settings_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "provider", length = 50)
@@ -0,0 +1,294 @@
+package com.magictech.core.export;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Streaming Excel Writer - common engine for all Excel exports.
+ *
+ * Built on SXSSF: only the last {@link #ROW_WINDOW} rows of a sheet are kept in memory,
+ * older rows are flushed to a temp file. Column widths are estimated from the text written
+ * into each cell (no autoSizeColumn, which rescans every row). Rows can be fed directly
+ * from a repository {@code Stream}, so exports never materialize a full result list.
+ *
+ * Usage:
+ * <pre>
+ * try (StreamingExcelWriter writer = new StreamingExcelWriter()) {
+ *     StreamingExcelWriter.SheetWriter sheet = writer.createSheet("Items");
+ *     sheet.header(writer.headerStyle(), "ID", "Name");
+ *     sheet.rows(repository.streamAll(), item -> new Object[]{item.getId(), item.getName()});
+ *     writer.writeTo(file);
+ * }
+ * </pre>
+ */
+public class StreamingExcelWriter implements Closeable {
+
+    public static final int ROW_WINDOW = 200;
+
+    // Estimated widths are clamped to this range (in characters)
+    private static final int MIN_COLUMN_CHARS = 6;
+    private static final int MAX_COLUMN_CHARS = 60;
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final SXSSFWorkbook workbook;
+    private final java.util.List<SheetWriter> sheets = new java.util.ArrayList<>();
+
+    private CellStyle headerStyle;
+    private CellStyle titleStyle;
+    private CellStyle currencyStyle;
+
+    public StreamingExcelWriter() {
+        this.workbook = new SXSSFWorkbook(ROW_WINDOW);
+        // Flushed rows are gzipped on disk - exports of text-heavy sheets stay small
+        this.workbook.setCompressTempFiles(true);
+    }
+
+    public SheetWriter createSheet(String name) {
+        SheetWriter sheet = new SheetWriter(workbook.createSheet(name));
+        sheets.add(sheet);
+        return sheet;
+    }
+
+    /**
+     * Apply estimated column widths and write the workbook
+     */
+    public File writeTo(File file) throws IOException {
+        for (SheetWriter sheet : sheets) {
+            sheet.applyColumnWidths();
+        }
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            workbook.write(outputStream);
+        }
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        workbook.dispose(); // Delete temp files
+        workbook.close();
+    }
+
+    // ==================== Shared Styles ====================
+
+    public CellStyle headerStyle() {
+        if (headerStyle == null) {
+            headerStyle = workbook.createCellStyle();
+            Font headerFont = workbook.createFont();
+            headerFont.setBold(true);
+            headerFont.setFontHeightInPoints((short) 12);
+            headerStyle.setFont(headerFont);
+            headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            headerStyle.setBorderBottom(BorderStyle.THIN);
+            headerStyle.setBorderTop(BorderStyle.THIN);
+            headerStyle.setBorderLeft(BorderStyle.THIN);
+            headerStyle.setBorderRight(BorderStyle.THIN);
+        }
+        return headerStyle;
+    }
+
+    public CellStyle titleStyle() {
+        if (titleStyle == null) {
+            titleStyle = workbook.createCellStyle();
+            Font font = workbook.createFont();
+            font.setBold(true);
+            font.setFontHeightInPoints((short) 16);
+            titleStyle.setFont(font);
+            titleStyle.setAlignment(HorizontalAlignment.CENTER);
+        }
+        return titleStyle;
+    }
+
+    public CellStyle currencyStyle() {
+        if (currencyStyle == null) {
+            currencyStyle = workbook.createCellStyle();
+            currencyStyle.setDataFormat(workbook.createDataFormat().getFormat("$#,##0.00"));
+        }
+        return currencyStyle;
+    }
+
+    // ==================== Sheet Writer ====================
+
+    /**
+     * Appends rows to one sheet and tracks the widest value per column
+     */
+    public static class SheetWriter {
+
+        private final SXSSFSheet sheet;
+        private int nextRow = 0;
+        private int[] columnChars = new int[16];
+        private boolean[] fixedWidth = new boolean[16];
+        private CellStyle[] columnStyles = new CellStyle[0];
+
+        SheetWriter(SXSSFSheet sheet) {
+            this.sheet = sheet;
+        }
+
+        /**
+         * Fixed widths (POI units, 1/256 char) - these columns are not estimated
+         */
+        public SheetWriter columnWidths(int... widths) {
+            for (int i = 0; i < widths.length; i++) {
+                ensureColumn(i);
+                sheet.setColumnWidth(i, widths[i]);
+                fixedWidth[i] = true;
+            }
+            return this;
+        }
+
+        /**
+         * Styles applied to data cells written with {@link #row(Object...)}, by column (null = none)
+         */
+        public SheetWriter columnStyles(CellStyle... styles) {
+            this.columnStyles = styles;
+            return this;
+        }
+
+        /**
+         * Title cell merged across {@code span} columns, followed by a blank row
+         */
+        public void title(String text, int span, CellStyle style) {
+            int rowIndex = nextRow;
+            Row row = nextRow();
+            Cell cell = row.createCell(0);
+            cell.setCellValue(text);
+            cell.setCellStyle(style);
+            if (span > 1) {
+                sheet.addMergedRegion(new CellRangeAddress(rowIndex, rowIndex, 0, span - 1));
+            }
+            blankRow();
+        }
+
+        public void header(CellStyle style, String... headers) {
+            Row row = nextRow();
+            for (int i = 0; i < headers.length; i++) {
+                cell(row, i, headers[i], style);
+            }
+        }
+
+        public Row row(Object... values) {
+            Row row = nextRow();
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    cell(row, i, values[i], i < columnStyles.length ? columnStyles[i] : null);
+                }
+            }
+            return row;
+        }
+
+        /**
+         * Two-column label/value row used by information sheets
+         */
+        public void labelRow(String label, Object value, CellStyle labelStyle, CellStyle valueStyle) {
+            Row row = nextRow();
+            cell(row, 0, label, labelStyle);
+            cell(row, 1, value != null ? value : "", valueStyle);
+        }
+
+        /**
+         * Write one row per element of a stream; the stream is closed when done.
+         * @return number of rows written
+         */
+        public <T> int rows(Stream<T> source, Function<T, Object[]> mapper) {
+            int count = 0;
+            try (source) {
+                Iterator<T> iterator = source.iterator();
+                while (iterator.hasNext()) {
+                    row(mapper.apply(iterator.next()));
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        public void blankRow() {
+            nextRow++;
+        }
+
+        public Row nextRow() {
+            return sheet.createRow(nextRow++);
+        }
+
+        /**
+         * Set a typed cell value and record its display width
+         */
+        public Cell cell(Row row, int column, Object value, CellStyle style) {
+            Cell cell = row.createCell(column);
+            String text;
+
+            if (value == null) {
+                text = "";
+            } else if (value instanceof BigDecimal decimal) {
+                cell.setCellValue(decimal.doubleValue());
+                text = String.format("$%,.2f", decimal); // Widest form, as shown with a currency format
+            } else if (value instanceof Number number) {
+                cell.setCellValue(number.doubleValue());
+                text = number.toString();
+            } else if (value instanceof Boolean bool) {
+                cell.setCellValue(bool);
+                text = bool.toString();
+            } else if (value instanceof LocalDateTime dateTime) {
+                text = dateTime.format(DATETIME_FORMATTER);
+                cell.setCellValue(text);
+            } else if (value instanceof LocalDate date) {
+                text = date.format(DATE_FORMATTER);
+                cell.setCellValue(text);
+            } else {
+                text = value.toString();
+                cell.setCellValue(text);
+            }
+
+            if (style != null) {
+                cell.setCellStyle(style);
+            }
+            track(column, text);
+            return cell;
+        }
+
+        private void track(int column, String text) {
+            ensureColumn(column);
+            // Multi-line text is sized by its longest line
+            int width = 0;
+            for (String line : text.split("\n", -1)) {
+                width = Math.max(width, line.length());
+            }
+            if (width > columnChars[column]) {
+                columnChars[column] = width;
+            }
+        }
+
+        private void ensureColumn(int column) {
+            if (column >= columnChars.length) {
+                int size = Math.max(column + 1, columnChars.length * 2);
+                columnChars = java.util.Arrays.copyOf(columnChars, size);
+                fixedWidth = java.util.Arrays.copyOf(fixedWidth, size);
+            }
+        }
+
+        void applyColumnWidths() {
+            for (int i = 0; i < columnChars.length; i++) {
+                if (fixedWidth[i] || columnChars[i] == 0) {
+                    continue;
+                }
+                int chars = Math.min(MAX_COLUMN_CHARS, Math.max(MIN_COLUMN_CHARS, columnChars[i] + 2));
+                sheet.setColumnWidth(i, chars * 256);
+            }
+        }
+    }
+}
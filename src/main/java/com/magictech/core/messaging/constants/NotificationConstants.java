@@ -29,6 +29,7 @@ public class NotificationConstants {
     public static final String ACTION_COMPLETED = "completed";
     public static final String ACTION_CONFIRMATION_REQUESTED = "confirmation_requested";
     public static final String ACTION_ASSIGNED = "assigned";
+    public static final String ACTION_LOW_STOCK = "low_stock";
 
     // Entity Types
     public static final String ENTITY_PROJECT = "project";
@@ -61,6 +62,9 @@ public class NotificationConstants {
     public static final String CHANNEL_MAINTENANCE_NOTIFICATIONS = "maintenance_notifications";
     public static final String CHANNEL_ALL_NOTIFICATIONS = "all_notifications";
 
+    // Storage catalog deltas (StorageCatalogCache) - not a notification channel
+    public static final String CHANNEL_STORAGE_CATALOG = "storage_catalog_changes";
+
     // Channel Patterns
     public static final String CHANNEL_PATTERN_MODULE = "%s_notifications"; // e.g., sales_notifications
     public static final String CHANNEL_PATTERN_ACTION = "%s:%s:%s"; // e.g., sales:created:project
@@ -12,7 +12,8 @@ import java.time.LocalDateTime;
 public class DeviceRegistration {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "device_registrations_seq")
+    @SequenceGenerator(name = "device_registrations_seq", sequenceName = "device_registrations_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "device_id", nullable = false, unique = true, length = 100)
@@ -14,7 +14,8 @@ import java.time.LocalDateTime;
 public class NotificationUserStatus {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_user_status_seq")
+    @SequenceGenerator(name = "notification_user_status_seq", sequenceName = "notification_user_status_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "notification_id", nullable = false)
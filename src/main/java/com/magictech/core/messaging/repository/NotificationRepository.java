@@ -100,4 +100,11 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
      * Used to prevent duplicate workflow notifications.
      */
     boolean existsByEntityIdAndTitleAndTargetModuleAndActiveTrue(Long entityId, String title, String targetModule);
+
+    /**
+     * Check if a notification with this action was sent for an entity since the given time.
+     * Used for alert cooldowns shared by all desks.
+     */
+    boolean existsByActionAndEntityTypeAndEntityIdAndTimestampAfterAndActiveTrue(
+            String action, String entityType, Long entityId, LocalDateTime since);
 }
@@ -2,8 +2,11 @@ package com.magictech.core.messaging.repository;
 
 import com.magictech.core.messaging.entity.NotificationUserStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,4 +36,12 @@ public interface NotificationUserStatusRepository extends JpaRepository<Notifica
      * Find all users who have seen a specific notification.
      */
     List<NotificationUserStatus> findByNotificationIdAndActiveTrue(Long notificationId);
+
+    /**
+     * Of the given notifications, the ones a user has already seen (one query for a whole batch).
+     */
+    @Query("SELECT s.notificationId FROM NotificationUserStatus s " +
+           "WHERE s.username = :username AND s.notificationId IN :notificationIds AND s.active = true")
+    List<Long> findSeenNotificationIds(@Param("username") String username,
+                                       @Param("notificationIds") Collection<Long> notificationIds);
 }
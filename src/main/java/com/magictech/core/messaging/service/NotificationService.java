@@ -233,6 +233,35 @@ public class NotificationService {
         publishNotification(pricingMessage);
     }
 
+    /**
+     * Send a low-stock alert for a storage item to the Storage module.
+     */
+    public void notifyLowStock(Long itemId, String itemName, String details) {
+        NotificationMessage message = new NotificationMessage.Builder()
+            .type(NotificationConstants.TYPE_WARNING)
+            .module(NotificationConstants.MODULE_STORAGE)
+            .action(NotificationConstants.ACTION_LOW_STOCK)
+            .entityType(NotificationConstants.ENTITY_STORAGE_ITEM)
+            .entityId(itemId)
+            .title("Low Stock: " + itemName)
+            .message(details)
+            .targetModule(NotificationConstants.MODULE_STORAGE)
+            .priority(NotificationConstants.PRIORITY_HIGH)
+            .createdBy("system")
+            .build();
+
+        publishNotification(message);
+    }
+
+    /**
+     * Check if a notification with this action was already sent for an entity since the given time.
+     */
+    @Transactional(readOnly = true)
+    public boolean hasRecentNotification(String action, String entityType, Long entityId, LocalDateTime since) {
+        return notificationRepository.existsByActionAndEntityTypeAndEntityIdAndTimestampAfterAndActiveTrue(
+            action, entityType, entityId, since);
+    }
+
     /**
      * Mark notification as read.
      */
@@ -333,6 +362,47 @@ public class NotificationService {
         }
     }
 
+    /**
+     * Mark several notifications as seen by a user in one transaction.
+     * Status rows are inserted with a single batched saveAll.
+     *
+     * @param notificationIds The notification IDs
+     * @param username The username of the user who has seen the notifications
+     */
+    public void markAllAsSeenByUser(java.util.Collection<Long> notificationIds, String username) {
+        if (notificationIds == null || notificationIds.isEmpty()) {
+            return;
+        }
+        try {
+            java.util.Set<Long> alreadySeen = getSeenNotificationIds(notificationIds, username);
+            java.util.List<com.magictech.core.messaging.entity.NotificationUserStatus> statuses = new java.util.ArrayList<>();
+            for (Long notificationId : new java.util.LinkedHashSet<>(notificationIds)) {
+                if (!alreadySeen.contains(notificationId)) {
+                    statuses.add(new com.magictech.core.messaging.entity.NotificationUserStatus(notificationId, username));
+                }
+            }
+            notificationUserStatusRepository.saveAll(statuses);
+            logger.debug("Marked {} notifications as seen by user {}", statuses.size(), username);
+        } catch (Exception e) {
+            logger.error("Error marking notifications as seen by user: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Of the given notifications, return the IDs a user has already seen.
+     *
+     * @param notificationIds The notification IDs to check
+     * @param username The username to check
+     * @return IDs already seen by the user
+     */
+    public java.util.Set<Long> getSeenNotificationIds(java.util.Collection<Long> notificationIds, String username) {
+        if (notificationIds == null || notificationIds.isEmpty()) {
+            return new java.util.HashSet<>();
+        }
+        return new java.util.HashSet<>(
+            notificationUserStatusRepository.findSeenNotificationIds(username, notificationIds));
+    }
+
     /**
      * Check if a specific user has seen a specific notification.
      *
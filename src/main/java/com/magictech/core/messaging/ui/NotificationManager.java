@@ -186,6 +186,11 @@ public class NotificationManager {
             int skippedApprovalCount = 0;
             int skippedAlreadySeenCount = 0;
 
+            // One query for what this user has already seen, one batched insert for what we show
+            java.util.Set<Long> alreadySeenIds = notificationService.getSeenNotificationIds(
+                missedNotifications.stream().map(Notification::getId).toList(), currentUser.getUsername());
+            List<Long> shownIds = new java.util.ArrayList<>();
+
             for (Notification notification : missedNotifications) {
                 logger.debug("Processing notification: {} (action: {}, targetModule: {}, sourceDeviceId: {})",
                     notification.getTitle(), notification.getAction(), notification.getTargetModule(),
@@ -200,7 +205,7 @@ public class NotificationManager {
 
                 // Check if THIS USER has already seen this notification
                 // This allows multiple users to see the same notification (MASTER + PROJECTS both see project creation)
-                if (notificationService.hasUserSeenNotification(notification.getId(), currentUser.getUsername())) {
+                if (alreadySeenIds.contains(notification.getId())) {
                     skippedAlreadySeenCount++;
                     logger.debug("Skipping notification '{}' - already seen by user {}",
                         notification.getTitle(), currentUser.getUsername());
@@ -214,14 +219,15 @@ public class NotificationManager {
                 NotificationMessage message = convertToMessage(notification);
                 handleNotification(message);
 
-                // Mark notification as seen by THIS USER (not globally)
-                // This allows other users (e.g., MASTER, PROJECTS) to still see it
-                notificationService.markAsSeenByUser(notification.getId(), currentUser.getUsername());
-                logger.debug("Marked notification {} as seen by user {}", notification.getId(), currentUser.getUsername());
+                shownIds.add(notification.getId());
 
                 Thread.sleep(300);
             }
 
+            // Mark shown notifications as seen by THIS USER (not globally)
+            // This allows other users (e.g., MASTER, PROJECTS) to still see them
+            notificationService.markAllAsSeenByUser(shownIds, currentUser.getUsername());
+
             logger.info("Notification summary: {} shown, {} skipped (approval), {} skipped (already seen)",
                 shownCount, skippedApprovalCount, skippedAlreadySeenCount);
 
@@ -0,0 +1,236 @@
+package com.magictech.core.ui.components;
+
+import javafx.animation.PauseTransition;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.scene.control.TableView;
+import javafx.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Debounced, off-thread text filter for a TableView backed by an in-memory list.
+ *
+ * Each row's search key (its searchable fields, lower-cased and joined) is computed once per
+ * change of the source list instead of on every keystroke. Typing only restarts a short pause;
+ * when it elapses the query is matched against the cached keys in a background Task (in
+ * parallel for large lists) and the table's item list is replaced in a single change.
+ *
+ * Usage:
+ * <pre>
+ * BackgroundTableFilter&lt;StorageItemViewModel&gt; filter = new BackgroundTableFilter&lt;&gt;(table, items,
+ *         vm -&gt; BackgroundTableFilter.searchKey(vm.getProductName(), vm.getManufacture()));
+ * searchField.textProperty().addListener((obs, old, text) -&gt; filter.setQuery(text));
+ * filter.setOnFailed(ex -&gt; showError("Search failed: " + ex.getMessage()));
+ * </pre>
+ *
+ * If a filter run fails the table falls back to all rows, so it never shows the matches of an
+ * older query as if they answered the current one.
+ */
+public class BackgroundTableFilter<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackgroundTableFilter.class);
+
+    public static final Duration DEFAULT_DEBOUNCE = Duration.millis(250);
+
+    // Below this many rows a sequential scan is faster than splitting the work
+    private static final int PARALLEL_THRESHOLD = 5000;
+
+    // Separates fields in a search key so a term cannot match across two fields
+    private static final char FIELD_SEPARATOR = '\u0001';
+
+    private final TableView<T> table;
+    private final ObservableList<T> source;
+    private final ObservableList<T> items = FXCollections.observableArrayList();
+    private final Function<? super T, String> keyFunction;
+    private final PauseTransition debounce;
+
+    private String query = "";
+
+    // Bumped on every change of the source so keys of an older list are not reused
+    private long sourceVersion;
+    private long keysVersion = -1;
+    private String[] cachedKeys;
+
+    // Bumped by every filter run so results of a superseded run are dropped
+    private long generation;
+
+    private Consumer<List<T>> onFiltered;
+    private Consumer<Throwable> onFailed;
+
+    public BackgroundTableFilter(TableView<T> table, ObservableList<T> source,
+                                 Function<? super T, String> keyFunction) {
+        this(table, source, keyFunction, DEFAULT_DEBOUNCE);
+    }
+
+    public BackgroundTableFilter(TableView<T> table, ObservableList<T> source,
+                                 Function<? super T, String> keyFunction, Duration debounceDelay) {
+        this.table = table;
+        this.source = source;
+        this.keyFunction = keyFunction;
+        this.debounce = new PauseTransition(debounceDelay);
+        this.debounce.setOnFinished(e -> runFilter());
+
+        source.addListener((ListChangeListener<T>) change -> {
+            sourceVersion++;
+            if (query.isEmpty()) {
+                runFilter();
+            } else {
+                debounce.playFromStart();
+            }
+        });
+
+        items.setAll(source);
+        table.setItems(items);
+    }
+
+    /**
+     * Build a search key from a row's searchable fields (null fields are skipped)
+     */
+    public static String searchKey(String... fields) {
+        StringBuilder key = new StringBuilder();
+        for (String field : fields) {
+            if (field != null && !field.isEmpty()) {
+                key.append(field.toLowerCase(Locale.ROOT)).append(FIELD_SEPARATOR);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Called on the FX thread after the table's items have been replaced
+     */
+    public void setOnFiltered(Consumer<List<T>> onFiltered) {
+        this.onFiltered = onFiltered;
+    }
+
+    /**
+     * Called on the FX thread when a filter run failed, after the table was reset to all rows
+     */
+    public void setOnFailed(Consumer<Throwable> onFailed) {
+        this.onFailed = onFailed;
+    }
+
+    /**
+     * Rows currently shown (the table's item list)
+     */
+    public ObservableList<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Set the search text; the table is filtered once typing pauses
+     */
+    public void setQuery(String text) {
+        query = text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+        debounce.playFromStart();
+    }
+
+    /**
+     * Recompute all search keys - call after rows were edited in place
+     */
+    public void invalidateKeys() {
+        sourceVersion++;
+        runFilter();
+    }
+
+    private void runFilter() {
+        debounce.stop();
+        long requestGeneration = ++generation;
+
+        if (query.isEmpty()) {
+            apply(new ArrayList<>(source));
+            return;
+        }
+
+        List<T> rows = new ArrayList<>(source);
+        String[] keys = keysVersion == sourceVersion ? cachedKeys : null;
+        long rowsVersion = sourceVersion;
+        String[] terms = query.split("\\s+");
+
+        Task<FilterResult<T>> filterTask = new Task<>() {
+            @Override
+            protected FilterResult<T> call() {
+                boolean parallel = rows.size() >= PARALLEL_THRESHOLD;
+                String[] rowKeys = keys != null ? keys : computeKeys(rows, parallel);
+
+                IntStream indexes = IntStream.range(0, rows.size());
+                if (parallel) {
+                    indexes = indexes.parallel();
+                }
+                List<T> matches = indexes
+                        .filter(i -> matchesAll(rowKeys[i], terms))
+                        .mapToObj(rows::get)
+                        .collect(Collectors.toList());
+                return new FilterResult<>(rowKeys, matches);
+            }
+        };
+
+        filterTask.setOnSucceeded(e -> {
+            FilterResult<T> result = filterTask.getValue();
+            if (rowsVersion == sourceVersion) {
+                cachedKeys = result.keys();
+                keysVersion = rowsVersion;
+            }
+            if (requestGeneration == generation) {
+                apply(result.matches());
+            }
+        });
+
+        filterTask.setOnFailed(e -> {
+            if (requestGeneration != generation) {
+                return; // Superseded by a newer run
+            }
+            logger.error("Table filter failed for query '{}'", query, filterTask.getException());
+            apply(new ArrayList<>(source));
+            if (onFailed != null) {
+                onFailed.accept(filterTask.getException());
+            }
+        });
+
+        new Thread(filterTask).start();
+    }
+
+    private String[] computeKeys(List<T> rows, boolean parallel) {
+        String[] keys = new String[rows.size()];
+        IntStream indexes = IntStream.range(0, rows.size());
+        if (parallel) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> {
+            String key = keyFunction.apply(rows.get(i));
+            keys[i] = key != null ? key : "";
+        });
+        return keys;
+    }
+
+    private static boolean matchesAll(String key, String[] terms) {
+        for (String term : terms) {
+            if (!key.contains(term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void apply(List<T> matches) {
+        items.setAll(matches);
+        table.sort(); // Keep the user's column sort order
+        if (onFiltered != null) {
+            onFiltered.accept(matches);
+        }
+    }
+
+    private record FilterResult<T>(String[] keys, List<T> matches) {
+    }
+}
@@ -0,0 +1,454 @@
+package com.magictech.core.ui.components;
+
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.Skin;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.skin.VirtualFlow;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Keyset-paged data source for a TableView.
+ *
+ * Rows are fetched one page at a time in a background Task; the next page is requested when
+ * the user scrolls near the bottom. The fetcher receives the last loaded row and continues after
+ * its key (e.g. id, or product name + id), so every page is an index range scan no matter how
+ * deep the user scrolls.
+ *
+ * At most {@link #MAX_PAGES} pages are held in the table. Loading a page past that drops the
+ * page at the other end; scrolling back to the top fetches dropped pages again from the row
+ * they were first fetched after. Rows inserted or deleted meanwhile can shift the page edges.
+ *
+ * Usage:
+ * <pre>
+ * PagedTableLoader&lt;StorageItem&gt; pager = new PagedTableLoader&lt;&gt;(table, PagedTableLoader.DEFAULT_PAGE_SIZE,
+ *         (last, limit, sort) -&gt; storageService.getItemsPage(last, limit, sort));
+ * PagedTableLoader.setSortProperty(nameColumn, "productName");
+ * pager.reset(); // load the first page
+ * ...
+ * pager.dispose(); // before the table gets a new loader
+ * </pre>
+ *
+ * The loader listens to the table's skin and scroll bar from the first reset() until dispose().
+ * Header clicks sort in the database: columns given a sort property pass it to the fetcher,
+ * which orders (and keys) its query on it, and the loader starts again from the first page.
+ * Columns without one cannot be sorted, since sorting the item list would only reorder the
+ * loaded pages.
+ *
+ * Check-box selection is kept per row id (see {@link #selectedProperty}), so it survives pages
+ * being dropped and fetched again.
+ */
+public class PagedTableLoader<T> {
+
+    public static final int DEFAULT_PAGE_SIZE = 200;
+
+    // Pages held in the table at once
+    public static final int MAX_PAGES = 5;
+
+    // Fraction of the scroll range after which the next page is fetched (and before which,
+    // measured from the top, a dropped previous page is fetched again)
+    private static final double PREFETCH_THRESHOLD = 0.85;
+
+    private static final String SORT_PROPERTY = PagedTableLoader.class.getName() + ".sortProperty";
+
+    /**
+     * Fetches the rows following {@code lastRow} (null for the first page), at most {@code limit},
+     * ordered by {@code sort} (null for the fetcher's default order) and then a unique key
+     */
+    @FunctionalInterface
+    public interface PageFetcher<T> {
+        List<T> fetch(T lastRow, int limit, Sort.Order sort) throws Exception;
+    }
+
+    private final TableView<T> table;
+    private final ObservableList<T> items = FXCollections.observableArrayList();
+    private final int pageSize;
+    private final PageFetcher<T> fetcher;
+    private final Function<T, ?> idOf;
+
+    // Bumped by reset() so pages requested before it are dropped
+    private long generation;
+    private boolean loading;
+    private boolean exhausted;
+    private boolean attached;
+    private Sort.Order sort;
+    private ScrollBar verticalBar;
+
+    // Row counts of the pages in the table, first to last
+    private final Deque<Integer> pageSizes = new ArrayDeque<>();
+    // Row each page was fetched after (null for page 0), by page number
+    private final List<T> pageCursors = new ArrayList<>();
+    // Page number of the first page in the table
+    private int firstPage;
+
+    // Check-box state by row id, with the latest copy of the row
+    private final Map<Object, SelectionEntry<T>> selection = new HashMap<>();
+
+    private final ChangeListener<Skin<?>> skinListener = (obs, oldSkin, newSkin) -> bindScrollBar();
+    private final ChangeListener<Number> scrollListener = (obs, oldValue, newValue) -> {
+        if (verticalBar == null) {
+            return;
+        }
+        if (newValue.doubleValue() >= verticalBar.getMax() * PREFETCH_THRESHOLD) {
+            loadNextPage();
+        } else if (newValue.doubleValue() <= verticalBar.getMax() * (1 - PREFETCH_THRESHOLD)) {
+            loadPreviousPage();
+        }
+    };
+
+    private Consumer<List<T>> onPageLoaded;
+    private Consumer<Throwable> onFailed;
+    private Runnable onSelectionChanged;
+
+    private static final class SelectionEntry<T> {
+        private final BooleanProperty selected = new SimpleBooleanProperty(false);
+        private T row;
+    }
+
+    /**
+     * Loader whose rows are their own id (selection by row identity)
+     */
+    public PagedTableLoader(TableView<T> table, int pageSize, PageFetcher<T> fetcher) {
+        this(table, pageSize, row -> row, fetcher);
+    }
+
+    /**
+     * @param idOf unique key of a row, used to keep its selection across page reloads
+     */
+    public PagedTableLoader(TableView<T> table, int pageSize, Function<T, ?> idOf, PageFetcher<T> fetcher) {
+        this.table = table;
+        this.pageSize = pageSize;
+        this.idOf = idOf;
+        this.fetcher = fetcher;
+
+        table.setItems(items);
+        sort = requestedSort();
+        table.setSortPolicy(t -> {
+            Sort.Order requested = requestedSort();
+            if (!Objects.equals(requested, sort)) {
+                sort = requested;
+                if (attached) {
+                    reset();
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Let header clicks on {@code column} order the fetched rows by {@code property}. May be
+     * called before the column's table has a loader.
+     */
+    public static void setSortProperty(TableColumn<?, ?> column, String property) {
+        column.getProperties().put(SORT_PROPERTY, property);
+        column.setSortable(true);
+    }
+
+    /**
+     * Called on the FX thread after each page has been added
+     */
+    public void setOnPageLoaded(Consumer<List<T>> onPageLoaded) {
+        this.onPageLoaded = onPageLoaded;
+    }
+
+    public void setOnFailed(Consumer<Throwable> onFailed) {
+        this.onFailed = onFailed;
+    }
+
+    /**
+     * Called on the FX thread whenever a row is checked or unchecked
+     */
+    public void setOnSelectionChanged(Runnable onSelectionChanged) {
+        this.onSelectionChanged = onSelectionChanged;
+    }
+
+    /**
+     * Rows currently held (the table's item list) - at most {@link #MAX_PAGES} pages
+     */
+    public ObservableList<T> getItems() {
+        return items;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * True once a page shorter than the page size came back - there is nothing more to load
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * Header sort passed to the fetcher, null for its default order
+     */
+    public Sort.Order getSort() {
+        return sort;
+    }
+
+    /**
+     * Check-box state of a row, shared by every copy of the row with the same id
+     */
+    public BooleanProperty selectedProperty(T row) {
+        Object id = idOf.apply(row);
+        SelectionEntry<T> entry = selection.get(id);
+        if (entry == null) {
+            entry = new SelectionEntry<>();
+            entry.selected.addListener((obs, wasSelected, isSelected) -> {
+                if (onSelectionChanged != null) {
+                    onSelectionChanged.run();
+                }
+            });
+            selection.put(id, entry);
+        }
+        entry.row = row;
+        return entry.selected;
+    }
+
+    /**
+     * Checked rows, including rows whose page has been dropped from the table
+     */
+    public List<T> getSelectedRows() {
+        List<T> selected = new ArrayList<>();
+        for (SelectionEntry<T> entry : selection.values()) {
+            if (entry.selected.get()) {
+                selected.add(entry.row);
+            }
+        }
+        return selected;
+    }
+
+    public void clearSelection() {
+        for (SelectionEntry<T> entry : List.copyOf(selection.values())) {
+            entry.selected.set(false);
+        }
+        selection.clear();
+    }
+
+    /**
+     * Drop all loaded rows and load the first page again (e.g. after the search term changed).
+     * Checked rows stay checked.
+     */
+    public void reset() {
+        if (!attached) {
+            attached = true;
+            table.skinProperty().addListener(skinListener);
+            bindScrollBar();
+        }
+        generation++;
+        loading = false;
+        exhausted = false;
+        forgetUnselected(items);
+        items.clear();
+        pageSizes.clear();
+        pageCursors.clear();
+        firstPage = 0;
+        disableColumnSorting(table.getColumns());
+        if (verticalBar != null) {
+            verticalBar.setValue(0);
+        }
+        loadNextPage();
+    }
+
+    /**
+     * Load the page after the last row in the table, unless a load is running or all rows are loaded
+     */
+    public void loadNextPage() {
+        if (loading || exhausted) {
+            return;
+        }
+        int pageNumber = firstPage + pageSizes.size();
+        T lastRow = items.isEmpty() ? null : items.get(items.size() - 1);
+
+        fetch(lastRow, page -> {
+            exhausted = page.size() < pageSize;
+            if (page.isEmpty()) {
+                return;
+            }
+            if (pageNumber < pageCursors.size()) {
+                pageCursors.set(pageNumber, lastRow);
+            } else {
+                pageCursors.add(lastRow);
+            }
+            items.addAll(page);
+            pageSizes.addLast(page.size());
+            if (pageSizes.size() > MAX_PAGES) {
+                dropFirstPage();
+            }
+        });
+    }
+
+    /**
+     * Fetch the page before the first row in the table again, if it was dropped
+     */
+    public void loadPreviousPage() {
+        if (loading || firstPage == 0) {
+            return;
+        }
+        T lastRow = pageCursors.get(firstPage - 1);
+
+        fetch(lastRow, page -> {
+            int firstVisible = firstVisibleIndex();
+            items.addAll(0, page);
+            pageSizes.addFirst(page.size());
+            firstPage--;
+            if (pageSizes.size() > MAX_PAGES) {
+                dropLastPage();
+            }
+            // Keep the rows on screen where they were
+            table.scrollTo(firstVisible + page.size());
+        });
+    }
+
+    /**
+     * Stop listening to the table and drop pages still being fetched. The loaded rows stay in
+     * the table; reset() attaches the loader again.
+     */
+    public void dispose() {
+        generation++;
+        loading = false;
+        if (!attached) {
+            return;
+        }
+        attached = false;
+        table.skinProperty().removeListener(skinListener);
+        if (verticalBar != null) {
+            verticalBar.valueProperty().removeListener(scrollListener);
+            verticalBar = null;
+        }
+    }
+
+    private void fetch(T lastRow, Consumer<List<T>> apply) {
+        loading = true;
+        long requestGeneration = generation;
+        Sort.Order requestSort = sort;
+
+        Task<List<T>> pageTask = new Task<>() {
+            @Override
+            protected List<T> call() throws Exception {
+                return fetcher.fetch(lastRow, pageSize, requestSort);
+            }
+        };
+
+        pageTask.setOnSucceeded(e -> {
+            if (requestGeneration != generation) {
+                return; // Superseded by reset()
+            }
+            List<T> page = pageTask.getValue();
+            loading = false;
+            apply.accept(page);
+            if (onPageLoaded != null) {
+                onPageLoaded.accept(page);
+            }
+        });
+
+        pageTask.setOnFailed(e -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            loading = false;
+            if (onFailed != null) {
+                onFailed.accept(pageTask.getException());
+            }
+        });
+
+        new Thread(pageTask).start();
+    }
+
+    private void dropFirstPage() {
+        int firstVisible = firstVisibleIndex();
+        int size = pageSizes.removeFirst();
+        forgetUnselected(items.subList(0, size));
+        items.remove(0, size);
+        firstPage++;
+        table.scrollTo(Math.max(0, firstVisible - size));
+    }
+
+    private void dropLastPage() {
+        int size = pageSizes.removeLast();
+        forgetUnselected(items.subList(items.size() - size, items.size()));
+        items.remove(items.size() - size, items.size());
+        exhausted = false;
+    }
+
+    /**
+     * Release the selection entries of unchecked rows leaving the table
+     */
+    private void forgetUnselected(List<T> rows) {
+        for (T row : rows) {
+            SelectionEntry<T> entry = selection.get(idOf.apply(row));
+            if (entry != null && !entry.selected.get()) {
+                selection.remove(idOf.apply(row));
+            }
+        }
+    }
+
+    private int firstVisibleIndex() {
+        if (table.lookup(".virtual-flow") instanceof VirtualFlow<?> flow) {
+            IndexedCell<?> cell = flow.getFirstVisibleCell();
+            if (cell != null) {
+                return cell.getIndex();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * The first sorted column that has a sort property, as the order handed to the fetcher
+     */
+    private Sort.Order requestedSort() {
+        for (TableColumn<T, ?> column : table.getSortOrder()) {
+            if (column.getProperties().get(SORT_PROPERTY) instanceof String property) {
+                return column.getSortType() == TableColumn.SortType.DESCENDING
+                        ? Sort.Order.desc(property)
+                        : Sort.Order.asc(property);
+            }
+        }
+        return null;
+    }
+
+    private static <S> void disableColumnSorting(List<? extends TableColumn<S, ?>> columns) {
+        for (TableColumn<S, ?> column : columns) {
+            if (!column.getProperties().containsKey(SORT_PROPERTY)) {
+                column.setSortable(false);
+            }
+            disableColumnSorting(column.getColumns());
+        }
+    }
+
+    /**
+     * The VirtualFlow's scroll bars only exist once the skin has been created
+     */
+    private void bindScrollBar() {
+        if (verticalBar != null || table.getSkin() == null) {
+            return;
+        }
+        for (Node node : table.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+                verticalBar = bar;
+                bar.valueProperty().addListener(scrollListener);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.magictech.core.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Helpers for work that must wait for the surrounding transaction
+ */
+public class TransactionUtil {
+
+    private TransactionUtil() {
+    }
+
+    /**
+     * Run {@code action} once the current transaction has committed (never if it rolls back),
+     * or right away when no transaction is active. Used to update in-memory state and caches
+     * only after the rows they mirror are visible to other desks.
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -19,7 +19,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
-import java.nio.file.Files;
 import java.util.List;
 import java.util.Optional;
 
@@ -285,10 +284,9 @@ public class FinanceController extends BaseModuleController {
         File file = fileChooser.showOpenDialog(getRootPane().getScene().getWindow());
         if (file != null) {
             try {
-                byte[] fileData = Files.readAllBytes(file.toPath());
                 workflowService.submitBankGuarantee(
                     request.step.getWorkflowId(),
-                    fileData,
+                    file,
                     file.getName(),
                     currentUser
                 );
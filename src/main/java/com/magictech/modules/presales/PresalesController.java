@@ -27,8 +27,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.nio.file.Files;
 import java.util.List;
 import java.util.Optional;
 
@@ -382,10 +380,9 @@ public class PresalesController extends BaseModuleController {
         File file = fileChooser.showOpenDialog(getRootPane().getScene().getWindow());
         if (file != null) {
             try {
-                byte[] fileData = Files.readAllBytes(file.toPath());
                 workflowService.submitSizingPricing(
                     request.step.getWorkflowId(),
-                    fileData,
+                    file,
                     file.getName(),
                     currentUser
                 );
@@ -408,8 +405,8 @@ public class PresalesController extends BaseModuleController {
 
         File file = fileChooser.showSaveDialog(getRootPane().getScene().getWindow());
         if (file != null) {
-            try (FileOutputStream fos = new FileOutputStream(file)) {
-                fos.write(survey.getExcelFile());
+            try {
+                workflowService.saveFileTo(survey.getExcelBlobKey(), file);
                 showSuccess("✓ Site survey downloaded successfully!");
             } catch (Exception ex) {
                 showError("Failed to download: " + ex.getMessage());
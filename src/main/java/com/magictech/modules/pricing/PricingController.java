@@ -2,11 +2,14 @@ package com.magictech.modules.pricing;
 
 import com.magictech.core.module.BaseModuleController;
 import com.magictech.core.ui.SceneManager;
+import com.magictech.core.ui.components.BackgroundTableFilter;
 import com.magictech.modules.storage.dto.CustomerAnalyticsDTO;
 import com.magictech.modules.storage.dto.ProjectAnalyticsDTO;
 import com.magictech.modules.storage.entity.StorageItem;
 import com.magictech.modules.storage.model.StorageItemViewModel;
 import com.magictech.modules.storage.service.AnalyticsService;
+import com.magictech.modules.storage.service.StorageBulkOperations;
+import com.magictech.modules.storage.service.StorageCatalogCache;
 import com.magictech.modules.storage.service.StorageService;
 import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
@@ -14,7 +17,6 @@ import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -26,6 +28,7 @@ import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -43,6 +46,12 @@ public class PricingController extends BaseModuleController {
     @Autowired
     private StorageService storageService;
 
+    @Autowired
+    private StorageCatalogCache catalogCache;
+
+    @Autowired
+    private StorageBulkOperations bulkOperations;
+
     @Autowired
     private AnalyticsService analyticsService;
 
@@ -60,7 +69,7 @@ public class PricingController extends BaseModuleController {
     private Label selectedCountLabel;
 
     private ObservableList<StorageItemViewModel> pricingItems;
-    private FilteredList<StorageItemViewModel> filteredPricing;
+    private BackgroundTableFilter<StorageItemViewModel> pricingFilter;
     private Map<StorageItemViewModel, BooleanProperty> selectionMap = new HashMap<>();
 
     @Override
@@ -87,8 +96,10 @@ public class PricingController extends BaseModuleController {
     @Override
     protected void loadData() {
         pricingItems = FXCollections.observableArrayList();
-        filteredPricing = new FilteredList<>(pricingItems, p -> true);
-        pricingTable.setItems(filteredPricing);
+        pricingFilter = new BackgroundTableFilter<>(pricingTable, pricingItems,
+                vm -> BackgroundTableFilter.searchKey(vm.getProductName(), vm.getManufacture()));
+        pricingFilter.setOnFailed(ex -> showError("Search failed, showing all items: " + ex.getMessage()));
+        pricingFilter.setQuery(searchField.getText());
         loadPricingData();
     }
 
@@ -232,11 +243,7 @@ public class PricingController extends BaseModuleController {
         searchField.setStyle("-fx-background-color: rgba(30, 41, 59, 0.6); -fx-text-fill: white; -fx-prompt-text-fill: rgba(255, 255, 255, 0.5); -fx-padding: 10; -fx-background-radius: 8; -fx-border-color: rgba(234, 179, 8, 0.3); -fx-border-radius: 8;");
 
         searchField.textProperty().addListener((obs, old, newVal) -> {
-            filteredPricing.setPredicate(item -> {
-                if (newVal == null || newVal.isEmpty()) return true;
-                String lower = newVal.toLowerCase();
-                return item.getProductName().toLowerCase().contains(lower) || item.getManufacture().toLowerCase().contains(lower);
-            });
+            if (pricingFilter != null) pricingFilter.setQuery(newVal);
         });
 
         editPriceButton = createStyledButton("💵 Edit Price", "#eab308", "#ca8a04");
@@ -271,7 +278,7 @@ public class PricingController extends BaseModuleController {
         CheckBox selectAll = new CheckBox();
         selectAll.setOnAction(e -> {
             boolean selected = selectAll.isSelected();
-            filteredPricing.forEach(item -> selectionMap.get(item).set(selected));
+            pricingFilter.getItems().forEach(item -> selectionMap.get(item).set(selected));
         });
         selectCol.setGraphic(selectAll);
 
@@ -495,20 +502,21 @@ public class PricingController extends BaseModuleController {
         Task<List<StorageItem>> loadTask = new Task<>() {
             @Override
             protected List<StorageItem> call() {
-                return storageService.getAllItems();
+                return catalogCache.getAllItems();
             }
         };
 
         loadTask.setOnSucceeded(e -> {
             List<StorageItem> items = loadTask.getValue();
-            pricingItems.clear();
+            List<StorageItemViewModel> rows = new ArrayList<>(items.size());
             selectionMap.clear();
 
             for (StorageItem entity : items) {
                 StorageItemViewModel vm = convertToViewModel(entity);
-                pricingItems.add(vm);
+                rows.add(vm);
                 selectionMap.put(vm, new SimpleBooleanProperty(false));
             }
+            pricingItems.setAll(rows); // One change - the filter re-keys the rows once
 
             System.out.println("✓ Loaded " + items.size() + " items for pricing");
         });
@@ -573,9 +581,8 @@ public class PricingController extends BaseModuleController {
             Task<Void> updateTask = new Task<>() {
                 @Override
                 protected Void call() {
-                    StorageItem entity = storageService.findById(item.getId()).orElseThrow(() -> new RuntimeException("Item not found"));
-                    entity.setPrice(newPrice);
-                    storageService.updateItem(item.getId(), entity);
+                    // Price-only update: never writes back a stale quantity over concurrent stock movements
+                    storageService.updatePrice(item.getId(), newPrice);
                     return null;
                 }
             };
@@ -629,14 +636,12 @@ public class PricingController extends BaseModuleController {
 
         Optional<BigDecimal> result = dialog.showAndWait();
         result.ifPresent(newPrice -> {
+            List<Long> itemIds = items.stream().map(StorageItemViewModel::getId).collect(Collectors.toList());
+
             Task<Void> updateTask = new Task<>() {
                 @Override
                 protected Void call() {
-                    for (StorageItemViewModel item : items) {
-                        StorageItem entity = storageService.findById(item.getId()).orElseThrow(() -> new RuntimeException("Item not found: " + item.getId()));
-                        entity.setPrice(newPrice);
-                        storageService.updateItem(item.getId(), entity);
-                    }
+                    bulkOperations.setPrice(itemIds, newPrice);
                     return null;
                 }
             };
@@ -721,7 +726,6 @@ public class PricingController extends BaseModuleController {
         SceneManager.getInstance().showMainDashboard();
     }
 
-    @Override
     public void immediateCleanup() {
         if (backgroundPane != null) {
             backgroundPane.stopAnimation();
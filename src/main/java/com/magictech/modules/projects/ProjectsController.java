@@ -10,7 +10,9 @@ import com.magictech.modules.sales.entity.WorkflowStepCompletion;
 import com.magictech.modules.sales.repository.SiteSurveyDataRepository;
 import com.magictech.modules.sales.service.ProjectWorkflowService;
 import com.magictech.modules.sales.service.SiteSurveyExcelService;
+import com.magictech.modules.sales.service.SurveyImageService;
 import com.magictech.modules.sales.service.WorkflowStepService;
+import com.magictech.modules.sales.ui.SurveyImageGallery;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -31,8 +33,6 @@ import javafx.stage.StageStyle;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.nio.file.Files;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -59,6 +59,9 @@ public class ProjectsController extends BaseModuleController {
     @Autowired
     private SiteSurveyExcelService excelService;
 
+    @Autowired
+    private SurveyImageService surveyImageService;
+
     private VBox contentArea;
     private TableView<ProjectViewModel> projectTable;
     private ObservableList<ProjectViewModel> projectData;
@@ -561,15 +564,13 @@ public class ProjectsController extends BaseModuleController {
         File file = fileChooser.showOpenDialog(getRootPane().getScene().getWindow());
         if (file != null) {
             try {
-                byte[] fileData = Files.readAllBytes(file.toPath());
-
                 // Get workflow
                 Optional<ProjectWorkflow> workflowOpt = workflowService.getWorkflowByProjectId(vm.getId());
                 if (workflowOpt.isPresent()) {
                     // Submit site survey from project team
                     workflowService.submitSiteSurveyFromProject(
                         workflowOpt.get().getId(),
-                        fileData,
+                        file,
                         file.getName(),
                         currentUser
                     );
@@ -605,9 +606,7 @@ public class ProjectsController extends BaseModuleController {
 
             File file = fileChooser.showSaveDialog(getRootPane().getScene().getWindow());
             if (file != null) {
-                try (FileOutputStream fos = new FileOutputStream(file)) {
-                    fos.write(survey.getExcelFile());
-                }
+                workflowService.saveFileTo(survey.getExcelBlobKey(), file);
                 showSuccess("Site survey downloaded successfully!");
             }
         } catch (Exception ex) {
@@ -663,12 +662,13 @@ public class ProjectsController extends BaseModuleController {
         dataTextArea.setPrefRowCount(20);
         dataTextArea.setStyle("-fx-font-family: 'Monospaced'; -fx-font-size: 11px;");
 
-        if (survey.getParsedData() != null && !survey.getParsedData().isEmpty()) {
+        String parsedData = workflowService.getParsedData(survey.getParsedDataId());
+        if (parsedData != null && !parsedData.isEmpty()) {
             try {
                 // Pretty print JSON
-                dataTextArea.setText(formatJsonForDisplay(survey.getParsedData()));
+                dataTextArea.setText(formatJsonForDisplay(parsedData));
             } catch (Exception e) {
-                dataTextArea.setText(survey.getParsedData());
+                dataTextArea.setText(parsedData);
             }
         } else {
             dataTextArea.setText("No parsed data available");
@@ -684,10 +684,10 @@ public class ProjectsController extends BaseModuleController {
         Button copyButton = new Button("📋 Copy to Clipboard");
         copyButton.setStyle("-fx-background-color: #10b981; -fx-text-fill: white; -fx-font-weight: bold; -fx-padding: 10 20;");
         copyButton.setOnAction(e -> {
-            if (survey.getParsedData() != null) {
+            if (parsedData != null) {
                 javafx.scene.input.Clipboard clipboard = javafx.scene.input.Clipboard.getSystemClipboard();
                 javafx.scene.input.ClipboardContent clipContent = new javafx.scene.input.ClipboardContent();
-                clipContent.putString(survey.getParsedData());
+                clipContent.putString(parsedData);
                 clipboard.setContent(clipContent);
                 showSuccess("Data copied to clipboard!");
             }
@@ -699,7 +699,17 @@ public class ProjectsController extends BaseModuleController {
 
         buttonBox.getChildren().addAll(copyButton, closeBtn);
 
-        content.getChildren().addAll(header, new Separator(), metadataBox, dataBox, buttonBox);
+        content.getChildren().addAll(header, new Separator(), metadataBox);
+
+        // Photos: thumbnails first, full picture on click
+        SurveyImageGallery gallery = new SurveyImageGallery(surveyImageService, parsedData);
+        if (gallery.hasImages()) {
+            gallery.setPadding(new Insets(15));
+            gallery.setStyle("-fx-background-color: white; -fx-background-radius: 8; -fx-effect: dropshadow(gaussian, rgba(0,0,0,0.1), 10, 0, 0, 2);");
+            content.getChildren().add(gallery);
+        }
+
+        content.getChildren().addAll(dataBox, buttonBox);
         VBox.setVgrow(dataBox, Priority.ALWAYS);
 
         ScrollPane scroll = new ScrollPane(content);
@@ -8,7 +8,9 @@ import com.magictech.modules.projects.model.*;
 import com.magictech.modules.projects.ui.ProjectExecutionWizard;
 import com.magictech.modules.sales.service.ProjectWorkflowService;
 import com.magictech.modules.storage.entity.StorageItem;
+import com.magictech.modules.storage.service.StorageCatalogCache;
 import com.magictech.modules.storage.service.StorageService;
+import com.magictech.modules.storage.service.StockLedger;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.collections.FXCollections;
@@ -61,6 +63,12 @@ public class ProjectsStorageController extends BaseModuleController {
     @Autowired
     private StorageService storageService;
 
+    @Autowired
+    private StorageCatalogCache catalogCache;
+
+    @Autowired
+    private StockLedger stockLedger;
+
     @Autowired
     private SiteSurveyRequestService siteSurveyRequestService;
 
@@ -79,6 +87,12 @@ public class ProjectsStorageController extends BaseModuleController {
     @Autowired
     private com.magictech.modules.sales.service.WorkflowStepService workflowStepService;
 
+    @Autowired
+    private com.magictech.core.blob.BlobStore blobStore;
+
+    @Autowired
+    private com.magictech.modules.sales.service.SurveyImageService surveyImageService;
+
     // Active Project Execution Wizard
     private ProjectExecutionWizard activeExecutionWizard;
 
@@ -1140,15 +1154,11 @@ public class ProjectsStorageController extends BaseModuleController {
                         protected Void call() {
                             // ✅ RETURN QUANTITY TO STORAGE
                             if (element.getStorageItem() != null && returnQty > 0) {
-                                StorageItem storageItem = element.getStorageItem();
-                                int currentQty = storageItem.getQuantity();
-                                int newQty = currentQty + returnQty;
-
-                                storageItem.setQuantity(newQty);
-                                storageService.updateItem(storageItem.getId(), storageItem);
+                                stockLedger.returnStock(element.getStorageItem().getId(), returnQty,
+                                        "PROJECT_ELEMENT:" + elementId,
+                                        currentUser != null ? currentUser.getUsername() : "system");
 
                                 System.out.println("✓ Returned " + returnQty + " units to storage");
-                                System.out.println("✓ Storage quantity: " + currentQty + " → " + newQty);
                             }
 
                             // Delete element from project
@@ -1957,7 +1967,7 @@ public class ProjectsStorageController extends BaseModuleController {
         Task<List<StorageItem>> loadTask = new Task<>() {
             @Override
             protected List<StorageItem> call() {
-                return storageService.getAllItems();
+                return catalogCache.getAllItems();
             }
         };
 
@@ -2788,8 +2798,6 @@ public class ProjectsStorageController extends BaseModuleController {
         Task<Void> uploadTask = new Task<>() {
             @Override
             protected Void call() throws Exception {
-                // Read file
-                byte[] fileBytes = java.nio.file.Files.readAllBytes(selectedFile.toPath());
                 String fileName = selectedFile.getName().toLowerCase();
 
                 // Determine file type
@@ -2798,25 +2806,17 @@ public class ProjectsStorageController extends BaseModuleController {
 
                 // Validate file
                 if (isZipFile) {
-                    if (!zipExcelExtractorService.isValidZipFile(fileBytes, selectedFile.getName())) {
+                    if (!zipExcelExtractorService.isValidZipFile(selectedFile, selectedFile.getName())) {
                         throw new Exception("Invalid ZIP file");
                     }
                 } else if (isExcelFile) {
-                    if (!siteSurveyExcelService.isValidExcelFile(fileBytes, selectedFile.getName())) {
+                    if (!siteSurveyExcelService.isValidExcelFile(selectedFile, selectedFile.getName())) {
                         throw new Exception("Invalid Excel file");
                     }
                 } else {
                     throw new Exception("Unsupported file type. Please upload an Excel (.xlsx, .xls) or ZIP file.");
                 }
 
-                // Parse file - ZIP files extract and parse all Excel files inside
-                String parsedData;
-                if (isZipFile) {
-                    parsedData = zipExcelExtractorService.extractAndParseZipFile(fileBytes, selectedFile.getName());
-                } else {
-                    parsedData = siteSurveyExcelService.parseExcelToJson(fileBytes, selectedFile.getName());
-                }
-
                 // Get site survey request
                 Optional<SiteSurveyRequest> requestOpt =
                         siteSurveyRequestService.getRequestByProjectId(selectedProject.getId());
@@ -2838,37 +2838,51 @@ public class ProjectsStorageController extends BaseModuleController {
                 com.magictech.modules.sales.entity.ProjectWorkflow workflow = workflowOpt.get();
                 System.out.println("✅ Found workflow ID: " + workflow.getId() + " for project: " + selectedProject.getProjectName());
 
-                // Create SiteSurveyData with CORRECT workflow ID
-                com.magictech.modules.sales.entity.SiteSurveyData surveyData =
-                        new com.magictech.modules.sales.entity.SiteSurveyData();
-                surveyData.setProjectId(selectedProject.getId());
-                surveyData.setWorkflowId(workflow.getId()); // FIXED: Use actual workflow ID, not request ID
-
-                // Store file based on type
+                // Parse file - ZIP files extract and parse all Excel files inside
+                String parsedData;
                 if (isZipFile) {
-                    // Store as ZIP file
-                    surveyData.setZipFile(fileBytes);
-                    surveyData.setZipFileName(selectedFile.getName());
-                    surveyData.setZipFileSize((long) fileBytes.length);
-                    surveyData.setZipMimeType("application/zip");
-                    surveyData.setFileType("ZIP");
+                    parsedData = zipExcelExtractorService.extractAndParseZipFile(selectedFile, selectedFile.getName());
                 } else {
-                    // Store as Excel file
-                    surveyData.setExcelFile(fileBytes);
-                    surveyData.setFileName(selectedFile.getName());
-                    surveyData.setFileSize((long) fileBytes.length);
-                    surveyData.setMimeType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-                    surveyData.setFileType("EXCEL");
+                    parsedData = siteSurveyExcelService.parseExcelToJson(selectedFile, selectedFile.getName());
                 }
 
-                surveyData.setParsedData(parsedData);
-                surveyData.setSurveyDoneBy("PROJECT");
-                surveyData.setSurveyDoneByUser(currentUser.getUsername());
-                surveyData.setSurveyDoneByUserId(currentUser.getId());
-                surveyData.setUploadedBy(currentUser.getUsername());
-                surveyData.setUploadedById(currentUser.getId());
+                // The pictures the parse stored belong to no row until the survey data is saved
+                com.magictech.modules.sales.entity.SiteSurveyData surveyData;
+                try {
+                    // Create SiteSurveyData with CORRECT workflow ID
+                    surveyData = new com.magictech.modules.sales.entity.SiteSurveyData();
+                    surveyData.setProjectId(selectedProject.getId());
+                    surveyData.setWorkflowId(workflow.getId()); // FIXED: Use actual workflow ID, not request ID
+
+                    // Store file based on type
+                    if (isZipFile) {
+                        // Store as ZIP file
+                        surveyData.setZipBlobKey(blobStore.put(selectedFile.toPath()).key());
+                        surveyData.setZipFileName(selectedFile.getName());
+                        surveyData.setZipFileSize(selectedFile.length());
+                        surveyData.setZipMimeType("application/zip");
+                        surveyData.setFileType("ZIP");
+                    } else {
+                        // Store as Excel file
+                        surveyData.setExcelBlobKey(blobStore.put(selectedFile.toPath()).key());
+                        surveyData.setFileName(selectedFile.getName());
+                        surveyData.setFileSize(selectedFile.length());
+                        surveyData.setMimeType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+                        surveyData.setFileType("EXCEL");
+                    }
 
-                surveyData = siteSurveyDataRepository.save(surveyData);
+                    surveyData.setParsedDataId(projectWorkflowService.saveParsedData(parsedData));
+                    surveyData.setSurveyDoneBy("PROJECT");
+                    surveyData.setSurveyDoneByUser(currentUser.getUsername());
+                    surveyData.setSurveyDoneByUserId(currentUser.getId());
+                    surveyData.setUploadedBy(currentUser.getUsername());
+                    surveyData.setUploadedById(currentUser.getId());
+
+                    surveyData = siteSurveyDataRepository.save(surveyData);
+                } catch (Exception e) {
+                    surveyImageService.releaseImages(parsedData);
+                    throw e;
+                }
                 System.out.println("✅ Site survey data saved with ID: " + surveyData.getId());
 
                 // Complete the site survey request (for Projects module tracking)
@@ -2971,12 +2985,25 @@ public class ProjectsStorageController extends BaseModuleController {
         ));
         fileInfo.setStyle("-fx-text-fill: white; -fx-font-size: 14px;");
 
-        TextArea parsedDataArea = new TextArea(data.getParsedData());
+        String parsedData = projectWorkflowService.getParsedData(data.getParsedDataId());
+        TextArea parsedDataArea = new TextArea(parsedData);
         parsedDataArea.setEditable(false);
+        parsedDataArea.setWrapText(true);
         parsedDataArea.setPrefRowCount(20);
         parsedDataArea.setStyle("-fx-control-inner-background: #334155; -fx-text-fill: white;");
 
-        content.getChildren().addAll(fileInfo, parsedDataArea);
+        content.getChildren().add(fileInfo);
+
+        // Photos: thumbnails first, full picture on click
+        com.magictech.modules.sales.ui.SurveyImageGallery gallery =
+                new com.magictech.modules.sales.ui.SurveyImageGallery(surveyImageService, parsedData);
+        if (gallery.hasImages()) {
+            gallery.setPadding(new Insets(10));
+            gallery.setStyle("-fx-background-color: #f9fafb; -fx-background-radius: 8;");
+            content.getChildren().add(gallery);
+        }
+
+        content.getChildren().add(parsedDataArea);
 
         ScrollPane scrollPane = new ScrollPane(content);
         scrollPane.setFitToWidth(true);
@@ -3051,12 +3078,12 @@ public class ProjectsStorageController extends BaseModuleController {
                     new com.magictech.modules.sales.entity.SiteSurveyData();
                 surveyData.setProjectId(selectedProject.getId());
                 surveyData.setWorkflowId(request.getId());
-                surveyData.setExcelFile(excelBytes);
+                surveyData.setExcelBlobKey(blobStore.put(excelBytes).key());
                 surveyData.setFileName("Test_SiteSurvey.xlsx");
                 surveyData.setFileSize((long) excelBytes.length);
                 surveyData.setMimeType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
                 surveyData.setFileType("EXCEL");  // CRITICAL: Set file type
-                surveyData.setParsedData(parsedData);
+                surveyData.setParsedDataId(projectWorkflowService.saveParsedData(parsedData));
                 surveyData.setSurveyDoneBy("PROJECT");
                 surveyData.setSurveyDoneByUser(currentUser.getUsername());
                 surveyData.setSurveyDoneByUserId(currentUser.getId());
@@ -3148,7 +3175,7 @@ public class ProjectsStorageController extends BaseModuleController {
             @Override
             protected Void call() throws Exception {
                 // Write the Excel file bytes to disk
-                java.nio.file.Files.write(selectedFile.toPath(), data.getExcelFile());
+                projectWorkflowService.saveFileTo(data.getExcelBlobKey(), selectedFile);
                 return null;
             }
         };
@@ -14,7 +14,8 @@ import java.time.LocalDateTime;
 public class Project {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "projects_seq")
+    @SequenceGenerator(name = "projects_seq", sequenceName = "projects_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "project_name", nullable = false, length = 200)
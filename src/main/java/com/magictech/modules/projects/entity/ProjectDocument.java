@@ -12,7 +12,8 @@ import java.time.LocalDateTime;
 public class ProjectDocument {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "project_documents_seq")
+    @SequenceGenerator(name = "project_documents_seq", sequenceName = "project_documents_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
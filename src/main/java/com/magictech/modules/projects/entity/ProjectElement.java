@@ -16,7 +16,8 @@ import java.time.LocalDateTime;
 public class ProjectElement {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "project_elements_seq")
+    @SequenceGenerator(name = "project_elements_seq", sequenceName = "project_elements_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -12,7 +12,8 @@ import java.time.LocalDateTime;
 public class ProjectNote {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "project_notes_seq")
+    @SequenceGenerator(name = "project_notes_seq", sequenceName = "project_notes_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -14,7 +14,8 @@ import java.time.LocalDateTime;
 public class ProjectSchedule {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "project_schedules_seq")
+    @SequenceGenerator(name = "project_schedules_seq", sequenceName = "project_schedules_id_seq", allocationSize = 50)
     private Long id;
 
     // Foreign key to Project
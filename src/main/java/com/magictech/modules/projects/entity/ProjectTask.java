@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
 public class ProjectTask {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "project_tasks_seq")
+    @SequenceGenerator(name = "project_tasks_seq", sequenceName = "project_tasks_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
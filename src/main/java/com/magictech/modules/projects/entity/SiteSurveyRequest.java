@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
 public class SiteSurveyRequest {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "site_survey_requests_seq")
+    @SequenceGenerator(name = "site_survey_requests_seq", sequenceName = "site_survey_requests_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "project_id", nullable = false)
@@ -1,11 +1,17 @@
 package com.magictech.modules.projects.repository;
 
 import com.magictech.modules.projects.entity.ProjectElement;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProjectElementRepository extends JpaRepository<ProjectElement, Long> {
@@ -18,4 +24,15 @@ public interface ProjectElementRepository extends JpaRepository<ProjectElement,
     List<ProjectElement> findElementsByProjectId(Long projectId);
 
     long countByProjectIdAndActiveTrue(Long projectId);
-}
\ No newline at end of file
+
+    /**
+     * Elements of several projects as scalar export rows, ordered by project:
+     * projectId, elementId, manufacture, productName, code, quantityNeeded, price
+     * (item columns are null when the storage item is missing). Must be consumed in a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT pe.project.id, pe.id, s.manufacture, s.productName, s.code, pe.quantityNeeded, s.price " +
+           "FROM ProjectElement pe LEFT JOIN pe.storageItem s " +
+           "WHERE pe.project.id IN :projectIds AND pe.active = true ORDER BY pe.project.id, pe.id")
+    Stream<Object[]> streamExportRows(@Param("projectIds") Collection<Long> projectIds);
+}
@@ -3,7 +3,7 @@ package com.magictech.modules.projects.service;
 import com.magictech.core.messaging.service.NotificationService;
 import com.magictech.modules.projects.entity.ProjectElement;
 import com.magictech.modules.projects.repository.ProjectElementRepository;
-import com.magictech.modules.storage.service.StorageService;
+import com.magictech.modules.storage.service.StockLedger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,7 +25,7 @@ public class ProjectElementService {
     private NotificationService notificationService;
 
     @Autowired
-    private StorageService storageService;
+    private StockLedger stockLedger;
 
     /**
      * Create element from Projects module - REQUIRES APPROVAL from Sales
@@ -81,7 +81,8 @@ public class ProjectElementService {
         // Deduct quantity from storage immediately
         if (element.getStorageItem() != null && element.getQuantityNeeded() != null && element.getQuantityNeeded() > 0) {
             try {
-                storageService.deductQuantity(element.getStorageItem().getId(), element.getQuantityNeeded());
+                stockLedger.deduct(element.getStorageItem().getId(), element.getQuantityNeeded(),
+                        "PROJECT_ELEMENT:" + savedElement.getId(), element.getAddedBy());
                 logger.info("Sales directly added element {} - deducted {} units from storage",
                         savedElement.getId(), element.getQuantityNeeded());
             } catch (Exception e) {
@@ -176,7 +177,8 @@ public class ProjectElementService {
         // Deduct quantity from storage
         if (element.getStorageItem() != null && element.getQuantityNeeded() != null && element.getQuantityNeeded() > 0) {
             try {
-                storageService.deductQuantity(element.getStorageItem().getId(), element.getQuantityNeeded());
+                stockLedger.deduct(element.getStorageItem().getId(), element.getQuantityNeeded(),
+                        "PROJECT_ELEMENT:" + id, approvedBy);
                 logger.info("Deducted {} units of item {} from storage for project element {}",
                         element.getQuantityNeeded(), element.getStorageItem().getId(), id);
             } catch (Exception e) {
@@ -230,7 +232,8 @@ public class ProjectElementService {
         // Return quantity back to storage
         if (element.getStorageItem() != null && element.getQuantityNeeded() != null && element.getQuantityNeeded() > 0) {
             try {
-                storageService.addQuantity(element.getStorageItem().getId(), element.getQuantityNeeded());
+                stockLedger.returnStock(element.getStorageItem().getId(), element.getQuantityNeeded(),
+                        "PROJECT_ELEMENT:" + id, rejectedBy);
                 logger.info("Returned {} units of item {} to storage from rejected project element {}",
                         element.getQuantityNeeded(), element.getStorageItem().getId(), id);
             } catch (Exception e) {
@@ -5,6 +5,7 @@ import com.magictech.core.messaging.dto.NotificationMessage;
 import com.magictech.core.messaging.service.NotificationService;
 import com.magictech.modules.projects.entity.Project;
 import com.magictech.modules.projects.repository.ProjectRepository;
+import com.magictech.modules.sales.service.ProjectWorkflowService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -30,6 +31,9 @@ public class ProjectService {
     @Autowired
     private SiteSurveyRequestService siteSurveyRequestService;
 
+    @Autowired
+    private ProjectWorkflowService projectWorkflowService;
+
     /**
      * Get all active projects
      */
@@ -146,6 +150,7 @@ public class ProjectService {
     @Transactional
     public void deleteProject(Long id) {
         System.out.println("🗑️ PERMANENT DELETE - Removing project ID: " + id);
+        projectWorkflowService.deleteProjectWorkflowData(id);
         repository.deleteById(id);
         repository.flush();
         System.out.println("✓ Project ID " + id + " permanently deleted from database");
@@ -162,6 +167,9 @@ public class ProjectService {
         }
 
         System.out.println("🗑️ PERMANENT DELETE - Removing " + ids.size() + " projects: " + ids);
+        for (Long id : ids) {
+            projectWorkflowService.deleteProjectWorkflowData(id);
+        }
         repository.deleteAllById(ids);
         repository.flush();
         System.out.println("✓ Successfully PERMANENTLY deleted " + ids.size() + " projects from database");
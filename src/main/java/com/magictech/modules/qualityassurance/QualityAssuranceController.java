@@ -2,11 +2,13 @@ package com.magictech.modules.qualityassurance;
 
 import com.magictech.core.module.BaseModuleController;
 import com.magictech.core.ui.SceneManager;
+import com.magictech.core.ui.components.BackgroundTableFilter;
 import com.magictech.modules.storage.dto.CustomerAnalyticsDTO;
 import com.magictech.modules.storage.dto.ProjectAnalyticsDTO;
 import com.magictech.modules.storage.entity.StorageItem;
 import com.magictech.modules.storage.model.StorageItemViewModel;
 import com.magictech.modules.storage.service.AnalyticsService;
+import com.magictech.modules.storage.service.StorageCatalogCache;
 import com.magictech.modules.storage.service.StorageService;
 import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
@@ -14,7 +16,6 @@ import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -26,6 +27,7 @@ import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -43,6 +45,9 @@ public class QualityAssuranceController extends BaseModuleController {
     @Autowired
     private StorageService storageService;
 
+    @Autowired
+    private StorageCatalogCache catalogCache;
+
     @Autowired
     private AnalyticsService analyticsService;
 
@@ -60,7 +65,7 @@ public class QualityAssuranceController extends BaseModuleController {
     private Label selectedCountLabel;
 
     private ObservableList<StorageItemViewModel> qaItems;
-    private FilteredList<StorageItemViewModel> filteredQA;
+    private BackgroundTableFilter<StorageItemViewModel> qaFilter;
     private Map<StorageItemViewModel, BooleanProperty> selectionMap = new HashMap<>();
 
     @Override
@@ -87,8 +92,10 @@ public class QualityAssuranceController extends BaseModuleController {
     @Override
     protected void loadData() {
         qaItems = FXCollections.observableArrayList();
-        filteredQA = new FilteredList<>(qaItems, p -> true);
-        qaTable.setItems(filteredQA);
+        qaFilter = new BackgroundTableFilter<>(qaTable, qaItems,
+                vm -> BackgroundTableFilter.searchKey(vm.getProductName(), vm.getManufacture()));
+        qaFilter.setOnFailed(ex -> showError("Search failed, showing all items: " + ex.getMessage()));
+        qaFilter.setQuery(searchField.getText());
         loadQAData();
     }
 
@@ -232,11 +239,7 @@ public class QualityAssuranceController extends BaseModuleController {
         searchField.setStyle("-fx-background-color: rgba(30, 41, 59, 0.6); -fx-text-fill: white; -fx-prompt-text-fill: rgba(255, 255, 255, 0.5); -fx-padding: 10; -fx-background-radius: 8; -fx-border-color: rgba(234, 179, 8, 0.3); -fx-border-radius: 8;");
 
         searchField.textProperty().addListener((obs, old, newVal) -> {
-            filteredQA.setPredicate(item -> {
-                if (newVal == null || newVal.isEmpty()) return true;
-                String lower = newVal.toLowerCase();
-                return item.getProductName().toLowerCase().contains(lower) || item.getManufacture().toLowerCase().contains(lower);
-            });
+            if (qaFilter != null) qaFilter.setQuery(newVal);
         });
 
         approveButton = createStyledButton("✅ Approve Items", "#22c55e", "#16a34a");
@@ -271,7 +274,7 @@ public class QualityAssuranceController extends BaseModuleController {
         CheckBox selectAll = new CheckBox();
         selectAll.setOnAction(e -> {
             boolean selected = selectAll.isSelected();
-            filteredQA.forEach(item -> selectionMap.get(item).set(selected));
+            qaFilter.getItems().forEach(item -> selectionMap.get(item).set(selected));
         });
         selectCol.setGraphic(selectAll);
 
@@ -494,20 +497,21 @@ public class QualityAssuranceController extends BaseModuleController {
         Task<List<StorageItem>> loadTask = new Task<>() {
             @Override
             protected List<StorageItem> call() {
-                return storageService.getAllItems();
+                return catalogCache.getAllItems();
             }
         };
 
         loadTask.setOnSucceeded(e -> {
             List<StorageItem> items = loadTask.getValue();
-            qaItems.clear();
+            List<StorageItemViewModel> rows = new ArrayList<>(items.size());
             selectionMap.clear();
 
             for (StorageItem entity : items) {
                 StorageItemViewModel vm = convertToViewModel(entity);
-                qaItems.add(vm);
+                rows.add(vm);
                 selectionMap.put(vm, new SimpleBooleanProperty(false));
             }
+            qaItems.setAll(rows); // One change - the filter re-keys the rows once
 
             System.out.println("✓ Loaded " + items.size() + " items for quality assurance");
         });
@@ -6,7 +6,7 @@ import com.magictech.modules.sales.entity.*;
 import com.magictech.modules.sales.service.*;
 import com.magictech.modules.sales.model.*;
 import com.magictech.modules.storage.entity.StorageItem;
-import com.magictech.modules.storage.service.StorageService;
+import com.magictech.modules.storage.service.StorageCatalogCache;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.collections.FXCollections;
@@ -69,7 +69,7 @@ public class CustomerManagementController extends BaseModuleController {
     private CustomerDocumentService documentService;
 
     @Autowired
-    private StorageService storageService;
+    private StorageCatalogCache catalogCache;
 
     @Autowired
     private ComprehensiveExcelExportService excelExportService;
@@ -1137,7 +1137,7 @@ public class CustomerManagementController extends BaseModuleController {
         Task<List<StorageItem>> loadTask = new Task<>() {
             @Override
             protected List<StorageItem> call() {
-                return storageService.findAllActive();
+                return catalogCache.getAllItems();
             }
         };
 
@@ -1453,8 +1453,7 @@ public class CustomerManagementController extends BaseModuleController {
         Task<Void> exportTask = new Task<>() {
             @Override
             protected Void call() throws Exception {
-                List<Customer> allCustomers = customerService.getAllCustomers();
-                excelExportService.exportAllCustomers(allCustomers, file.getAbsolutePath());
+                excelExportService.exportAllCustomers(file.getAbsolutePath());
                 return null;
             }
         };
@@ -19,12 +19,16 @@ import javafx.scene.control.DialogPane;
 import javafx.scene.layout.FlowPane;
 import com.magictech.core.auth.User;
 import com.magictech.core.module.BaseModuleController;
+import com.magictech.core.ui.components.PagedTableLoader;
 import com.magictech.modules.sales.entity.*;
 import com.magictech.modules.sales.service.*;
 import com.magictech.modules.projects.entity.Project;
 import com.magictech.modules.projects.service.ProjectService;
 import com.magictech.modules.storage.entity.StorageItem;
+import com.magictech.modules.storage.service.StorageCatalogCache;
 import com.magictech.modules.storage.service.StorageService;
+import com.magictech.modules.storage.service.StockLedger;
+import com.magictech.modules.storage.service.StockReservationService;
 import javafx.scene.control.Spinner;
 import com.magictech.modules.projects.entity.ProjectElement;
 import com.magictech.modules.projects.service.ProjectElementService;
@@ -37,20 +41,28 @@ import com.magictech.modules.storage.ui.FastSelectionPanel;
 import com.magictech.modules.storage.service.AvailabilityRequestService;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
 @Component
 public class SalesStorageController extends BaseModuleController
         implements WorkflowDialog.WorkflowDialogCallback {
 
+    private static final Logger logger = LoggerFactory.getLogger(SalesStorageController.class);
+
     @Autowired private CustomerService customerService;
     @Autowired private SalesOrderService salesOrderService;
     @Autowired private SalesContractService salesContractService;
     @Autowired private ProjectService projectService;
     @Autowired private StorageService storageService;
+    @Autowired private StorageCatalogCache catalogCache;
+    @Autowired private StockLedger stockLedger;
+    @Autowired private StockReservationService reservationService;
     @Autowired private ProjectElementService elementService;
     @Autowired private com.magictech.modules.sales.service.ProjectCostBreakdownService costBreakdownService;
     @Autowired private com.magictech.modules.sales.service.CustomerCostBreakdownService customerCostBreakdownService;
@@ -572,6 +584,7 @@ public class SalesStorageController extends BaseModuleController
 
         // Create Fast Selection Panel
         FastSelectionPanel fastSelectionPanel = new FastSelectionPanel();
+        fastSelectionPanel.setReservationService(reservationService);
         fastSelectionPanel.initialize(storageService, availabilityRequestService, currentUser, "SALES");
 
         // Set callback for when availability request is created
@@ -743,20 +756,16 @@ public class SalesStorageController extends BaseModuleController
 
         storageTable.getColumns().addAll(nameCol, mfgCol, codeCol, qtyCol, actionCol);
 
-        // Load storage items
-        Task<List<StorageItem>> loadTask = new Task<>() {
-            @Override
-            protected List<StorageItem> call() {
-                return storageService.getAllItems();
-            }
-        };
+        // Header clicks sort in the database, see PagedTableLoader
+        PagedTableLoader.setSortProperty(nameCol, "productName");
+        PagedTableLoader.setSortProperty(mfgCol, "manufacture");
+        PagedTableLoader.setSortProperty(codeCol, "code");
 
-        loadTask.setOnSucceeded(e -> {
-            List<StorageItem> items = loadTask.getValue();
-            storageTable.setItems(FXCollections.observableArrayList(items));
-        });
-
-        new Thread(loadTask).start();
+        // Load storage items page by page as the user scrolls
+        PagedTableLoader<StorageItem> storagePager = new PagedTableLoader<>(storageTable,
+                PagedTableLoader.DEFAULT_PAGE_SIZE, storageService::getItemsPage);
+        storagePager.setOnFailed(ex -> showError("Failed to load storage items: " + ex.getMessage()));
+        storagePager.reset();
 
         Button closeButton = createStyledButton("✗ Close", "#6b7280", "#4b5563");
         closeButton.setOnAction(e -> dialogStage.close());
@@ -848,7 +857,8 @@ public class SalesStorageController extends BaseModuleController
         });
 
         quantityDialog.showAndWait().ifPresent(requestedQty -> {
-            int availableQty = storageItem.getQuantity();
+            // Available = on-hand minus stock held by pending order reservations
+            int availableQty = reservationService.getAvailableQuantity(storageItem);
 
             if (requestedQty > availableQty) {
                 // NOT AVAILABLE
@@ -958,12 +968,8 @@ public class SalesStorageController extends BaseModuleController
                     protected Void call() {
                         // Return quantity to storage
                         if (element.getStorageItem() != null && returnQty > 0) {
-                            StorageItem storageItem = element.getStorageItem();
-                            int currentQty = storageItem.getQuantity();
-                            int newQty = currentQty + returnQty;
-
-                            storageItem.setQuantity(newQty);
-                            storageService.updateItem(storageItem.getId(), storageItem);
+                            stockLedger.returnStock(element.getStorageItem().getId(), returnQty,
+                                    "PROJECT_ELEMENT:" + element.getId(), currentUser != null ? currentUser.getUsername() : "system");
                         }
 
                         // Delete element
@@ -1932,16 +1938,8 @@ public class SalesStorageController extends BaseModuleController
                     Task<Void> returnTask = new Task<>() {
                         @Override
                         protected Void call() {
-                            try {
-                                StorageItem item = storageService.getItemById(row.storageItemId).orElse(null);
-                                if (item != null) {
-                                    int newQuantity = item.getQuantity() + row.quantity;
-                                    item.setQuantity(newQuantity);
-                                    storageService.updateItem(item.getId(), item);
-                                }
-                            } catch (Exception ex) {
-                                ex.printStackTrace();
-                            }
+                            stockLedger.returnStock(row.storageItemId, row.quantity,
+                                    "CUSTOMER:" + customer.getId(), currentUser != null ? currentUser.getUsername() : "system");
                             return null;
                         }
                     };
@@ -1953,7 +1951,8 @@ public class SalesStorageController extends BaseModuleController
                     });
 
                     returnTask.setOnFailed(event -> {
-                        showError("Failed to return item to storage!");
+                        logger.error("Could not return item {} to storage", row.storageItemId, returnTask.getException());
+                        showError("Failed to return item to storage: " + returnTask.getException().getMessage());
                     });
 
                     new Thread(returnTask).start();
@@ -2058,20 +2057,16 @@ public class SalesStorageController extends BaseModuleController
 
         storageTable.getColumns().addAll(manufactureCol, nameCol, availabilityCol, priceCol);
 
-        // Load storage items
-        Task<List<StorageItem>> loadTask = new Task<>() {
-            @Override
-            protected List<StorageItem> call() {
-                return storageService.getAllItems();
-            }
-        };
+        // Header clicks sort in the database, see PagedTableLoader
+        PagedTableLoader.setSortProperty(manufactureCol, "manufacture");
+        PagedTableLoader.setSortProperty(nameCol, "productName");
+        PagedTableLoader.setSortProperty(priceCol, "price");
 
-        loadTask.setOnSucceeded(e -> {
-            List<StorageItem> items = loadTask.getValue();
-            storageTable.setItems(FXCollections.observableArrayList(items));
-        });
-
-        new Thread(loadTask).start();
+        // Load storage items page by page as the user scrolls
+        PagedTableLoader<StorageItem> storagePager = new PagedTableLoader<>(storageTable,
+                PagedTableLoader.DEFAULT_PAGE_SIZE, storageService::getItemsPage);
+        storagePager.setOnFailed(ex -> showError("Failed to load storage items: " + ex.getMessage()));
+        storagePager.reset();
 
         // Buttons
         Button addBtn = createStyledButton("Add Selected Items", "#22c55e", "#16a34a");
@@ -2126,7 +2121,7 @@ public class SalesStorageController extends BaseModuleController
 
         dialog.showAndWait().ifPresent(quantity -> {
             // Check availability internally (Sales doesn't see actual numbers)
-            if (item.getQuantity() == null || item.getQuantity() < quantity) {
+            if (reservationService.getAvailableQuantity(item) < quantity) {
                 showError("❌ Insufficient stock available for " + item.getProductName() +
                          "\n\nRequested: " + quantity + " units\nPlease reduce the quantity or contact Storage team.");
                 return;
@@ -2136,12 +2131,14 @@ public class SalesStorageController extends BaseModuleController
             Task<Void> deductTask = new Task<>() {
                 @Override
                 protected Void call() {
-                    item.setQuantity(item.getQuantity() - quantity);
-                    storageService.updateItem(item.getId(), item);
+                    stockLedger.deduct(item.getId(), quantity, "CUSTOMER:" + customer.getId(), currentUser != null ? currentUser.getUsername() : "system");
                     return null;
                 }
             };
 
+            deductTask.setOnFailed(e -> showError("❌ Could not allocate " + item.getProductName() + ": " +
+                    deductTask.getException().getMessage()));
+
             deductTask.setOnSucceeded(e -> {
                 // Find the items table in orderTabContent
                 TableView<OrderItemRow> itemsTable = findItemsTableInContent(orderTabContent);
@@ -2198,11 +2195,8 @@ public class SalesStorageController extends BaseModuleController
                         protected Void call() {
                             for (OrderItemRow row : itemsTable.getItems()) {
                                 try {
-                                    StorageItem item = storageService.getItemById(row.storageItemId).orElse(null);
-                                    if (item != null) {
-                                        item.setQuantity(item.getQuantity() + row.quantity);
-                                        storageService.updateItem(item.getId(), item);
-                                    }
+                                    stockLedger.returnStock(row.storageItemId, row.quantity,
+                                            "CUSTOMER:" + customer.getId(), currentUser != null ? currentUser.getUsername() : "system");
                                 } catch (Exception ex) {
                                     ex.printStackTrace();
                                 }
@@ -2316,16 +2310,7 @@ public class SalesStorageController extends BaseModuleController
                     Task<Void> returnTask = new Task<>() {
                         @Override
                         protected Void call() {
-                            try {
-                                StorageItem item = storageService.getItemById(row.storageItemId).orElse(null);
-                                if (item != null) {
-                                    int newQuantity = item.getQuantity() + row.quantity;
-                                    item.setQuantity(newQuantity);
-                                    storageService.updateItem(item.getId(), item);
-                                }
-                            } catch (Exception ex) {
-                                ex.printStackTrace();
-                            }
+                            releaseRowStock(row, "PROJECT:" + project.getId());
                             return null;
                         }
                     };
@@ -2343,7 +2328,8 @@ public class SalesStorageController extends BaseModuleController
                     });
 
                     returnTask.setOnFailed(event -> {
-                        showError("Failed to return item to storage!");
+                        logger.error("Could not return item {} to storage", row.storageItemId, returnTask.getException());
+                        showError("Failed to return item to storage: " + returnTask.getException().getMessage());
                     });
 
                     new Thread(returnTask).start();
@@ -2368,7 +2354,13 @@ public class SalesStorageController extends BaseModuleController
         saveOrderBtn.setMaxWidth(Double.MAX_VALUE);
         saveOrderBtn.setOnAction(e -> handleSaveProjectOrder(project, itemsTable, costBreakdownSection));
 
-        content.getChildren().addAll(header, itemsTable, costBreakdownSection, saveOrderBtn);
+        // Push Button - saves, then deducts the held stock as project elements
+        Button pushOrderBtn = createStyledButton("📦 Push to Project & Deduct Stock", "#22c55e", "#16a34a");
+        pushOrderBtn.setPrefHeight(50);
+        pushOrderBtn.setMaxWidth(Double.MAX_VALUE);
+        pushOrderBtn.setOnAction(e -> handlePushProjectOrder(project, itemsTable, costBreakdownSection));
+
+        content.getChildren().addAll(header, itemsTable, costBreakdownSection, saveOrderBtn, pushOrderBtn);
 
         // Load existing order
         loadExistingProjectOrder(project, itemsTable, costBreakdownSection);
@@ -2487,16 +2479,7 @@ public class SalesStorageController extends BaseModuleController
                     Task<Void> returnTask = new Task<>() {
                         @Override
                         protected Void call() {
-                            try {
-                                StorageItem item = storageService.getItemById(row.storageItemId).orElse(null);
-                                if (item != null) {
-                                    int newQuantity = item.getQuantity() + row.quantity;
-                                    item.setQuantity(newQuantity);
-                                    storageService.updateItem(item.getId(), item);
-                                }
-                            } catch (Exception ex) {
-                                ex.printStackTrace();
-                            }
+                            releaseRowStock(row, "CUSTOMER:" + customer.getId());
                             return null;
                         }
                     };
@@ -2514,7 +2497,8 @@ public class SalesStorageController extends BaseModuleController
                     });
 
                     returnTask.setOnFailed(event -> {
-                        showError("Failed to return item to storage!");
+                        logger.error("Could not return item {} to storage", row.storageItemId, returnTask.getException());
+                        showError("Failed to return item to storage: " + returnTask.getException().getMessage());
                     });
 
                     new Thread(returnTask).start();
@@ -2537,7 +2521,13 @@ public class SalesStorageController extends BaseModuleController
         saveOrderBtn.setMaxWidth(Double.MAX_VALUE);
         saveOrderBtn.setOnAction(e -> handleSaveCustomerOrder(customer, itemsTable, costBreakdownSection));
 
-        content.getChildren().addAll(header, itemsTable, costBreakdownSection, saveOrderBtn);
+        // Confirm Button - saves, then deducts the held stock
+        Button confirmOrderBtn = createStyledButton("✅ Confirm Order & Deduct Stock", "#22c55e", "#16a34a");
+        confirmOrderBtn.setPrefHeight(50);
+        confirmOrderBtn.setMaxWidth(Double.MAX_VALUE);
+        confirmOrderBtn.setOnAction(e -> handleConfirmCustomerOrder(customer, itemsTable, costBreakdownSection));
+
+        content.getChildren().addAll(header, itemsTable, costBreakdownSection, saveOrderBtn, confirmOrderBtn);
 
         loadExistingCustomerOrder(customer, itemsTable, costBreakdownSection);
 
@@ -2783,6 +2773,7 @@ public class SalesStorageController extends BaseModuleController
 
         // Create Fast Selection Panel
         FastSelectionPanel fastSelectionPanel = new FastSelectionPanel();
+        fastSelectionPanel.setReservationService(reservationService);
         fastSelectionPanel.initialize(storageService, availabilityRequestService, currentUser, "SALES");
 
         // Set callback for when availability request is created
@@ -3136,9 +3127,8 @@ public class SalesStorageController extends BaseModuleController
     }
 
     private void handleExportCustomers() {
-        List<Customer> allCustomers = customersListView.getItems();
-
-        if (allCustomers.isEmpty()) {
+        // The list shows every active customer, so the export streams them from the database
+        if (customersListView.getItems().isEmpty()) {
             showWarning("No customers to export");
             return;
         }
@@ -3157,12 +3147,12 @@ public class SalesStorageController extends BaseModuleController
             Task<File> exportTask = new Task<>() {
                 @Override
                 protected File call() throws Exception {
-                    return salesExcelExportService.exportCustomersToExcel(allCustomers, file.getAbsolutePath());
+                    return salesExcelExportService.exportCustomersToExcel(file.getAbsolutePath());
                 }
             };
 
             exportTask.setOnSucceeded(e -> {
-                showSuccess("✓ Exported " + allCustomers.size() + " customer(s) to Excel!\nFile: " + file.getName());
+                showSuccess("✓ Exported customers to Excel!\nFile: " + file.getName());
             });
 
             exportTask.setOnFailed(e -> {
@@ -3470,19 +3460,16 @@ public class SalesStorageController extends BaseModuleController
 
         storageTable.getColumns().addAll(nameCol, mfgCol, codeCol, availCol, actionCol);
 
-        Task<List<StorageItem>> loadTask = new Task<>() {
-            @Override
-            protected List<StorageItem> call() {
-                return storageService.getAllItems();
-            }
-        };
+        // Header clicks sort in the database, see PagedTableLoader
+        PagedTableLoader.setSortProperty(nameCol, "productName");
+        PagedTableLoader.setSortProperty(mfgCol, "manufacture");
+        PagedTableLoader.setSortProperty(codeCol, "code");
 
-        loadTask.setOnSucceeded(e -> {
-            List<StorageItem> items = loadTask.getValue();
-            storageTable.setItems(FXCollections.observableArrayList(items));
-        });
-
-        new Thread(loadTask).start();
+        // Load storage items page by page as the user scrolls
+        PagedTableLoader<StorageItem> storagePager = new PagedTableLoader<>(storageTable,
+                PagedTableLoader.DEFAULT_PAGE_SIZE, storageService::getItemsPage);
+        storagePager.setOnFailed(ex -> showError("Failed to load storage items: " + ex.getMessage()));
+        storagePager.reset();
 
         Button closeButton = createStyledButton("✗ Close", "#6b7280", "#4b5563");
         closeButton.setPrefHeight(45);
@@ -3567,7 +3554,8 @@ public class SalesStorageController extends BaseModuleController
         });
 
         dialog.showAndWait().ifPresent(orderRow -> {
-            int availableQty = storageItem.getQuantity();
+            // Available = on-hand minus stock held by pending order reservations
+            int availableQty = reservationService.getAvailableQuantity(storageItem);
 
             if (orderRow.quantity > availableQty) {
                 Alert notAvailableAlert = new Alert(Alert.AlertType.ERROR);
@@ -3582,19 +3570,16 @@ public class SalesStorageController extends BaseModuleController
                 return;
             }
 
-            // ✅ CRITICAL FIX: Reduce storage quantity IMMEDIATELY in database
+            // Hold the stock until the order is saved (the hold then passes to the order line)
             Task<Boolean> allocateTask = new Task<>() {
                 @Override
                 protected Boolean call() {
                     try {
-                        StorageItem item = storageService.getItemById(storageItem.getId()).orElse(null);
-                        if (item != null) {
-                            int newQuantity = item.getQuantity() - orderRow.quantity;
-                            item.setQuantity(newQuantity);
-                            storageService.updateItem(item.getId(), item);
-                            return true;
-                        }
-                        return false;
+                        String holderKey = SalesOrderService.newDraftHolderKey();
+                        reservationService.reserve(storageItem.getId(), orderRow.quantity, holderKey,
+                                currentUser != null ? currentUser.getUsername() : "system");
+                        orderRow.holderKey = holderKey;
+                        return true;
                     } catch (Exception e) {
                         e.printStackTrace();
                         return false;
@@ -3616,10 +3601,10 @@ public class SalesStorageController extends BaseModuleController
                         itemsTable.getItems().add(orderRow);
                         updateCostBreakdown(orderTabContent, itemsTable);
                         parentDialog.close();
-                        showSuccess("✓ Item allocated! Storage updated: " + (availableQty - orderRow.quantity) + " remaining");
+                        showSuccess("✓ Item reserved! " + (availableQty - orderRow.quantity) + " units still available");
                     }
                 } else {
-                    showError("Failed to allocate stock from storage!");
+                    showError("Failed to reserve stock from storage!");
                 }
             });
 
@@ -3703,67 +3688,61 @@ public class SalesStorageController extends BaseModuleController
             return;
         }
 
-        GridPane grid = (GridPane) costSection.getUserData();
-
         Task<Void> saveTask = new Task<>() {
             @Override
             protected Void call() {
-                List<SalesOrder> orders = salesOrderService.getOrdersByProject(project.getId());
-                SalesOrder order;
-
-                if (orders.isEmpty()) {
-                    order = new SalesOrder("PROJECT");
-                    order.setProjectId(project.getId());
-                    order.setCreatedBy(currentUser != null ? currentUser.getUsername() : "system");
-                    order = salesOrderService.createSalesOrder(order);
-                } else {
-                    order = orders.get(0);
-                }
-
-                // ✅ CRITICAL FIX: Return old items to storage before clearing
-                List<SalesOrderItem> existingItems = salesOrderService.getOrderItems(order.getId());
-                for (SalesOrderItem item : existingItems) {
-                    try {
-                        StorageItem storageItem = storageService.getItemById(item.getStorageItemId()).orElse(null);
-                        if (storageItem != null) {
-                            // Return old quantity back to storage
-                            int newQuantity = storageItem.getQuantity() + item.getQuantity();
-                            storageItem.setQuantity(newQuantity);
-                            storageService.updateItem(storageItem.getId(), storageItem);
-                        }
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                    salesOrderService.removeItemFromOrder(item.getId());
-                }
-
-                // ✅ Now allocate new items (they're already allocated when added, so just save to order)
-                for (OrderItemRow row : itemsTable.getItems()) {
-                    SalesOrderItem item = new SalesOrderItem(row.storageItemId, row.quantity, row.unitPrice);
-                    salesOrderService.addItemToOrder(order.getId(), item);
-                }
+                saveProjectOrder(project, itemsTable, costSection);
+                return null;
+            }
+        };
 
-                TextField taxField = (TextField) grid.lookup("#taxField");
-                TextField discountField = (TextField) grid.lookup("#discountField");
-                TextField crewField = (TextField) grid.lookup("#crewField");
-                TextField materialsField = (TextField) grid.lookup("#materialsField");
+        saveTask.setOnSucceeded(e -> showSuccess("✓ Order saved successfully! Stock is held for the order."));
+        saveTask.setOnFailed(e -> showError("Failed to save: " + saveTask.getException().getMessage()));
 
-                order.setTax(parseBigDecimal(taxField.getText()));
-                order.setSaleDiscount(parseBigDecimal(discountField.getText()));
-                order.setCrewCost(parseBigDecimal(crewField.getText()));
-                order.setAdditionalMaterials(parseBigDecimal(materialsField.getText()));
-                order.setUpdatedBy(currentUser != null ? currentUser.getUsername() : "system");
+        new Thread(saveTask).start();
+    }
 
-                salesOrderService.updateSalesOrder(order.getId(), order);
+    // ==================== PUSH PROJECT ORDER ====================
+    private void handlePushProjectOrder(Project project, TableView<OrderItemRow> itemsTable, VBox costSection) {
+        if (itemsTable.getItems().isEmpty()) {
+            showWarning("Please add items to the order first");
+            return;
+        }
 
+        Task<Void> pushTask = new Task<>() {
+            @Override
+            protected Void call() {
+                SalesOrder order = saveProjectOrder(project, itemsTable, costSection);
+                salesOrderService.pushToProjectTable(order.getId(),
+                        currentUser != null ? currentUser.getUsername() : "system");
+                markRowsDeducted(itemsTable);
                 return null;
             }
         };
 
-        saveTask.setOnSucceeded(e -> showSuccess("✓ Order saved successfully! Storage database updated."));
-        saveTask.setOnFailed(e -> showError("Failed to save: " + saveTask.getException().getMessage()));
+        pushTask.setOnSucceeded(e -> showSuccess("✓ Order pushed to the project and stock deducted!"));
+        pushTask.setOnFailed(e -> showError("Failed to push order: " + pushTask.getException().getMessage()));
 
-        new Thread(saveTask).start();
+        new Thread(pushTask).start();
+    }
+
+    /**
+     * Save the project order from the table and cost fields. Runs on a task thread.
+     */
+    private SalesOrder saveProjectOrder(Project project, TableView<OrderItemRow> itemsTable, VBox costSection) {
+        List<SalesOrder> orders = salesOrderService.getOrdersByProject(project.getId());
+        SalesOrder order;
+
+        if (orders.isEmpty()) {
+            order = new SalesOrder("PROJECT");
+            order.setProjectId(project.getId());
+            order.setCreatedBy(currentUser != null ? currentUser.getUsername() : "system");
+            order = salesOrderService.createSalesOrder(order);
+        } else {
+            order = orders.get(0);
+        }
+
+        return saveOrderDetails(order, itemsTable, costSection);
     }
 
     // ==================== LOAD EXISTING PROJECT ORDER ====================
@@ -3780,14 +3759,16 @@ public class SalesStorageController extends BaseModuleController
                 Platform.runLater(() -> {
                     // ✅ FIX: Just load items, don't allocate again (they're already allocated)
                     for (SalesOrderItem item : items) {
-                        StorageItem storageItem = storageService.getItemById(item.getStorageItemId()).orElse(null);
+                        StorageItem storageItem = catalogCache.getItem(item.getStorageItemId()).orElse(null);
                         if (storageItem != null) {
-                            itemsTable.getItems().add(new OrderItemRow(
+                            OrderItemRow row = new OrderItemRow(
                                     storageItem.getId(),
                                     storageItem.getProductName(),
                                     item.getQuantity(),
                                     item.getUnitPrice()
-                            ));
+                            );
+                            row.holderKey = SalesOrderService.holderKeyOf(item);
+                            itemsTable.getItems().add(row);
                         }
                     }
 
@@ -3885,30 +3866,16 @@ public class SalesStorageController extends BaseModuleController
 
                 if (itemsTable != null) {
                     // ✅ CRITICAL FIX: Return all items to storage before clearing
-                    Task<Void> returnAllTask = new Task<>() {
+                    List<OrderItemRow> rows = new ArrayList<>(itemsTable.getItems());
+                    Task<List<OrderItemRow>> returnAllTask = new Task<>() {
                         @Override
-                        protected Void call() {
-                            for (OrderItemRow row : itemsTable.getItems()) {
-                                try {
-                                    StorageItem item = storageService.getItemById(row.storageItemId).orElse(null);
-                                    if (item != null) {
-                                        int newQuantity = item.getQuantity() + row.quantity;
-                                        item.setQuantity(newQuantity);
-                                        storageService.updateItem(item.getId(), item);
-                                    }
-                                } catch (Exception e) {
-                                    e.printStackTrace();
-                                }
-                            }
-                            return null;
+                        protected List<OrderItemRow> call() {
+                            return releaseRowsStock(rows, "PROJECT:" + project.getId());
                         }
                     };
 
-                    returnAllTask.setOnSucceeded(e -> {
-                        itemsTable.getItems().clear();
-                        updateCostBreakdown(orderTabContent, itemsTable);
-                        showSuccess("✓ Order cleared and all items returned to storage!");
-                    });
+                    returnAllTask.setOnSucceeded(e -> showClearOrderResult(itemsTable, orderTabContent,
+                            returnAllTask.getValue()));
 
                     returnAllTask.setOnFailed(e -> {
                         showError("Failed to return items to storage!");
@@ -4078,19 +4045,16 @@ public class SalesStorageController extends BaseModuleController
 
         storageTable.getColumns().addAll(nameCol, mfgCol, codeCol, availCol, actionCol);
 
-        Task<List<StorageItem>> loadTask = new Task<>() {
-            @Override
-            protected List<StorageItem> call() {
-                return storageService.getAllItems();
-            }
-        };
-
-        loadTask.setOnSucceeded(e -> {
-            List<StorageItem> items = loadTask.getValue();
-            storageTable.setItems(FXCollections.observableArrayList(items));
-        });
+        // Header clicks sort in the database, see PagedTableLoader
+        PagedTableLoader.setSortProperty(nameCol, "productName");
+        PagedTableLoader.setSortProperty(mfgCol, "manufacture");
+        PagedTableLoader.setSortProperty(codeCol, "code");
 
-        new Thread(loadTask).start();
+        // Load storage items page by page as the user scrolls
+        PagedTableLoader<StorageItem> storagePager = new PagedTableLoader<>(storageTable,
+                PagedTableLoader.DEFAULT_PAGE_SIZE, storageService::getItemsPage);
+        storagePager.setOnFailed(ex -> showError("Failed to load storage items: " + ex.getMessage()));
+        storagePager.reset();
 
         Button closeButton = createStyledButton("✗ Close", "#6b7280", "#4b5563");
         closeButton.setPrefHeight(45);
@@ -4173,7 +4137,8 @@ public class SalesStorageController extends BaseModuleController
         });
 
         dialog.showAndWait().ifPresent(orderRow -> {
-            int availableQty = storageItem.getQuantity();
+            // Available = on-hand minus stock held by pending order reservations
+            int availableQty = reservationService.getAvailableQuantity(storageItem);
 
             if (orderRow.quantity > availableQty) {
                 Alert notAvailableAlert = new Alert(Alert.AlertType.ERROR);
@@ -4188,19 +4153,16 @@ public class SalesStorageController extends BaseModuleController
                 return;
             }
 
-            // ✅ CRITICAL FIX: Reduce storage quantity IMMEDIATELY in database
+            // Hold the stock until the order is saved (the hold then passes to the order line)
             Task<Boolean> allocateTask = new Task<>() {
                 @Override
                 protected Boolean call() {
                     try {
-                        StorageItem item = storageService.getItemById(storageItem.getId()).orElse(null);
-                        if (item != null) {
-                            int newQuantity = item.getQuantity() - orderRow.quantity;
-                            item.setQuantity(newQuantity);
-                            storageService.updateItem(item.getId(), item);
-                            return true;
-                        }
-                        return false;
+                        String holderKey = SalesOrderService.newDraftHolderKey();
+                        reservationService.reserve(storageItem.getId(), orderRow.quantity, holderKey,
+                                currentUser != null ? currentUser.getUsername() : "system");
+                        orderRow.holderKey = holderKey;
+                        return true;
                     } catch (Exception e) {
                         e.printStackTrace();
                         return false;
@@ -4222,10 +4184,10 @@ public class SalesStorageController extends BaseModuleController
                         itemsTable.getItems().add(orderRow);
                         updateCostBreakdown(orderTabContent, itemsTable);
                         parentDialog.close();
-                        showSuccess("✓ Item allocated! Storage updated: " + (availableQty - orderRow.quantity) + " remaining");
+                        showSuccess("✓ Item reserved! " + (availableQty - orderRow.quantity) + " units still available");
                     }
                 } else {
-                    showError("Failed to allocate stock from storage!");
+                    showError("Failed to reserve stock from storage!");
                 }
             });
 
@@ -4244,54 +4206,61 @@ public class SalesStorageController extends BaseModuleController
             return;
         }
 
-        GridPane grid = (GridPane) costSection.getUserData();
-
         Task<Void> saveTask = new Task<>() {
             @Override
             protected Void call() {
-                List<SalesOrder> orders = salesOrderService.getOrdersByCustomer(customer.getId());
-                SalesOrder order;
-
-                if (orders.isEmpty()) {
-                    order = new SalesOrder("CUSTOMER");
-                    order.setCustomer(customer);
-                    order.setCreatedBy(currentUser != null ? currentUser.getUsername() : "system");
-                    order = salesOrderService.createSalesOrder(order);
-                } else {
-                    order = orders.get(0);
-                }
-
-                List<SalesOrderItem> existingItems = salesOrderService.getOrderItems(order.getId());
-                for (SalesOrderItem item : existingItems) {
-                    salesOrderService.removeItemFromOrder(item.getId());
-                }
-
-                for (OrderItemRow row : itemsTable.getItems()) {
-                    SalesOrderItem item = new SalesOrderItem(row.storageItemId, row.quantity, row.unitPrice);
-                    salesOrderService.addItemToOrder(order.getId(), item);
-                }
+                saveCustomerOrder(customer, itemsTable, costSection);
+                return null;
+            }
+        };
 
-                TextField taxField = (TextField) grid.lookup("#taxField");
-                TextField discountField = (TextField) grid.lookup("#discountField");
-                TextField crewField = (TextField) grid.lookup("#crewField");
-                TextField materialsField = (TextField) grid.lookup("#materialsField");
+        saveTask.setOnSucceeded(e -> showSuccess("✓ Customer order saved successfully!"));
+        saveTask.setOnFailed(e -> showError("Failed to save: " + saveTask.getException().getMessage()));
 
-                order.setTax(parseBigDecimal(taxField.getText()));
-                order.setSaleDiscount(parseBigDecimal(discountField.getText()));
-                order.setCrewCost(parseBigDecimal(crewField.getText()));
-                order.setAdditionalMaterials(parseBigDecimal(materialsField.getText()));
-                order.setUpdatedBy(currentUser != null ? currentUser.getUsername() : "system");
+        new Thread(saveTask).start();
+    }
 
-                salesOrderService.updateSalesOrder(order.getId(), order);
+    // ==================== CONFIRM CUSTOMER ORDER ====================
+    private void handleConfirmCustomerOrder(Customer customer, TableView<OrderItemRow> itemsTable, VBox costSection) {
+        if (itemsTable.getItems().isEmpty()) {
+            showWarning("Please add items to the order first");
+            return;
+        }
 
+        Task<Void> confirmTask = new Task<>() {
+            @Override
+            protected Void call() {
+                SalesOrder order = saveCustomerOrder(customer, itemsTable, costSection);
+                salesOrderService.confirmOrder(order.getId(),
+                        currentUser != null ? currentUser.getUsername() : "system");
+                markRowsDeducted(itemsTable);
                 return null;
             }
         };
 
-        saveTask.setOnSucceeded(e -> showSuccess("✓ Customer order saved successfully!"));
-        saveTask.setOnFailed(e -> showError("Failed to save: " + saveTask.getException().getMessage()));
+        confirmTask.setOnSucceeded(e -> showSuccess("✓ Customer order confirmed and stock deducted!"));
+        confirmTask.setOnFailed(e -> showError("Failed to confirm order: " + confirmTask.getException().getMessage()));
 
-        new Thread(saveTask).start();
+        new Thread(confirmTask).start();
+    }
+
+    /**
+     * Save the customer order from the table and cost fields. Runs on a task thread.
+     */
+    private SalesOrder saveCustomerOrder(Customer customer, TableView<OrderItemRow> itemsTable, VBox costSection) {
+        List<SalesOrder> orders = salesOrderService.getOrdersByCustomer(customer.getId());
+        SalesOrder order;
+
+        if (orders.isEmpty()) {
+            order = new SalesOrder("CUSTOMER");
+            order.setCustomer(customer);
+            order.setCreatedBy(currentUser != null ? currentUser.getUsername() : "system");
+            order = salesOrderService.createSalesOrder(order);
+        } else {
+            order = orders.get(0);
+        }
+
+        return saveOrderDetails(order, itemsTable, costSection);
     }
 
     // ==================== LOAD EXISTING CUSTOMER ORDER ====================
@@ -4307,14 +4276,16 @@ public class SalesStorageController extends BaseModuleController
 
                 Platform.runLater(() -> {
                     for (SalesOrderItem item : items) {
-                        StorageItem storageItem = storageService.getItemById(item.getStorageItemId()).orElse(null);
+                        StorageItem storageItem = catalogCache.getItem(item.getStorageItemId()).orElse(null);
                         if (storageItem != null) {
-                            itemsTable.getItems().add(new OrderItemRow(
+                            OrderItemRow row = new OrderItemRow(
                                     storageItem.getId(),
                                     storageItem.getProductName(),
                                     item.getQuantity(),
                                     item.getUnitPrice()
-                            ));
+                            );
+                            row.holderKey = SalesOrderService.holderKeyOf(item);
+                            itemsTable.getItems().add(row);
                         }
                     }
 
@@ -4344,7 +4315,7 @@ public class SalesStorageController extends BaseModuleController
         Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
         confirm.setTitle("Clear Order");
         confirm.setHeaderText("Clear all items from this order?");
-        confirm.setContentText("This action cannot be undone!");
+        confirm.setContentText("This will return all items to storage!");
 
         confirm.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
@@ -4356,19 +4327,139 @@ public class SalesStorageController extends BaseModuleController
                                 .orElse(null);
 
                 if (itemsTable != null) {
-                    itemsTable.getItems().clear();
-                    updateCostBreakdown(orderTabContent, itemsTable);
-                    showSuccess("✓ Order cleared");
+                    List<OrderItemRow> rows = new ArrayList<>(itemsTable.getItems());
+                    Task<List<OrderItemRow>> returnAllTask = new Task<>() {
+                        @Override
+                        protected List<OrderItemRow> call() {
+                            return releaseRowsStock(rows, "CUSTOMER:" + customer.getId());
+                        }
+                    };
+
+                    returnAllTask.setOnSucceeded(e -> showClearOrderResult(itemsTable, orderTabContent,
+                            returnAllTask.getValue()));
+
+                    returnAllTask.setOnFailed(e -> {
+                        showError("Failed to return items to storage!");
+                    });
+
+                    new Thread(returnAllTask).start();
                 }
             }
         });
     }
 
+    // ==================== ORDER ROW STOCK ====================
+
+    /**
+     * Replace the order lines (each line takes over the stock hold of its row) and save the
+     * cost fields. Runs on a task thread.
+     */
+    private SalesOrder saveOrderDetails(SalesOrder order, TableView<OrderItemRow> itemsTable, VBox costSection) {
+        saveOrderRows(order, itemsTable);
+
+        GridPane grid = (GridPane) costSection.getUserData();
+        TextField taxField = (TextField) grid.lookup("#taxField");
+        TextField discountField = (TextField) grid.lookup("#discountField");
+        TextField crewField = (TextField) grid.lookup("#crewField");
+        TextField materialsField = (TextField) grid.lookup("#materialsField");
+
+        order.setTax(parseBigDecimal(taxField.getText()));
+        order.setSaleDiscount(parseBigDecimal(discountField.getText()));
+        order.setCrewCost(parseBigDecimal(crewField.getText()));
+        order.setAdditionalMaterials(parseBigDecimal(materialsField.getText()));
+        order.setUpdatedBy(currentUser != null ? currentUser.getUsername() : "system");
+
+        return salesOrderService.updateSalesOrder(order.getId(), order);
+    }
+
+    /**
+     * After confirm/push every row's stock is deducted: removing a row returns its stock
+     */
+    private void markRowsDeducted(TableView<OrderItemRow> itemsTable) {
+        List<OrderItemRow> rows = new ArrayList<>(itemsTable.getItems());
+        Platform.runLater(() -> rows.forEach(row -> row.holderKey = null));
+    }
+
+    /**
+     * Save the table rows as the order's lines. Runs on the save task's thread; the rows are
+     * re-keyed to the holds of the saved lines on the FX thread.
+     */
+    private void saveOrderRows(SalesOrder order, TableView<OrderItemRow> itemsTable) {
+        List<OrderItemRow> rows = new ArrayList<>(itemsTable.getItems());
+        List<SalesOrderItem> items = new ArrayList<>();
+        List<String> holderKeys = new ArrayList<>();
+        for (OrderItemRow row : rows) {
+            items.add(new SalesOrderItem(row.storageItemId, row.quantity, row.unitPrice));
+            holderKeys.add(row.holderKey);
+        }
+
+        List<SalesOrderItem> savedItems = salesOrderService.replaceOrderItems(order.getId(), items, holderKeys);
+
+        Platform.runLater(() -> {
+            for (int i = 0; i < rows.size(); i++) {
+                rows.get(i).holderKey = SalesOrderService.holderKeyOf(savedItems.get(i));
+            }
+        });
+    }
+
+    /**
+     * Give back the stock a removed row held. A draft hold is released; a row of a line saved
+     * before reservations had its stock deducted, so it is returned. The hold of a saved line
+     * is released when the order is saved without it.
+     */
+    private void releaseRowStock(OrderItemRow row, String reference) {
+        if (row.holderKey == null) {
+            stockLedger.returnStock(row.storageItemId, row.quantity, reference,
+                    currentUser != null ? currentUser.getUsername() : "system");
+        } else if (SalesOrderService.isDraftHolderKey(row.holderKey)) {
+            reservationService.release(row.holderKey);
+        }
+    }
+
+    /**
+     * Give back the stock of each row (clear order). A failure is logged and does not stop the others.
+     * @return the rows whose stock could not be given back
+     */
+    private List<OrderItemRow> releaseRowsStock(List<OrderItemRow> rows, String reference) {
+        List<OrderItemRow> failed = new ArrayList<>();
+        for (OrderItemRow row : rows) {
+            try {
+                releaseRowStock(row, reference);
+            } catch (Exception e) {
+                logger.error("Could not return {} x{} (item {}) to storage for {}",
+                        row.productName, row.quantity, row.storageItemId, reference, e);
+                failed.add(row);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Remove the rows whose stock was given back; rows that failed stay in the order
+     */
+    private void showClearOrderResult(TableView<OrderItemRow> itemsTable, VBox orderTabContent,
+                                      List<OrderItemRow> failed) {
+        itemsTable.getItems().removeIf(row -> !failed.contains(row));
+        updateCostBreakdown(orderTabContent, itemsTable);
+        if (failed.isEmpty()) {
+            showSuccess("✓ Order cleared and all items returned to storage!");
+            return;
+        }
+        StringBuilder names = new StringBuilder();
+        for (OrderItemRow row : failed) {
+            names.append("\n• ").append(row.productName).append(" x").append(row.quantity);
+        }
+        showError("Could not return " + failed.size() + " item(s) to storage. " +
+                "They were kept in the order:" + names);
+    }
+
     private static class OrderItemRow {
         private final Long storageItemId;
         private final String productName;
         private final int quantity;
         private final BigDecimal unitPrice;
+        // Hold covering this row's stock; null if its stock was already deducted
+        private String holderKey;
 
         public OrderItemRow(Long storageItemId, String productName, int quantity, BigDecimal unitPrice) {
             this.storageItemId = storageItemId;
@@ -14,7 +14,8 @@ import java.time.LocalDateTime;
 public class CustomerCostBreakdown {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_cost_breakdowns_seq")
+    @SequenceGenerator(name = "customer_cost_breakdowns_seq", sequenceName = "customer_cost_breakdowns_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "customer_id", nullable = false)
@@ -12,7 +12,8 @@ import java.time.LocalDateTime;
 public class CustomerDocument {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_documents_seq")
+    @SequenceGenerator(name = "customer_documents_seq", sequenceName = "customer_documents_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
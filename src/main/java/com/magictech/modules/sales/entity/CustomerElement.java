@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
 public class CustomerElement {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_elements_seq")
+    @SequenceGenerator(name = "customer_elements_seq", sequenceName = "customer_elements_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
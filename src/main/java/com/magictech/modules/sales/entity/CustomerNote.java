@@ -12,7 +12,8 @@ import java.time.LocalDateTime;
 public class CustomerNote {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_notes_seq")
+    @SequenceGenerator(name = "customer_notes_seq", sequenceName = "customer_notes_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
 public class CustomerSchedule {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_schedules_seq")
+    @SequenceGenerator(name = "customer_schedules_seq", sequenceName = "customer_schedules_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
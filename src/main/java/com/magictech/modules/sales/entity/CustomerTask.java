@@ -12,7 +12,8 @@ import java.time.LocalDateTime;
 public class CustomerTask {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_tasks_seq")
+    @SequenceGenerator(name = "customer_tasks_seq", sequenceName = "customer_tasks_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
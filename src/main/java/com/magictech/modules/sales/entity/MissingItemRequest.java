@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
 public class MissingItemRequest {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "missing_item_requests_seq")
+    @SequenceGenerator(name = "missing_item_requests_seq", sequenceName = "missing_item_requests_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "project_id", nullable = false)
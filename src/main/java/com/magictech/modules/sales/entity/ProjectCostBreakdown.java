@@ -15,7 +15,8 @@ import java.time.LocalDateTime;
 public class ProjectCostBreakdown {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "project_cost_breakdowns_seq")
+    @SequenceGenerator(name = "project_cost_breakdowns_seq", sequenceName = "project_cost_breakdowns_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "project_id", nullable = false, unique = true)
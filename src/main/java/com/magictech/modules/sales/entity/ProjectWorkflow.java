@@ -12,7 +12,8 @@ import java.time.LocalDateTime;
 public class ProjectWorkflow {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "project_workflows_seq")
+    @SequenceGenerator(name = "project_workflows_seq", sequenceName = "project_workflows_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "project_id", nullable = false, unique = true)
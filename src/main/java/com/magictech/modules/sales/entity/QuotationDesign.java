@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
 public class QuotationDesign {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "quotation_designs_seq")
+    @SequenceGenerator(name = "quotation_designs_seq", sequenceName = "quotation_designs_id_seq", allocationSize = 50)
     private Long id;
 
     // Entity relationship - which entity this quotation belongs to
@@ -23,15 +24,13 @@ public class QuotationDesign {
     @Column(name = "entity_id", nullable = false)
     private Long entityId;
 
-    // PDF Storage
-    @Basic(fetch = FetchType.LAZY)
-    @Column(name = "pdf_data", columnDefinition = "BYTEA")
-    private byte[] pdfData;
+    // PDF Storage - content lives in the BlobStore under this SHA-256 key
+    @Column(name = "pdf_blob_key", length = 64)
+    private String pdfBlobKey;
 
-    // Original PDF backup (before any edits)
-    @Basic(fetch = FetchType.LAZY)
-    @Column(name = "original_pdf_data", columnDefinition = "BYTEA")
-    private byte[] originalPdfData;
+    // Original PDF backup (before any edits); versions share the same blob
+    @Column(name = "original_pdf_blob_key", length = 64)
+    private String originalPdfBlobKey;
 
     // Text annotations stored as JSON
     // Format: [{"page": 0, "x": 100, "y": 200, "text": "Hello", "fontSize": 12, "fontFamily": "Arial", "color": "#000000", "bold": false, "italic": false}]
@@ -133,23 +132,20 @@ public class QuotationDesign {
         this.entityId = entityId;
     }
 
-    public byte[] getPdfData() {
-        return pdfData;
+    public String getPdfBlobKey() {
+        return pdfBlobKey;
     }
 
-    public void setPdfData(byte[] pdfData) {
-        this.pdfData = pdfData;
-        if (pdfData != null) {
-            this.fileSize = (long) pdfData.length;
-        }
+    public void setPdfBlobKey(String pdfBlobKey) {
+        this.pdfBlobKey = pdfBlobKey;
     }
 
-    public byte[] getOriginalPdfData() {
-        return originalPdfData;
+    public String getOriginalPdfBlobKey() {
+        return originalPdfBlobKey;
     }
 
-    public void setOriginalPdfData(byte[] originalPdfData) {
-        this.originalPdfData = originalPdfData;
+    public void setOriginalPdfBlobKey(String originalPdfBlobKey) {
+        this.originalPdfBlobKey = originalPdfBlobKey;
     }
 
     public String getPdfAnnotations() {
@@ -292,7 +288,7 @@ public class QuotationDesign {
     }
 
     public boolean hasPdf() {
-        return pdfData != null && pdfData.length > 0;
+        return pdfBlobKey != null;
     }
 
     @Override
@@ -15,7 +15,8 @@ import java.time.LocalDateTime;
 public class SalesContract {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sales_contracts_seq")
+    @SequenceGenerator(name = "sales_contracts_seq", sequenceName = "sales_contracts_id_seq", allocationSize = 50)
     private Long id;
 
     @OneToOne(fetch = FetchType.LAZY)
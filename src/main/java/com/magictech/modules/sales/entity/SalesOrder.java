@@ -16,7 +16,8 @@ import java.util.List;
 public class SalesOrder {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sales_orders_seq")
+    @SequenceGenerator(name = "sales_orders_seq", sequenceName = "sales_orders_id_seq", allocationSize = 50)
     private Long id;
 
     @NotNull(message = "Order type is required")
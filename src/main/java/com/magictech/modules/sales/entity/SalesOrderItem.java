@@ -15,7 +15,8 @@ import java.time.LocalDateTime;
 public class SalesOrderItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sales_order_items_seq")
+    @SequenceGenerator(name = "sales_order_items_seq", sequenceName = "sales_order_items_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -51,6 +52,16 @@ public class SalesOrderItem {
     @Column(nullable = false)
     private Boolean active = true;
 
+    // True while a live soft reservation holds the line's stock; cleared when the hold
+    // is committed, released or expires.
+    @Column(name = "stock_reserved")
+    private Boolean stockReserved = false;
+
+    // False until the line's stock has been deducted (on confirm or push). Null for lines
+    // saved before reservations, whose stock was deducted when they were added.
+    @Column(name = "stock_deducted")
+    private Boolean stockDeducted;
+
     // Constructors
     public SalesOrderItem() {
         this.createdAt = LocalDateTime.now();
@@ -114,6 +125,22 @@ public class SalesOrderItem {
         calculateTotal();
     }
 
+    public Boolean getStockReserved() {
+        return stockReserved;
+    }
+
+    public void setStockReserved(Boolean stockReserved) {
+        this.stockReserved = stockReserved;
+    }
+
+    public Boolean getStockDeducted() {
+        return stockDeducted;
+    }
+
+    public void setStockDeducted(Boolean stockDeducted) {
+        this.stockDeducted = stockDeducted;
+    }
+
     public BigDecimal getUnitPrice() {
         return unitPrice;
     }
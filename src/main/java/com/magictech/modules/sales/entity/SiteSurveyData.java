@@ -12,7 +12,8 @@ import java.time.LocalDateTime;
 public class SiteSurveyData {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "site_survey_data_seq")
+    @SequenceGenerator(name = "site_survey_data_seq", sequenceName = "site_survey_data_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "project_id", nullable = false)
@@ -21,10 +22,9 @@ public class SiteSurveyData {
     @Column(name = "workflow_id", nullable = false)
     private Long workflowId;
 
-    // Excel file storage - Using BYTEA directly without @Lob to avoid OID issues in Hibernate 6
-    @Basic(fetch = FetchType.LAZY)
-    @Column(name = "excel_file", columnDefinition = "BYTEA")
-    private byte[] excelFile;
+    // Excel file - content lives in the BlobStore under this SHA-256 key
+    @Column(name = "excel_blob_key", length = 64)
+    private String excelBlobKey;
 
     @Column(name = "file_name", length = 255)
     private String fileName;
@@ -36,9 +36,8 @@ public class SiteSurveyData {
     private String mimeType;
 
     // ZIP file storage - Alternative to Excel for bundling multiple files/images
-    @Basic(fetch = FetchType.LAZY)
-    @Column(name = "zip_file", columnDefinition = "BYTEA")
-    private byte[] zipFile;
+    @Column(name = "zip_blob_key", length = 64)
+    private String zipBlobKey;
 
     @Column(name = "zip_file_name", length = 255)
     private String zipFileName;
@@ -53,9 +52,9 @@ public class SiteSurveyData {
     @Column(name = "file_type", length = 20)
     private String fileType;
 
-    // Parsed data (JSON format for flexibility)
-    @Column(name = "parsed_data", columnDefinition = "TEXT")
-    private String parsedData;
+    // Parsed data (JSON) - stored in workflow_parsed_data, read via ProjectWorkflowService.getParsedData
+    @Column(name = "parsed_data_id")
+    private Long parsedDataId;
 
     // Survey metadata
     @Column(name = "survey_done_by", length = 50)
@@ -122,12 +121,12 @@ public class SiteSurveyData {
         this.workflowId = workflowId;
     }
 
-    public byte[] getExcelFile() {
-        return excelFile;
+    public String getExcelBlobKey() {
+        return excelBlobKey;
     }
 
-    public void setExcelFile(byte[] excelFile) {
-        this.excelFile = excelFile;
+    public void setExcelBlobKey(String excelBlobKey) {
+        this.excelBlobKey = excelBlobKey;
     }
 
     public String getFileName() {
@@ -154,12 +153,12 @@ public class SiteSurveyData {
         this.mimeType = mimeType;
     }
 
-    public String getParsedData() {
-        return parsedData;
+    public Long getParsedDataId() {
+        return parsedDataId;
     }
 
-    public void setParsedData(String parsedData) {
-        this.parsedData = parsedData;
+    public void setParsedDataId(Long parsedDataId) {
+        this.parsedDataId = parsedDataId;
     }
 
     public String getSurveyDoneBy() {
@@ -235,12 +234,12 @@ public class SiteSurveyData {
     }
 
     // ZIP file getters and setters
-    public byte[] getZipFile() {
-        return zipFile;
+    public String getZipBlobKey() {
+        return zipBlobKey;
     }
 
-    public void setZipFile(byte[] zipFile) {
-        this.zipFile = zipFile;
+    public void setZipBlobKey(String zipBlobKey) {
+        this.zipBlobKey = zipBlobKey;
     }
 
     public String getZipFileName() {
@@ -277,11 +276,11 @@ public class SiteSurveyData {
 
     // Helper methods
     public boolean hasExcelFile() {
-        return excelFile != null && excelFile.length > 0;
+        return excelBlobKey != null;
     }
 
     public boolean hasZipFile() {
-        return zipFile != null && zipFile.length > 0;
+        return zipBlobKey != null;
     }
 
     public boolean hasAnyFile() {
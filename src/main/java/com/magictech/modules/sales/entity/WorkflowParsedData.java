@@ -0,0 +1,65 @@
+package com.magictech.modules.sales.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Workflow Parsed Data Entity
+ * JSON parsed from a workflow step's Excel/ZIP upload. Kept out of the step tables
+ * (site_survey_data, sizing_pricing_data, bank_guarantee_data, project_cost_data), which
+ * point at it by parsed_data_id, so loading a step reads only its metadata. The JSON is
+ * read on demand through ProjectWorkflowService.getParsedData.
+ */
+@Entity
+@Table(name = "workflow_parsed_data")
+public class WorkflowParsedData {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "workflow_parsed_data_seq")
+    @SequenceGenerator(name = "workflow_parsed_data_seq", sequenceName = "workflow_parsed_data_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "parsed_data", columnDefinition = "TEXT", nullable = false)
+    private String parsedData;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Constructors
+    public WorkflowParsedData() {
+    }
+
+    public WorkflowParsedData(String parsedData) {
+        this.parsedData = parsedData;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getParsedData() {
+        return parsedData;
+    }
+
+    public void setParsedData(String parsedData) {
+        this.parsedData = parsedData;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
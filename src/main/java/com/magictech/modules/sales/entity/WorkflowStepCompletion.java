@@ -12,7 +12,8 @@ import java.time.LocalDateTime;
 public class WorkflowStepCompletion {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "workflow_step_completions_seq")
+    @SequenceGenerator(name = "workflow_step_completions_seq", sequenceName = "workflow_step_completions_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "workflow_id", nullable = false)
@@ -16,6 +16,8 @@ public interface BankGuaranteeDataRepository extends JpaRepository<BankGuarantee
 
     List<BankGuaranteeData> findByActiveTrue();
 
+    List<BankGuaranteeData> findByProjectId(Long projectId);
+
     List<BankGuaranteeData> findByUploadedByIdAndActiveTrue(Long uploadedById);
 
     boolean existsByProjectIdAndActiveTrue(Long projectId);
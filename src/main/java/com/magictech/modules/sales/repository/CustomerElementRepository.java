@@ -2,6 +2,7 @@ package com.magictech.modules.sales.repository;
 
 import com.magictech.modules.sales.entity.CustomerElement;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,4 +17,8 @@ public interface CustomerElementRepository extends JpaRepository<CustomerElement
     long countByCustomerIdAndActiveTrue(Long customerId);
 
     List<CustomerElement> findByActiveTrue();
+
+    // Active element count per customer in one grouped query: customerId, count
+    @Query("SELECT ce.customer.id, COUNT(ce) FROM CustomerElement ce WHERE ce.active = true GROUP BY ce.customer.id")
+    List<Object[]> countActiveByCustomer();
 }
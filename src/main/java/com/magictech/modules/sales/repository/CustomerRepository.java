@@ -1,11 +1,16 @@
 package com.magictech.modules.sales.repository;
 
 import com.magictech.modules.sales.entity.Customer;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Customer Repository
@@ -48,4 +53,14 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
      * Count total active customers
      */
     long countByActiveTrue();
+
+    /**
+     * Active customers as scalar rows for Excel export, fetched from the cursor 500 at a time:
+     * id, name, email, phone, company, address, createdAt.
+     * Must be consumed inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT c.id, c.name, c.email, c.phone, c.company, c.address, c.createdAt " +
+           "FROM Customer c WHERE c.active = true ORDER BY c.id")
+    Stream<Object[]> streamExportRows();
 }
\ No newline at end of file
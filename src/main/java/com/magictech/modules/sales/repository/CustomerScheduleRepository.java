@@ -1,4 +1,4 @@
-package com.magictech.modules/sales.repository;
+package com.magictech.modules.sales.repository;
 
 import com.magictech.modules.sales.entity.CustomerSchedule;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -4,6 +4,8 @@ import com.magictech.modules.sales.entity.ProjectCostBreakdown;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -17,6 +19,11 @@ public interface ProjectCostBreakdownRepository extends JpaRepository<ProjectCos
      */
     Optional<ProjectCostBreakdown> findByProjectId(Long projectId);
 
+    /**
+     * Find cost breakdowns of several projects in one query
+     */
+    List<ProjectCostBreakdown> findByProjectIdIn(Collection<Long> projectIds);
+
     /**
      * Check if cost breakdown exists for project
      */
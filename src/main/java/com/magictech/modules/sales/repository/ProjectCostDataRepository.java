@@ -16,6 +16,8 @@ public interface ProjectCostDataRepository extends JpaRepository<ProjectCostData
 
     List<ProjectCostData> findByActiveTrue();
 
+    List<ProjectCostData> findByProjectId(Long projectId);
+
     List<ProjectCostData> findByUploadedByIdAndActiveTrue(Long uploadedById);
 
     List<ProjectCostData> findByProjectReceivedConfirmationAndActiveTrue(Boolean confirmation);
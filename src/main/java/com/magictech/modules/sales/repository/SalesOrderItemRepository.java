@@ -2,8 +2,12 @@ package com.magictech.modules.sales.repository;
 
 import com.magictech.modules.sales.entity.SalesOrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -32,4 +36,11 @@ public interface SalesOrderItemRepository extends JpaRepository<SalesOrderItem,
      * Delete all items for a sales order (soft delete)
      */
     void deleteBySalesOrderId(Long salesOrderId);
+
+    /**
+     * Mark lines whose stock reservation expired as no longer holding stock
+     */
+    @Modifying
+    @Query("UPDATE SalesOrderItem i SET i.stockReserved = false WHERE i.id IN :ids AND i.stockReserved = true")
+    int clearStockReserved(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
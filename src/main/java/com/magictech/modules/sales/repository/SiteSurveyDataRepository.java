@@ -16,6 +16,8 @@ public interface SiteSurveyDataRepository extends JpaRepository<SiteSurveyData,
 
     List<SiteSurveyData> findByActiveTrue();
 
+    List<SiteSurveyData> findByProjectId(Long projectId);
+
     List<SiteSurveyData> findBySurveyDoneByAndActiveTrue(String surveyDoneBy);
 
     boolean existsByProjectIdAndActiveTrue(Long projectId);
@@ -16,6 +16,8 @@ public interface SizingPricingDataRepository extends JpaRepository<SizingPricing
 
     List<SizingPricingData> findByActiveTrue();
 
+    List<SizingPricingData> findByProjectId(Long projectId);
+
     List<SizingPricingData> findByUploadedByIdAndActiveTrue(Long uploadedById);
 
     boolean existsByProjectIdAndActiveTrue(Long projectId);
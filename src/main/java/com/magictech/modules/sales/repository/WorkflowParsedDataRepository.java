@@ -0,0 +1,9 @@
+package com.magictech.modules.sales.repository;
+
+import com.magictech.modules.sales.entity.WorkflowParsedData;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface WorkflowParsedDataRepository extends JpaRepository<WorkflowParsedData, Long> {
+}
@@ -1,24 +1,32 @@
 package com.magictech.modules.sales.service;
 
+import com.magictech.core.export.StreamingExcelWriter;
+import com.magictech.core.export.StreamingExcelWriter.SheetWriter;
 import com.magictech.modules.sales.entity.*;
+import com.magictech.modules.sales.repository.CustomerElementRepository;
+import com.magictech.modules.sales.repository.CustomerRepository;
 import com.magictech.modules.projects.entity.*;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.io.FileOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Comprehensive Excel Export Service
- * Exports complete project/customer details for quotations
+ * Exports complete project/customer details for quotations.
+ * Workbooks are written with StreamingExcelWriter (SXSSF).
  */
 @Service
+@Transactional(readOnly = true)
 public class ComprehensiveExcelExportService {
 
     @Autowired
@@ -27,6 +35,12 @@ public class ComprehensiveExcelExportService {
     @Autowired
     private CustomerElementService customerElementService;
 
+    @Autowired
+    private CustomerElementRepository customerElementRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
     @Autowired
     private CustomerTaskService customerTaskService;
 
@@ -58,360 +72,171 @@ public class ComprehensiveExcelExportService {
      * Export comprehensive customer quotation
      */
     public void exportCustomerQuotation(Customer customer, String filePath) throws IOException {
-        Workbook workbook = new XSSFWorkbook();
+        try (StreamingExcelWriter writer = new StreamingExcelWriter()) {
+            // Sheet 1: Customer Information
+            createCustomerInfoSheet(writer, customer);
 
-        // Create styles
-        CellStyle headerStyle = createHeaderStyle(workbook);
-        CellStyle titleStyle = createTitleStyle(workbook);
-        CellStyle currencyStyle = createCurrencyStyle(workbook);
+            // Sheet 2: Elements/Items with Pricing
+            createElementsSheet(writer, customer);
 
-        // Sheet 1: Customer Information
-        createCustomerInfoSheet(workbook, customer, titleStyle, headerStyle);
+            // Sheet 3: Cost Breakdown
+            createCostBreakdownSheet(writer, customer);
 
-        // Sheet 2: Elements/Items with Pricing
-        createElementsSheet(workbook, customer, titleStyle, headerStyle, currencyStyle);
+            // Sheet 4: Tasks/Deliverables
+            createTasksSheet(writer, customer);
 
-        // Sheet 3: Cost Breakdown
-        createCostBreakdownSheet(workbook, customer, titleStyle, headerStyle, currencyStyle);
+            // Sheet 5: Schedule/Timeline
+            createScheduleSheet(writer, customer);
 
-        // Sheet 4: Tasks/Deliverables
-        createTasksSheet(workbook, customer, titleStyle, headerStyle);
+            // Sheet 6: Documents List
+            createDocumentsSheet(writer, customer);
 
-        // Sheet 5: Schedule/Timeline
-        createScheduleSheet(workbook, customer, titleStyle, headerStyle);
-
-        // Sheet 6: Documents List
-        createDocumentsSheet(workbook, customer, titleStyle, headerStyle);
-
-        // Write to file
-        try (FileOutputStream fileOut = new FileOutputStream(filePath)) {
-            workbook.write(fileOut);
+            writer.writeTo(new File(filePath));
         }
-
-        workbook.close();
     }
 
-    private void createCustomerInfoSheet(Workbook workbook, Customer customer, CellStyle titleStyle, CellStyle headerStyle) {
-        Sheet sheet = workbook.createSheet("Customer Information");
-        sheet.setColumnWidth(0, 5000);
-        sheet.setColumnWidth(1, 8000);
-
-        int rowNum = 0;
+    private void createCustomerInfoSheet(StreamingExcelWriter writer, Customer customer) {
+        CellStyle headerStyle = writer.headerStyle();
+        SheetWriter sheet = writer.createSheet("Customer Information").columnWidths(5000, 8000);
 
-        // Title
-        Row titleRow = sheet.createRow(rowNum++);
-        Cell titleCell = titleRow.createCell(0);
-        titleCell.setCellValue("CUSTOMER QUOTATION");
-        titleCell.setCellStyle(titleStyle);
-        sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 1));
-        rowNum++;
+        sheet.title("CUSTOMER QUOTATION", 2, writer.titleStyle());
 
         // Customer Details
-        addRow(sheet, rowNum++, "Customer Name:", customer.getName(), headerStyle);
-        addRow(sheet, rowNum++, "Email:", customer.getEmail(), null);
-        addRow(sheet, rowNum++, "Phone:", customer.getPhone(), null);
-        addRow(sheet, rowNum++, "Company:", customer.getCompany(), null);
-        addRow(sheet, rowNum++, "Address:", customer.getAddress(), null);
-        rowNum++;
+        sheet.labelRow("Customer Name:", customer.getName(), headerStyle, null);
+        sheet.labelRow("Email:", customer.getEmail(), null, null);
+        sheet.labelRow("Phone:", customer.getPhone(), null, null);
+        sheet.labelRow("Company:", customer.getCompany(), null, null);
+        sheet.labelRow("Address:", customer.getAddress(), null, null);
+        sheet.blankRow();
 
         // Dates
         if (customer.getCreatedAt() != null) {
-            addRow(sheet, rowNum++, "Created Date:", customer.getCreatedAt().format(DATETIME_FORMATTER), null);
+            sheet.labelRow("Created Date:", customer.getCreatedAt().format(DATETIME_FORMATTER), null, null);
         }
 
         // Statistics
-        rowNum++;
-        addRow(sheet, rowNum++, "Total Elements:", String.valueOf(customerElementService.getElementCount(customer.getId())), headerStyle);
-        addRow(sheet, rowNum++, "Pending Tasks:", String.valueOf(customerTaskService.getPendingTaskCount(customer.getId())), headerStyle);
-        addRow(sheet, rowNum++, "Total Documents:", String.valueOf(customerDocumentService.getDocumentCount(customer.getId())), headerStyle);
+        sheet.blankRow();
+        sheet.labelRow("Total Elements:", String.valueOf(customerElementService.getElementCount(customer.getId())), headerStyle, null);
+        sheet.labelRow("Pending Tasks:", String.valueOf(customerTaskService.getPendingTaskCount(customer.getId())), headerStyle, null);
+        sheet.labelRow("Total Documents:", String.valueOf(customerDocumentService.getDocumentCount(customer.getId())), headerStyle, null);
     }
 
-    private void createElementsSheet(Workbook workbook, Customer customer, CellStyle titleStyle, CellStyle headerStyle, CellStyle currencyStyle) {
-        Sheet sheet = workbook.createSheet("Elements & Pricing");
-
-        // Set column widths
-        sheet.setColumnWidth(0, 3000);  // ID
-        sheet.setColumnWidth(1, 5000);  // Manufacture
-        sheet.setColumnWidth(2, 8000);  // Product Name
-        sheet.setColumnWidth(3, 4000);  // Code
-        sheet.setColumnWidth(4, 3000);  // Qty
-        sheet.setColumnWidth(5, 4000);  // Unit Price
-        sheet.setColumnWidth(6, 4000);  // Total Price
-        sheet.setColumnWidth(7, 4000);  // Status
-
-        int rowNum = 0;
-
-        // Title
-        Row titleRow = sheet.createRow(rowNum++);
-        Cell titleCell = titleRow.createCell(0);
-        titleCell.setCellValue("ELEMENTS & PRICING DETAILS");
-        titleCell.setCellStyle(titleStyle);
-        sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 7));
-        rowNum++;
-
-        // Header row
-        Row headerRow = sheet.createRow(rowNum++);
-        String[] headers = {"ID", "Manufacture", "Product Name", "Code", "Quantity", "Unit Price", "Total Price", "Status"};
-        for (int i = 0; i < headers.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
-            cell.setCellStyle(headerStyle);
-        }
+    private void createElementsSheet(StreamingExcelWriter writer, Customer customer) {
+        CellStyle currencyStyle = writer.currencyStyle();
+        SheetWriter sheet = writer.createSheet("Elements & Pricing")
+                .columnWidths(3000, 5000, 8000, 4000, 3000, 4000, 4000, 4000)
+                .columnStyles(null, null, null, null, null, currencyStyle, currencyStyle, null);
+
+        sheet.title("ELEMENTS & PRICING DETAILS", 8, writer.titleStyle());
+        sheet.header(writer.headerStyle(), "ID", "Manufacture", "Product Name", "Code", "Quantity", "Unit Price", "Total Price", "Status");
 
         // Data rows
         List<CustomerElement> elements = customerElementService.getCustomerElements(customer.getId());
         BigDecimal grandTotal = BigDecimal.ZERO;
 
         for (CustomerElement element : elements) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(element.getId());
-            row.createCell(1).setCellValue(element.getStorageItem().getManufacture());
-            row.createCell(2).setCellValue(element.getStorageItem().getProductName());
-            row.createCell(3).setCellValue(element.getStorageItem().getCode());
-            row.createCell(4).setCellValue(element.getQuantityNeeded());
-
-            Cell unitPriceCell = row.createCell(5);
-            if (element.getUnitPrice() != null) {
-                unitPriceCell.setCellValue(element.getUnitPrice().doubleValue());
-                unitPriceCell.setCellStyle(currencyStyle);
-            }
+            sheet.row(element.getId(),
+                    element.getStorageItem().getManufacture(),
+                    element.getStorageItem().getProductName(),
+                    element.getStorageItem().getCode(),
+                    element.getQuantityNeeded(),
+                    element.getUnitPrice(),
+                    element.getTotalPrice(),
+                    element.getStatus());
 
-            Cell totalPriceCell = row.createCell(6);
             if (element.getTotalPrice() != null) {
-                totalPriceCell.setCellValue(element.getTotalPrice().doubleValue());
-                totalPriceCell.setCellStyle(currencyStyle);
                 grandTotal = grandTotal.add(element.getTotalPrice());
             }
-
-            row.createCell(7).setCellValue(element.getStatus());
         }
 
-        // Grand Total
-        rowNum++;
-        Row totalRow = sheet.createRow(rowNum);
-        Cell totalLabelCell = totalRow.createCell(5);
-        totalLabelCell.setCellValue("GRAND TOTAL:");
-        totalLabelCell.setCellStyle(headerStyle);
-
-        Cell totalValueCell = totalRow.createCell(6);
-        totalValueCell.setCellValue(grandTotal.doubleValue());
-        totalValueCell.setCellStyle(currencyStyle);
+        writeGrandTotal(writer, sheet, grandTotal);
     }
 
-    private void createCostBreakdownSheet(Workbook workbook, Customer customer, CellStyle titleStyle, CellStyle headerStyle, CellStyle currencyStyle) {
-        Sheet sheet = workbook.createSheet("Cost Breakdown");
-        sheet.setColumnWidth(0, 8000);
-        sheet.setColumnWidth(1, 5000);
-
-        int rowNum = 0;
+    private void createCostBreakdownSheet(StreamingExcelWriter writer, Customer customer) {
+        CellStyle headerStyle = writer.headerStyle();
+        CellStyle currencyStyle = writer.currencyStyle();
+        SheetWriter sheet = writer.createSheet("Cost Breakdown").columnWidths(8000, 5000);
 
-        // Title
-        Row titleRow = sheet.createRow(rowNum++);
-        Cell titleCell = titleRow.createCell(0);
-        titleCell.setCellValue("COST BREAKDOWN SUMMARY");
-        titleCell.setCellStyle(titleStyle);
-        sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 1));
-        rowNum++;
+        sheet.title("COST BREAKDOWN SUMMARY", 2, writer.titleStyle());
 
         // Calculate costs
         BigDecimal materialsTotal = customerElementService.calculateTotalCost(customer.getId());
 
         // Cost breakdown
-        addCostRow(sheet, rowNum++, "Materials & Equipment:", materialsTotal, headerStyle, currencyStyle);
-        rowNum++;
-        addCostRow(sheet, rowNum++, "SUBTOTAL:", materialsTotal, headerStyle, currencyStyle);
+        sheet.labelRow("Materials & Equipment:", materialsTotal, headerStyle, currencyStyle);
+        sheet.blankRow();
+        sheet.labelRow("SUBTOTAL:", materialsTotal, headerStyle, currencyStyle);
 
         // Add space for manual entries
-        rowNum++;
-        addRow(sheet, rowNum++, "Tax (Manual Entry):", "", headerStyle);
-        addRow(sheet, rowNum++, "Discount (Manual Entry):", "", headerStyle);
-        addRow(sheet, rowNum++, "Labor Cost (Manual Entry):", "", headerStyle);
-        addRow(sheet, rowNum++, "Additional Materials (Manual Entry):", "", headerStyle);
-        rowNum++;
-        addRow(sheet, rowNum++, "GRAND TOTAL:", "[Calculate Manually]", headerStyle);
+        sheet.blankRow();
+        sheet.labelRow("Tax (Manual Entry):", "", headerStyle, null);
+        sheet.labelRow("Discount (Manual Entry):", "", headerStyle, null);
+        sheet.labelRow("Labor Cost (Manual Entry):", "", headerStyle, null);
+        sheet.labelRow("Additional Materials (Manual Entry):", "", headerStyle, null);
+        sheet.blankRow();
+        sheet.labelRow("GRAND TOTAL:", "[Calculate Manually]", headerStyle, null);
     }
 
-    private void createTasksSheet(Workbook workbook, Customer customer, CellStyle titleStyle, CellStyle headerStyle) {
-        Sheet sheet = workbook.createSheet("Tasks & Deliverables");
-
-        sheet.setColumnWidth(0, 3000);
-        sheet.setColumnWidth(1, 8000);
-        sheet.setColumnWidth(2, 10000);
-        sheet.setColumnWidth(3, 3000);
-        sheet.setColumnWidth(4, 4000);
-        sheet.setColumnWidth(5, 4000);
-
-        int rowNum = 0;
-
-        // Title
-        Row titleRow = sheet.createRow(rowNum++);
-        Cell titleCell = titleRow.createCell(0);
-        titleCell.setCellValue("TASKS & DELIVERABLES");
-        titleCell.setCellStyle(titleStyle);
-        sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 5));
-        rowNum++;
-
-        // Header
-        Row headerRow = sheet.createRow(rowNum++);
-        String[] headers = {"ID", "Task Title", "Details", "Priority", "Status", "Assigned To"};
-        for (int i = 0; i < headers.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
-            cell.setCellStyle(headerStyle);
-        }
+    private void createTasksSheet(StreamingExcelWriter writer, Customer customer) {
+        SheetWriter sheet = writer.createSheet("Tasks & Deliverables")
+                .columnWidths(3000, 8000, 10000, 3000, 4000, 4000);
+
+        sheet.title("TASKS & DELIVERABLES", 6, writer.titleStyle());
+        sheet.header(writer.headerStyle(), "ID", "Task Title", "Details", "Priority", "Status", "Assigned To");
 
-        // Data
         List<CustomerTask> tasks = customerTaskService.getCustomerTasks(customer.getId());
-        for (CustomerTask task : tasks) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(task.getId());
-            row.createCell(1).setCellValue(task.getTaskTitle());
-            row.createCell(2).setCellValue(task.getTaskDetails() != null ? task.getTaskDetails() : "");
-            row.createCell(3).setCellValue(task.getPriority() != null ? task.getPriority() : "MEDIUM");
-            row.createCell(4).setCellValue(task.getIsCompleted() ? "✓ Completed" : "⏳ Pending");
-            row.createCell(5).setCellValue(task.getAssignedTo() != null ? task.getAssignedTo() : "");
-        }
+        sheet.rows(tasks.stream(), task -> new Object[]{
+                task.getId(),
+                task.getTaskTitle(),
+                task.getTaskDetails() != null ? task.getTaskDetails() : "",
+                task.getPriority() != null ? task.getPriority() : "MEDIUM",
+                task.getIsCompleted() ? "✓ Completed" : "⏳ Pending",
+                task.getAssignedTo() != null ? task.getAssignedTo() : ""
+        });
     }
 
-    private void createScheduleSheet(Workbook workbook, Customer customer, CellStyle titleStyle, CellStyle headerStyle) {
-        Sheet sheet = workbook.createSheet("Schedule & Timeline");
-
-        sheet.setColumnWidth(0, 3000);
-        sheet.setColumnWidth(1, 8000);
-        sheet.setColumnWidth(2, 4000);
-        sheet.setColumnWidth(3, 4000);
-        sheet.setColumnWidth(4, 10000);
-        sheet.setColumnWidth(5, 4000);
-
-        int rowNum = 0;
-
-        // Title
-        Row titleRow = sheet.createRow(rowNum++);
-        Cell titleCell = titleRow.createCell(0);
-        titleCell.setCellValue("DELIVERY & INSTALLATION SCHEDULE");
-        titleCell.setCellStyle(titleStyle);
-        sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 5));
-        rowNum++;
-
-        // Header
-        Row headerRow = sheet.createRow(rowNum++);
-        String[] headers = {"ID", "Task Name", "Start Date", "End Date", "Description", "Status"};
-        for (int i = 0; i < headers.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
-            cell.setCellStyle(headerStyle);
-        }
+    private void createScheduleSheet(StreamingExcelWriter writer, Customer customer) {
+        SheetWriter sheet = writer.createSheet("Schedule & Timeline")
+                .columnWidths(3000, 8000, 4000, 4000, 10000, 4000);
+
+        sheet.title("DELIVERY & INSTALLATION SCHEDULE", 6, writer.titleStyle());
+        sheet.header(writer.headerStyle(), "ID", "Task Name", "Start Date", "End Date", "Description", "Status");
 
-        // Data
         List<CustomerSchedule> schedules = customerScheduleService.getCustomerSchedules(customer.getId());
-        for (CustomerSchedule schedule : schedules) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(schedule.getId());
-            row.createCell(1).setCellValue(schedule.getTaskName());
-            row.createCell(2).setCellValue(schedule.getStartDate() != null ? schedule.getStartDate().format(DATE_FORMATTER) : "");
-            row.createCell(3).setCellValue(schedule.getEndDate() != null ? schedule.getEndDate().format(DATE_FORMATTER) : "");
-            row.createCell(4).setCellValue(schedule.getDescription() != null ? schedule.getDescription() : "");
-            row.createCell(5).setCellValue(schedule.getStatus() != null ? schedule.getStatus() : "SCHEDULED");
-        }
+        sheet.rows(schedules.stream(), schedule -> new Object[]{
+                schedule.getId(),
+                schedule.getTaskName(),
+                schedule.getStartDate() != null ? schedule.getStartDate().format(DATE_FORMATTER) : "",
+                schedule.getEndDate() != null ? schedule.getEndDate().format(DATE_FORMATTER) : "",
+                schedule.getDescription() != null ? schedule.getDescription() : "",
+                schedule.getStatus() != null ? schedule.getStatus() : "SCHEDULED"
+        });
     }
 
-    private void createDocumentsSheet(Workbook workbook, Customer customer, CellStyle titleStyle, CellStyle headerStyle) {
-        Sheet sheet = workbook.createSheet("Documents");
-
-        sheet.setColumnWidth(0, 3000);
-        sheet.setColumnWidth(1, 8000);
-        sheet.setColumnWidth(2, 4000);
-        sheet.setColumnWidth(3, 4000);
-        sheet.setColumnWidth(4, 10000);
-        sheet.setColumnWidth(5, 5000);
-
-        int rowNum = 0;
-
-        // Title
-        Row titleRow = sheet.createRow(rowNum++);
-        Cell titleCell = titleRow.createCell(0);
-        titleCell.setCellValue("DOCUMENTS & CONTRACTS");
-        titleCell.setCellStyle(titleStyle);
-        sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 5));
-        rowNum++;
-
-        // Header
-        Row headerRow = sheet.createRow(rowNum++);
-        String[] headers = {"ID", "Document Name", "Type", "Category", "Description", "Date Uploaded"};
-        for (int i = 0; i < headers.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
-            cell.setCellStyle(headerStyle);
-        }
+    private void createDocumentsSheet(StreamingExcelWriter writer, Customer customer) {
+        SheetWriter sheet = writer.createSheet("Documents")
+                .columnWidths(3000, 8000, 4000, 4000, 10000, 5000);
+
+        sheet.title("DOCUMENTS & CONTRACTS", 6, writer.titleStyle());
+        sheet.header(writer.headerStyle(), "ID", "Document Name", "Type", "Category", "Description", "Date Uploaded");
 
-        // Data
         List<CustomerDocument> documents = customerDocumentService.getCustomerDocuments(customer.getId());
-        for (CustomerDocument doc : documents) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(doc.getId());
-            row.createCell(1).setCellValue(doc.getDocumentName());
-            row.createCell(2).setCellValue(doc.getDocumentType());
-            row.createCell(3).setCellValue(doc.getCategory() != null ? doc.getCategory() : "OTHER");
-            row.createCell(4).setCellValue(doc.getDescription() != null ? doc.getDescription() : "");
-            row.createCell(5).setCellValue(doc.getDateUploaded() != null ? doc.getDateUploaded().format(DATETIME_FORMATTER) : "");
-        }
+        sheet.rows(documents.stream(), doc -> new Object[]{
+                doc.getId(),
+                doc.getDocumentName(),
+                doc.getDocumentType(),
+                doc.getCategory() != null ? doc.getCategory() : "OTHER",
+                doc.getDescription() != null ? doc.getDescription() : "",
+                doc.getDateUploaded() != null ? doc.getDateUploaded().format(DATETIME_FORMATTER) : ""
+        });
     }
 
     // Helper methods
-    private void addRow(Sheet sheet, int rowNum, String label, String value, CellStyle labelStyle) {
-        Row row = sheet.createRow(rowNum);
-        Cell labelCell = row.createCell(0);
-        labelCell.setCellValue(label);
-        if (labelStyle != null) {
-            labelCell.setCellStyle(labelStyle);
-        }
-        row.createCell(1).setCellValue(value);
-    }
-
-    private void addCostRow(Sheet sheet, int rowNum, String label, BigDecimal value, CellStyle labelStyle, CellStyle valueStyle) {
-        Row row = sheet.createRow(rowNum);
-        Cell labelCell = row.createCell(0);
-        labelCell.setCellValue(label);
-        if (labelStyle != null) {
-            labelCell.setCellStyle(labelStyle);
-        }
-
-        Cell valueCell = row.createCell(1);
-        if (value != null) {
-            valueCell.setCellValue(value.doubleValue());
-            valueCell.setCellStyle(valueStyle);
-        }
-    }
-
-    private CellStyle createHeaderStyle(Workbook workbook) {
-        CellStyle style = workbook.createCellStyle();
-        Font font = workbook.createFont();
-        font.setBold(true);
-        font.setFontHeightInPoints((short) 12);
-        style.setFont(font);
-        style.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        style.setBorderBottom(BorderStyle.THIN);
-        style.setBorderTop(BorderStyle.THIN);
-        style.setBorderLeft(BorderStyle.THIN);
-        style.setBorderRight(BorderStyle.THIN);
-        return style;
-    }
-
-    private CellStyle createTitleStyle(Workbook workbook) {
-        CellStyle style = workbook.createCellStyle();
-        Font font = workbook.createFont();
-        font.setBold(true);
-        font.setFontHeightInPoints((short) 16);
-        style.setFont(font);
-        style.setAlignment(HorizontalAlignment.CENTER);
-        return style;
-    }
-
-    private CellStyle createCurrencyStyle(Workbook workbook) {
-        CellStyle style = workbook.createCellStyle();
-        style.setDataFormat(workbook.createDataFormat().getFormat("$#,##0.00"));
-        return style;
+    private void writeGrandTotal(StreamingExcelWriter writer, SheetWriter sheet, BigDecimal grandTotal) {
+        sheet.blankRow();
+        Row totalRow = sheet.nextRow();
+        sheet.cell(totalRow, 5, "GRAND TOTAL:", writer.headerStyle());
+        sheet.cell(totalRow, 6, grandTotal, writer.currencyStyle());
     }
 
     // ==================== PUBLIC API METHODS ====================
@@ -426,64 +251,71 @@ public class ComprehensiveExcelExportService {
     }
 
     /**
-     * Export all customers to Excel (summary list)
+     * Export all active customers to Excel (summary list), streamed from the database
      */
-    public void exportAllCustomers(List<Customer> customers, String filePath) throws IOException {
-        Workbook workbook = new XSSFWorkbook();
-
-        CellStyle headerStyle = createHeaderStyle(workbook);
-        CellStyle titleStyle = createTitleStyle(workbook);
-
-        Sheet sheet = workbook.createSheet("All Customers");
-
-        // Set column widths
-        sheet.setColumnWidth(0, 3000);   // ID
-        sheet.setColumnWidth(1, 8000);   // Name
-        sheet.setColumnWidth(2, 8000);   // Email
-        sheet.setColumnWidth(3, 5000);   // Phone
-        sheet.setColumnWidth(4, 8000);   // Company
-        sheet.setColumnWidth(5, 10000);  // Address
-        sheet.setColumnWidth(6, 3000);   // Elements
-        sheet.setColumnWidth(7, 5000);   // Created Date
-
-        int rowNum = 0;
-
-        // Title
-        Row titleRow = sheet.createRow(rowNum++);
-        Cell titleCell = titleRow.createCell(0);
-        titleCell.setCellValue("ALL CUSTOMERS - COMPREHENSIVE EXPORT");
-        titleCell.setCellStyle(titleStyle);
-        sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 7));
-        rowNum++;
-
-        // Header
-        Row headerRow = sheet.createRow(rowNum++);
-        String[] headers = {"ID", "Customer Name", "Email", "Phone", "Company", "Address", "Elements", "Created Date"};
-        for (int i = 0; i < headers.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
-            cell.setCellStyle(headerStyle);
+    public void exportAllCustomers(String filePath) throws IOException {
+        Map<Long, Long> elementCounts = countElementsByCustomer();
+
+        try (StreamingExcelWriter writer = new StreamingExcelWriter()) {
+            SheetWriter sheet = createAllCustomersSheet(writer);
+
+            // id, name, email, phone, company, address, createdAt
+            sheet.rows(customerRepository.streamExportRows(), row -> new Object[]{
+                    row[0], row[1],
+                    row[2] != null ? row[2] : "",
+                    row[3] != null ? row[3] : "",
+                    row[4] != null ? row[4] : "",
+                    row[5] != null ? row[5] : "",
+                    elementCounts.getOrDefault((Long) row[0], 0L),
+                    row[6] != null ? ((LocalDateTime) row[6]).format(DATETIME_FORMATTER) : ""
+            });
+
+            writer.writeTo(new File(filePath));
         }
+    }
 
-        // Data
-        for (Customer customer : customers) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(customer.getId());
-            row.createCell(1).setCellValue(customer.getName());
-            row.createCell(2).setCellValue(customer.getEmail() != null ? customer.getEmail() : "");
-            row.createCell(3).setCellValue(customer.getPhone() != null ? customer.getPhone() : "");
-            row.createCell(4).setCellValue(customer.getCompany() != null ? customer.getCompany() : "");
-            row.createCell(5).setCellValue(customer.getAddress() != null ? customer.getAddress() : "");
-            row.createCell(6).setCellValue(customerElementService.getElementCount(customer.getId()));
-            row.createCell(7).setCellValue(customer.getCreatedAt() != null ? customer.getCreatedAt().format(DATETIME_FORMATTER) : "");
+    /**
+     * Export the given customers (e.g. a filtered list in view) in the all-customers layout
+     */
+    public void exportAllCustomers(List<Customer> customers, String filePath) throws IOException {
+        Map<Long, Long> elementCounts = countElementsByCustomer();
+
+        try (StreamingExcelWriter writer = new StreamingExcelWriter()) {
+            SheetWriter sheet = createAllCustomersSheet(writer);
+
+            sheet.rows(customers.stream(), customer -> new Object[]{
+                    customer.getId(),
+                    customer.getName(),
+                    customer.getEmail() != null ? customer.getEmail() : "",
+                    customer.getPhone() != null ? customer.getPhone() : "",
+                    customer.getCompany() != null ? customer.getCompany() : "",
+                    customer.getAddress() != null ? customer.getAddress() : "",
+                    elementCounts.getOrDefault(customer.getId(), 0L),
+                    customer.getCreatedAt() != null ? customer.getCreatedAt().format(DATETIME_FORMATTER) : ""
+            });
+
+            writer.writeTo(new File(filePath));
         }
+    }
 
-        // Write to file
-        try (FileOutputStream fileOut = new FileOutputStream(filePath)) {
-            workbook.write(fileOut);
+    /**
+     * Element counts for all customers in one grouped query
+     */
+    private Map<Long, Long> countElementsByCustomer() {
+        Map<Long, Long> elementCounts = new HashMap<>();
+        for (Object[] row : customerElementRepository.countActiveByCustomer()) {
+            elementCounts.put((Long) row[0], (Long) row[1]);
         }
+        return elementCounts;
+    }
+
+    private SheetWriter createAllCustomersSheet(StreamingExcelWriter writer) {
+        SheetWriter sheet = writer.createSheet("All Customers")
+                .columnWidths(3000, 8000, 8000, 5000, 8000, 10000, 3000, 5000);
 
-        workbook.close();
+        sheet.title("ALL CUSTOMERS - COMPREHENSIVE EXPORT", 8, writer.titleStyle());
+        sheet.header(writer.headerStyle(), "ID", "Customer Name", "Email", "Phone", "Company", "Address", "Elements", "Created Date");
+        return sheet;
     }
 
     /**
@@ -493,257 +325,135 @@ public class ComprehensiveExcelExportService {
         Project project = projectService.getProjectById(projectId)
                 .orElseThrow(() -> new RuntimeException("Project not found: " + projectId));
 
-        Workbook workbook = new XSSFWorkbook();
-
-        CellStyle headerStyle = createHeaderStyle(workbook);
-        CellStyle titleStyle = createTitleStyle(workbook);
-        CellStyle currencyStyle = createCurrencyStyle(workbook);
-
-        // Sheet 1: Project Information
-        createProjectInfoSheet(workbook, project, titleStyle, headerStyle);
+        try (StreamingExcelWriter writer = new StreamingExcelWriter()) {
+            // Sheet 1: Project Information
+            createProjectInfoSheet(writer, project);
 
-        // Sheet 2: Elements/Items with Pricing
-        createProjectElementsSheet(workbook, project, titleStyle, headerStyle, currencyStyle);
+            // Sheet 2: Elements/Items with Pricing
+            createProjectElementsSheet(writer, project);
 
-        // Sheet 3: Tasks/Deliverables
-        createProjectTasksSheet(workbook, project, titleStyle, headerStyle);
+            // Sheet 3: Tasks/Deliverables
+            createProjectTasksSheet(writer, project);
 
-        // Sheet 4: Schedule/Timeline
-        createProjectScheduleSheet(workbook, project, titleStyle, headerStyle);
+            // Sheet 4: Schedule/Timeline
+            createProjectScheduleSheet(writer, project);
 
-        // Sheet 5: Documents List
-        createProjectDocumentsSheet(workbook, project, titleStyle, headerStyle);
+            // Sheet 5: Documents List
+            createProjectDocumentsSheet(writer, project);
 
-        // Write to file
-        try (FileOutputStream fileOut = new FileOutputStream(filePath)) {
-            workbook.write(fileOut);
+            writer.writeTo(new File(filePath));
         }
-
-        workbook.close();
     }
 
-    private void createProjectInfoSheet(Workbook workbook, Project project, CellStyle titleStyle, CellStyle headerStyle) {
-        Sheet sheet = workbook.createSheet("Project Information");
-        sheet.setColumnWidth(0, 5000);
-        sheet.setColumnWidth(1, 8000);
-
-        int rowNum = 0;
+    private void createProjectInfoSheet(StreamingExcelWriter writer, Project project) {
+        CellStyle headerStyle = writer.headerStyle();
+        SheetWriter sheet = writer.createSheet("Project Information").columnWidths(5000, 8000);
 
-        // Title
-        Row titleRow = sheet.createRow(rowNum++);
-        Cell titleCell = titleRow.createCell(0);
-        titleCell.setCellValue("PROJECT QUOTATION");
-        titleCell.setCellStyle(titleStyle);
-        sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 1));
-        rowNum++;
+        sheet.title("PROJECT QUOTATION", 2, writer.titleStyle());
 
         // Project Details
-        addRow(sheet, rowNum++, "Project Name:", project.getProjectName(), headerStyle);
-        addRow(sheet, rowNum++, "Location:", project.getProjectLocation() != null ? project.getProjectLocation() : "", null);
-        addRow(sheet, rowNum++, "Status:", project.getStatus() != null ? project.getStatus() : "ACTIVE", null);
-        rowNum++;
+        sheet.labelRow("Project Name:", project.getProjectName(), headerStyle, null);
+        sheet.labelRow("Location:", project.getProjectLocation() != null ? project.getProjectLocation() : "", null, null);
+        sheet.labelRow("Status:", project.getStatus() != null ? project.getStatus() : "ACTIVE", null, null);
+        sheet.blankRow();
 
         // Dates
         if (project.getDateOfIssue() != null) {
-            addRow(sheet, rowNum++, "Issue Date:", project.getDateOfIssue().format(DATE_FORMATTER), null);
+            sheet.labelRow("Issue Date:", project.getDateOfIssue().format(DATE_FORMATTER), null, null);
         }
         if (project.getDateOfCompletion() != null) {
-            addRow(sheet, rowNum++, "Completion Date:", project.getDateOfCompletion().format(DATE_FORMATTER), null);
+            sheet.labelRow("Completion Date:", project.getDateOfCompletion().format(DATE_FORMATTER), null, null);
         }
 
         // Statistics
-        rowNum++;
-        addRow(sheet, rowNum++, "Total Elements:", String.valueOf(projectElementService.getElementCount(project.getId())), headerStyle);
-        addRow(sheet, rowNum++, "Pending Tasks:", String.valueOf(projectTaskService.getPendingTaskCount(project.getId())), headerStyle);
-        addRow(sheet, rowNum++, "Total Documents:", String.valueOf(projectDocumentService.getDocumentCount(project.getId())), headerStyle);
+        sheet.blankRow();
+        sheet.labelRow("Total Elements:", String.valueOf(projectElementService.getElementCount(project.getId())), headerStyle, null);
+        sheet.labelRow("Pending Tasks:", String.valueOf(projectTaskService.getPendingTaskCount(project.getId())), headerStyle, null);
+        sheet.labelRow("Total Documents:", String.valueOf(projectDocumentService.getDocumentCount(project.getId())), headerStyle, null);
     }
 
-    private void createProjectElementsSheet(Workbook workbook, Project project, CellStyle titleStyle, CellStyle headerStyle, CellStyle currencyStyle) {
-        Sheet sheet = workbook.createSheet("Elements & Pricing");
-
-        sheet.setColumnWidth(0, 3000);
-        sheet.setColumnWidth(1, 5000);
-        sheet.setColumnWidth(2, 8000);
-        sheet.setColumnWidth(3, 4000);
-        sheet.setColumnWidth(4, 3000);
-        sheet.setColumnWidth(5, 4000);
-        sheet.setColumnWidth(6, 4000);
-        sheet.setColumnWidth(7, 4000);
-
-        int rowNum = 0;
-
-        // Title
-        Row titleRow = sheet.createRow(rowNum++);
-        Cell titleCell = titleRow.createCell(0);
-        titleCell.setCellValue("ELEMENTS & PRICING DETAILS");
-        titleCell.setCellStyle(titleStyle);
-        sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 7));
-        rowNum++;
-
-        // Header row
-        Row headerRow = sheet.createRow(rowNum++);
-        String[] headers = {"ID", "Manufacture", "Product Name", "Code", "Quantity", "Unit Price", "Total Price", "Status"};
-        for (int i = 0; i < headers.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
-            cell.setCellStyle(headerStyle);
-        }
+    private void createProjectElementsSheet(StreamingExcelWriter writer, Project project) {
+        CellStyle currencyStyle = writer.currencyStyle();
+        SheetWriter sheet = writer.createSheet("Elements & Pricing")
+                .columnWidths(3000, 5000, 8000, 4000, 3000, 4000, 4000, 4000)
+                .columnStyles(null, null, null, null, null, currencyStyle, currencyStyle, null);
+
+        sheet.title("ELEMENTS & PRICING DETAILS", 8, writer.titleStyle());
+        sheet.header(writer.headerStyle(), "ID", "Manufacture", "Product Name", "Code", "Quantity", "Unit Price", "Total Price", "Status");
 
         // Data rows
         List<ProjectElement> elements = projectElementService.getProjectElements(project.getId());
         BigDecimal grandTotal = BigDecimal.ZERO;
 
         for (ProjectElement element : elements) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(element.getId());
-            row.createCell(1).setCellValue(element.getStorageItem().getManufacture());
-            row.createCell(2).setCellValue(element.getStorageItem().getProductName());
-            row.createCell(3).setCellValue(element.getStorageItem().getCode());
-            row.createCell(4).setCellValue(element.getQuantityNeeded());
-
             // Calculate unit price and total from storage item
-            if (element.getStorageItem().getPrice() != null) {
-                Cell unitPriceCell = row.createCell(5);
-                unitPriceCell.setCellValue(element.getStorageItem().getPrice().doubleValue());
-                unitPriceCell.setCellStyle(currencyStyle);
-
-                BigDecimal total = element.getStorageItem().getPrice().multiply(new BigDecimal(element.getQuantityNeeded()));
-                Cell totalPriceCell = row.createCell(6);
-                totalPriceCell.setCellValue(total.doubleValue());
-                totalPriceCell.setCellStyle(currencyStyle);
+            BigDecimal unitPrice = element.getStorageItem().getPrice();
+            BigDecimal total = null;
+            if (unitPrice != null) {
+                total = unitPrice.multiply(new BigDecimal(element.getQuantityNeeded()));
                 grandTotal = grandTotal.add(total);
             }
 
-            row.createCell(7).setCellValue(element.getStatus() != null ? element.getStatus() : "PENDING");
+            sheet.row(element.getId(),
+                    element.getStorageItem().getManufacture(),
+                    element.getStorageItem().getProductName(),
+                    element.getStorageItem().getCode(),
+                    element.getQuantityNeeded(),
+                    unitPrice,
+                    total,
+                    element.getStatus() != null ? element.getStatus() : "PENDING");
         }
 
-        // Grand Total
-        rowNum++;
-        Row totalRow = sheet.createRow(rowNum);
-        Cell totalLabelCell = totalRow.createCell(5);
-        totalLabelCell.setCellValue("GRAND TOTAL:");
-        totalLabelCell.setCellStyle(headerStyle);
-
-        Cell totalValueCell = totalRow.createCell(6);
-        totalValueCell.setCellValue(grandTotal.doubleValue());
-        totalValueCell.setCellStyle(currencyStyle);
+        writeGrandTotal(writer, sheet, grandTotal);
     }
 
-    private void createProjectTasksSheet(Workbook workbook, Project project, CellStyle titleStyle, CellStyle headerStyle) {
-        Sheet sheet = workbook.createSheet("Tasks & Deliverables");
-
-        sheet.setColumnWidth(0, 3000);
-        sheet.setColumnWidth(1, 8000);
-        sheet.setColumnWidth(2, 10000);
-        sheet.setColumnWidth(3, 3000);
-        sheet.setColumnWidth(4, 4000);
-
-        int rowNum = 0;
-
-        // Title
-        Row titleRow = sheet.createRow(rowNum++);
-        Cell titleCell = titleRow.createCell(0);
-        titleCell.setCellValue("TASKS & DELIVERABLES");
-        titleCell.setCellStyle(titleStyle);
-        sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 4));
-        rowNum++;
-
-        // Header
-        Row headerRow = sheet.createRow(rowNum++);
-        String[] headers = {"ID", "Task Title", "Details", "Priority", "Status"};
-        for (int i = 0; i < headers.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
-            cell.setCellStyle(headerStyle);
-        }
+    private void createProjectTasksSheet(StreamingExcelWriter writer, Project project) {
+        SheetWriter sheet = writer.createSheet("Tasks & Deliverables")
+                .columnWidths(3000, 8000, 10000, 3000, 4000);
+
+        sheet.title("TASKS & DELIVERABLES", 5, writer.titleStyle());
+        sheet.header(writer.headerStyle(), "ID", "Task Title", "Details", "Priority", "Status");
 
-        // Data
         List<ProjectTask> tasks = projectTaskService.getProjectTasks(project.getId());
-        for (ProjectTask task : tasks) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(task.getId());
-            row.createCell(1).setCellValue(task.getTaskTitle());
-            row.createCell(2).setCellValue(task.getTaskDetails() != null ? task.getTaskDetails() : "");
-            row.createCell(3).setCellValue(task.getPriority() != null ? task.getPriority() : "MEDIUM");
-            row.createCell(4).setCellValue(task.getIsCompleted() ? "✓ Completed" : "⏳ Pending");
-        }
+        sheet.rows(tasks.stream(), task -> new Object[]{
+                task.getId(),
+                task.getTaskTitle(),
+                task.getTaskDetails() != null ? task.getTaskDetails() : "",
+                task.getPriority() != null ? task.getPriority() : "MEDIUM",
+                task.getIsCompleted() ? "✓ Completed" : "⏳ Pending"
+        });
     }
 
-    private void createProjectScheduleSheet(Workbook workbook, Project project, CellStyle titleStyle, CellStyle headerStyle) {
-        Sheet sheet = workbook.createSheet("Schedule & Timeline");
-
-        sheet.setColumnWidth(0, 3000);
-        sheet.setColumnWidth(1, 8000);
-        sheet.setColumnWidth(2, 4000);
-        sheet.setColumnWidth(3, 4000);
-
-        int rowNum = 0;
-
-        // Title
-        Row titleRow = sheet.createRow(rowNum++);
-        Cell titleCell = titleRow.createCell(0);
-        titleCell.setCellValue("PROJECT SCHEDULE");
-        titleCell.setCellStyle(titleStyle);
-        sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 3));
-        rowNum++;
-
-        // Header
-        Row headerRow = sheet.createRow(rowNum++);
-        String[] headers = {"ID", "Task Name", "Start Date", "End Date"};
-        for (int i = 0; i < headers.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
-            cell.setCellStyle(headerStyle);
-        }
+    private void createProjectScheduleSheet(StreamingExcelWriter writer, Project project) {
+        SheetWriter sheet = writer.createSheet("Schedule & Timeline")
+                .columnWidths(3000, 8000, 4000, 4000);
+
+        sheet.title("PROJECT SCHEDULE", 4, writer.titleStyle());
+        sheet.header(writer.headerStyle(), "ID", "Task Name", "Start Date", "End Date");
 
-        // Data
         List<ProjectSchedule> schedules = projectScheduleService.getProjectSchedules(project.getId());
-        for (ProjectSchedule schedule : schedules) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(schedule.getId());
-            row.createCell(1).setCellValue(schedule.getTaskName());
-            row.createCell(2).setCellValue(schedule.getStartDate() != null ? schedule.getStartDate().format(DATE_FORMATTER) : "");
-            row.createCell(3).setCellValue(schedule.getEndDate() != null ? schedule.getEndDate().format(DATE_FORMATTER) : "");
-        }
+        sheet.rows(schedules.stream(), schedule -> new Object[]{
+                schedule.getId(),
+                schedule.getTaskName(),
+                schedule.getStartDate() != null ? schedule.getStartDate().format(DATE_FORMATTER) : "",
+                schedule.getEndDate() != null ? schedule.getEndDate().format(DATE_FORMATTER) : ""
+        });
     }
 
-    private void createProjectDocumentsSheet(Workbook workbook, Project project, CellStyle titleStyle, CellStyle headerStyle) {
-        Sheet sheet = workbook.createSheet("Documents");
-
-        sheet.setColumnWidth(0, 3000);
-        sheet.setColumnWidth(1, 8000);
-        sheet.setColumnWidth(2, 4000);
-        sheet.setColumnWidth(3, 4000);
-        sheet.setColumnWidth(4, 5000);
-
-        int rowNum = 0;
-
-        // Title
-        Row titleRow = sheet.createRow(rowNum++);
-        Cell titleCell = titleRow.createCell(0);
-        titleCell.setCellValue("DOCUMENTS & CONTRACTS");
-        titleCell.setCellStyle(titleStyle);
-        sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 4));
-        rowNum++;
-
-        // Header
-        Row headerRow = sheet.createRow(rowNum++);
-        String[] headers = {"ID", "Document Name", "Type", "Category", "Date Uploaded"};
-        for (int i = 0; i < headers.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
-            cell.setCellStyle(headerStyle);
-        }
+    private void createProjectDocumentsSheet(StreamingExcelWriter writer, Project project) {
+        SheetWriter sheet = writer.createSheet("Documents")
+                .columnWidths(3000, 8000, 4000, 4000, 5000);
+
+        sheet.title("DOCUMENTS & CONTRACTS", 5, writer.titleStyle());
+        sheet.header(writer.headerStyle(), "ID", "Document Name", "Type", "Category", "Date Uploaded");
 
-        // Data
         List<ProjectDocument> documents = projectDocumentService.getProjectDocuments(project.getId());
-        for (ProjectDocument doc : documents) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(doc.getId());
-            row.createCell(1).setCellValue(doc.getDocumentName());
-            row.createCell(2).setCellValue(doc.getDocumentType());
-            row.createCell(3).setCellValue(doc.getCategory() != null ? doc.getCategory() : "OTHER");
-            row.createCell(4).setCellValue(doc.getDateUploaded() != null ? doc.getDateUploaded().format(DATETIME_FORMATTER) : "");
-        }
+        sheet.rows(documents.stream(), doc -> new Object[]{
+                doc.getId(),
+                doc.getDocumentName(),
+                doc.getDocumentType(),
+                doc.getCategory() != null ? doc.getCategory() : "OTHER",
+                doc.getDateUploaded() != null ? doc.getDateUploaded().format(DATETIME_FORMATTER) : ""
+        });
     }
 }
@@ -1,8 +1,11 @@
 package com.magictech.modules.sales.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,6 +20,15 @@ import java.util.*;
 @Transactional
 public class ExcelStorageService {
 
+    // Bump whenever the JSON written by parseExcelFile changes, so cached results are not reused
+    public static final int PARSER_VERSION = 2;
+
+    @Autowired
+    private SurveyImageService surveyImageService;
+
+    @Autowired
+    private ParseResultCache parseResultCache;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
@@ -24,11 +36,27 @@ public class ExcelStorageService {
      * Returns JSON string with parsed data
      */
     public String parseExcelFile(byte[] excelFile) throws IOException {
+        return parseResultCache.getOrParse("excel-storage", PARSER_VERSION, excelFile,
+                () -> parseWorkbook(() -> new XSSFWorkbook(new ByteArrayInputStream(excelFile))));
+    }
+
+    /**
+     * Parse an .xlsx file on disk (opened read-only, without loading it into memory first)
+     */
+    public String parseExcelFile(File excelFile) throws IOException {
+        return parseResultCache.getOrParse("excel-storage", PARSER_VERSION, excelFile,
+                () -> parseWorkbook(() -> new XSSFWorkbook(OPCPackage.open(excelFile, PackageAccess.READ))));
+    }
+
+    private interface WorkbookOpener {
+        Workbook open() throws Exception;
+    }
+
+    private String parseWorkbook(WorkbookOpener opener) throws IOException {
         Map<String, Object> parsedData = new HashMap<>();
         List<Map<String, Object>> sheets = new ArrayList<>();
 
-        try (ByteArrayInputStream bis = new ByteArrayInputStream(excelFile);
-             Workbook workbook = new XSSFWorkbook(bis)) {
+        try (Workbook workbook = opener.open()) {
 
             // Iterate through all sheets
             for (int sheetIndex = 0; sheetIndex < workbook.getNumberOfSheets(); sheetIndex++) {
@@ -71,7 +99,7 @@ public class ExcelStorageService {
     /**
      * Extract images from Excel sheet
      */
-    private List<Map<String, Object>> extractImages(Sheet sheet) {
+    private List<Map<String, Object>> extractImages(Sheet sheet) throws IOException {
         List<Map<String, Object>> images = new ArrayList<>();
 
         // POI drawing patriarch contains all images
@@ -89,11 +117,13 @@ public class ExcelStorageService {
                     imageData.put("size", picture.getPictureData().getData().length);
                     imageData.put("extension", picture.getPictureData().suggestFileExtension());
 
-                    // Store image data as Base64 for JSON compatibility
-                    String base64Image = Base64.getEncoder().encodeToString(
-                        picture.getPictureData().getData()
-                    );
-                    imageData.put("base64Data", base64Image);
+                    // Image and thumbnail go to the image store; JSON keeps the keys
+                    SurveyImageService.StoredImage stored =
+                        surveyImageService.store(picture.getPictureData().getData());
+                    imageData.put("imageKey", stored.imageKey());
+                    if (stored.thumbnailKey() != null) {
+                        imageData.put("thumbnailKey", stored.thumbnailKey());
+                    }
 
                     images.add(imageData);
                 }
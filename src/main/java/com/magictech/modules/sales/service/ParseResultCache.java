@@ -0,0 +1,287 @@
+package com.magictech.modules.sales.service;
+
+import com.magictech.core.blob.BlobStore;
+import com.magictech.modules.sales.service.SurveyImageService.ImageEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of Excel parse results keyed by the SHA-256 of the uploaded file and the parser version.
+ *
+ * Re-uploading an unchanged workbook (resubmissions, Sales and Projects uploading the same
+ * file) returns the stored JSON instead of parsing again. Recent results are kept in memory;
+ * all results are kept gzipped on disk, least recently used evicted first. On a hit the
+ * pictures the JSON points at are retained in the BlobStore rather than stored again; if one
+ * of them is gone the entry is dropped and the file parsed again.
+ *
+ * Either way the caller gets one reference to each picture of the result. Outside a
+ * transaction (ZIP parse threads, UI tasks) it is committed at once, so a caller whose
+ * save fails hands the result to SurveyImageService.releaseImages.
+ *
+ * Parsers bump their version whenever their JSON output changes, which retires old entries.
+ */
+@Service
+public class ParseResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParseResultCache.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MB = 1024 * 1024;
+    // Disk eviction trims down to this share of the limit so it does not run on every write
+    private static final double EVICT_TO = 0.8;
+
+    /**
+     * Parses the file on a cache miss
+     */
+    @FunctionalInterface
+    public interface Parser {
+        String parse() throws IOException;
+    }
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private SurveyImageService surveyImageService;
+
+    @Value("${magictech.parse-cache.path:./data/parse-cache}")
+    private String cachePath;
+
+    @Value("${magictech.parse-cache.memory-mb:32}")
+    private long memoryMb;
+
+    @Value("${magictech.parse-cache.disk-mb:512}")
+    private long diskMb;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, String> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryChars;
+
+    // Bytes on disk; -1 until measured by the first write
+    private long diskBytes = -1;
+    private final Object diskLock = new Object();
+
+    /**
+     * The parse result of {@code content}, from the cache or by running {@code parser};
+     * the caller owns one reference to each of its pictures
+     */
+    public String getOrParse(String parserName, int version, byte[] content, Parser parser) throws IOException {
+        return getOrParse(parserName, version, sha256(new ByteArrayInputStream(content)), parser);
+    }
+
+    /**
+     * The parse result of a file on disk, from the cache or by running {@code parser}
+     */
+    public String getOrParse(String parserName, int version, File file, Parser parser) throws IOException {
+        String hash;
+        try (InputStream in = new FileInputStream(file)) {
+            hash = sha256(in);
+        }
+        return getOrParse(parserName, version, hash, parser);
+    }
+
+    private String getOrParse(String parserName, int version, String hash, Parser parser) throws IOException {
+        String key = parserName + "-v" + version + "/" + hash;
+
+        String cached = lookup(key);
+        if (cached != null) {
+            if (retainImages(cached)) {
+                logger.debug("Parse cache hit for {}", key);
+                return cached;
+            }
+            // Pictures purged from the store - parse again so they are stored again
+            evict(key);
+        }
+
+        String parsed = parser.parse();
+        store(key, parsed);
+        return parsed;
+    }
+
+    private boolean retainImages(String json) {
+        List<String> keys = new ArrayList<>();
+        for (ImageEntry image : surveyImageService.listImages(json)) {
+            keys.add(image.imageKey());
+            if (image.thumbnailKey() != null) {
+                keys.add(image.thumbnailKey());
+            }
+        }
+        return blobStore.retainIfPresent(keys);
+    }
+
+    // ==================== Tiers ====================
+
+    private String lookup(String key) {
+        synchronized (memory) {
+            String json = memory.get(key);
+            if (json != null) {
+                return json;
+            }
+        }
+
+        Path file = diskPath(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file), BUFFER_SIZE)) {
+            String json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            // Mark as recently used for the disk eviction
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            remember(key, json);
+            return json;
+        } catch (IOException e) {
+            logger.debug("Unreadable parse cache entry {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(String key, String json) {
+        remember(key, json);
+
+        Path file = diskPath(key);
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), "entry-", ".part");
+            try {
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), BUFFER_SIZE)) {
+                    out.write(json.getBytes(StandardCharsets.UTF_8));
+                }
+                long size = Files.size(temp);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                addDiskBytes(size);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not write parse cache entry {}: {}", key, e.getMessage());
+        }
+    }
+
+    private void remember(String key, String json) {
+        long maxChars = memoryMb * MB / 2;
+        if (json.length() > maxChars) {
+            return;
+        }
+        synchronized (memory) {
+            String previous = memory.put(key, json);
+            memoryChars += json.length() - (previous != null ? previous.length() : 0);
+
+            Iterator<Map.Entry<String, String>> eldest = memory.entrySet().iterator();
+            while (memoryChars > maxChars && eldest.hasNext()) {
+                memoryChars -= eldest.next().getValue().length();
+                eldest.remove();
+            }
+        }
+    }
+
+    private void evict(String key) {
+        synchronized (memory) {
+            String removed = memory.remove(key);
+            if (removed != null) {
+                memoryChars -= removed.length();
+            }
+        }
+        try {
+            Files.deleteIfExists(diskPath(key));
+        } catch (IOException e) {
+            logger.debug("Could not delete parse cache entry {}: {}", key, e.getMessage());
+        }
+    }
+
+    private void addDiskBytes(long size) throws IOException {
+        synchronized (diskLock) {
+            if (diskBytes < 0) {
+                diskBytes = listDiskEntries().stream().mapToLong(ParseResultCache::sizeOf).sum();
+            } else {
+                diskBytes += size;
+            }
+            if (diskBytes > diskMb * MB) {
+                evictFromDisk();
+            }
+        }
+    }
+
+    /**
+     * Delete the least recently used entries until the cache is back under EVICT_TO of its limit
+     */
+    private void evictFromDisk() throws IOException {
+        List<Path> entries = listDiskEntries();
+        entries.sort(Comparator.comparing(ParseResultCache::lastModified));
+
+        long target = (long) (diskMb * MB * EVICT_TO);
+        long total = entries.stream().mapToLong(ParseResultCache::sizeOf).sum();
+        int deleted = 0;
+        for (Path entry : entries) {
+            if (total <= target) {
+                break;
+            }
+            long size = sizeOf(entry);
+            if (Files.deleteIfExists(entry)) {
+                total -= size;
+                deleted++;
+            }
+        }
+        diskBytes = total;
+        logger.info("Parse cache: {} entries evicted from disk, {} MB kept", deleted, total / MB);
+    }
+
+    private List<Path> listDiskEntries() throws IOException {
+        Path root = Paths.get(cachePath);
+        if (!Files.isDirectory(root)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            return new ArrayList<>(files.filter(path -> path.toString().endsWith(".json.gz")).toList());
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    private Path diskPath(String key) {
+        return Paths.get(cachePath).resolve(key + ".json.gz");
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static String sha256(InputStream content) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (InputStream in = new DigestInputStream(content, digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
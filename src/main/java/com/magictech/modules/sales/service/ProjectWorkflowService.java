@@ -1,6 +1,9 @@
 package com.magictech.modules.sales.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.magictech.core.auth.User;
+import com.magictech.core.blob.BlobStore;
 import com.magictech.modules.projects.entity.Project;
 import com.magictech.modules.projects.repository.ProjectRepository;
 import com.magictech.modules.sales.entity.*;
@@ -9,6 +12,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -75,6 +81,15 @@ public class ProjectWorkflowService {
     @Autowired
     private WorkflowEmailService workflowEmailService;
 
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private WorkflowParsedDataRepository parsedDataRepository;
+
+    @Autowired
+    private SurveyImageService surveyImageService;
+
     /**
      * Create new workflow for a project
      */
@@ -127,11 +142,164 @@ public class ProjectWorkflowService {
         return workflowRepository.findByActiveTrue();
     }
 
+    /**
+     * Save a workflow attachment (Excel or ZIP of a step) to a local file.
+     * The content is streamed from the blob store.
+     */
+    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.SUPPORTS)
+    public void saveFileTo(String blobKey, File target) throws IOException {
+        if (blobKey == null) {
+            throw new FileNotFoundException("No file stored for this step");
+        }
+        blobStore.copyTo(blobKey, target.toPath());
+    }
+
+    /**
+     * Extract and parse the workbooks of an uploaded ZIP (site survey or project cost).
+     * Runs without a transaction - large archives take a while - before the step is saved;
+     * if saving the step fails, the caller hands the result to releaseParsedImages.
+     * An archive breaking an extraction limit is rejected (ZipRejectedException); one that
+     * cannot be read otherwise yields an error JSON so the file is still stored.
+     */
+    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED)
+    public String parseZipUpload(File zipFile, String fileName) throws ZipExcelExtractorService.ZipRejectedException {
+        if (!fileName.toLowerCase().endsWith(".zip")) {
+            throw new IllegalArgumentException("Invalid file. Please upload a valid .zip file.");
+        }
+
+        System.out.println("📦 Extracting and parsing Excel files from ZIP: " + fileName);
+        try {
+            String parsedData = zipExcelExtractorService.extractAndParseZipFile(zipFile, fileName);
+            System.out.println("✅ Successfully parsed ZIP file - extracted Excel sheets");
+            return parsedData;
+        } catch (ZipExcelExtractorService.ZipRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            System.err.println("❌ Failed to parse ZIP file: " + e.getMessage());
+            // Fallback to error JSON if parsing fails
+            ObjectNode error = new ObjectMapper().createObjectNode();
+            error.put("error", "Failed to extract ZIP: " + e.getMessage());
+            return error.toString();
+        }
+    }
+
+    /**
+     * Release the pictures of a parseZipUpload result whose step was not saved. The parse
+     * stored them in transactions of its own, so a failed step save does not roll them back.
+     */
+    public void releaseParsedImages(String parsedData) {
+        surveyImageService.releaseImages(parsedData);
+    }
+
+    /**
+     * Store the JSON parsed from a step upload; the step keeps the returned id
+     */
+    public Long saveParsedData(String parsedData) {
+        if (parsedData == null) {
+            return null;
+        }
+        return parsedDataRepository.save(new WorkflowParsedData(parsedData)).getId();
+    }
+
+    /**
+     * Parsed JSON of a step (step entities carry only its id), or null
+     */
+    @Transactional(readOnly = true)
+    public String getParsedData(Long parsedDataId) {
+        if (parsedDataId == null) {
+            return null;
+        }
+        return parsedDataRepository.findById(parsedDataId)
+            .map(WorkflowParsedData::getParsedData)
+            .orElse(null);
+    }
+
+    /**
+     * Soft-delete a site survey so the step can be uploaded again; its files and parsed JSON
+     * are released
+     */
+    public void deleteSiteSurvey(Long surveyId) {
+        SiteSurveyData survey = siteSurveyRepository.findById(surveyId)
+            .orElseThrow(() -> new RuntimeException("Site survey not found"));
+        if (!Boolean.TRUE.equals(survey.getActive())) {
+            return;
+        }
+        survey.setActive(false);
+        releaseStepData(survey.getExcelBlobKey(), survey.getZipBlobKey(), survey.getParsedDataId());
+        survey.setExcelBlobKey(null);
+        survey.setZipBlobKey(null);
+        survey.setParsedDataId(null);
+        siteSurveyRepository.save(survey);
+    }
+
+    /**
+     * Soft-delete a sizing/pricing upload so Presales can submit again; its files and parsed
+     * JSON are released
+     */
+    public void deleteSizingPricing(Long sizingId) {
+        SizingPricingData sizing = sizingPricingRepository.findById(sizingId)
+            .orElseThrow(() -> new RuntimeException("Sizing/pricing data not found"));
+        if (!Boolean.TRUE.equals(sizing.getActive())) {
+            return;
+        }
+        sizing.setActive(false);
+        releaseStepData(sizing.getExcelBlobKey(), sizing.getZipBlobKey(), sizing.getParsedDataId());
+        sizing.setExcelBlobKey(null);
+        sizing.setZipBlobKey(null);
+        sizing.setParsedDataId(null);
+        sizingPricingRepository.save(sizing);
+    }
+
+    /**
+     * Delete the step uploads of a project that is being deleted: step rows, parsed JSON,
+     * and the references they hold on files and pictures
+     */
+    public void deleteProjectWorkflowData(Long projectId) {
+        List<SiteSurveyData> surveys = siteSurveyRepository.findByProjectId(projectId);
+        for (SiteSurveyData data : surveys) {
+            releaseStepData(data.getExcelBlobKey(), data.getZipBlobKey(), data.getParsedDataId());
+        }
+        siteSurveyRepository.deleteAll(surveys);
+
+        List<SizingPricingData> sizings = sizingPricingRepository.findByProjectId(projectId);
+        for (SizingPricingData data : sizings) {
+            releaseStepData(data.getExcelBlobKey(), data.getZipBlobKey(), data.getParsedDataId());
+        }
+        sizingPricingRepository.deleteAll(sizings);
+
+        List<BankGuaranteeData> guarantees = bankGuaranteeRepository.findByProjectId(projectId);
+        for (BankGuaranteeData data : guarantees) {
+            releaseStepData(data.getExcelBlobKey(), data.getZipBlobKey(), data.getParsedDataId());
+        }
+        bankGuaranteeRepository.deleteAll(guarantees);
+
+        List<ProjectCostData> costs = projectCostRepository.findByProjectId(projectId);
+        for (ProjectCostData data : costs) {
+            releaseStepData(data.getExcelBlobKey(), data.getZipBlobKey(), data.getParsedDataId());
+        }
+        projectCostRepository.deleteAll(costs);
+    }
+
+    /**
+     * Release a step's attachments, delete its parsed JSON and release the pictures it references
+     */
+    private void releaseStepData(String excelBlobKey, String zipBlobKey, Long parsedDataId) {
+        blobStore.release(excelBlobKey);
+        blobStore.release(zipBlobKey);
+        if (parsedDataId == null) {
+            return;
+        }
+        parsedDataRepository.findById(parsedDataId).ifPresent(row -> {
+            surveyImageService.releaseImages(row.getParsedData());
+            parsedDataRepository.delete(row);
+        });
+    }
+
     /**
      * STEP 1: Process Site Survey - Sales does it himself
      */
     @Transactional(propagation = org.springframework.transaction.annotation.Propagation.REQUIRES_NEW)
-    public void processSiteSurveySales(Long workflowId, byte[] excelFile, String fileName,
+    public void processSiteSurveySales(Long workflowId, File excelFile, String fileName,
                                        User salesUser) throws Exception {
         ProjectWorkflow workflow = getWorkflowById(workflowId)
             .orElseThrow(() -> new RuntimeException("Workflow not found"));
@@ -152,12 +320,12 @@ public class ProjectWorkflowService {
         SiteSurveyData surveyData = new SiteSurveyData();
         surveyData.setProjectId(workflow.getProjectId());
         surveyData.setWorkflowId(workflowId);
-        surveyData.setExcelFile(excelFile);
+        surveyData.setExcelBlobKey(blobStore.put(excelFile.toPath()).key());
         surveyData.setFileName(fileName);
-        surveyData.setFileSize((long) excelFile.length);
+        surveyData.setFileSize(excelFile.length());
         surveyData.setMimeType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
         surveyData.setFileType("EXCEL");  // CRITICAL FIX: Store file type
-        surveyData.setParsedData(parsedData);
+        surveyData.setParsedDataId(saveParsedData(parsedData));
         surveyData.setSurveyDoneBy("SALES");
         surveyData.setSurveyDoneByUser(salesUser.getUsername());
         surveyData.setSurveyDoneByUserId(salesUser.getId());
@@ -207,10 +375,13 @@ public class ProjectWorkflowService {
     /**
      * STEP 1: Process Site Survey with ZIP file - Sales does it himself
      * Alternative to Excel upload - stores ZIP archive instead
+     * Rolls back on any exception, after which the caller releases the parsed pictures.
+     * @param parsedData result of parseZipUpload, parsed before this transaction starts
      */
-    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.REQUIRES_NEW)
-    public void processSiteSurveySalesWithZip(Long workflowId, byte[] zipFile, String fileName,
-                                              User salesUser) throws Exception {
+    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.REQUIRES_NEW,
+                   rollbackFor = Exception.class)
+    public void processSiteSurveySalesWithZip(Long workflowId, File zipFile, String fileName,
+                                              String parsedData, User salesUser) throws Exception {
         ProjectWorkflow workflow = getWorkflowById(workflowId)
             .orElseThrow(() -> new RuntimeException("Workflow not found"));
 
@@ -224,29 +395,16 @@ public class ProjectWorkflowService {
             throw new IllegalArgumentException("Invalid file. Please upload a valid .zip file.");
         }
 
-        // CRITICAL FIX: Extract and parse all Excel files from ZIP
-        System.out.println("📦 Extracting and parsing Excel files from ZIP: " + fileName);
-        String parsedData;
-        try {
-            parsedData = zipExcelExtractorService.extractAndParseZipFile(zipFile, fileName);
-            System.out.println("✅ Successfully parsed ZIP file - extracted Excel sheets");
-        } catch (Exception e) {
-            System.err.println("❌ Failed to parse ZIP file: " + e.getMessage());
-            e.printStackTrace();
-            // Fallback to empty JSON if parsing fails
-            parsedData = "{\"error\": \"Failed to extract ZIP: " + e.getMessage() + "\"}";
-        }
-
         SiteSurveyData surveyData = new SiteSurveyData();
         surveyData.setProjectId(workflow.getProjectId());
         surveyData.setWorkflowId(workflowId);
         // Store as ZIP instead of Excel
-        surveyData.setZipFile(zipFile);
+        surveyData.setZipBlobKey(blobStore.put(zipFile.toPath()).key());
         surveyData.setZipFileName(fileName);
-        surveyData.setZipFileSize((long) zipFile.length);
+        surveyData.setZipFileSize(zipFile.length());
         surveyData.setZipMimeType("application/zip");
         surveyData.setFileType("ZIP");
-        surveyData.setParsedData(parsedData);  // CRITICAL FIX: Store parsed data from ZIP
+        surveyData.setParsedDataId(saveParsedData(parsedData));  // CRITICAL FIX: Store parsed data from ZIP
         surveyData.setSurveyDoneBy("SALES");
         surveyData.setSurveyDoneByUser(salesUser.getUsername());
         surveyData.setSurveyDoneByUserId(salesUser.getId());
@@ -316,7 +474,7 @@ public class ProjectWorkflowService {
      * STEP 1: Project team submits site survey
      */
     @Transactional(propagation = org.springframework.transaction.annotation.Propagation.REQUIRES_NEW)
-    public void submitSiteSurveyFromProject(Long workflowId, byte[] excelFile, String fileName,
+    public void submitSiteSurveyFromProject(Long workflowId, File excelFile, String fileName,
                                             User projectUser) throws Exception {
         ProjectWorkflow workflow = getWorkflowById(workflowId)
             .orElseThrow(() -> new RuntimeException("Workflow not found"));
@@ -335,12 +493,12 @@ public class ProjectWorkflowService {
         SiteSurveyData surveyData = new SiteSurveyData();
         surveyData.setProjectId(workflow.getProjectId());
         surveyData.setWorkflowId(workflowId);
-        surveyData.setExcelFile(excelFile);
+        surveyData.setExcelBlobKey(blobStore.put(excelFile.toPath()).key());
         surveyData.setFileName(fileName);
-        surveyData.setFileSize((long) excelFile.length);
+        surveyData.setFileSize(excelFile.length());
         surveyData.setMimeType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
         surveyData.setFileType("EXCEL");  // CRITICAL FIX: Store file type
-        surveyData.setParsedData(parsedData);
+        surveyData.setParsedDataId(saveParsedData(parsedData));
         surveyData.setSurveyDoneBy("PROJECT");
         surveyData.setSurveyDoneByUser(projectUser.getUsername());
         surveyData.setSurveyDoneByUserId(projectUser.getId());
@@ -529,7 +687,7 @@ public class ProjectWorkflowService {
     /**
      * STEP 2: Presales submits sizing and pricing
      */
-    public void submitSizingPricing(Long workflowId, byte[] excelFile, String fileName,
+    public void submitSizingPricing(Long workflowId, File excelFile, String fileName,
                                    User presalesUser) throws Exception {
         ProjectWorkflow workflow = getWorkflowById(workflowId)
             .orElseThrow(() -> new RuntimeException("Workflow not found"));
@@ -542,12 +700,12 @@ public class ProjectWorkflowService {
         SizingPricingData sizingData = new SizingPricingData();
         sizingData.setProjectId(workflow.getProjectId());
         sizingData.setWorkflowId(workflowId);
-        sizingData.setExcelFile(excelFile);
+        sizingData.setExcelBlobKey(blobStore.put(excelFile.toPath()).key());
         sizingData.setFileName(fileName);
-        sizingData.setFileSize((long) excelFile.length);
+        sizingData.setFileSize(excelFile.length());
         sizingData.setMimeType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
         sizingData.setFileType("EXCEL");  // CRITICAL FIX: Store file type
-        sizingData.setParsedData(parsedData);
+        sizingData.setParsedDataId(saveParsedData(parsedData));
         sizingData.setUploadedBy(presalesUser.getUsername());
         sizingData.setUploadedById(presalesUser.getId());
 
@@ -633,7 +791,7 @@ public class ProjectWorkflowService {
     /**
      * STEP 3: Finance submits bank guarantee
      */
-    public void submitBankGuarantee(Long workflowId, byte[] excelFile, String fileName,
+    public void submitBankGuarantee(Long workflowId, File excelFile, String fileName,
                                    User financeUser) throws Exception {
         ProjectWorkflow workflow = getWorkflowById(workflowId)
             .orElseThrow(() -> new RuntimeException("Workflow not found"));
@@ -653,12 +811,12 @@ public class ProjectWorkflowService {
         BankGuaranteeData guaranteeData = new BankGuaranteeData();
         guaranteeData.setProjectId(workflow.getProjectId());
         guaranteeData.setWorkflowId(workflowId);
-        guaranteeData.setExcelFile(excelFile);
+        guaranteeData.setExcelBlobKey(blobStore.put(excelFile.toPath()).key());
         guaranteeData.setFileName(fileName);
-        guaranteeData.setFileSize((long) excelFile.length);
+        guaranteeData.setFileSize(excelFile.length());
         guaranteeData.setMimeType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
         guaranteeData.setFileType("EXCEL");  // CRITICAL FIX: Store file type
-        guaranteeData.setParsedData(parsedData);
+        guaranteeData.setParsedDataId(saveParsedData(parsedData));
         guaranteeData.setUploadedBy(financeUser.getUsername());
         guaranteeData.setUploadedById(financeUser.getId());
 
@@ -975,7 +1133,7 @@ public class ProjectWorkflowService {
     /**
      * STEP 6: Confirm project finished and upload project cost
      */
-    public void confirmProjectFinished(Long workflowId, byte[] excelFile, String fileName,
+    public void confirmProjectFinished(Long workflowId, File excelFile, String fileName,
                                       User salesUser) throws Exception {
         ProjectWorkflow workflow = getWorkflowById(workflowId)
             .orElseThrow(() -> new RuntimeException("Workflow not found"));
@@ -987,12 +1145,12 @@ public class ProjectWorkflowService {
         ProjectCostData costData = new ProjectCostData();
         costData.setProjectId(workflow.getProjectId());
         costData.setWorkflowId(workflowId);
-        costData.setExcelFile(excelFile);
+        costData.setExcelBlobKey(blobStore.put(excelFile.toPath()).key());
         costData.setFileName(fileName);
-        costData.setFileSize((long) excelFile.length);
+        costData.setFileSize(excelFile.length());
         costData.setMimeType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
         costData.setFileType("EXCEL");  // CRITICAL FIX: Store file type
-        costData.setParsedData(parsedData);
+        costData.setParsedDataId(saveParsedData(parsedData));
         costData.setUploadedBy(salesUser.getUsername());
         costData.setUploadedById(salesUser.getId());
         costData.setProjectReceivedConfirmation(true);
@@ -1008,9 +1166,12 @@ public class ProjectWorkflowService {
 
     /**
      * STEP 6: Confirm project finished and upload project cost as ZIP file
+     * Rolls back on any exception, after which the caller releases the parsed pictures.
+     * @param parsedData result of parseZipUpload, parsed before this transaction starts
      */
-    public void confirmProjectFinishedWithZip(Long workflowId, byte[] zipFile, String fileName,
-                                              User salesUser) throws Exception {
+    @Transactional(rollbackFor = Exception.class)
+    public void confirmProjectFinishedWithZip(Long workflowId, File zipFile, String fileName,
+                                              String parsedData, User salesUser) throws Exception {
         ProjectWorkflow workflow = getWorkflowById(workflowId)
             .orElseThrow(() -> new RuntimeException("Workflow not found"));
 
@@ -1021,29 +1182,16 @@ public class ProjectWorkflowService {
             throw new IllegalArgumentException("Invalid file. Please upload a valid .zip file.");
         }
 
-        // CRITICAL FIX: Extract and parse all Excel files from ZIP
-        System.out.println("📦 Extracting and parsing Excel files from ZIP: " + fileName);
-        String parsedData;
-        try {
-            parsedData = zipExcelExtractorService.extractAndParseZipFile(zipFile, fileName);
-            System.out.println("✅ Successfully parsed ZIP file - extracted Excel sheets");
-        } catch (Exception e) {
-            System.err.println("❌ Failed to parse ZIP file: " + e.getMessage());
-            e.printStackTrace();
-            // Fallback to empty JSON if parsing fails
-            parsedData = "{\"error\": \"Failed to extract ZIP: " + e.getMessage() + "\"}";
-        }
-
         ProjectCostData costData = new ProjectCostData();
         costData.setProjectId(workflow.getProjectId());
         costData.setWorkflowId(workflowId);
         // Store as ZIP instead of Excel
-        costData.setZipFile(zipFile);
+        costData.setZipBlobKey(blobStore.put(zipFile.toPath()).key());
         costData.setZipFileName(fileName);
-        costData.setZipFileSize((long) zipFile.length);
+        costData.setZipFileSize(zipFile.length());
         costData.setZipMimeType("application/zip");
         costData.setFileType("ZIP");
-        costData.setParsedData(parsedData);  // CRITICAL FIX: Store parsed data from ZIP
+        costData.setParsedDataId(saveParsedData(parsedData));  // CRITICAL FIX: Store parsed data from ZIP
         costData.setUploadedBy(salesUser.getUsername());
         costData.setUploadedById(salesUser.getId());
         costData.setProjectReceivedConfirmation(true);
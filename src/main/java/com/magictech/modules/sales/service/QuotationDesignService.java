@@ -3,6 +3,8 @@ package com.magictech.modules.sales.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.magictech.core.blob.BlobStore;
+import com.magictech.core.blob.BlobStore.BlobRef;
 import com.magictech.modules.sales.entity.QuotationDesign;
 import com.magictech.modules.sales.repository.QuotationDesignRepository;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -31,6 +33,7 @@ import java.util.Optional;
 /**
  * Service for QuotationDesign operations.
  * Handles PDF storage, editing, versioning, and annotation management.
+ * PDFs are kept in the BlobStore; every version holds a reference to its PDF and original.
  */
 @Service
 @Transactional
@@ -39,6 +42,9 @@ public class QuotationDesignService {
     @Autowired
     private QuotationDesignRepository repository;
 
+    @Autowired
+    private BlobStore blobStore;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     // ==================== CRUD Operations ====================
@@ -88,8 +94,10 @@ public class QuotationDesignService {
 
         // Create new version
         QuotationDesign quotation = new QuotationDesign(entityType, entityId);
-        quotation.setPdfData(pdfData);
-        quotation.setOriginalPdfData(pdfData); // Keep backup
+        BlobRef pdf = storePdf(pdfData);
+        blobStore.retain(pdf.key()); // The backup is a second reference to the same blob
+        quotation.setPdfBlobKey(pdf.key());
+        quotation.setOriginalPdfBlobKey(pdf.key()); // Keep backup
         quotation.setFilename(filename);
         quotation.setFileSize((long) pdfData.length);
         quotation.setMimeType("application/pdf");
@@ -144,25 +152,28 @@ public class QuotationDesignService {
         repository.save(current);
 
         // Burn annotations into PDF data so they are permanently stored
-        byte[] pdfDataWithAnnotations;
+        BlobRef pdfWithAnnotations;
         try {
             // Always use the original PDF as base and burn all annotations into it
-            byte[] basePdf = current.getOriginalPdfData() != null
-                    ? current.getOriginalPdfData()
-                    : current.getPdfData();
-            pdfDataWithAnnotations = generatePdfWithAnnotations(basePdf, annotationsJson);
+            String baseKey = current.getOriginalPdfBlobKey() != null
+                    ? current.getOriginalPdfBlobKey()
+                    : current.getPdfBlobKey();
+            pdfWithAnnotations = storePdf(generatePdfWithAnnotations(blobStore.readAllBytes(baseKey), annotationsJson));
         } catch (IOException e) {
-            // If burning fails, fall back to original PDF data
-            pdfDataWithAnnotations = current.getPdfData();
+            // If burning fails, fall back to the current PDF
+            blobStore.retain(current.getPdfBlobKey());
+            pdfWithAnnotations = new BlobRef(current.getPdfBlobKey(),
+                    current.getFileSize() != null ? current.getFileSize() : 0);
         }
+        blobStore.retain(current.getOriginalPdfBlobKey());
 
         // Create new version
         QuotationDesign newVersion = new QuotationDesign(entityType, entityId);
-        newVersion.setPdfData(pdfDataWithAnnotations);  // PDF with annotations burned in
-        newVersion.setOriginalPdfData(current.getOriginalPdfData());  // Keep original for reset
+        newVersion.setPdfBlobKey(pdfWithAnnotations.key());  // PDF with annotations burned in
+        newVersion.setOriginalPdfBlobKey(current.getOriginalPdfBlobKey());  // Keep original for reset
         newVersion.setPdfAnnotations(annotationsJson);  // Also keep JSON for editing
         newVersion.setFilename(current.getFilename());
-        newVersion.setFileSize((long) pdfDataWithAnnotations.length);
+        newVersion.setFileSize(pdfWithAnnotations.size());
         newVersion.setMimeType(current.getMimeType());
         newVersion.setPageCount(current.getPageCount());
         newVersion.setVersion(current.getVersion() + 1);
@@ -199,8 +210,10 @@ public class QuotationDesignService {
 
         // Create new version from restored data
         QuotationDesign restored = new QuotationDesign(entityType, entityId);
-        restored.setPdfData(toRestore.getPdfData());
-        restored.setOriginalPdfData(toRestore.getOriginalPdfData());
+        blobStore.retain(toRestore.getPdfBlobKey());
+        blobStore.retain(toRestore.getOriginalPdfBlobKey());
+        restored.setPdfBlobKey(toRestore.getPdfBlobKey());
+        restored.setOriginalPdfBlobKey(toRestore.getOriginalPdfBlobKey());
         restored.setPdfAnnotations(toRestore.getPdfAnnotations());
         restored.setFilename(toRestore.getFilename());
         restored.setFileSize(toRestore.getFileSize());
@@ -217,13 +230,17 @@ public class QuotationDesignService {
     }
 
     /**
-     * Delete quotation (soft delete all versions)
+     * Delete quotation (soft delete all versions, releasing their PDFs)
      */
     public void deleteQuotation(String entityType, Long entityId, String username) {
         List<QuotationDesign> versions = getVersionHistory(entityType, entityId);
         for (QuotationDesign version : versions) {
             version.setActive(false);
             version.setUpdatedBy(username);
+            blobStore.release(version.getPdfBlobKey());
+            blobStore.release(version.getOriginalPdfBlobKey());
+            version.setPdfBlobKey(null);
+            version.setOriginalPdfBlobKey(null);
             repository.save(version);
         }
     }
@@ -240,7 +257,7 @@ public class QuotationDesignService {
 
         QuotationDesign current = currentOpt.get();
 
-        if (current.getOriginalPdfData() == null) {
+        if (current.getOriginalPdfBlobKey() == null) {
             throw new RuntimeException("No original PDF data available");
         }
 
@@ -251,11 +268,14 @@ public class QuotationDesignService {
 
         // Create new version with original PDF and no annotations
         QuotationDesign reset = new QuotationDesign(current.getEntityType(), current.getEntityId());
-        reset.setPdfData(current.getOriginalPdfData());
-        reset.setOriginalPdfData(current.getOriginalPdfData());
+        String originalKey = current.getOriginalPdfBlobKey();
+        blobStore.retain(originalKey);
+        blobStore.retain(originalKey);
+        reset.setPdfBlobKey(originalKey);
+        reset.setOriginalPdfBlobKey(originalKey);
         reset.setPdfAnnotations(null);
         reset.setFilename(current.getFilename());
-        reset.setFileSize((long) current.getOriginalPdfData().length);
+        reset.setFileSize(blobSize(originalKey));
         reset.setMimeType(current.getMimeType());
         reset.setPageCount(current.getPageCount());
         reset.setVersion(current.getVersion() + 1);
@@ -268,6 +288,38 @@ public class QuotationDesignService {
         return repository.save(reset);
     }
 
+    // ==================== PDF Content ====================
+
+    /**
+     * PDF content of a version, read from the blob store (null if it has no PDF)
+     */
+    public byte[] readPdf(QuotationDesign quotation) {
+        if (!quotation.hasPdf()) {
+            return null;
+        }
+        try {
+            return blobStore.readAllBytes(quotation.getPdfBlobKey());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read PDF of quotation " + quotation.getId() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private BlobRef storePdf(byte[] pdfData) {
+        try {
+            return blobStore.put(pdfData);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store PDF: " + e.getMessage(), e);
+        }
+    }
+
+    private long blobSize(String key) {
+        try {
+            return blobStore.size(key);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read PDF size: " + e.getMessage(), e);
+        }
+    }
+
     // ==================== PDF Rendering ====================
 
     /**
@@ -318,7 +370,7 @@ public class QuotationDesignService {
         QuotationDesign quotation = repository.findById(quotationId)
                 .orElseThrow(() -> new RuntimeException("Quotation not found: " + quotationId));
 
-        return generatePdfWithAnnotations(quotation.getPdfData(), quotation.getPdfAnnotations());
+        return generatePdfWithAnnotations(readPdf(quotation), quotation.getPdfAnnotations());
     }
 
     // DPI used for rendering PDF preview (must match QuotationDesignEditorPanel.RENDER_DPI)
@@ -1,275 +1,202 @@
 package com.magictech.modules.sales.service;
 
+import com.magictech.core.export.StreamingExcelWriter;
 import com.magictech.modules.projects.entity.Project;
-import com.magictech.modules.projects.entity.ProjectElement;
-import com.magictech.modules.projects.service.ProjectElementService;
+import com.magictech.modules.projects.repository.ProjectElementRepository;
 import com.magictech.modules.sales.entity.Customer;
 import com.magictech.modules.sales.entity.ProjectCostBreakdown;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import com.magictech.modules.sales.repository.CustomerRepository;
+import com.magictech.modules.sales.repository.ProjectCostBreakdownRepository;
+import org.apache.poi.ss.usermodel.CellStyle;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.util.List;
+import java.util.*;
+import java.util.stream.Stream;
 
 /**
  * Sales Excel Export Service
- * Exports sales projects and customer data to Excel files
+ * Exports sales projects and customer data to Excel files.
+ * Element rows are streamed from the database into a StreamingExcelWriter.
  */
 @Service
+@Transactional(readOnly = true)
 public class SalesExcelExportService {
 
     @Autowired
-    private ProjectElementService elementService;
+    private ProjectElementRepository elementRepository;
 
     @Autowired
-    private ProjectCostBreakdownService costBreakdownService;
+    private ProjectCostBreakdownRepository costBreakdownRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
 
     /**
      * Export selected projects with their elements and cost breakdown to Excel
      */
     public File exportProjectsToExcel(List<Project> projects, String fileName) throws IOException {
-        Workbook workbook = new XSSFWorkbook();
-
-        // Create styles
-        CellStyle headerStyle = createHeaderStyle(workbook);
-        CellStyle currencyStyle = createCurrencyStyle(workbook);
+        // Element rows arrive ordered by project id
+        List<Project> ordered = new ArrayList<>(projects);
+        ordered.sort(Comparator.comparing(Project::getId));
 
-        // Sheet 1: Project Elements
-        Sheet elementsSheet = workbook.createSheet("Project Elements");
-        createProjectElementsSheet(elementsSheet, projects, headerStyle, currencyStyle);
+        try (StreamingExcelWriter writer = new StreamingExcelWriter()) {
+            // Sheet 1: Project Elements (also collects each project's elements subtotal)
+            Map<Long, BigDecimal> subtotals = createProjectElementsSheet(writer, ordered);
 
-        // Sheet 2: Cost Breakdown
-        Sheet breakdownSheet = workbook.createSheet("Cost Breakdown");
-        createCostBreakdownSheet(breakdownSheet, projects, headerStyle, currencyStyle);
+            // Sheet 2: Cost Breakdown
+            createCostBreakdownSheet(writer, ordered, subtotals);
 
-        // Write to file
-        File file = new File(fileName);
-        try (FileOutputStream outputStream = new FileOutputStream(file)) {
-            workbook.write(outputStream);
+            return writer.writeTo(new File(fileName));
         }
-        workbook.close();
-
-        return file;
     }
 
     /**
-     * Export selected customers to Excel
+     * Export all active customers to Excel, streamed from the database
      */
-    public File exportCustomersToExcel(List<Customer> customers, String fileName) throws IOException {
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("Customers");
-
-        CellStyle headerStyle = createHeaderStyle(workbook);
-
-        // Create header row
-        Row headerRow = sheet.createRow(0);
-        String[] columns = {"ID", "Name", "Email", "Phone", "Address", "Company"};
-
-        for (int i = 0; i < columns.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(columns[i]);
-            cell.setCellStyle(headerStyle);
-        }
+    public File exportCustomersToExcel(String fileName) throws IOException {
+        try (StreamingExcelWriter writer = new StreamingExcelWriter()) {
+            StreamingExcelWriter.SheetWriter sheet = createCustomersSheet(writer);
 
-        // Create data rows
-        int rowNum = 1;
-        for (Customer customer : customers) {
-            Row row = sheet.createRow(rowNum++);
-
-            row.createCell(0).setCellValue(customer.getId());
-            row.createCell(1).setCellValue(customer.getName() != null ? customer.getName() : "");
-            row.createCell(2).setCellValue(customer.getEmail() != null ? customer.getEmail() : "");
-            row.createCell(3).setCellValue(customer.getPhone() != null ? customer.getPhone() : "");
-            row.createCell(4).setCellValue(customer.getAddress() != null ? customer.getAddress() : "");
-            row.createCell(5).setCellValue(customer.getCompany() != null ? customer.getCompany() : "");
-        }
+            // id, name, email, phone, company, address, createdAt - null cells stay blank
+            sheet.rows(customerRepository.streamExportRows(), row -> new Object[]{
+                    row[0], row[1], row[2], row[3], row[5], row[4]
+            });
 
-        // Auto-size columns
-        for (int i = 0; i < columns.length; i++) {
-            sheet.autoSizeColumn(i);
+            return writer.writeTo(new File(fileName));
         }
+    }
 
-        // Write to file
-        File file = new File(fileName);
-        try (FileOutputStream outputStream = new FileOutputStream(file)) {
-            workbook.write(outputStream);
+    /**
+     * Export the given customers (e.g. a filtered list in view) to Excel
+     */
+    public File exportCustomersToExcel(List<Customer> customers, String fileName) throws IOException {
+        try (StreamingExcelWriter writer = new StreamingExcelWriter()) {
+            StreamingExcelWriter.SheetWriter sheet = createCustomersSheet(writer);
+
+            sheet.rows(customers.stream(), customer -> new Object[]{
+                    customer.getId(),
+                    customer.getName() != null ? customer.getName() : "",
+                    customer.getEmail() != null ? customer.getEmail() : "",
+                    customer.getPhone() != null ? customer.getPhone() : "",
+                    customer.getAddress() != null ? customer.getAddress() : "",
+                    customer.getCompany() != null ? customer.getCompany() : ""
+            });
+
+            return writer.writeTo(new File(fileName));
         }
-        workbook.close();
-
-        return file;
     }
 
     // ==================== HELPER METHODS ====================
 
-    private void createProjectElementsSheet(Sheet sheet, List<Project> projects, CellStyle headerStyle, CellStyle currencyStyle) {
-        // Create header row
-        Row headerRow = sheet.createRow(0);
-        String[] columns = {"Project Name", "Element", "Manufacture", "Product Name", "Code", "Quantity Needed", "Unit Price", "Total Price"};
+    private StreamingExcelWriter.SheetWriter createCustomersSheet(StreamingExcelWriter writer) {
+        StreamingExcelWriter.SheetWriter sheet = writer.createSheet("Customers");
+        sheet.header(writer.headerStyle(), "ID", "Name", "Email", "Phone", "Address", "Company");
+        return sheet;
+    }
+
+    private Map<Long, BigDecimal> createProjectElementsSheet(StreamingExcelWriter writer, List<Project> projects) {
+        CellStyle currencyStyle = writer.currencyStyle();
+        StreamingExcelWriter.SheetWriter sheet = writer.createSheet("Project Elements");
+        sheet.header(writer.headerStyle(), "Project Name", "Element", "Manufacture", "Product Name", "Code",
+                "Quantity Needed", "Unit Price", "Total Price");
+        sheet.columnStyles(null, null, null, null, null, null, currencyStyle, currencyStyle);
 
-        for (int i = 0; i < columns.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(columns[i]);
-            cell.setCellStyle(headerStyle);
+        Map<Long, BigDecimal> subtotals = new HashMap<>();
+        if (projects.isEmpty()) {
+            return subtotals;
         }
 
-        // Create data rows
-        int rowNum = 1;
-        for (Project project : projects) {
-            List<ProjectElement> elements = elementService.getElementsByProject(project.getId());
+        List<Long> projectIds = projects.stream().map(Project::getId).toList();
+        Iterator<Project> pending = projects.iterator();
+        Project current = pending.next();
 
-            if (elements.isEmpty()) {
-                // Add project name even if no elements
-                Row row = sheet.createRow(rowNum++);
-                row.createCell(0).setCellValue(project.getProjectName());
-                row.createCell(1).setCellValue("(No elements)");
-            } else {
-                for (ProjectElement element : elements) {
-                    Row row = sheet.createRow(rowNum++);
-
-                    row.createCell(0).setCellValue(project.getProjectName());
-                    row.createCell(1).setCellValue("Element #" + element.getId());
-
-                    if (element.getStorageItem() != null) {
-                        row.createCell(2).setCellValue(element.getStorageItem().getManufacture() != null ?
-                            element.getStorageItem().getManufacture() : "");
-                        row.createCell(3).setCellValue(element.getStorageItem().getProductName() != null ?
-                            element.getStorageItem().getProductName() : "");
-                        row.createCell(4).setCellValue(element.getStorageItem().getCode() != null ?
-                            element.getStorageItem().getCode() : "");
-
-                        row.createCell(5).setCellValue(element.getQuantityNeeded());
-
-                        BigDecimal unitPrice = element.getStorageItem().getPrice() != null ?
-                            element.getStorageItem().getPrice() : BigDecimal.ZERO;
-                        Cell priceCell = row.createCell(6);
-                        priceCell.setCellValue(unitPrice.doubleValue());
-                        priceCell.setCellStyle(currencyStyle);
-
-                        BigDecimal totalPrice = unitPrice.multiply(new BigDecimal(element.getQuantityNeeded()));
-                        Cell totalCell = row.createCell(7);
-                        totalCell.setCellValue(totalPrice.doubleValue());
-                        totalCell.setCellStyle(currencyStyle);
-                    } else {
-                        row.createCell(2).setCellValue("(Item not found)");
-                    }
+        try (Stream<Object[]> rows = elementRepository.streamExportRows(projectIds)) {
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                Long projectId = (Long) row[0];
+
+                // Projects between the previous and this row have no elements
+                while (!current.getId().equals(projectId)) {
+                    writeNoElementsRow(sheet, current, subtotals);
+                    current = pending.next();
                 }
+                subtotals.putIfAbsent(projectId, BigDecimal.ZERO);
+
+                String productName = (String) row[3];
+                if (productName == null) {
+                    sheet.row(current.getProjectName(), "Element #" + row[1], "(Item not found)");
+                    continue;
+                }
+
+                int quantity = row[5] != null ? (Integer) row[5] : 0;
+                BigDecimal unitPrice = row[6] != null ? (BigDecimal) row[6] : BigDecimal.ZERO;
+                BigDecimal totalPrice = unitPrice.multiply(new BigDecimal(quantity));
+                subtotals.merge(projectId, totalPrice, BigDecimal::add);
+
+                sheet.row(current.getProjectName(), "Element #" + row[1],
+                        row[2] != null ? row[2] : "", productName, row[4] != null ? row[4] : "",
+                        quantity, unitPrice, totalPrice);
             }
         }
 
-        // Auto-size columns
-        for (int i = 0; i < columns.length; i++) {
-            sheet.autoSizeColumn(i);
+        // Remaining projects have no elements
+        if (!subtotals.containsKey(current.getId())) {
+            writeNoElementsRow(sheet, current, subtotals);
+        }
+        while (pending.hasNext()) {
+            writeNoElementsRow(sheet, pending.next(), subtotals);
         }
+        return subtotals;
     }
 
-    private void createCostBreakdownSheet(Sheet sheet, List<Project> projects, CellStyle headerStyle, CellStyle currencyStyle) {
-        // Create header row
-        Row headerRow = sheet.createRow(0);
-        String[] columns = {"Project Name", "Elements Subtotal", "Tax Rate %", "Tax Amount",
-                            "Discount Amount", "Installation Cost", "Additional Cost", "Total Cost"};
+    private void writeNoElementsRow(StreamingExcelWriter.SheetWriter sheet, Project project,
+                                    Map<Long, BigDecimal> subtotals) {
+        sheet.row(project.getProjectName(), "(No elements)");
+        subtotals.put(project.getId(), BigDecimal.ZERO);
+    }
 
-        for (int i = 0; i < columns.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(columns[i]);
-            cell.setCellStyle(headerStyle);
+    private void createCostBreakdownSheet(StreamingExcelWriter writer, List<Project> projects,
+                                          Map<Long, BigDecimal> subtotals) {
+        CellStyle currencyStyle = writer.currencyStyle();
+        StreamingExcelWriter.SheetWriter sheet = writer.createSheet("Cost Breakdown");
+        sheet.header(writer.headerStyle(), "Project Name", "Elements Subtotal", "Tax Rate %", "Tax Amount",
+                "Discount Amount", "Installation Cost", "Additional Cost", "Total Cost");
+        sheet.columnStyles(null, currencyStyle, null, currencyStyle, currencyStyle, currencyStyle, currencyStyle, currencyStyle);
+
+        // All breakdowns in one query
+        Map<Long, ProjectCostBreakdown> breakdowns = new HashMap<>();
+        if (!projects.isEmpty()) {
+            for (ProjectCostBreakdown cb : costBreakdownRepository.findByProjectIdIn(
+                    projects.stream().map(Project::getId).toList())) {
+                breakdowns.put(cb.getProjectId(), cb);
+            }
         }
 
-        // Create data rows
-        int rowNum = 1;
         for (Project project : projects) {
-            Row row = sheet.createRow(rowNum++);
-
-            row.createCell(0).setCellValue(project.getProjectName());
-
-            // Calculate elements subtotal
-            List<ProjectElement> elements = elementService.getElementsByProject(project.getId());
-            BigDecimal subtotal = BigDecimal.ZERO;
-            for (ProjectElement element : elements) {
-                if (element.getStorageItem() != null && element.getStorageItem().getPrice() != null) {
-                    BigDecimal price = element.getStorageItem().getPrice();
-                    BigDecimal quantity = new BigDecimal(element.getQuantityNeeded());
-                    subtotal = subtotal.add(price.multiply(quantity));
-                }
-            }
-
-            Cell subtotalCell = row.createCell(1);
-            subtotalCell.setCellValue(subtotal.doubleValue());
-            subtotalCell.setCellStyle(currencyStyle);
-
-            // Get cost breakdown if exists
-            try {
-                java.util.Optional<ProjectCostBreakdown> breakdown = costBreakdownService.getBreakdownByProject(project.getId());
-                if (breakdown.isPresent()) {
-                    ProjectCostBreakdown cb = breakdown.get();
-
-                    // Tax rate as percentage (convert 0.15 to 15%)
-                    double taxRatePercent = cb.getTaxRate() != null ? cb.getTaxRate().multiply(new BigDecimal(100)).doubleValue() : 0;
-                    row.createCell(2).setCellValue(taxRatePercent);
-
-                    Cell taxCell = row.createCell(3);
-                    taxCell.setCellValue(cb.getTaxAmount() != null ? cb.getTaxAmount().doubleValue() : 0);
-                    taxCell.setCellStyle(currencyStyle);
-
-                    Cell discountCell = row.createCell(4);
-                    discountCell.setCellValue(cb.getDiscountAmount() != null ? cb.getDiscountAmount().doubleValue() : 0);
-                    discountCell.setCellStyle(currencyStyle);
-
-                    Cell installationCell = row.createCell(5);
-                    installationCell.setCellValue(cb.getInstallationCost() != null ? cb.getInstallationCost().doubleValue() : 0);
-                    installationCell.setCellStyle(currencyStyle);
-
-                    Cell additionalCell = row.createCell(6);
-                    additionalCell.setCellValue(cb.getAdditionalCost() != null ? cb.getAdditionalCost().doubleValue() : 0);
-                    additionalCell.setCellStyle(currencyStyle);
-
-                    Cell totalCell = row.createCell(7);
-                    totalCell.setCellValue(cb.getTotalCost() != null ? cb.getTotalCost().doubleValue() : 0);
-                    totalCell.setCellStyle(currencyStyle);
-                } else {
-                    // No breakdown, just show subtotal
-                    row.createCell(2).setCellValue(0);
-                    row.createCell(3).setCellValue(0);
-                    row.createCell(4).setCellValue(0);
-                    row.createCell(5).setCellValue(0);
-                    row.createCell(6).setCellValue(0);
-                    Cell totalCell = row.createCell(7);
-                    totalCell.setCellValue(subtotal.doubleValue());
-                    totalCell.setCellStyle(currencyStyle);
-                }
-            } catch (Exception e) {
-                System.err.println("Error loading breakdown for project " + project.getId() + ": " + e.getMessage());
+            BigDecimal subtotal = subtotals.getOrDefault(project.getId(), BigDecimal.ZERO);
+            ProjectCostBreakdown cb = breakdowns.get(project.getId());
+
+            if (cb != null) {
+                // Tax rate as percentage (convert 0.15 to 15%)
+                double taxRatePercent = cb.getTaxRate() != null ? cb.getTaxRate().multiply(new BigDecimal(100)).doubleValue() : 0;
+                sheet.row(project.getProjectName(), subtotal, taxRatePercent,
+                        orZero(cb.getTaxAmount()), orZero(cb.getDiscountAmount()),
+                        orZero(cb.getInstallationCost()), orZero(cb.getAdditionalCost()),
+                        orZero(cb.getTotalCost()));
+            } else {
+                // No breakdown, just show subtotal
+                sheet.row(project.getProjectName(), subtotal, 0, 0, 0, 0, 0, subtotal);
             }
         }
-
-        // Auto-size columns
-        for (int i = 0; i < columns.length; i++) {
-            sheet.autoSizeColumn(i);
-        }
-    }
-
-    private CellStyle createHeaderStyle(Workbook workbook) {
-        CellStyle headerStyle = workbook.createCellStyle();
-        Font headerFont = workbook.createFont();
-        headerFont.setBold(true);
-        headerFont.setFontHeightInPoints((short) 12);
-        headerStyle.setFont(headerFont);
-        headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        headerStyle.setBorderBottom(BorderStyle.THIN);
-        headerStyle.setBorderTop(BorderStyle.THIN);
-        headerStyle.setBorderLeft(BorderStyle.THIN);
-        headerStyle.setBorderRight(BorderStyle.THIN);
-        return headerStyle;
     }
 
-    private CellStyle createCurrencyStyle(Workbook workbook) {
-        CellStyle currencyStyle = workbook.createCellStyle();
-        currencyStyle.setDataFormat(workbook.createDataFormat().getFormat("$#,##0.00"));
-        return currencyStyle;
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
     }
 }
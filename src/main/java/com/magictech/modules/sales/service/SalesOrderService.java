@@ -5,20 +5,32 @@ import com.magictech.modules.sales.entity.SalesOrder;
 import com.magictech.modules.sales.entity.SalesOrderItem;
 import com.magictech.modules.sales.repository.SalesOrderRepository;
 import com.magictech.modules.sales.repository.SalesOrderItemRepository;
+import com.magictech.modules.storage.service.StockReservationService;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 /**
  * Sales Order Service
  * Business logic for sales order management with automatic database updates
  *
- * NOTE: This service requires StorageService and ProjectElementService
- * Uncomment the @Autowired sections below when those services are available
+ * Stock handling: order lines hold a soft reservation (StockReservationService) that is
+ * committed to the stock ledger on confirm and released on removal/cancel. The Sales UI
+ * reserves stock under a draft key as soon as a row is added and hands that hold to the line
+ * when the order is saved (replaceOrderItems). A line whose hold expired is deducted on
+ * confirm all the same. Lines saved before reservations were deducted when they were added
+ * and are only recorded. Confirm and push are offered by the Sales UI as well as the REST
+ * API; both only deduct the lines that are not deducted yet, so an order can be confirmed or
+ * pushed again after lines are added.
  */
 @Service
 @Transactional
@@ -36,12 +48,23 @@ public class SalesOrderService {
     @Autowired
     private com.magictech.modules.storage.service.StorageService storageService;
 
+    @Autowired
+    private StockReservationService reservationService;
+
     @Autowired
     private com.magictech.modules.projects.service.ProjectElementService projectElementService;
 
     @Autowired
     private com.magictech.modules.projects.service.ProjectService projectService;
 
+    private static final String LINE_HOLDER_PREFIX = "SALES_ORDER_ITEM:";
+    private static final String DRAFT_HOLDER_PREFIX = "SALES_DRAFT:";
+
+    @PostConstruct
+    public void registerReservationExpiry() {
+        reservationService.addExpiryListener(this::clearExpiredHolds);
+    }
+
     /**
      * Create a new sales order
      */
@@ -77,22 +100,68 @@ public class SalesOrderService {
     }
 
     /**
-     * Add item to sales order and automatically update storage
+     * Add item to sales order and reserve its stock (soft lock, deducted on confirm)
      */
     public SalesOrderItem addItemToOrder(Long orderId, SalesOrderItem item) {
+        item.setStockReserved(true);
+        item.setStockDeducted(false);
+        SalesOrderItem savedItem = saveOrderItem(orderId, item);
+
+        // Reserve storage (soft lock) - fails the whole add if available stock is too low
+        reservationService.reserve(savedItem.getStorageItemId(), savedItem.getQuantity(),
+                reservationKey(savedItem), savedItem.getSalesOrder().getCreatedBy());
+
+        return savedItem;
+    }
+
+    /**
+     * Replace the active lines of an order with the lines edited in the Sales UI, in one
+     * transaction. {@code holderKeys} holds, per line, the hold that covers its stock: a draft
+     * hold placed when the row was added, or the hold of the saved line it stands for. The new
+     * line takes that hold over (reserving again if it expired). A null key marks a line saved
+     * before reservations, whose stock was already deducted. Holds of old lines that are not
+     * taken over are released first, so their stock is available to the new lines.
+     * @return the saved lines, in the order given
+     */
+    public List<SalesOrderItem> replaceOrderItems(Long orderId, List<SalesOrderItem> items, List<String> holderKeys) {
         SalesOrder order = salesOrderRepository.findByIdAndActiveTrue(orderId)
                 .orElseThrow(() -> new RuntimeException("Sales order not found with id: " + orderId));
 
-        // TODO: Uncomment when StorageService is available
-        // Check storage availability
-        // boolean isAvailable = storageService.checkAvailability(item.getStorageItemId(), item.getQuantity());
-        // if (!isAvailable) {
-        //     throw new RuntimeException("Insufficient storage quantity for item: " + item.getStorageItemId());
-        // }
+        Set<String> takenOver = new HashSet<>(holderKeys);
+        for (SalesOrderItem oldItem : salesOrderItemRepository.findBySalesOrderIdAndActiveTrue(orderId)) {
+            if (Boolean.TRUE.equals(oldItem.getStockReserved()) && !takenOver.contains(reservationKey(oldItem))) {
+                reservationService.release(reservationKey(oldItem));
+            }
+            oldItem.setActive(false);
+            oldItem.setUpdatedAt(LocalDateTime.now());
+            salesOrderItemRepository.save(oldItem);
+        }
 
-        // TODO: Uncomment when StorageService is available
-        // Reserve storage (soft lock)
-        // storageService.reserveItem(item.getStorageItemId(), item.getQuantity());
+        List<SalesOrderItem> savedItems = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            SalesOrderItem item = items.get(i);
+            String holderKey = holderKeys.get(i);
+            if (holderKey == null) {
+                item.setStockReserved(false);
+                savedItems.add(saveOrderItem(orderId, item));
+                continue;
+            }
+            item.setStockReserved(true);
+            item.setStockDeducted(false);
+            SalesOrderItem savedItem = saveOrderItem(orderId, item);
+            reservationService.moveHold(holderKey, reservationKey(savedItem), savedItem.getStorageItemId(),
+                    savedItem.getQuantity(), order.getCreatedBy());
+            savedItems.add(savedItem);
+        }
+
+        order.calculateTotals();
+        salesOrderRepository.save(order);
+        return savedItems;
+    }
+
+    private SalesOrderItem saveOrderItem(Long orderId, SalesOrderItem item) {
+        SalesOrder order = salesOrderRepository.findByIdAndActiveTrue(orderId)
+                .orElseThrow(() -> new RuntimeException("Sales order not found with id: " + orderId));
 
         item.setSalesOrder(order);
         item.setCreatedAt(LocalDateTime.now());
@@ -116,9 +185,10 @@ public class SalesOrderService {
         SalesOrderItem item = salesOrderItemRepository.findById(itemId)
                 .orElseThrow(() -> new RuntimeException("Sales order item not found with id: " + itemId));
 
-        // TODO: Uncomment when StorageService is available
         // Release reserved storage
-        // storageService.releaseReservation(item.getStorageItemId(), item.getQuantity());
+        if (Boolean.TRUE.equals(item.getStockReserved())) {
+            reservationService.release(reservationKey(item));
+        }
 
         item.setActive(false);
         item.setUpdatedAt(LocalDateTime.now());
@@ -144,12 +214,16 @@ public class SalesOrderService {
         // Get all order items
         List<SalesOrderItem> items = salesOrderItemRepository.findBySalesOrderIdAndActiveTrue(orderId);
 
-        // TODO: Uncomment when StorageService is available
-        // Deduct from storage for each item
-        // for (SalesOrderItem item : items) {
-        //     storageService.deductItem(item.getStorageItemId(), item.getQuantity(),
-        //             "Sales Order #" + orderId + " - Customer: " + order.getCustomer().getName());
-        // }
+        // Commit reservations: deduct lines not yet deducted (held, or hold expired) through the stock ledger
+        for (SalesOrderItem item : items) {
+            if (holderKeyOf(item) != null) {
+                reservationService.commit(reservationKey(item), item.getStorageItemId(), item.getQuantity(),
+                        "SALES_ORDER:" + orderId, confirmedBy);
+                item.setStockReserved(false);
+                item.setStockDeducted(true);
+                salesOrderItemRepository.save(item);
+            }
+        }
 
         order.setStatus("CONFIRMED");
         order.setUpdatedAt(LocalDateTime.now());
@@ -183,10 +257,19 @@ public class SalesOrderService {
 
         System.out.println("📦 Pushing " + items.size() + " items to project: " + project.getProjectName());
 
-        // For each item: Create project element (automatically deducts from storage)
+        // For each line not yet deducted: Create project element (automatically deducts from storage)
         int elementCount = 0;
         for (SalesOrderItem item : items) {
+            if (holderKeyOf(item) == null) {
+                continue; // Already pushed, or deducted when it was added
+            }
             try {
+                // The element deduction replaces the soft hold - release it first so the
+                // deduction does not count it as reserved
+                if (Boolean.TRUE.equals(item.getStockReserved())) {
+                    reservationService.release(reservationKey(item));
+                }
+
                 // Get the storage item
                 com.magictech.modules.storage.entity.StorageItem storageItem =
                     storageService.findById(item.getStorageItemId())
@@ -210,6 +293,10 @@ public class SalesOrderService {
                 projectElementService.createElementDirectly(element);
                 elementCount++;
 
+                item.setStockReserved(false);
+                item.setStockDeducted(true);
+                salesOrderItemRepository.save(item);
+
                 System.out.println("✅ Created project element for item: " + storageItem.getProductName() +
                                  " (Qty: " + item.getQuantity() + ")");
             } catch (Exception e) {
@@ -305,12 +392,13 @@ public class SalesOrderService {
             throw new RuntimeException("Cannot cancel confirmed or pushed orders");
         }
 
-        // TODO: Uncomment when StorageService is available
         // Release all storage reservations
-        // List<SalesOrderItem> items = salesOrderItemRepository.findBySalesOrderIdAndActiveTrue(orderId);
-        // for (SalesOrderItem item : items) {
-        //     storageService.releaseReservation(item.getStorageItemId(), item.getQuantity());
-        // }
+        List<SalesOrderItem> items = salesOrderItemRepository.findBySalesOrderIdAndActiveTrue(orderId);
+        for (SalesOrderItem item : items) {
+            if (Boolean.TRUE.equals(item.getStockReserved())) {
+                reservationService.release(reservationKey(item));
+            }
+        }
 
         order.setStatus("CANCELLED");
         order.setActive(false);
@@ -326,4 +414,51 @@ public class SalesOrderService {
     public long getTotalOrderCount() {
         return salesOrderRepository.countByActiveTrue();
     }
-}
\ No newline at end of file
+
+    /**
+     * Key of the hold covering a saved line's stock, or null if the line's stock was already
+     * deducted (after confirm/push, or a line saved before reservations)
+     */
+    public static String holderKeyOf(SalesOrderItem item) {
+        if (Boolean.TRUE.equals(item.getStockReserved()) || Boolean.FALSE.equals(item.getStockDeducted())) {
+            return reservationKey(item);
+        }
+        return null;
+    }
+
+    /**
+     * A new holder key for stock reserved in the Sales UI before the order is saved
+     */
+    public static String newDraftHolderKey() {
+        return DRAFT_HOLDER_PREFIX + UUID.randomUUID();
+    }
+
+    /**
+     * True for holds placed by the Sales UI that no saved line owns yet
+     */
+    public static boolean isDraftHolderKey(String holderKey) {
+        return holderKey != null && holderKey.startsWith(DRAFT_HOLDER_PREFIX);
+    }
+
+    /**
+     * Reservation holder key for an order line
+     */
+    private static String reservationKey(SalesOrderItem item) {
+        return LINE_HOLDER_PREFIX + item.getId();
+    }
+
+    /**
+     * Lines whose hold expired no longer hold stock; they are deducted on confirm all the same
+     */
+    private void clearExpiredHolds(List<String> holderKeys) {
+        List<Long> itemIds = new ArrayList<>();
+        for (String holderKey : holderKeys) {
+            if (holderKey.startsWith(LINE_HOLDER_PREFIX)) {
+                itemIds.add(Long.valueOf(holderKey.substring(LINE_HOLDER_PREFIX.length())));
+            }
+        }
+        if (!itemIds.isEmpty()) {
+            salesOrderItemRepository.clearStockReserved(itemIds);
+        }
+    }
+}
@@ -8,9 +8,11 @@ import org.apache.poi.ss.util.CellAddress;
 import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.xssf.usermodel.*;
 import org.openxmlformats.schemas.drawingml.x2006.spreadsheetDrawing.CTMarker;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.time.LocalDateTime;
@@ -21,7 +23,7 @@ import java.util.*;
  * Comprehensive Excel parsing service for site survey files
  * Supports:
  * - Flexible sheet structures (any number of columns/rows)
- * - Embedded images with cell positions
+ * - Embedded images with cell positions (stored by SurveyImageService, JSON keeps their keys)
  * - All data types (text, numbers, dates, formulas, booleans)
  * - Multiple sheets
  * - Merged cells
@@ -29,6 +31,15 @@ import java.util.*;
 @Service
 public class SiteSurveyExcelService {
 
+    // Bump whenever the JSON written by parseWorkbook changes, so cached results are not reused
+    public static final int PARSER_VERSION = 2;
+
+    @Autowired
+    private SurveyImageService surveyImageService;
+
+    @Autowired
+    private ParseResultCache parseResultCache;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final DecimalFormat decimalFormat = new DecimalFormat("#.##########");
 
@@ -37,36 +48,66 @@ public class SiteSurveyExcelService {
      *
      * @param excelBytes Raw Excel file bytes
      * @param fileName Original file name
-     * @return JSON string with complete Excel data including images
+     * @return Compact JSON string with complete Excel data including image keys
      */
     public String parseExcelToJson(byte[] excelBytes, String fileName) throws IOException {
-        try (ByteArrayInputStream bis = new ByteArrayInputStream(excelBytes);
-             Workbook workbook = WorkbookFactory.create(bis)) {
+        String json = parseResultCache.getOrParse("site-survey", PARSER_VERSION, excelBytes, () -> {
+            try (ByteArrayInputStream bis = new ByteArrayInputStream(excelBytes);
+                 Workbook workbook = WorkbookFactory.create(bis)) {
+                return parseWorkbook(workbook, fileName);
+            }
+        });
+        return withFileName(json, fileName);
+    }
 
-            ObjectNode rootNode = objectMapper.createObjectNode();
-            rootNode.put("fileName", fileName);
-            rootNode.put("parsedAt", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME));
-            rootNode.put("numberOfSheets", workbook.getNumberOfSheets());
+    /**
+     * Parse an Excel file on disk (opened read-only, without loading it into memory first)
+     */
+    public String parseExcelToJson(File excelFile, String fileName) throws IOException {
+        String json = parseResultCache.getOrParse("site-survey", PARSER_VERSION, excelFile, () -> {
+            try (Workbook workbook = WorkbookFactory.create(excelFile, null, true)) {
+                return parseWorkbook(workbook, fileName);
+            }
+        });
+        return withFileName(json, fileName);
+    }
 
-            ArrayNode sheetsArray = objectMapper.createArrayNode();
+    /**
+     * A cached result may come from the same workbook uploaded under another name
+     */
+    private String withFileName(String json, String fileName) throws IOException {
+        if (json.startsWith("{\"fileName\":" + objectMapper.writeValueAsString(fileName) + ",")) {
+            return json;
+        }
+        ObjectNode rootNode = (ObjectNode) objectMapper.readTree(json);
+        rootNode.put("fileName", fileName);
+        return objectMapper.writeValueAsString(rootNode);
+    }
 
-            // Parse each sheet
-            for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
-                Sheet sheet = workbook.getSheetAt(i);
-                ObjectNode sheetNode = parseSheet(sheet, workbook);
-                sheetsArray.add(sheetNode);
-            }
+    private String parseWorkbook(Workbook workbook, String fileName) throws IOException {
+        ObjectNode rootNode = objectMapper.createObjectNode();
+        rootNode.put("fileName", fileName);
+        rootNode.put("parsedAt", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME));
+        rootNode.put("numberOfSheets", workbook.getNumberOfSheets());
 
-            rootNode.set("sheets", sheetsArray);
+        ArrayNode sheetsArray = objectMapper.createArrayNode();
 
-            return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(rootNode);
+        // Parse each sheet
+        for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+            Sheet sheet = workbook.getSheetAt(i);
+            ObjectNode sheetNode = parseSheet(sheet, workbook);
+            sheetsArray.add(sheetNode);
         }
+
+        rootNode.set("sheets", sheetsArray);
+
+        return objectMapper.writeValueAsString(rootNode);
     }
 
     /**
      * Parse a single sheet
      */
-    private ObjectNode parseSheet(Sheet sheet, Workbook workbook) {
+    private ObjectNode parseSheet(Sheet sheet, Workbook workbook) throws IOException {
         ObjectNode sheetNode = objectMapper.createObjectNode();
         sheetNode.put("sheetName", sheet.getSheetName());
         sheetNode.put("sheetIndex", workbook.getSheetIndex(sheet));
@@ -246,7 +287,7 @@ public class SiteSurveyExcelService {
     /**
      * Parse images from XSSF sheet with full positioning metadata
      */
-    private ArrayNode parseImages(XSSFSheet sheet) {
+    private ArrayNode parseImages(XSSFSheet sheet) throws IOException {
         ArrayNode imagesArray = objectMapper.createArrayNode();
 
         XSSFDrawing drawing = sheet.getDrawingPatriarch();
@@ -301,9 +342,8 @@ public class SiteSurveyExcelService {
                         imageNode.put("positionDescription", positionStr);
                     }
 
-                    // Encode image as Base64 for JSON storage
-                    String base64Image = Base64.getEncoder().encodeToString(imageBytes);
-                    imageNode.put("base64Data", base64Image);
+                    // Image and thumbnail go to the image store; JSON keeps the keys
+                    surveyImageService.writeKeys(imageNode, surveyImageService.store(imageBytes));
 
                     // Add image dimensions if available
                     try {
@@ -389,4 +429,24 @@ public class SiteSurveyExcelService {
             return false;
         }
     }
+
+    /**
+     * Validate an Excel file on disk (opened read-only)
+     */
+    public boolean isValidExcelFile(File file, String fileName) {
+        if (file == null || file.length() == 0 || fileName == null) {
+            return false;
+        }
+
+        String lowerFileName = fileName.toLowerCase();
+        if (!lowerFileName.endsWith(".xlsx") && !lowerFileName.endsWith(".xls")) {
+            return false;
+        }
+
+        try (Workbook workbook = WorkbookFactory.create(file, null, true)) {
+            return workbook.getNumberOfSheets() > 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
 }
@@ -0,0 +1,81 @@
+package com.magictech.modules.sales.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves Base64 pictures embedded in existing parsed survey JSON into the image store on startup
+ * (database/migrations/survey_images.sql).
+ * Each workflow_parsed_data row is rewritten in its own transaction, so the migration can stop
+ * and resume at any point. A run that moves every row records itself in completed_migrations and
+ * later starts skip the table scan. The pictures go to the BlobStore, which has already refused
+ * to start if its directory is not the one shared by all desks.
+ */
+@Component
+public class SurveyImageMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(SurveyImageMigration.class);
+
+    private static final String MIGRATION_NAME = "survey_images_to_blob_store";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SurveyImageService surveyImageService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(6) // After parsed_data moved to workflow_parsed_data
+    public void migrateEmbeddedImages() {
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS completed_migrations (" +
+                    "name VARCHAR(100) PRIMARY KEY, completed_at TIMESTAMP NOT NULL)");
+            Integer done = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM completed_migrations WHERE name = ?", Integer.class, MIGRATION_NAME);
+            if (done != null && done > 0) {
+                return;
+            }
+
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM workflow_parsed_data WHERE parsed_data LIKE '%\"base64Data\"%' ORDER BY id",
+                    Long.class);
+
+            int moved = 0;
+            int failed = 0;
+            if (!ids.isEmpty()) {
+                logger.info("Moving embedded images of {} parsed survey rows to the image store...", ids.size());
+            }
+            for (Long id : ids) {
+                try {
+                    if (surveyImageService.externalizeEmbeddedImages(id)) {
+                        moved++;
+                    }
+                } catch (Exception e) {
+                    failed++;
+                    logger.warn("Could not move embedded images of parsed data {}: {}", id, e.getMessage());
+                }
+            }
+            if (!ids.isEmpty()) {
+                logger.info("Moved embedded images of {} of {} parsed survey rows", moved, ids.size());
+            }
+
+            if (failed == 0) {
+                jdbcTemplate.update("INSERT INTO completed_migrations (name, completed_at) VALUES (?, ?) " +
+                        "ON CONFLICT (name) DO NOTHING", MIGRATION_NAME, Timestamp.valueOf(LocalDateTime.now()));
+            }
+        } catch (Exception e) {
+            logger.error("Error moving embedded survey images", e);
+            // Don't throw - rows not moved yet are retried on the next start
+        }
+    }
+}
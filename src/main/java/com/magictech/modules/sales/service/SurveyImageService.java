@@ -0,0 +1,199 @@
+package com.magictech.modules.sales.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.magictech.core.blob.BlobStore;
+import com.magictech.modules.sales.entity.WorkflowParsedData;
+import com.magictech.modules.sales.repository.WorkflowParsedDataRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Images embedded in uploaded survey workbooks.
+ *
+ * The Excel parsers store every picture in the BlobStore together with a small JPEG thumbnail
+ * and write only the two keys into the parsed JSON ("imageKey", "thumbnailKey"). Viewers show
+ * the thumbnails and load a full image when it is opened. Identical pictures are stored once.
+ */
+@Service
+@Transactional
+public class SurveyImageService {
+
+    // Longest side of a thumbnail in pixels
+    public static final int THUMBNAIL_SIZE = 160;
+
+    private static final String LEGACY_DATA_FIELD = "base64Data";
+
+    /**
+     * Keys of a stored picture; thumbnailKey is null for formats ImageIO cannot decode (EMF, WMF...)
+     */
+    public record StoredImage(String imageKey, String thumbnailKey) {
+    }
+
+    /**
+     * A picture referenced by parsed JSON, as listed for a viewer
+     */
+    public record ImageEntry(String imageKey, String thumbnailKey, String sheetName, String position) {
+    }
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private WorkflowParsedDataRepository parsedDataRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Store a picture and its thumbnail
+     */
+    public StoredImage store(byte[] imageBytes) throws IOException {
+        String imageKey = blobStore.put(imageBytes).key();
+        byte[] thumbnail = createThumbnail(imageBytes);
+        String thumbnailKey = thumbnail != null ? blobStore.put(thumbnail).key() : null;
+        return new StoredImage(imageKey, thumbnailKey);
+    }
+
+    /**
+     * Put the keys of a stored picture on its JSON node
+     */
+    public void writeKeys(ObjectNode imageNode, StoredImage image) {
+        imageNode.put("imageKey", image.imageKey());
+        if (image.thumbnailKey() != null) {
+            imageNode.put("thumbnailKey", image.thumbnailKey());
+        }
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public byte[] loadImage(String key) throws IOException {
+        return blobStore.readAllBytes(key);
+    }
+
+    /**
+     * Pictures referenced anywhere in parsed JSON (single workbook or ZIP of workbooks), in order
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<ImageEntry> listImages(String parsedJson) {
+        List<ImageEntry> images = new ArrayList<>();
+        if (parsedJson == null || parsedJson.isEmpty()) {
+            return images;
+        }
+        try {
+            collectImages(objectMapper.readTree(parsedJson), null, images);
+        } catch (IOException e) {
+            // Not JSON (e.g. an error text) - nothing to show
+        }
+        return images;
+    }
+
+    /**
+     * Drop one reference to each picture (and thumbnail) referenced by parsed JSON
+     */
+    public void releaseImages(String parsedJson) {
+        for (ImageEntry image : listImages(parsedJson)) {
+            blobStore.release(image.imageKey());
+            blobStore.release(image.thumbnailKey());
+        }
+    }
+
+    private void collectImages(JsonNode node, String sheetName, List<ImageEntry> images) {
+        if (node.isObject()) {
+            if (node.hasNonNull("sheetName")) {
+                sheetName = node.get("sheetName").asText();
+            }
+            if (node.hasNonNull("imageKey")) {
+                images.add(new ImageEntry(node.get("imageKey").asText(),
+                        node.hasNonNull("thumbnailKey") ? node.get("thumbnailKey").asText() : null,
+                        sheetName,
+                        node.hasNonNull("positionDescription") ? node.get("positionDescription").asText() : null));
+                return;
+            }
+        }
+        for (JsonNode child : node) {
+            collectImages(child, sheetName, images);
+        }
+    }
+
+    /**
+     * Move the Base64 pictures of a parsed_data row written before the image store into it
+     * (SurveyImageMigration). The row is rewritten as compact JSON.
+     * @return false if the row has no embedded pictures
+     */
+    public boolean externalizeEmbeddedImages(Long parsedDataId) throws IOException {
+        WorkflowParsedData row = parsedDataRepository.findById(parsedDataId).orElse(null);
+        if (row == null) {
+            return false;
+        }
+        JsonNode root = objectMapper.readTree(row.getParsedData());
+        if (!replaceEmbeddedImages(root)) {
+            return false;
+        }
+        row.setParsedData(objectMapper.writeValueAsString(root));
+        return true;
+    }
+
+    private boolean replaceEmbeddedImages(JsonNode node) throws IOException {
+        boolean replaced = false;
+        if (node.isObject() && node.hasNonNull(LEGACY_DATA_FIELD)) {
+            ObjectNode imageNode = (ObjectNode) node;
+            byte[] imageBytes = Base64.getDecoder().decode(imageNode.get(LEGACY_DATA_FIELD).asText());
+            imageNode.remove(LEGACY_DATA_FIELD);
+            writeKeys(imageNode, store(imageBytes));
+            return true;
+        }
+        Iterator<JsonNode> children = node.elements();
+        while (children.hasNext()) {
+            replaced |= replaceEmbeddedImages(children.next());
+        }
+        return replaced;
+    }
+
+    /**
+     * JPEG scaled to fit THUMBNAIL_SIZE, or null if the picture cannot be decoded
+     */
+    private static byte[] createThumbnail(byte[] imageBytes) {
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageBytes));
+            if (image == null) {
+                return null;
+            }
+            double scale = Math.min(1.0, (double) THUMBNAIL_SIZE / Math.max(image.getWidth(), image.getHeight()));
+            int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+            // JPEG has no alpha: draw onto white
+            BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = thumbnail.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+                graphics.drawImage(image, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(thumbnail, "jpg", out);
+            return out.toByteArray();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
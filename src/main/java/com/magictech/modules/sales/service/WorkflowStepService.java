@@ -11,6 +11,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -53,6 +54,8 @@ public class WorkflowStepService {
             UserRole.MASTER.name()              // Step 8: Completion -> Master approval
         };
 
+        // Saved together so the inserts go out as one JDBC batch
+        List<WorkflowStepCompletion> steps = new ArrayList<>(8);
         for (int i = 1; i <= 8; i++) {
             WorkflowStepCompletion step = new WorkflowStepCompletion();
             step.setWorkflowId(workflow.getId());
@@ -63,8 +66,9 @@ public class WorkflowStepService {
             step.setTargetRole(targetRoles[i - 1]);
             step.setAssignmentStatus(AssignmentStatus.PENDING_ASSIGNMENT);
 
-            stepRepository.save(step);
+            steps.add(step);
         }
+        stepRepository.saveAll(steps);
     }
 
     /**
@@ -3,32 +3,95 @@ package com.magictech.modules.sales.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 /**
  * Service for extracting and parsing Excel files from ZIP archives
  * Supports ZIP files containing multiple Excel files with multiple sheets
+ *
+ * The archive is read as a stream; each Excel entry is spilled to a temp file and handed to a
+ * bounded parse pool right away, so workbooks are parsed while later entries are still being
+ * extracted. Entry count, entry size, total size and compression ratio are limited so a zip
+ * bomb is rejected before it fills the disk. No database transaction is held while parsing.
  */
 @Service
 public class ZipExcelExtractorService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ZipExcelExtractorService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MB = 1024 * 1024;
+    // Small entries may compress arbitrarily well; the ratio is checked past this size
+    private static final long RATIO_CHECK_THRESHOLD = MB;
+
     @Autowired
     private SiteSurveyExcelService siteSurveyExcelService;
 
     @Autowired
     private ExcelStorageService excelStorageService;
 
+    @Value("${magictech.zip-extract.parse-threads:4}")
+    private int parseThreads;
+
+    @Value("${magictech.zip-extract.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${magictech.zip-extract.max-entry-mb:200}")
+    private long maxEntryMb;
+
+    @Value("${magictech.zip-extract.max-total-mb:2048}")
+    private long maxTotalMb;
+
+    @Value("${magictech.zip-extract.max-ratio:100}")
+    private long maxRatio;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    private ExecutorService parsePool;
+
+    /**
+     * A workbook spilled from the archive and its pending parse
+     */
+    private record ParseJob(String fileName, long fileSize, Future<String> result) {
+    }
+
+    @PostConstruct
+    public void startParsePool() {
+        int threads = Math.max(1, Math.min(parseThreads, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger threadCount = new AtomicInteger();
+        parsePool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "zip-excel-parse-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        parsePool.shutdownNow();
+    }
+
     /**
      * Extract and parse all Excel files from a ZIP archive
      * Returns comprehensive JSON with all files and their sheets
@@ -38,105 +101,155 @@ public class ZipExcelExtractorService {
      * @return JSON string with all extracted Excel data
      */
     public String extractAndParseZipFile(byte[] zipBytes, String zipFileName) throws IOException {
+        return extractAndParse(new ByteArrayInputStream(zipBytes), zipBytes.length, zipFileName);
+    }
+
+    /**
+     * Extract and parse all Excel files from a ZIP archive on disk (streamed, never read whole)
+     */
+    public String extractAndParseZipFile(File zipFile, String zipFileName) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(zipFile), BUFFER_SIZE)) {
+            return extractAndParse(in, zipFile.length(), zipFileName);
+        }
+    }
+
+    private String extractAndParse(InputStream zipStream, long zipSize, String zipFileName) throws IOException {
         ObjectNode rootNode = objectMapper.createObjectNode();
         rootNode.put("zipFileName", zipFileName);
-        rootNode.put("zipSize", zipBytes.length);
+        rootNode.put("zipSize", zipSize);
         rootNode.put("extractedAt", java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ISO_DATE_TIME));
 
-        List<ExcelFileData> excelFiles = extractExcelFilesFromZip(zipBytes);
-        rootNode.put("excelFileCount", excelFiles.size());
-
-        ArrayNode filesArray = objectMapper.createArrayNode();
-
-        // Parse each Excel file
-        int totalSheets = 0;
-        for (ExcelFileData fileData : excelFiles) {
-            try {
-                // Parse the Excel file using SiteSurveyExcelService (reads all sheets)
-                String parsedJson = siteSurveyExcelService.parseExcelToJson(fileData.fileBytes, fileData.fileName);
-
-                // Add to the files array
-                ObjectNode fileNode = (ObjectNode) objectMapper.readTree(parsedJson);
-                fileNode.put("originalFileName", fileData.fileName);
-                fileNode.put("fileSize", fileData.fileBytes.length);
-
-                filesArray.add(fileNode);
-
-                // Count total sheets
-                if (fileNode.has("numberOfSheets")) {
-                    totalSheets += fileNode.get("numberOfSheets").asInt();
+        long startedAt = System.currentTimeMillis();
+        Path workDir = Files.createTempDirectory("zip-extract-");
+        List<ParseJob> jobs = new ArrayList<>();
+        try {
+            spillAndSubmit(zipStream, workDir, jobs);
+            rootNode.put("excelFileCount", jobs.size());
+
+            // Collect in archive order
+            ArrayNode filesArray = objectMapper.createArrayNode();
+            int totalSheets = 0;
+            for (ParseJob job : jobs) {
+                try {
+                    ObjectNode fileNode = (ObjectNode) objectMapper.readTree(job.result().get());
+                    fileNode.put("originalFileName", job.fileName());
+                    fileNode.put("fileSize", job.fileSize());
+                    filesArray.add(fileNode);
+
+                    if (fileNode.has("numberOfSheets")) {
+                        totalSheets += fileNode.get("numberOfSheets").asInt();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("ZIP parsing interrupted", e);
+                } catch (Exception e) {
+                    // If parsing fails for a file, add error info
+                    Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                    ObjectNode errorNode = objectMapper.createObjectNode();
+                    errorNode.put("fileName", job.fileName());
+                    errorNode.put("fileSize", job.fileSize());
+                    errorNode.put("error", "Failed to parse: " + cause.getMessage());
+                    filesArray.add(errorNode);
                 }
-
-            } catch (Exception e) {
-                // If parsing fails for a file, add error info
-                ObjectNode errorNode = objectMapper.createObjectNode();
-                errorNode.put("fileName", fileData.fileName);
-                errorNode.put("fileSize", fileData.fileBytes.length);
-                errorNode.put("error", "Failed to parse: " + e.getMessage());
-                filesArray.add(errorNode);
             }
-        }
 
-        rootNode.set("excelFiles", filesArray);
-        rootNode.put("totalSheets", totalSheets);
+            rootNode.set("excelFiles", filesArray);
+            rootNode.put("totalSheets", totalSheets);
 
-        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(rootNode);
+            logger.info("Parsed {} workbooks from {} in {} ms", jobs.size(), zipFileName,
+                    System.currentTimeMillis() - startedAt);
+            return objectMapper.writeValueAsString(rootNode);
+        } finally {
+            for (ParseJob job : jobs) {
+                job.result().cancel(true);
+            }
+            deleteQuietly(workDir);
+        }
     }
 
     /**
-     * Extract all Excel files from ZIP archive
-     *
-     * @param zipBytes ZIP file bytes
-     * @return List of Excel file data
+     * Stream the archive, write each Excel entry to a temp file and queue its parse.
+     * Throws if the archive exceeds a limit; jobs queued so far are cancelled by the caller.
      */
-    private List<ExcelFileData> extractExcelFilesFromZip(byte[] zipBytes) throws IOException {
-        List<ExcelFileData> excelFiles = new ArrayList<>();
-
-        try (ByteArrayInputStream bis = new ByteArrayInputStream(zipBytes);
-             ZipInputStream zis = new ZipInputStream(bis)) {
+    private void spillAndSubmit(InputStream zipStream, Path workDir, List<ParseJob> jobs) throws IOException {
+        CountingInputStream compressed = new CountingInputStream(zipStream);
+        long totalBytes = 0;
+        int entryCount = 0;
 
+        try (ZipInputStream zis = new ZipInputStream(compressed)) {
             ZipEntry entry;
             while ((entry = zis.getNextEntry()) != null) {
-                // Skip directories
-                if (entry.isDirectory()) {
-                    continue;
+                if (++entryCount > maxEntries) {
+                    throw new ZipRejectedException("ZIP rejected: more than " + maxEntries + " entries");
+                }
+                if (entry.getSize() > maxEntryMb * MB) {
+                    throw new ZipRejectedException("ZIP rejected: " + entry.getName() + " is larger than " + maxEntryMb + " MB");
                 }
 
-                String fileName = entry.getName();
-
-                // Only process Excel files (.xlsx, .xls)
-                if (isExcelFile(fileName)) {
-                    // Read the Excel file bytes
-                    byte[] fileBytes = readEntryBytes(zis);
-
-                    ExcelFileData fileData = new ExcelFileData();
-                    fileData.fileName = getFileNameWithoutPath(fileName);
-                    fileData.fileBytes = fileBytes;
+                // Skip directories and non-Excel entries, still inflating them within the limits
+                if (entry.isDirectory() || !isExcelFile(entry.getName())) {
+                    copyEntry(zis, OutputStream.nullOutputStream(), entry.getName(), compressed);
+                    continue;
+                }
 
-                    excelFiles.add(fileData);
+                String fileName = getFileNameWithoutPath(entry.getName());
+                // Never trust entry names for paths
+                Path target = workDir.resolve(jobs.size() + (fileName.toLowerCase().endsWith(".xls") ? ".xls" : ".xlsx"));
+                long size;
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target), BUFFER_SIZE)) {
+                    size = copyEntry(zis, out, entry.getName(), compressed);
+                }
 
-                    System.out.println("📄 Extracted Excel file from ZIP: " + fileData.fileName +
-                            " (Size: " + formatFileSize(fileBytes.length) + ")");
+                totalBytes += size;
+                if (totalBytes > maxTotalMb * MB) {
+                    throw new ZipRejectedException("ZIP rejected: Excel files larger than " + maxTotalMb + " MB in total");
                 }
 
-                zis.closeEntry();
+                File spilled = target.toFile();
+                jobs.add(new ParseJob(fileName, size,
+                        parsePool.submit(() -> siteSurveyExcelService.parseExcelToJson(spilled, fileName))));
+
+                logger.debug("Extracted Excel file from ZIP: {} ({})", fileName, formatFileSize(size));
             }
         }
-
-        return excelFiles;
     }
 
     /**
-     * Read all bytes from a ZIP entry
+     * Copy the current entry, enforcing the entry size and compression ratio limits
      */
-    private byte[] readEntryBytes(ZipInputStream zis) throws IOException {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        byte[] buffer = new byte[4096];
+    private long copyEntry(ZipInputStream zis, OutputStream out, String entryName,
+                           CountingInputStream compressed) throws IOException {
+        long compressedStart = compressed.getCount();
+        long maxEntryBytes = maxEntryMb * MB;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long written = 0;
         int len;
         while ((len = zis.read(buffer)) > 0) {
-            bos.write(buffer, 0, len);
+            written += len;
+            if (written > maxEntryBytes) {
+                throw new ZipRejectedException("ZIP rejected: " + entryName + " is larger than " + maxEntryMb + " MB");
+            }
+            long compressedBytes = Math.max(1, compressed.getCount() - compressedStart);
+            if (written > RATIO_CHECK_THRESHOLD && written / compressedBytes > maxRatio) {
+                throw new ZipRejectedException("ZIP rejected: " + entryName + " expands more than " + maxRatio + " times");
+            }
+            out.write(buffer, 0, len);
+        }
+        return written;
+    }
+
+    private void deleteQuietly(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    // Still open by a cancelled parse; the OS temp cleanup removes it
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Could not delete ZIP work directory {}: {}", dir, e.getMessage());
         }
-        return bos.toByteArray();
     }
 
     /**
@@ -199,22 +312,48 @@ public class ZipExcelExtractorService {
     }
 
     /**
-     * Get summary of ZIP contents without full parsing
+     * Validate a ZIP file on disk (reads only the first entry header)
      */
-    public String getZipSummary(byte[] zipBytes) {
-        try {
-            List<ExcelFileData> excelFiles = extractExcelFilesFromZip(zipBytes);
+    public boolean isValidZipFile(File file, String fileName) {
+        if (file == null || file.length() == 0) {
+            return false;
+        }
 
-            ObjectNode summary = objectMapper.createObjectNode();
-            summary.put("excelFileCount", excelFiles.size());
+        if (fileName != null && !fileName.toLowerCase().endsWith(".zip")) {
+            return false;
+        }
+
+        try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            return zis.getNextEntry() != null;
+        } catch (Exception e) {
+            return false;
+        }
+    }
 
+    /**
+     * Get summary of ZIP contents without full parsing
+     */
+    public String getZipSummary(byte[] zipBytes) {
+        CountingInputStream compressed = new CountingInputStream(new ByteArrayInputStream(zipBytes));
+        try (ZipInputStream zis = new ZipInputStream(compressed)) {
             ArrayNode fileNames = objectMapper.createArrayNode();
             long totalSize = 0;
-            for (ExcelFileData file : excelFiles) {
-                fileNames.add(file.fileName);
-                totalSize += file.fileBytes.length;
+            int entryCount = 0;
+
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                if (++entryCount > maxEntries) {
+                    throw new ZipRejectedException("ZIP rejected: more than " + maxEntries + " entries");
+                }
+                long size = copyEntry(zis, OutputStream.nullOutputStream(), entry.getName(), compressed);
+                if (!entry.isDirectory() && isExcelFile(entry.getName())) {
+                    fileNames.add(getFileNameWithoutPath(entry.getName()));
+                    totalSize += size;
+                }
             }
 
+            ObjectNode summary = objectMapper.createObjectNode();
+            summary.put("excelFileCount", fileNames.size());
             summary.set("excelFileNames", fileNames);
             summary.put("totalExcelSize", formatFileSize(totalSize));
 
@@ -226,10 +365,54 @@ public class ZipExcelExtractorService {
     }
 
     /**
-     * Internal class to hold Excel file data
+     * The archive breaks an extraction limit (entry count, size, compression ratio); the upload
+     * must be refused rather than stored
+     */
+    public static class ZipRejectedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public ZipRejectedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Counts the compressed bytes the ZipInputStream has consumed (for the ratio limit)
      */
-    private static class ExcelFileData {
-        String fileName;
-        byte[] fileBytes;
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
     }
 }
@@ -697,7 +697,7 @@ public class QuotationDesignEditorPanel extends VBox {
 
         task.setOnSucceeded(e -> {
             currentQuotation = task.getValue();
-            currentPdfData = currentQuotation.getPdfData();
+            currentPdfData = quotationService.readPdf(currentQuotation);
             annotations.clear();
             loadVersions();
             renderCurrentPage();
@@ -832,7 +832,7 @@ public class QuotationDesignEditorPanel extends VBox {
 
         task.setOnSucceeded(e -> {
             currentQuotation = task.getValue();
-            currentPdfData = currentQuotation.getPdfData();
+            currentPdfData = quotationService.readPdf(currentQuotation);
             annotations.clear();
             loadVersions();
             renderCurrentPage();
@@ -875,7 +875,7 @@ public class QuotationDesignEditorPanel extends VBox {
 
         task.setOnSucceeded(e -> {
             currentQuotation = task.getValue();
-            currentPdfData = currentQuotation.getPdfData();
+            currentPdfData = quotationService.readPdf(currentQuotation);
             loadAnnotationsFromQuotation();
             renderCurrentPage();
             setStatus("Loaded Version " + version);
@@ -981,7 +981,7 @@ public class QuotationDesignEditorPanel extends VBox {
             Optional<QuotationDesign> result = task.getValue();
             if (result.isPresent()) {
                 currentQuotation = result.get();
-                currentPdfData = currentQuotation.getPdfData();
+                currentPdfData = quotationService.readPdf(currentQuotation);
                 loadAnnotationsFromQuotation();
                 loadVersions();
                 renderCurrentPage();
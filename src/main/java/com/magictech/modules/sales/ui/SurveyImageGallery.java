@@ -0,0 +1,185 @@
+package com.magictech.modules.sales.ui;
+
+import com.magictech.modules.sales.service.SurveyImageService;
+import com.magictech.modules.sales.service.SurveyImageService.ImageEntry;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.control.Tooltip;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.FlowPane;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.stage.Stage;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thumbnails of the pictures in a parsed survey.
+ * Thumbnails load in the background after the gallery is shown; clicking one loads the full
+ * picture into its own window.
+ */
+public class SurveyImageGallery extends VBox {
+
+    private static final double TILE_SIZE = SurveyImageService.THUMBNAIL_SIZE + 10;
+    private static final double MAX_VIEWER_WIDTH = 1000;
+    private static final double MAX_VIEWER_HEIGHT = 750;
+
+    private final SurveyImageService imageService;
+    private final List<ImageEntry> images;
+    private final List<StackPane> tiles = new ArrayList<>();
+
+    public SurveyImageGallery(SurveyImageService imageService, String parsedJson) {
+        this.imageService = imageService;
+        this.images = imageService.listImages(parsedJson);
+
+        buildUI();
+        if (!images.isEmpty()) {
+            loadThumbnails();
+        }
+    }
+
+    public boolean hasImages() {
+        return !images.isEmpty();
+    }
+
+    private void buildUI() {
+        setSpacing(10);
+
+        Label title = new Label("🖼️ Survey Photos (" + images.size() + ")");
+        title.setFont(Font.font("System", FontWeight.BOLD, 16));
+
+        FlowPane tilePane = new FlowPane(10, 10);
+        for (ImageEntry image : images) {
+            StackPane tile = createTile(image);
+            tiles.add(tile);
+            tilePane.getChildren().add(tile);
+        }
+
+        getChildren().addAll(title, tilePane);
+    }
+
+    private StackPane createTile(ImageEntry image) {
+        StackPane tile = new StackPane();
+        tile.setPrefSize(TILE_SIZE, TILE_SIZE);
+        tile.setMaxSize(TILE_SIZE, TILE_SIZE);
+        tile.setStyle("-fx-background-color: #f3f4f6; -fx-background-radius: 6; -fx-cursor: hand;");
+
+        if (image.thumbnailKey() != null) {
+            ProgressIndicator loading = new ProgressIndicator();
+            loading.setMaxSize(30, 30);
+            tile.getChildren().add(loading);
+        } else {
+            Label noPreview = new Label("No preview");
+            noPreview.setStyle("-fx-text-fill: #6b7280;");
+            tile.getChildren().add(noPreview);
+        }
+
+        StringBuilder tip = new StringBuilder();
+        if (image.sheetName() != null) {
+            tip.append(image.sheetName());
+        }
+        if (image.position() != null) {
+            tip.append(tip.length() > 0 ? " - " : "").append(image.position());
+        }
+        if (tip.length() > 0) {
+            Tooltip.install(tile, new Tooltip(tip.toString()));
+        }
+
+        tile.setOnMouseClicked(e -> openImage(image));
+        return tile;
+    }
+
+    private void loadThumbnails() {
+        Task<Void> loadTask = new Task<>() {
+            @Override
+            protected Void call() {
+                for (int i = 0; i < images.size(); i++) {
+                    String thumbnailKey = images.get(i).thumbnailKey();
+                    if (thumbnailKey == null) {
+                        continue;
+                    }
+                    StackPane tile = tiles.get(i);
+                    Image thumbnail;
+                    try {
+                        thumbnail = new Image(new ByteArrayInputStream(imageService.loadImage(thumbnailKey)));
+                    } catch (Exception ex) {
+                        thumbnail = null;
+                    }
+                    Image loaded = thumbnail;
+                    Platform.runLater(() -> showThumbnail(tile, loaded));
+                }
+                return null;
+            }
+        };
+
+        Thread thread = new Thread(loadTask);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void showThumbnail(StackPane tile, Image thumbnail) {
+        if (thumbnail == null || thumbnail.isError()) {
+            Label missing = new Label("Not found");
+            missing.setStyle("-fx-text-fill: #ef4444;");
+            tile.getChildren().setAll(missing);
+            return;
+        }
+        tile.getChildren().setAll(new ImageView(thumbnail));
+    }
+
+    private void openImage(ImageEntry image) {
+        Task<Image> loadTask = new Task<>() {
+            @Override
+            protected Image call() throws Exception {
+                return new Image(new ByteArrayInputStream(imageService.loadImage(image.imageKey())));
+            }
+        };
+
+        loadTask.setOnSucceeded(e -> {
+            Image full = loadTask.getValue();
+            if (full.isError()) {
+                showViewer(image, new Label("This picture format cannot be displayed"));
+                return;
+            }
+            ImageView view = new ImageView(full);
+            view.setPreserveRatio(true);
+            view.setFitWidth(Math.min(full.getWidth(), MAX_VIEWER_WIDTH));
+            view.setFitHeight(Math.min(full.getHeight(), MAX_VIEWER_HEIGHT));
+            showViewer(image, view);
+        });
+
+        loadTask.setOnFailed(e -> showViewer(image,
+                new Label("Failed to load picture: " + loadTask.getException().getMessage())));
+
+        new Thread(loadTask).start();
+    }
+
+    private void showViewer(ImageEntry image, javafx.scene.Node content) {
+        StackPane root = new StackPane(content);
+        root.setPadding(new Insets(10));
+        root.setAlignment(Pos.CENTER);
+
+        ScrollPane scrollPane = new ScrollPane(root);
+        scrollPane.setFitToWidth(true);
+        scrollPane.setFitToHeight(true);
+
+        Stage stage = new Stage();
+        stage.setTitle(image.position() != null ? "Survey Photo - " + image.position() : "Survey Photo");
+        if (getScene() != null) {
+            stage.initOwner(getScene().getWindow());
+        }
+        stage.setScene(new Scene(scrollPane));
+        stage.show();
+    }
+}
@@ -1,5 +1,6 @@
 package com.magictech.modules.sales.ui;
 
+import com.magictech.MainApp;
 import com.magictech.core.auth.User;
 import com.magictech.core.auth.UserRepository;
 import com.magictech.core.auth.UserRole;
@@ -11,8 +12,10 @@ import com.magictech.modules.sales.entity.SiteSurveyData;
 import com.magictech.modules.sales.entity.WorkflowStepCompletion;
 import com.magictech.modules.sales.repository.SiteSurveyDataRepository;
 import com.magictech.modules.sales.service.ProjectWorkflowService;
+import com.magictech.modules.sales.service.SurveyImageService;
 import com.magictech.modules.sales.service.WorkflowStepService;
 import com.magictech.modules.sales.service.WorkflowEmailService;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.geometry.Rectangle2D;
@@ -29,8 +32,6 @@ import javafx.stage.Stage;
 import javafx.stage.StageStyle;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.nio.file.Files;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -840,30 +841,50 @@ public class WorkflowDialog extends Stage {
 
         File file = fileChooser.showOpenDialog(this);
         if (file != null) {
-            try {
-                byte[] fileData = Files.readAllBytes(file.toPath());
-                String fileName = file.getName();
-                boolean isZip = fileName.toLowerCase().endsWith(".zip");
-
-                if (isZip) {
-                    // Upload as ZIP file
-                    workflowService.processSiteSurveySalesWithZip(workflow.getId(), fileData,
-                        fileName, currentUser);
-                } else {
-                    // Upload as Excel file
-                    workflowService.processSiteSurveySales(workflow.getId(), fileData,
-                        fileName, currentUser);
+            String fileName = file.getName();
+            boolean isZip = fileName.toLowerCase().endsWith(".zip");
+
+            // Parsing a large workbook or archive takes a while - keep the dialog responsive
+            Task<Void> uploadTask = new Task<>() {
+                @Override
+                protected Void call() throws Exception {
+                    if (isZip) {
+                        // Upload as ZIP file
+                        // Parsed before the step's transaction opens
+                        String parsedData = workflowService.parseZipUpload(file, fileName);
+                        try {
+                            workflowService.processSiteSurveySalesWithZip(workflow.getId(), file,
+                                fileName, parsedData, currentUser);
+                        } catch (Exception e) {
+                            workflowService.releaseParsedImages(parsedData);
+                            throw e;
+                        }
+                    } else {
+                        // Upload as Excel file
+                        workflowService.processSiteSurveySales(workflow.getId(), file,
+                            fileName, currentUser);
+                    }
+                    return null;
                 }
+            };
 
+            uploadTask.setOnSucceeded(e -> {
+                stepContainer.setDisable(false);
                 showSuccess("Site survey uploaded successfully! Moving to Step 2...");
                 refreshWorkflow();
 
                 // Automatically progress to Step 2
                 currentStep = 2;
                 loadCurrentStep();
-            } catch (Exception ex) {
-                showError("Failed to upload site survey: " + ex.getMessage());
-            }
+            });
+
+            uploadTask.setOnFailed(e -> {
+                stepContainer.setDisable(false);
+                showError("Failed to upload site survey: " + uploadTask.getException().getMessage());
+            });
+
+            stepContainer.setDisable(true);
+            new Thread(uploadTask).start();
         }
     }
 
@@ -1226,8 +1247,8 @@ public class WorkflowDialog extends Stage {
 
         File file = fileChooser.showSaveDialog(this);
         if (file != null) {
-            try (FileOutputStream fos = new FileOutputStream(file)) {
-                fos.write(sizing.getExcelFile());
+            try {
+                workflowService.saveFileTo(sizing.getExcelBlobKey(), file);
                 showSuccess("Sizing & Pricing file downloaded successfully!\nSaved to: " + file.getAbsolutePath());
             } catch (Exception ex) {
                 showError("Failed to download sizing & pricing: " + ex.getMessage());
@@ -1507,8 +1528,8 @@ public class WorkflowDialog extends Stage {
 
         File file = fileChooser.showSaveDialog(this);
         if (file != null) {
-            try (java.io.FileOutputStream fos = new java.io.FileOutputStream(file)) {
-                fos.write(bankGuarantee.getExcelFile());
+            try {
+                workflowService.saveFileTo(bankGuarantee.getExcelBlobKey(), file);
                 showSuccess("Bank guarantee downloaded successfully!\nSaved to: " + file.getAbsolutePath());
             } catch (Exception ex) {
                 showError("Failed to download bank guarantee: " + ex.getMessage());
@@ -2268,25 +2289,43 @@ public class WorkflowDialog extends Stage {
 
         File file = fileChooser.showOpenDialog(this);
         if (file != null) {
-            try {
-                byte[] fileData = Files.readAllBytes(file.toPath());
-                String fileName = file.getName();
-                boolean isZip = fileName.toLowerCase().endsWith(".zip");
-
-                if (isZip) {
-                    workflowService.confirmProjectFinishedWithZip(workflow.getId(), fileData,
-                        fileName, currentUser);
-                } else {
-                    workflowService.confirmProjectFinished(workflow.getId(), fileData,
-                        fileName, currentUser);
+            String fileName = file.getName();
+            boolean isZip = fileName.toLowerCase().endsWith(".zip");
+
+            Task<Void> uploadTask = new Task<>() {
+                @Override
+                protected Void call() throws Exception {
+                    if (isZip) {
+                        String parsedData = workflowService.parseZipUpload(file, fileName);
+                        try {
+                            workflowService.confirmProjectFinishedWithZip(workflow.getId(), file,
+                                fileName, parsedData, currentUser);
+                        } catch (Exception e) {
+                            workflowService.releaseParsedImages(parsedData);
+                            throw e;
+                        }
+                    } else {
+                        workflowService.confirmProjectFinished(workflow.getId(), file,
+                            fileName, currentUser);
+                    }
+                    return null;
                 }
+            };
 
+            uploadTask.setOnSucceeded(e -> {
+                stepContainer.setDisable(false);
                 showSuccess("Project cost uploaded successfully!");
                 refreshWorkflow();
                 loadCurrentStep();
-            } catch (Exception ex) {
-                showError("Failed to upload project cost: " + ex.getMessage());
-            }
+            });
+
+            uploadTask.setOnFailed(e -> {
+                stepContainer.setDisable(false);
+                showError("Failed to upload project cost: " + uploadTask.getException().getMessage());
+            });
+
+            stepContainer.setDisable(true);
+            new Thread(uploadTask).start();
         }
     }
 
@@ -2693,8 +2732,8 @@ public class WorkflowDialog extends Stage {
 
         File file = fileChooser.showSaveDialog(this);
         if (file != null) {
-            try (FileOutputStream fos = new FileOutputStream(file)) {
-                fos.write(survey.getExcelFile());
+            try {
+                workflowService.saveFileTo(survey.getExcelBlobKey(), file);
                 showSuccess("Excel file downloaded successfully!\nSaved to: " + file.getAbsolutePath());
             } catch (Exception ex) {
                 showError("Failed to download Excel file: " + ex.getMessage());
@@ -2713,8 +2752,8 @@ public class WorkflowDialog extends Stage {
 
         File file = fileChooser.showSaveDialog(this);
         if (file != null) {
-            try (FileOutputStream fos = new FileOutputStream(file)) {
-                fos.write(survey.getZipFile());
+            try {
+                workflowService.saveFileTo(survey.getZipBlobKey(), file);
                 showSuccess("ZIP archive downloaded successfully!\nSaved to: " + file.getAbsolutePath());
             } catch (Exception ex) {
                 showError("Failed to download ZIP archive: " + ex.getMessage());
@@ -2760,13 +2799,23 @@ public class WorkflowDialog extends Stage {
         dataTextArea.setPrefRowCount(15);
         dataTextArea.setStyle("-fx-font-family: 'Monospaced'; -fx-font-size: 11px;");
 
-        if (survey.getParsedData() != null && !survey.getParsedData().isEmpty()) {
-            dataTextArea.setText(survey.getParsedData());
+        String parsedData = workflowService.getParsedData(survey.getParsedDataId());
+        if (parsedData != null && !parsedData.isEmpty()) {
+            dataTextArea.setText(parsedData);
         } else {
             dataTextArea.setText("No parsed data available");
         }
 
-        content.getChildren().addAll(metadataTitle, metadataGrid, separator, dataTitle, dataTextArea);
+        content.getChildren().addAll(metadataTitle, metadataGrid, separator);
+
+        // Photos: thumbnails first, full picture on click
+        SurveyImageGallery gallery = new SurveyImageGallery(
+            MainApp.getSpringContext().getBean(SurveyImageService.class), parsedData);
+        if (gallery.hasImages()) {
+            content.getChildren().addAll(gallery, new Separator());
+        }
+
+        content.getChildren().addAll(dataTitle, dataTextArea);
 
         ScrollPane scrollPane = new ScrollPane(content);
         scrollPane.setFitToWidth(true);
@@ -2896,9 +2945,8 @@ public class WorkflowDialog extends Stage {
                 try {
                     System.out.println("🗑️ RECOVERY: Deleting site survey for workflow " + workflow.getId());
 
-                    // Soft delete the survey
-                    survey.setActive(false);
-                    siteSurveyRepository.save(survey);
+                    // Soft delete the survey and release its files
+                    workflowService.deleteSiteSurvey(survey.getId());
 
                     showSuccess("Site survey deleted successfully.\n\nPlease upload a new file.");
 
@@ -3000,8 +3048,7 @@ public class WorkflowDialog extends Stage {
                 try {
                     System.out.println("🗑️ RECOVERY: Deleting sizing/pricing for workflow " + workflow.getId());
 
-                    sizing.setActive(false);
-                    sizingPricingRepository.save(sizing);
+                    workflowService.deleteSizingPricing(sizing.getId());
 
                     showSuccess("Sizing/pricing file deleted successfully.\n\nPlease request from Presales again.");
                     refreshWorkflow();
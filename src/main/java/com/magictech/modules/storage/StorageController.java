@@ -4,29 +4,44 @@ import com.magictech.core.auth.User;
 import com.magictech.core.auth.UserRole;
 import com.magictech.core.module.BaseModuleController;
 import com.magictech.core.ui.SceneManager;
+import com.magictech.core.ui.components.BackgroundTableFilter;
+import com.magictech.core.ui.components.PagedTableLoader;
+import com.magictech.modules.storage.dto.CustomFieldQuery;
+import com.magictech.modules.storage.dto.StocktakeReport;
+import com.magictech.modules.storage.dto.CustomFieldQuery.FieldType;
+import com.magictech.modules.storage.dto.CustomFieldQuery.Operator;
+import com.magictech.modules.storage.entity.StorageColumnConfig;
 import com.magictech.modules.storage.entity.StorageItem;
 import com.magictech.modules.storage.entity.StorageLocation;
 import com.magictech.modules.storage.entity.StorageItemLocation;
 import com.magictech.modules.storage.model.StorageItemLocationViewModel;
+import com.magictech.modules.storage.service.StockLedger;
+import com.magictech.modules.storage.service.StorageBulkOperations;
+import com.magictech.modules.storage.service.StocktakeService;
+import com.magictech.modules.storage.service.StocktakeSession;
 import com.magictech.modules.storage.service.StorageService;
 import com.magictech.modules.storage.service.StorageLocationService;
 import com.magictech.modules.storage.service.StorageLocationService.LocationSummary;
 import com.magictech.modules.storage.service.StorageItemLocationService;
+import com.magictech.modules.storage.service.StorageColumnConfigService;
 import com.magictech.modules.storage.service.ExcelImportService;
+import com.magictech.modules.storage.service.ExcelExportService;
 import com.magictech.modules.storage.service.AvailabilityRequestService;
 import com.magictech.modules.storage.entity.AvailabilityRequest;
 import com.magictech.modules.storage.entity.AvailabilityRequest.RequestStatus;
 import com.magictech.modules.storage.ui.LocationCardsPane;
 import com.magictech.core.email.EmailService;
 import com.magictech.core.email.EmailException;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.concurrent.Task;
+import javafx.event.ActionEvent;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.CheckBoxTableCell;
 import javafx.scene.control.cell.PropertyValueFactory;
@@ -36,8 +51,11 @@ import javafx.stage.FileChooser;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -67,12 +85,24 @@ public class StorageController extends BaseModuleController {
     @Autowired
     private ExcelImportService excelImportService;
 
+    @Autowired
+    private ExcelExportService excelExportService;
+
     @Autowired
     private AvailabilityRequestService availabilityRequestService;
 
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private StorageColumnConfigService columnConfigService;
+
+    @Autowired
+    private StorageBulkOperations bulkOperations;
+
+    @Autowired
+    private StocktakeService stocktakeService;
+
     // View modes
     private enum ViewMode { CARDS, LOCATION_SHEET, TOTAL_SHEET }
     private ViewMode currentViewMode = ViewMode.CARDS;
@@ -94,16 +124,19 @@ public class StorageController extends BaseModuleController {
     // Table components
     private TableView<StorageItemLocationViewModel> itemTable;
     private ObservableList<StorageItemLocationViewModel> tableItems;
-    private FilteredList<StorageItemLocationViewModel> filteredItems;
-    private Map<StorageItemLocationViewModel, BooleanProperty> selectionMap = new HashMap<>();
+    private PagedTableLoader<StorageItemLocationViewModel> tablePager;
+    private volatile String searchTerm; // Read by page fetches on background threads
+    private volatile CustomFieldQuery customQuery; // Custom field filter/sort, applied in SQL
 
     // Toolbar components
     private TextField searchField;
+    private PauseTransition searchDebounce;
     private Button addButton, editButton, deleteButton, refreshButton;
-    private Button transferButton, importButton, exportButton;
+    private Button transferButton, importButton, exportButton, customFieldsButton, stocktakeButton;
     private Label selectedCountLabel;
     private CheckBox selectAllCheckbox;
     private ProgressIndicator loadingIndicator;
+    private Label loadingLabel;
 
     // Background
     private com.magictech.core.ui.components.DashboardBackgroundPane backgroundPane;
@@ -585,7 +618,15 @@ public class StorageController extends BaseModuleController {
         loadingIndicator.setVisible(false);
         loadingIndicator.setMaxSize(60, 60);
 
-        StackPane tableContainer = new StackPane(itemTable, loadingIndicator);
+        // Progress text for long-running operations (e.g. Excel import)
+        loadingLabel = new Label();
+        loadingLabel.setStyle("-fx-text-fill: white; -fx-font-size: 13px; -fx-font-weight: bold;");
+        loadingLabel.visibleProperty().bind(loadingIndicator.visibleProperty());
+        loadingLabel.setMouseTransparent(true);
+        StackPane.setAlignment(loadingLabel, Pos.CENTER);
+        loadingLabel.setTranslateY(50);
+
+        StackPane tableContainer = new StackPane(itemTable, loadingIndicator, loadingLabel);
         VBox.setVgrow(tableContainer, Priority.ALWAYS);
 
         HBox topBar = new HBox(15);
@@ -632,11 +673,21 @@ public class StorageController extends BaseModuleController {
             importButton = createStyledButton("📤 Import Excel", "#0ea5e9", "#0284c7");
             importButton.setOnAction(e -> handleExcelImport());
             toolbar.getChildren().add(importButton);
+
+            // A stocktake counts one location
+            if (!isTotalView) {
+                stocktakeButton = createStyledButton("📋 Stocktake", "#14b8a6", "#0d9488");
+                stocktakeButton.setOnAction(e -> handleStocktake());
+                toolbar.getChildren().add(stocktakeButton);
+            }
         }
 
         exportButton = createStyledButton("📥 Export", "#8b5cf6", "#7c3aed");
         exportButton.setOnAction(e -> handleExcelExport());
 
+        customFieldsButton = createStyledButton(customFieldsButtonText(), "#64748b", "#475569");
+        customFieldsButton.setOnAction(e -> handleCustomFieldQuery());
+
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
 
@@ -653,9 +704,12 @@ public class StorageController extends BaseModuleController {
             "-fx-border-width: 1;" +
             "-fx-padding: 8 12;"
         );
-        searchField.textProperty().addListener((obs, old, newVal) -> handleSearch(newVal));
+        // Each search is a database query - wait until typing pauses
+        searchDebounce = new PauseTransition(BackgroundTableFilter.DEFAULT_DEBOUNCE);
+        searchDebounce.setOnFinished(e -> handleSearch(searchField.getText()));
+        searchField.textProperty().addListener((obs, old, newVal) -> searchDebounce.playFromStart());
 
-        toolbar.getChildren().addAll(refreshButton, exportButton, spacer, searchField);
+        toolbar.getChildren().addAll(refreshButton, exportButton, customFieldsButton, spacer, searchField);
         return toolbar;
     }
 
@@ -689,28 +743,18 @@ public class StorageController extends BaseModuleController {
         selectAllCheckbox = new CheckBox();
         selectAllCheckbox.setOnAction(e -> {
             boolean selectAll = selectAllCheckbox.isSelected();
-            for (StorageItemLocationViewModel item : filteredItems) {
-                selectionMap.get(item).set(selectAll);
+            if (tablePager == null) return;
+            for (StorageItemLocationViewModel item : tableItems) {
+                tablePager.selectedProperty(item).set(selectAll);
             }
         });
         selectCol.setGraphic(selectAllCheckbox);
 
-        selectCol.setCellValueFactory(cellData -> {
-            StorageItemLocationViewModel item = cellData.getValue();
-            return selectionMap.computeIfAbsent(item, k -> {
-                BooleanProperty prop = new SimpleBooleanProperty(false);
-                prop.addListener((obs, oldVal, newVal) -> {
-                    updateSelectedCount();
-                    Platform.runLater(() -> table.refresh());
-                });
-                return prop;
-            });
-        });
+        // Check-box state lives in the loader, keyed by item-location id
+        selectCol.setCellValueFactory(cellData -> checkedProperty(cellData.getValue()));
 
-        selectCol.setCellFactory(col -> new CheckBoxTableCell<>(index -> {
-            StorageItemLocationViewModel item = table.getItems().get(index);
-            return selectionMap.get(item);
-        }));
+        selectCol.setCellFactory(col -> new CheckBoxTableCell<>(index ->
+                checkedProperty(table.getItems().get(index))));
 
         table.getColumns().add(selectCol);
 
@@ -747,6 +791,7 @@ public class StorageController extends BaseModuleController {
         TableColumn<StorageItemLocationViewModel, String> mfgCol = new TableColumn<>("Manufacture");
         mfgCol.setPrefWidth(150);
         mfgCol.setCellValueFactory(new PropertyValueFactory<>("manufacture"));
+        PagedTableLoader.setSortProperty(mfgCol, "manufacture");
         mfgCol.setStyle("-fx-alignment: CENTER-LEFT; -fx-padding: 0 10 0 10;");
         table.getColumns().add(mfgCol);
 
@@ -754,6 +799,7 @@ public class StorageController extends BaseModuleController {
         TableColumn<StorageItemLocationViewModel, String> productCol = new TableColumn<>("Product Name");
         productCol.setPrefWidth(200);
         productCol.setCellValueFactory(new PropertyValueFactory<>("productName"));
+        PagedTableLoader.setSortProperty(productCol, "productName");
         productCol.setStyle("-fx-alignment: CENTER-LEFT; -fx-padding: 0 10 0 10;");
         table.getColumns().add(productCol);
 
@@ -761,6 +807,7 @@ public class StorageController extends BaseModuleController {
         TableColumn<StorageItemLocationViewModel, String> codeCol = new TableColumn<>("Code");
         codeCol.setPrefWidth(120);
         codeCol.setCellValueFactory(new PropertyValueFactory<>("code"));
+        PagedTableLoader.setSortProperty(codeCol, "code");
         codeCol.setStyle("-fx-alignment: CENTER;");
         table.getColumns().add(codeCol);
 
@@ -768,6 +815,7 @@ public class StorageController extends BaseModuleController {
         TableColumn<StorageItemLocationViewModel, String> serialCol = new TableColumn<>("Serial Number");
         serialCol.setPrefWidth(130);
         serialCol.setCellValueFactory(new PropertyValueFactory<>("serialNumber"));
+        PagedTableLoader.setSortProperty(serialCol, "serialNumber");
         serialCol.setStyle("-fx-alignment: CENTER;");
         table.getColumns().add(serialCol);
 
@@ -796,12 +844,14 @@ public class StorageController extends BaseModuleController {
                 }
             }
         });
+        PagedTableLoader.setSortProperty(qtyCol, "quantity");
         table.getColumns().add(qtyCol);
 
         // Bin Location Column
         TableColumn<StorageItemLocationViewModel, String> binCol = new TableColumn<>("Bin Location");
         binCol.setPrefWidth(150);
         binCol.setCellValueFactory(new PropertyValueFactory<>("binLocation"));
+        PagedTableLoader.setSortProperty(binCol, "binLocation");
         binCol.setStyle("-fx-alignment: CENTER;");
         table.getColumns().add(binCol);
 
@@ -826,6 +876,7 @@ public class StorageController extends BaseModuleController {
                 }
             }
         });
+        PagedTableLoader.setSortProperty(priceCol, "price");
         table.getColumns().add(priceCol);
 
         // Row factory
@@ -837,11 +888,9 @@ public class StorageController extends BaseModuleController {
                     if (empty || item == null) {
                         setStyle("");
                     } else {
-                        BooleanProperty selected = selectionMap.get(item);
-                        if (selected != null) {
-                            selected.addListener((obs, oldVal, newVal) -> updateRowStyle(this, newVal));
-                            updateRowStyle(this, selected.get());
-                        }
+                        BooleanProperty selected = checkedProperty(item);
+                        selected.addListener((obs, oldVal, newVal) -> updateRowStyle(this, newVal));
+                        updateRowStyle(this, selected.get());
                     }
                 }
             };
@@ -910,100 +959,196 @@ public class StorageController extends BaseModuleController {
 
     private void loadLocationSheetData() {
         if (currentLocation == null) return;
+        loadSheetPages(currentLocation.getLocationId(), currentLocation.getLocationName());
+    }
+
+    private void loadTotalSheetData() {
+        loadSheetPages(null, "all locations");
+    }
 
+    /**
+     * Bind the item table to a keyset-paged source: the first page is shown right away and
+     * further pages are fetched as the user scrolls (locationId null = all locations)
+     */
+    private void loadSheetPages(Long locationId, String scopeName) {
         showLoading(true);
-        tableItems = FXCollections.observableArrayList();
-        filteredItems = new FilteredList<>(tableItems, p -> true);
-        itemTable.setItems(filteredItems);
-        selectionMap.clear();
+        searchTerm = searchField != null ? searchField.getText() : null;
 
-        Task<List<StorageItemLocation>> loadTask = new Task<>() {
-            @Override
-            protected List<StorageItemLocation> call() {
-                return itemLocationService.getItemsInLocation(currentLocation.getLocationId());
-            }
-        };
+        // The previous loader may still be bound to this table (refresh of the same sheet)
+        if (tablePager != null) {
+            tablePager.dispose();
+        }
+        tablePager = new PagedTableLoader<>(itemTable, PagedTableLoader.DEFAULT_PAGE_SIZE,
+                StorageItemLocationViewModel::getItemLocationId,
+                (lastRow, limit, sort) -> itemLocationService.getItemLocationsPage(
+                                locationId, lastRow != null ? lastRow.getItemLocationId() : null, searchTerm,
+                                customQuery, sort, limit)
+                        .stream()
+                        .map(StorageItemLocationViewModel::new)
+                        .collect(Collectors.toList()));
+        tableItems = tablePager.getItems();
+        updateSelectedCount();
+
+        tablePager.setOnSelectionChanged(() -> {
+            updateSelectedCount();
+            Platform.runLater(() -> itemTable.refresh());
+        });
 
-        loadTask.setOnSucceeded(e -> {
-            List<StorageItemLocation> items = loadTask.getValue();
-            Platform.runLater(() -> {
-                for (StorageItemLocation sil : items) {
-                    StorageItemLocationViewModel vm = new StorageItemLocationViewModel(sil);
-                    tableItems.add(vm);
-                    BooleanProperty prop = new SimpleBooleanProperty(false);
-                    prop.addListener((obs, oldVal, newVal) -> updateSelectedCount());
-                    selectionMap.put(vm, prop);
-                }
-                showLoading(false);
-                System.out.println("✓ Loaded " + items.size() + " items for " + currentLocation.getLocationName());
-            });
+        tablePager.setOnPageLoaded(page -> {
+            showLoading(false);
+            System.out.println("✓ Loaded " + tableItems.size() + " items for " + scopeName +
+                    (tablePager.isExhausted() ? "" : " (more on scroll)"));
         });
 
-        loadTask.setOnFailed(e -> {
+        tablePager.setOnFailed(ex -> {
             showLoading(false);
-            showError("Failed to load items: " + loadTask.getException().getMessage());
+            showError("Failed to load items: " + ex.getMessage());
         });
 
-        new Thread(loadTask).start();
+        tablePager.reset();
     }
 
-    private void loadTotalSheetData() {
-        showLoading(true);
-        tableItems = FXCollections.observableArrayList();
-        filteredItems = new FilteredList<>(tableItems, p -> true);
-        itemTable.setItems(filteredItems);
-        selectionMap.clear();
+    // ==================== HANDLERS ====================
+
+    private void handleSearch(String searchText) {
+        if (tablePager == null) return;
 
-        Task<List<StorageItemLocation>> loadTask = new Task<>() {
+        // Search runs in the database so rows that are not loaded yet are found too
+        searchTerm = searchText;
+        tablePager.clearSelection();
+        updateSelectedCount();
+        tablePager.reset();
+    }
+
+    /**
+     * Filter and sort the sheet on custom (non-default) columns. The query runs in the database,
+     * so it covers rows that are not loaded yet and keeps paging on scroll.
+     */
+    private void handleCustomFieldQuery() {
+        List<StorageColumnConfig> customColumns = columnConfigService.getAllColumns().stream()
+                .filter(col -> !Boolean.TRUE.equals(col.getIsDefault()))
+                .collect(Collectors.toList());
+        if (customColumns.isEmpty()) {
+            showWarning("No custom columns are configured.");
+            return;
+        }
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Custom Fields");
+        dialog.setHeaderText("Filter and sort items by a custom column");
+
+        ButtonType applyBtn = new ButtonType("Apply", ButtonBar.ButtonData.OK_DONE);
+        ButtonType clearBtn = new ButtonType("Clear", ButtonBar.ButtonData.OTHER);
+        dialog.getDialogPane().getButtonTypes().addAll(applyBtn, clearBtn, ButtonType.CANCEL);
+
+        ComboBox<StorageColumnConfig> columnCombo = new ComboBox<>();
+        columnCombo.getItems().addAll(customColumns);
+        columnCombo.setPromptText("Select column...");
+        columnCombo.setCellFactory(lv -> new ListCell<>() {
             @Override
-            protected List<StorageItemLocation> call() {
-                return itemLocationService.getAllItemLocations();
+            protected void updateItem(StorageColumnConfig col, boolean empty) {
+                super.updateItem(col, empty);
+                setText(empty || col == null ? null : col.getColumnLabel() + " (" + FieldType.of(col) + ")");
             }
-        };
-
-        loadTask.setOnSucceeded(e -> {
-            List<StorageItemLocation> items = loadTask.getValue();
-            Platform.runLater(() -> {
-                for (StorageItemLocation sil : items) {
-                    StorageItemLocationViewModel vm = new StorageItemLocationViewModel(sil);
-                    tableItems.add(vm);
-                    BooleanProperty prop = new SimpleBooleanProperty(false);
-                    prop.addListener((obs, oldVal, newVal) -> updateSelectedCount());
-                    selectionMap.put(vm, prop);
-                }
-                showLoading(false);
-                System.out.println("✓ Loaded " + items.size() + " total items across all locations");
+        });
+        columnCombo.setButtonCell(columnCombo.getCellFactory().call(null));
+
+        ComboBox<Operator> operatorCombo = new ComboBox<>();
+        operatorCombo.setPromptText("No filter");
+        TextField valueField = new TextField();
+        CheckBox sortCheck = new CheckBox("Sort by this column");
+        CheckBox descendingCheck = new CheckBox("Descending");
+        descendingCheck.disableProperty().bind(sortCheck.selectedProperty().not());
+
+        columnCombo.valueProperty().addListener((obs, old, col) -> {
+            operatorCombo.getItems().setAll(col != null ? Operator.forType(FieldType.of(col)) : List.of());
+            operatorCombo.setValue(null);
+            valueField.setPromptText(col == null ? "" : switch (FieldType.of(col)) {
+                case NUMBER -> "e.g. 12.5";
+                case DATE -> "yyyy-mm-dd";
+                case BOOLEAN -> "yes / no";
+                case TEXT -> "Value";
             });
         });
+        valueField.disableProperty().bind(operatorCombo.valueProperty().isNull()
+                .or(operatorCombo.valueProperty().isEqualTo(Operator.IS_SET)));
+
+        // Show the current query
+        CustomFieldQuery current = customQuery;
+        if (current != null) {
+            String field = !current.filters().isEmpty() ? current.filters().get(0).field()
+                    : current.sort() != null ? current.sort().field() : null;
+            customColumns.stream().filter(col -> col.getColumnName().equals(field)).findFirst()
+                    .ifPresent(columnCombo::setValue);
+            if (!current.filters().isEmpty()) {
+                operatorCombo.setValue(current.filters().get(0).operator());
+                valueField.setText(current.filters().get(0).value());
+            }
+            sortCheck.setSelected(current.sort() != null);
+            descendingCheck.setSelected(current.sort() != null && current.sort().descending());
+        }
 
-        loadTask.setOnFailed(e -> {
-            showLoading(false);
-            showError("Failed to load items: " + loadTask.getException().getMessage());
-        });
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.setPadding(new Insets(20));
+        grid.add(new Label("Column:"), 0, 0);
+        grid.add(columnCombo, 1, 0);
+        grid.add(new Label("Condition:"), 0, 1);
+        grid.add(operatorCombo, 1, 1);
+        grid.add(new Label("Value:"), 0, 2);
+        grid.add(valueField, 1, 2);
+        grid.add(new HBox(15, sortCheck, descendingCheck), 1, 3);
+        dialog.getDialogPane().setContent(grid);
 
-        new Thread(loadTask).start();
+        Optional<ButtonType> result = dialog.showAndWait();
+        if (result.isEmpty() || result.get() == ButtonType.CANCEL) {
+            return;
+        }
+
+        if (result.get() == clearBtn) {
+            applyCustomFieldQuery(null);
+            return;
+        }
+
+        StorageColumnConfig column = columnCombo.getValue();
+        if (column == null) {
+            showWarning("Please select a column.");
+            return;
+        }
+        try {
+            List<CustomFieldQuery.Filter> filters = operatorCombo.getValue() != null
+                    ? List.of(CustomFieldQuery.Filter.on(column, operatorCombo.getValue(), valueField.getText()))
+                    : List.of();
+            CustomFieldQuery.Sort sort = sortCheck.isSelected()
+                    ? CustomFieldQuery.Sort.on(column, descendingCheck.isSelected())
+                    : null;
+            CustomFieldQuery query = new CustomFieldQuery(filters, sort);
+            applyCustomFieldQuery(query.isEmpty() ? null : query);
+        } catch (IllegalArgumentException ex) {
+            showError(ex.getMessage());
+        }
     }
 
-    // ==================== HANDLERS ====================
+    private void applyCustomFieldQuery(CustomFieldQuery query) {
+        customQuery = query;
+        customFieldsButton.setText(customFieldsButtonText());
+        if (tablePager == null) return;
 
-    private void handleSearch(String searchText) {
-        if (filteredItems == null) return;
-
-        filteredItems.setPredicate(item -> {
-            if (searchText == null || searchText.isEmpty()) return true;
-            String lower = searchText.toLowerCase();
-            return (item.getManufacture() != null && item.getManufacture().toLowerCase().contains(lower)) ||
-                   (item.getProductName() != null && item.getProductName().toLowerCase().contains(lower)) ||
-                   (item.getCode() != null && item.getCode().toLowerCase().contains(lower)) ||
-                   (item.getSerialNumber() != null && item.getSerialNumber().toLowerCase().contains(lower)) ||
-                   (item.getLocationName() != null && item.getLocationName().toLowerCase().contains(lower));
-        });
+        tablePager.clearSelection();
+        updateSelectedCount();
+        if (query != null && query.sort() != null) {
+            itemTable.getSortOrder().clear(); // A header sort would take precedence
+        }
+        tablePager.reset();
+    }
+
+    private String customFieldsButtonText() {
+        return customQuery != null ? "🧩 Custom Fields ●" : "🧩 Custom Fields";
     }
 
     private void updateSelectedCount() {
-        long count = selectionMap.values().stream()
-                .filter(BooleanProperty::get)
-                .count();
+        int count = tablePager != null ? tablePager.getSelectedRows().size() : 0;
 
         Platform.runLater(() -> {
             if (count > 0) {
@@ -1011,7 +1156,7 @@ public class StorageController extends BaseModuleController {
                 selectedCountLabel.setVisible(true);
                 if (deleteButton != null) deleteButton.setDisable(false);
                 if (editButton != null) editButton.setDisable(count != 1);
-                if (transferButton != null) transferButton.setDisable(count != 1);
+                if (transferButton != null) transferButton.setDisable(false);
             } else {
                 selectedCountLabel.setVisible(false);
                 if (deleteButton != null) deleteButton.setDisable(true);
@@ -1021,11 +1166,13 @@ public class StorageController extends BaseModuleController {
         });
     }
 
+    private BooleanProperty checkedProperty(StorageItemLocationViewModel item) {
+        // Rows can still be rendered after cleanup dropped the loader
+        return tablePager != null ? tablePager.selectedProperty(item) : new SimpleBooleanProperty(false);
+    }
+
     private List<StorageItemLocationViewModel> getSelectedItems() {
-        return selectionMap.entrySet().stream()
-                .filter(entry -> entry.getValue().get())
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+        return tablePager != null ? tablePager.getSelectedRows() : List.of();
     }
 
     private void handleAddItem() {
@@ -1102,13 +1249,16 @@ public class StorageController extends BaseModuleController {
                     entity.setPrice(updated.getPrice());
                     storageService.updateItem(entity.getId(), entity);
 
-                    // Update quantity in location
-                    itemLocationService.setItemQuantityInLocation(
-                        item.getItemId(),
-                        item.getLocationId(),
-                        updated.getQuantity(),
-                        currentUser != null ? currentUser.getUsername() : "system"
-                    );
+                    // Update quantity in location - refused if it changed since the sheet was loaded
+                    if (!Objects.equals(updated.getQuantity(), item.getQuantity())) {
+                        itemLocationService.setItemQuantityInLocation(
+                            item.getItemId(),
+                            item.getLocationId(),
+                            item.getQuantity(),
+                            updated.getQuantity(),
+                            currentUser != null ? currentUser.getUsername() : "system"
+                        );
+                    }
                     return null;
                 }
             };
@@ -1139,20 +1289,21 @@ public class StorageController extends BaseModuleController {
 
         Optional<ButtonType> result = confirm.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            Task<Void> deleteTask = new Task<>() {
+            List<Long> itemLocationIds = selected.stream()
+                    .map(StorageItemLocationViewModel::getItemLocationId)
+                    .collect(Collectors.toList());
+
+            Task<Integer> deleteTask = new Task<>() {
                 @Override
-                protected Void call() {
-                    for (StorageItemLocationViewModel vm : selected) {
-                        // Use hard delete to actually remove from database
-                        itemLocationService.hardRemoveItemFromLocation(vm.getItemId(), vm.getLocationId());
-                    }
-                    return null;
+                protected Integer call() {
+                    // Hard delete, one statement per chunk of selected rows
+                    return bulkOperations.deleteItemLocations(itemLocationIds);
                 }
             };
 
             deleteTask.setOnSucceeded(e -> {
                 Platform.runLater(() -> {
-                    showSuccess("✓ Permanently deleted " + selected.size() + " item(s) from database");
+                    showSuccess("✓ Permanently deleted " + deleteTask.getValue() + " item(s) from database");
                     refresh();
                 });
             });
@@ -1164,8 +1315,12 @@ public class StorageController extends BaseModuleController {
 
     private void handleTransferItem() {
         List<StorageItemLocationViewModel> selected = getSelectedItems();
-        if (selected.isEmpty() || selected.size() > 1) {
-            showWarning("Please select exactly ONE item to transfer");
+        if (selected.isEmpty()) {
+            showWarning("Please select at least one item to transfer");
+            return;
+        }
+        if (selected.size() > 1) {
+            handleBulkTransfer(selected);
             return;
         }
 
@@ -1221,6 +1376,295 @@ public class StorageController extends BaseModuleController {
         });
     }
 
+    // ==================== STOCKTAKE ====================
+
+    /**
+     * Count the whole location: the baseline is frozen once, scans are counted in memory and
+     * all adjustments are applied in one batch on commit
+     */
+    private void handleStocktake() {
+        if (currentViewMode != ViewMode.LOCATION_SHEET || currentLocation == null) {
+            showWarning("Open a location to start a stocktake");
+            return;
+        }
+        Long locationId = currentLocation.getLocationId();
+        String username = currentUser != null ? currentUser.getUsername() : "system";
+
+        showLoading(true);
+        Task<StocktakeSession> startTask = new Task<>() {
+            @Override
+            protected StocktakeSession call() {
+                return stocktakeService.startSession(locationId, username);
+            }
+        };
+
+        startTask.setOnSucceeded(e -> {
+            showLoading(false);
+            showStocktakeDialog(startTask.getValue());
+        });
+
+        startTask.setOnFailed(e -> {
+            showLoading(false);
+            showError("Could not start stocktake: " + startTask.getException().getMessage());
+        });
+        new Thread(startTask).start();
+    }
+
+    private void showStocktakeDialog(StocktakeSession session) {
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("📋 Stocktake - " + session.getLocationName());
+        dialog.setHeaderText("Baseline frozen " +
+                session.getStartedAt().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")) +
+                " (" + session.getBaselineSize() + " rows)\nScan barcodes or import a CSV of code,quantity");
+
+        ButtonType commitBtn = new ButtonType("Commit Counts", ButtonBar.ButtonData.OK_DONE);
+        ButtonType discardBtn = new ButtonType("Discard", ButtonBar.ButtonData.OTHER);
+        ButtonType keepOpenBtn = new ButtonType("Keep Open", ButtonBar.ButtonData.CANCEL_CLOSE);
+        dialog.getDialogPane().getButtonTypes().addAll(commitBtn, discardBtn, keepOpenBtn);
+        // Scanners end every code with Enter - it must not commit the count
+        ((Button) dialog.getDialogPane().lookupButton(commitBtn)).setDefaultButton(false);
+
+        // Counted rows, latest scan first
+        ObservableList<StocktakeSession.ScanResult> countedRows = FXCollections.observableArrayList();
+        Runnable reloadRows = () -> {
+            List<StocktakeSession.ScanResult> rows = new ArrayList<>();
+            session.getCounts(false).forEach((row, counted) ->
+                    rows.add(new StocktakeSession.ScanResult(row.code(), row, counted)));
+            session.getUnmatchedCodes().forEach((code, counted) ->
+                    rows.add(new StocktakeSession.ScanResult(code, null, counted, session.getRowsSharing(code))));
+            countedRows.setAll(rows);
+        };
+        reloadRows.run();
+
+        TableView<StocktakeSession.ScanResult> countTable = new TableView<>(countedRows);
+        countTable.setPrefHeight(320);
+        countTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+
+        TableColumn<StocktakeSession.ScanResult, String> codeCol = new TableColumn<>("Code");
+        codeCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().code()));
+
+        TableColumn<StocktakeSession.ScanResult, String> productCol = new TableColumn<>("Product");
+        productCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().isMatched()
+                ? data.getValue().row().productName()
+                : data.getValue().isShared()
+                        ? "⚠ Shared by " + data.getValue().sharedBy().size() + " rows - count each row"
+                        : "⚠ Not stored in this location"));
+
+        TableColumn<StocktakeSession.ScanResult, Integer> countedCol = new TableColumn<>("Counted");
+        countedCol.setCellValueFactory(data -> new SimpleIntegerProperty(data.getValue().counted()).asObject());
+
+        countTable.getColumns().setAll(List.of(codeCol, productCol, countedCol));
+
+        Label statusLabel = new Label();
+        Runnable updateStatus = () -> statusLabel.setText(session.getScanCount() + " scans, " +
+                session.getCountedRowCount() + " of " + session.getBaselineSize() + " rows counted");
+        updateStatus.run();
+
+        TextField quantityField = new TextField("1");
+        quantityField.setPrefWidth(60);
+
+        TextField scanField = new TextField();
+        scanField.setPromptText("Scan or type a code, then Enter");
+        HBox.setHgrow(scanField, Priority.ALWAYS);
+        scanField.setOnAction(e -> {
+            e.consume();
+            String code = scanField.getText();
+            scanField.clear();
+            if (code == null || code.isBlank()) return;
+
+            try {
+                StocktakeSession.ScanResult scan = session.addCount(code, Integer.parseInt(quantityField.getText().trim()));
+                quantityField.setText("1");
+                countedRows.removeIf(row -> scan.isMatched()
+                        ? row.isMatched() && row.row().itemLocationId().equals(scan.row().itemLocationId())
+                        : !row.isMatched() && row.code().equalsIgnoreCase(scan.code()));
+                countedRows.add(0, scan);
+                updateStatus.run();
+                if (scan.isShared()) {
+                    statusLabel.setText("⚠ " + scan.code() + " is shared by " + scan.sharedBy().size() +
+                            " rows - enter the count of each row");
+                    showSharedCodeCountDialog(session, scan);
+                    reloadRows.run();
+                    updateStatus.run();
+                } else if (!scan.isMatched()) {
+                    statusLabel.setText("⚠ " + scan.code() + " is not stored in this location");
+                }
+            } catch (NumberFormatException ex) {
+                statusLabel.setText("⚠ Invalid quantity");
+            } catch (IllegalArgumentException ex) {
+                statusLabel.setText("⚠ " + ex.getMessage());
+            }
+        });
+
+        Button importCsvButton = new Button("📤 Import CSV");
+        importCsvButton.setOnAction(e -> {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.setTitle("Import Counts");
+            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv", "*.txt"));
+            File file = fileChooser.showOpenDialog(dialog.getDialogPane().getScene().getWindow());
+            if (file == null) return;
+
+            Task<Integer> importTask = new Task<>() {
+                @Override
+                protected Integer call() throws Exception {
+                    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                        return session.importCsv(reader);
+                    }
+                }
+            };
+
+            importTask.setOnSucceeded(ev -> {
+                reloadRows.run();
+                updateStatus.run();
+                showSuccess("✓ Imported " + importTask.getValue() + " count lines");
+            });
+
+            importTask.setOnFailed(ev -> showError("Import failed: " + importTask.getException().getMessage()));
+            new Thread(importTask).start();
+        });
+
+        CheckBox zeroUncountedCheck = new CheckBox("Rows not counted are empty (set to 0)");
+
+        HBox scanRow = new HBox(10, new Label("Qty:"), quantityField, scanField, importCsvButton);
+        scanRow.setAlignment(Pos.CENTER_LEFT);
+
+        VBox content = new VBox(12, scanRow, statusLabel, countTable, zeroUncountedCheck);
+        content.setPadding(new Insets(20));
+        content.setPrefWidth(620);
+        dialog.getDialogPane().setContent(content);
+        Platform.runLater(scanField::requestFocus);
+
+        Optional<ButtonType> result = dialog.showAndWait();
+        if (result.isEmpty() || result.get() == keepOpenBtn) {
+            return; // Session stays open - the Stocktake button resumes it
+        }
+
+        if (result.get() == discardBtn) {
+            Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+            confirm.setTitle("Discard Stocktake");
+            confirm.setHeaderText("Discard " + session.getScanCount() + " scans?");
+            confirm.setContentText("Stock is not changed.");
+            if (confirm.showAndWait().filter(btn -> btn == ButtonType.OK).isPresent()) {
+                stocktakeService.cancelSession(session.getId());
+            } else {
+                showStocktakeDialog(session);
+            }
+            return;
+        }
+
+        boolean zeroUncounted = zeroUncountedCheck.isSelected();
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+        confirm.setTitle("Commit Stocktake");
+        confirm.setHeaderText("Apply counts for " + (zeroUncounted ? session.getBaselineSize() : session.getCountedRowCount()) +
+                " rows of " + session.getLocationName() + "?");
+        confirm.setContentText(zeroUncounted
+                ? "Rows that were not counted will be set to 0."
+                : "Rows that were not counted are left unchanged.");
+        if (confirm.showAndWait().filter(btn -> btn == ButtonType.OK).isEmpty()) {
+            showStocktakeDialog(session);
+            return;
+        }
+        commitStocktake(session, zeroUncounted);
+    }
+
+    /**
+     * A scanned code is shared by several rows of the location - ask for the count of each row
+     */
+    private void showSharedCodeCountDialog(StocktakeSession session, StocktakeSession.ScanResult scan) {
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Count Rows Sharing " + scan.code());
+        dialog.setHeaderText(scan.code() + " is used by " + scan.sharedBy().size() +
+                " rows of this location.\nScans cannot tell them apart - enter the count of each row.");
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(8);
+        grid.setPadding(new Insets(20));
+        Map<Long, TextField> countFields = new LinkedHashMap<>();
+        Map<StocktakeSession.BaselineRow, Integer> counted = session.getCounts(false);
+        int rowIndex = 0;
+        for (StocktakeSession.BaselineRow row : scan.sharedBy()) {
+            TextField countField = new TextField(counted.containsKey(row) ? String.valueOf(counted.get(row)) : "");
+            countField.setPrefWidth(80);
+            countFields.put(row.itemLocationId(), countField);
+            grid.add(new Label(row.productName() + (row.serialNumber() != null ? " (S/N " + row.serialNumber() + ")" : "")),
+                    0, rowIndex);
+            grid.add(countField, 1, rowIndex++);
+        }
+        dialog.getDialogPane().setContent(grid);
+
+        if (dialog.showAndWait().filter(btn -> btn == ButtonType.OK).isEmpty()) {
+            return; // The code stays unresolved; the stocktake cannot be committed until it is counted
+        }
+        try {
+            countFields.forEach((itemLocationId, field) -> {
+                if (!field.getText().isBlank()) {
+                    session.setCount(itemLocationId, Integer.parseInt(field.getText().trim()));
+                }
+            });
+        } catch (NumberFormatException e) {
+            showError("Invalid count - enter whole numbers");
+        } catch (IllegalArgumentException e) {
+            showError(e.getMessage());
+        }
+    }
+
+    private void commitStocktake(StocktakeSession session, boolean zeroUncounted) {
+        String username = currentUser != null ? currentUser.getUsername() : "system";
+
+        showLoading(true);
+        Task<StocktakeReport> commitTask = new Task<>() {
+            @Override
+            protected StocktakeReport call() {
+                return stocktakeService.commit(session.getId(), zeroUncounted, username);
+            }
+        };
+
+        commitTask.setOnSucceeded(e -> {
+            showLoading(false);
+            showStocktakeReport(commitTask.getValue());
+            refresh();
+        });
+
+        commitTask.setOnFailed(e -> {
+            showLoading(false);
+            showError("Stocktake commit failed (counts are kept): " + commitTask.getException().getMessage());
+        });
+        new Thread(commitTask).start();
+    }
+
+    private void showStocktakeReport(StocktakeReport report) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Stocktake Report");
+        alert.setHeaderText("✓ Stocktake of " + report.locationName() + " committed");
+        alert.setContentText(String.format(
+                "Rows counted: %d%nRows with variance: %d%nTotal variance: %+d units%nValue variance: %s%nUnmatched codes: %d",
+                report.lines().size(), report.getLinesWithVariance(), report.getTotalVariance(),
+                report.getTotalValueVariance().toPlainString(), report.unmatchedCodes().size()));
+
+        ButtonType saveBtn = new ButtonType("Save Report", ButtonBar.ButtonData.LEFT);
+        alert.getButtonTypes().setAll(saveBtn, ButtonType.OK);
+        if (alert.showAndWait().filter(btn -> btn == saveBtn).isEmpty()) {
+            return;
+        }
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save Variance Report");
+        fileChooser.setInitialFileName("stocktake_" + report.sessionId() + "_" +
+                report.committedAt().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".csv");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+        File file = fileChooser.showSaveDialog(rootPane.getScene().getWindow());
+        if (file != null) {
+            try {
+                Files.writeString(file.toPath(), report.toCsv(), StandardCharsets.UTF_8);
+                showSuccess("✓ Report saved to " + file.getName());
+            } catch (Exception ex) {
+                showError("Could not save report: " + ex.getMessage());
+            }
+        }
+    }
+
     private void handleExcelExport() {
         if (tableItems == null || tableItems.isEmpty()) {
             showWarning("No items to export!");
@@ -1239,8 +1683,31 @@ public class StorageController extends BaseModuleController {
 
         File file = fileChooser.showSaveDialog(rootPane.getScene().getWindow());
         if (file != null) {
-            // TODO: Implement Excel export for item locations
-            showSuccess("✓ Export functionality coming soon!");
+            // Location sheet exports quantities in that location, total sheet exports all items
+            Long locationId = currentViewMode == ViewMode.LOCATION_SHEET && currentLocation != null ?
+                currentLocation.getLocationId() : null;
+
+            showLoading(true);
+            Task<Integer> exportTask = new Task<>() {
+                @Override
+                protected Integer call() throws Exception {
+                    return locationId != null ?
+                        excelExportService.exportLocationItems(locationId, file) :
+                        excelExportService.exportAllItems(file);
+                }
+            };
+
+            exportTask.setOnSucceeded(e -> {
+                showLoading(false);
+                showSuccess("✓ Exported " + exportTask.getValue() + " item(s) to Excel!\nFile: " + file.getName());
+            });
+
+            exportTask.setOnFailed(e -> {
+                showLoading(false);
+                showError("Export failed: " + exportTask.getException().getMessage());
+            });
+
+            new Thread(exportTask).start();
         }
     }
 
@@ -1257,7 +1724,7 @@ public class StorageController extends BaseModuleController {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Import Items from Excel");
         fileChooser.getExtensionFilters().addAll(
-            new FileChooser.ExtensionFilter("Excel Files", "*.xlsx", "*.xls"),
+            new FileChooser.ExtensionFilter("Excel Files", "*.xlsx"),
             new FileChooser.ExtensionFilter("All Files", "*.*")
         );
 
@@ -1290,98 +1757,89 @@ public class StorageController extends BaseModuleController {
         // Show loading indicator
         showLoading(true);
 
-        Task<List<StorageItem>> importTask = new Task<>() {
+        Long locationId = currentLocation.getLocationId();
+        String locationName = currentLocation.getLocationName();
+        String username = currentUser != null ? currentUser.getUsername() : "system";
+
+        // Rows are streamed from the file and saved in batches - no separate save pass
+        Task<ExcelImportService.ImportReport> importTask = new Task<>() {
             @Override
-            protected List<StorageItem> call() throws Exception {
-                return excelImportService.importFromExcel(file);
+            protected ExcelImportService.ImportReport call() throws Exception {
+                updateMessage("Reading " + file.getName() + "...");
+                return excelImportService.importToLocation(file, locationId, username,
+                        (rowsRead, rowsImported) -> updateMessage("Imported " + rowsImported + " rows..."));
             }
         };
 
+        if (loadingLabel != null) {
+            importTask.messageProperty().addListener((obs, oldMsg, newMsg) -> {
+                if (loadingIndicator.isVisible()) {
+                    loadingLabel.setText(newMsg);
+                }
+            });
+        }
+
         importTask.setOnSucceeded(e -> {
-            List<StorageItem> importedItems = importTask.getValue();
+            ExcelImportService.ImportReport report = importTask.getValue();
+            showLoading(false);
 
-            if (importedItems.isEmpty()) {
-                Platform.runLater(() -> {
-                    showLoading(false);
-                    showWarning("No valid items found in the Excel file.\n" +
-                        "Please ensure the file has the correct format and Product Name column is not empty.");
-                });
+            if (report.getImportedRows() == 0 && !report.hasErrors()) {
+                showWarning("No valid items found in the Excel file.\n" +
+                    "Please ensure the file has the correct format and Product Name column is not empty.");
                 return;
             }
 
-            // Save imported items to database and add to current location
-            Task<Integer> saveTask = new Task<>() {
-                @Override
-                protected Integer call() {
-                    int savedCount = 0;
-                    String username = currentUser != null ? currentUser.getUsername() : "system";
-
-                    for (StorageItem item : importedItems) {
-                        try {
-                            // Set creator
-                            item.setCreatedBy(username);
-
-                            // Save the storage item first
-                            StorageItem savedItem = storageService.createItem(item);
-
-                            // Add to current location with the quantity from Excel
-                            int quantity = item.getQuantity() != null ? item.getQuantity() : 0;
-                            itemLocationService.addItemToLocation(
-                                savedItem.getId(),
-                                currentLocation.getLocationId(),
-                                quantity,
-                                username
-                            );
-
-                            savedCount++;
-                        } catch (Exception ex) {
-                            System.err.println("Failed to save item: " + item.getProductName() + " - " + ex.getMessage());
-                        }
-                    }
-                    return savedCount;
-                }
-            };
-
-            saveTask.setOnSucceeded(ev -> {
-                int savedCount = saveTask.getValue();
-                Platform.runLater(() -> {
-                    showLoading(false);
-                    if (savedCount > 0) {
-                        showSuccess("✓ Successfully imported " + savedCount + " item(s) to " +
-                            currentLocation.getLocationName());
-                        refresh(); // Reload the table to show new items
-                    } else {
-                        showError("Failed to import items. Please check the Excel format and try again.");
-                    }
-                });
-            });
-
-            saveTask.setOnFailed(ev -> {
-                Platform.runLater(() -> {
-                    showLoading(false);
-                    showError("Import failed: " + saveTask.getException().getMessage());
-                });
-            });
+            if (report.getImportedRows() > 0) {
+                refresh(); // Reload the table to show new items
+            }
 
-            new Thread(saveTask).start();
+            if (!report.hasErrors()) {
+                showSuccess("✓ Successfully imported " + report.getImportedRows() + " item(s) to " + locationName);
+            } else {
+                showImportReport(report, locationName);
+            }
         });
 
         importTask.setOnFailed(e -> {
-            Platform.runLater(() -> {
-                showLoading(false);
-                Throwable ex = importTask.getException();
-                String message = ex.getMessage();
-                if (message == null || message.isEmpty()) {
-                    message = ex.getClass().getSimpleName();
-                }
-                showError("Failed to read Excel file: " + message +
-                    "\n\nPlease ensure the file is a valid Excel file (.xlsx or .xls)");
-            });
+            showLoading(false);
+            Throwable ex = importTask.getException();
+            String message = ex.getMessage();
+            if (message == null || message.isEmpty()) {
+                message = ex.getClass().getSimpleName();
+            }
+            showError("Excel import failed: " + message +
+                "\n\nRows saved before the failure were kept. Please ensure the file is a valid .xlsx file.");
         });
 
         new Thread(importTask).start();
     }
 
+    /**
+     * Show import result with the per-row error list
+     */
+    private void showImportReport(ExcelImportService.ImportReport report, String locationName) {
+        Alert alert = new Alert(report.getImportedRows() > 0 ? Alert.AlertType.WARNING : Alert.AlertType.ERROR);
+        alert.setTitle("Excel Import");
+        alert.setHeaderText("Imported " + report.getImportedRows() + " of " + report.getTotalRows() +
+            " row(s) to " + locationName + " - " + report.getErrorCount() + " row(s) skipped");
+
+        StringBuilder details = new StringBuilder();
+        for (ExcelImportService.RowError error : report.getErrors()) {
+            details.append(error).append("\n");
+        }
+        if (report.getUnlistedErrorCount() > 0) {
+            details.append("... and ").append(report.getUnlistedErrorCount())
+                   .append(" more");
+        }
+
+        TextArea errorArea = new TextArea(details.toString());
+        errorArea.setEditable(false);
+        errorArea.setWrapText(true);
+        errorArea.setPrefRowCount(12);
+        alert.getDialogPane().setContent(errorArea);
+        alert.showAndWait();
+    }
+
     // ==================== DIALOGS ====================
 
     private Dialog<StorageItemLocationViewModel> createItemDialog(StorageItemLocationViewModel existing) {
@@ -1453,6 +1911,145 @@ public class StorageController extends BaseModuleController {
         return dialog;
     }
 
+    /**
+     * Transfer several selected rows in one go - one quantity per row, one destination
+     */
+    private void handleBulkTransfer(List<StorageItemLocationViewModel> selected) {
+        Optional<List<StockLedger.TransferLine>> result = createBulkTransferDialog(selected).showAndWait();
+        result.ifPresent(lines -> {
+            if (lines.isEmpty()) {
+                showWarning("No quantities entered - nothing to transfer");
+                return;
+            }
+
+            Map<Long, String> productNames = new HashMap<>();
+            selected.forEach(vm -> productNames.put(vm.getItemId(), vm.getProductName()));
+
+            Task<List<StockLedger.TransferResult>> transferTask = new Task<>() {
+                @Override
+                protected List<StockLedger.TransferResult> call() {
+                    return itemLocationService.transferItems(lines,
+                            currentUser != null ? currentUser.getUsername() : "system");
+                }
+            };
+
+            transferTask.setOnSucceeded(e -> {
+                List<StockLedger.TransferResult> results = transferTask.getValue();
+                long transferred = results.stream().filter(StockLedger.TransferResult::isTransferred).count();
+                String failures = results.stream()
+                        .filter(r -> !r.isTransferred())
+                        .map(r -> "• " + productNames.getOrDefault(r.line().itemId(), "Item " + r.line().itemId()) +
+                                ": " + r.message())
+                        .collect(Collectors.joining("\n"));
+
+                if (failures.isEmpty()) {
+                    showSuccess("✓ Transferred " + transferred + " line(s)");
+                } else {
+                    showWarning("Transferred " + transferred + " of " + results.size() + " line(s).\n\n" +
+                            "Not transferred:\n" + failures);
+                }
+                refresh();
+            });
+
+            transferTask.setOnFailed(e -> showError("Bulk transfer failed: " + transferTask.getException().getMessage()));
+            new Thread(transferTask).start();
+        });
+    }
+
+    private Dialog<List<StockLedger.TransferLine>> createBulkTransferDialog(List<StorageItemLocationViewModel> selected) {
+        Dialog<List<StockLedger.TransferLine>> dialog = new Dialog<>();
+        dialog.setTitle("Bulk Transfer");
+        dialog.setHeaderText("Transfer " + selected.size() + " item(s) to another location");
+
+        ButtonType transferBtn = new ButtonType("Transfer", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().addAll(transferBtn, ButtonType.CANCEL);
+
+        ComboBox<StorageLocation> locationCombo = new ComboBox<>();
+        locationCombo.getItems().addAll(locationService.getAllActiveLocations());
+        locationCombo.setPromptText("Select destination location...");
+        locationCombo.setCellFactory(lv -> new ListCell<>() {
+            @Override
+            protected void updateItem(StorageLocation loc, boolean empty) {
+                super.updateItem(loc, empty);
+                setText(empty || loc == null ? null : loc.getName() + " (" + loc.getCity() + ")");
+            }
+        });
+        locationCombo.setButtonCell(new ListCell<>() {
+            @Override
+            protected void updateItem(StorageLocation loc, boolean empty) {
+                super.updateItem(loc, empty);
+                setText(empty || loc == null ? null : loc.getName());
+            }
+        });
+
+        GridPane grid = new GridPane();
+        grid.setHgap(12);
+        grid.setVgap(8);
+        grid.add(boldLabel("Product"), 0, 0);
+        grid.add(boldLabel("From"), 1, 0);
+        grid.add(boldLabel("Available"), 2, 0);
+        grid.add(boldLabel("Quantity"), 3, 0);
+
+        List<TextField> quantityFields = new ArrayList<>();
+        for (int i = 0; i < selected.size(); i++) {
+            StorageItemLocationViewModel vm = selected.get(i);
+            TextField qtyField = new TextField(String.valueOf(vm.getQuantity()));
+            qtyField.setPrefWidth(80);
+            quantityFields.add(qtyField);
+
+            grid.add(new Label(vm.getProductName()), 0, i + 1);
+            grid.add(new Label(vm.getLocationName()), 1, i + 1);
+            grid.add(new Label(String.valueOf(vm.getQuantity())), 2, i + 1);
+            grid.add(qtyField, 3, i + 1);
+        }
+
+        ScrollPane linesPane = new ScrollPane(grid);
+        linesPane.setFitToWidth(true);
+        linesPane.setPrefViewportHeight(Math.min(360, 34 * (selected.size() + 1)));
+
+        VBox content = new VBox(15, new Label("To:"), locationCombo, linesPane);
+        content.setPadding(new Insets(20));
+        dialog.getDialogPane().setContent(content);
+
+        Node transferNode = dialog.getDialogPane().lookupButton(transferBtn);
+        transferNode.disableProperty().bind(locationCombo.valueProperty().isNull());
+        transferNode.addEventFilter(ActionEvent.ACTION, event -> {
+            for (TextField field : quantityFields) {
+                String text = field.getText().trim();
+                if (!text.isEmpty() && !text.matches("\\d{1,9}")) {
+                    showError("Quantities must be whole numbers (0 or empty skips a line)");
+                    event.consume();
+                    return;
+                }
+            }
+        });
+
+        dialog.setResultConverter(btn -> {
+            if (btn != transferBtn || locationCombo.getValue() == null) {
+                return null;
+            }
+            Long targetLocationId = locationCombo.getValue().getId();
+            List<StockLedger.TransferLine> lines = new ArrayList<>();
+            for (int i = 0; i < selected.size(); i++) {
+                String text = quantityFields.get(i).getText().trim();
+                int qty = text.isEmpty() ? 0 : Integer.parseInt(text);
+                if (qty > 0) {
+                    StorageItemLocationViewModel vm = selected.get(i);
+                    lines.add(new StockLedger.TransferLine(vm.getItemId(), vm.getLocationId(), targetLocationId, qty));
+                }
+            }
+            return lines;
+        });
+
+        return dialog;
+    }
+
+    private Label boldLabel(String text) {
+        Label label = new Label(text);
+        label.setStyle("-fx-font-weight: bold;");
+        return label;
+    }
+
     private Dialog<Long> createTransferDialog(StorageItemLocationViewModel item) {
         Dialog<Long> dialog = new Dialog<>();
         dialog.setTitle("Transfer Item");
@@ -1826,6 +2423,9 @@ public class StorageController extends BaseModuleController {
             if (loadingIndicator != null) {
                 loadingIndicator.setVisible(show);
             }
+            if (loadingLabel != null && !show) {
+                loadingLabel.setText("");
+            }
             if (itemTable != null) {
                 itemTable.setDisable(show);
             }
@@ -1851,6 +2451,10 @@ public class StorageController extends BaseModuleController {
     }
 
     public void immediateCleanup() {
+        if (tablePager != null) {
+            tablePager.dispose();
+            tablePager = null;
+        }
         if (backgroundPane != null) {
             backgroundPane.stopAnimation();
             backgroundPane = null;
@@ -1869,11 +2473,9 @@ public class StorageController extends BaseModuleController {
                 loadCardsData();
                 break;
             case LOCATION_SHEET:
-                selectionMap.clear();
                 loadLocationSheetData();
                 break;
             case TOTAL_SHEET:
-                selectionMap.clear();
                 loadTotalSheetData();
                 break;
         }
@@ -0,0 +1,139 @@
+package com.magictech.modules.storage.dto;
+
+import com.magictech.modules.storage.entity.StorageColumnConfig;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Filters and sort on custom storage columns (keys of StorageItem.customFields), pushed down to
+ * SQL by StorageItemLocationCustomFieldRepository. Values are typed by the column's configured
+ * type (TEXT, NUMBER, DATE, BOOLEAN); all filters must match.
+ */
+public record CustomFieldQuery(List<Filter> filters, Sort sort) {
+
+    public enum FieldType {
+        TEXT, NUMBER, DATE, BOOLEAN;
+
+        /**
+         * Type of a StorageColumnConfig column (unknown types are treated as text)
+         */
+        public static FieldType of(StorageColumnConfig column) {
+            try {
+                return valueOf(column.getColumnType().trim().toUpperCase());
+            } catch (RuntimeException e) {
+                return TEXT;
+            }
+        }
+    }
+
+    public enum Operator {
+        EQUALS("equals"),
+        CONTAINS("contains"),
+        AT_LEAST("at least"),
+        AT_MOST("at most"),
+        IS_SET("has a value");
+
+        private final String displayName;
+
+        Operator(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        /**
+         * Operators that make sense for a column type
+         */
+        public static List<Operator> forType(FieldType type) {
+            return switch (type) {
+                case TEXT -> List.of(EQUALS, CONTAINS, IS_SET);
+                case NUMBER, DATE -> List.of(EQUALS, AT_LEAST, AT_MOST, IS_SET);
+                case BOOLEAN -> List.of(EQUALS, IS_SET);
+            };
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    /**
+     * One predicate on a custom field; {@code value} is ignored for IS_SET
+     */
+    public record Filter(String field, FieldType type, Operator operator, String value) {
+
+        public Filter {
+            if (field == null || field.isBlank()) {
+                throw new IllegalArgumentException("Custom field name is required");
+            }
+            if (!Operator.forType(type).contains(operator)) {
+                throw new IllegalArgumentException("'" + operator + "' cannot be used on a " + type + " field");
+            }
+            if (operator != Operator.IS_SET) {
+                typedValue(type, value); // Fail early on values the column type cannot hold
+            }
+        }
+
+        public static Filter on(StorageColumnConfig column, Operator operator, String value) {
+            return new Filter(column.getColumnName(), FieldType.of(column), operator, value);
+        }
+
+        /**
+         * The value converted to the column type (String, BigDecimal, LocalDate or Boolean)
+         */
+        public Object typedValue() {
+            return typedValue(type, value);
+        }
+
+        private static Object typedValue(FieldType type, String value) {
+            String text = value != null ? value.trim() : "";
+            if (text.isEmpty()) {
+                throw new IllegalArgumentException("A value is required");
+            }
+            try {
+                return switch (type) {
+                    case TEXT -> text;
+                    case NUMBER -> new BigDecimal(text);
+                    case DATE -> LocalDate.parse(text);
+                    case BOOLEAN -> parseBoolean(text);
+                };
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a number: " + text);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Not a date (yyyy-mm-dd): " + text);
+            }
+        }
+
+        private static Boolean parseBoolean(String text) {
+            return switch (text.toLowerCase()) {
+                case "true", "yes", "1" -> Boolean.TRUE;
+                case "false", "no", "0" -> Boolean.FALSE;
+                default -> throw new IllegalArgumentException("Not yes/no: " + text);
+            };
+        }
+    }
+
+    /**
+     * Order by a custom field (items without a value last), then by row id
+     */
+    public record Sort(String field, FieldType type, boolean descending) {
+
+        public static Sort on(StorageColumnConfig column, boolean descending) {
+            return new Sort(column.getColumnName(), FieldType.of(column), descending);
+        }
+    }
+
+    public CustomFieldQuery {
+        filters = filters != null ? List.copyOf(filters) : List.of();
+    }
+
+    public boolean isEmpty() {
+        return filters.isEmpty() && sort == null;
+    }
+}
@@ -0,0 +1,63 @@
+package com.magictech.modules.storage.dto;
+
+import com.magictech.modules.storage.entity.StorageItemLocation;
+
+import java.math.BigDecimal;
+
+/**
+ * Data Transfer Object for one item in one storage location.
+ * Filled by constructor-expression queries in StorageItemLocationRepository that select
+ * only these columns in one joined query; used by the location and total sheets.
+ */
+public class ItemInLocationDTO {
+    private Long itemLocationId;
+    private Long itemId;
+    private String manufacture;
+    private String productName;
+    private String code;
+    private String serialNumber;
+    private Integer quantity;
+    private BigDecimal price;
+    private String binLocation;
+    private boolean lowStock;
+    private Long locationId;
+    private String locationName;
+    private String locationCode;
+
+    /**
+     * Constructor used by the JPQL projections - argument order matches their SELECT lists
+     */
+    public ItemInLocationDTO(Long itemLocationId, Long itemId, String manufacture, String productName,
+                             String code, String serialNumber, Integer quantity, BigDecimal price,
+                             String rowNumber, String shelfNumber, String binLocation, Integer minStockLevel,
+                             Long locationId, String locationName, String locationCode) {
+        this.itemLocationId = itemLocationId;
+        this.itemId = itemId;
+        this.manufacture = manufacture;
+        this.productName = productName;
+        this.code = code;
+        this.serialNumber = serialNumber;
+        this.quantity = quantity;
+        this.price = price;
+        this.binLocation = StorageItemLocation.formatBinLocation(rowNumber, shelfNumber, binLocation);
+        this.lowStock = StorageItemLocation.isLowStock(quantity, minStockLevel);
+        this.locationId = locationId;
+        this.locationName = locationName;
+        this.locationCode = locationCode;
+    }
+
+    // Getters
+    public Long getItemLocationId() { return itemLocationId; }
+    public Long getItemId() { return itemId; }
+    public String getManufacture() { return manufacture; }
+    public String getProductName() { return productName; }
+    public String getCode() { return code; }
+    public String getSerialNumber() { return serialNumber; }
+    public Integer getQuantity() { return quantity; }
+    public BigDecimal getPrice() { return price; }
+    public String getBinLocation() { return binLocation; }
+    public boolean isLowStock() { return lowStock; }
+    public Long getLocationId() { return locationId; }
+    public String getLocationName() { return locationName; }
+    public String getLocationCode() { return locationCode; }
+}
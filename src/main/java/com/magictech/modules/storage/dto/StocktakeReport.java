@@ -0,0 +1,75 @@
+package com.magictech.modules.storage.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Variance report of a committed stocktake.
+ *
+ * One line per counted row: the frozen baseline, the counted quantity and the quantity before and
+ * after the adjustment (these differ from baseline/counted when stock moved during the count).
+ * Codes that matched no row of the location are listed with how often they were scanned.
+ */
+public record StocktakeReport(String sessionId, Long locationId, String locationName,
+                              LocalDateTime startedAt, LocalDateTime committedAt, String committedBy,
+                              List<Line> lines, Map<String, Integer> unmatchedCodes) {
+
+    public record Line(Long itemLocationId, Long itemId, String code, String productName, BigDecimal price,
+                       int baselineQuantity, int countedQuantity, int quantityBefore, int quantityAfter) {
+
+        public int variance() {
+            return countedQuantity - baselineQuantity;
+        }
+
+        public BigDecimal valueVariance() {
+            return price != null ? price.multiply(BigDecimal.valueOf(variance())) : BigDecimal.ZERO;
+        }
+    }
+
+    public long getLinesWithVariance() {
+        return lines.stream().filter(line -> line.variance() != 0).count();
+    }
+
+    public int getTotalVariance() {
+        return lines.stream().mapToInt(Line::variance).sum();
+    }
+
+    public BigDecimal getTotalValueVariance() {
+        return lines.stream().map(Line::valueVariance).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    /**
+     * The report as CSV (variance lines first, then unmatched codes)
+     */
+    public String toCsv() {
+        StringBuilder csv = new StringBuilder(
+                "Code,Product,Baseline,Counted,Variance,Value Variance,Quantity Before,Quantity After\n");
+        for (Line line : lines) {
+            csv.append(csvField(line.code())).append(',')
+               .append(csvField(line.productName())).append(',')
+               .append(line.baselineQuantity()).append(',')
+               .append(line.countedQuantity()).append(',')
+               .append(line.variance()).append(',')
+               .append(line.valueVariance().toPlainString()).append(',')
+               .append(line.quantityBefore()).append(',')
+               .append(line.quantityAfter()).append('\n');
+        }
+        if (!unmatchedCodes.isEmpty()) {
+            csv.append("\nUnmatched Code,Scans\n");
+            unmatchedCodes.forEach((code, scans) -> csv.append(csvField(code)).append(',').append(scans).append('\n'));
+        }
+        return csv.toString();
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
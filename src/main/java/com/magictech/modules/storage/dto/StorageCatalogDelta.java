@@ -0,0 +1,52 @@
+package com.magictech.modules.storage.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Message published on the storage catalog channel after storage items change.
+ * Carries only the ids of the changed items; receivers re-read those rows. A resync
+ * message (too many ids to list, e.g. an Excel import) asks receivers to run their
+ * incremental lastUpdated refresh instead.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class StorageCatalogDelta {
+    private String sourceId;
+    private List<Long> itemIds = new ArrayList<>();
+    private boolean resync;
+
+    public StorageCatalogDelta() {
+    }
+
+    public StorageCatalogDelta(String sourceId, List<Long> itemIds, boolean resync) {
+        this.sourceId = sourceId;
+        this.itemIds = itemIds;
+        this.resync = resync;
+    }
+
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    public void setSourceId(String sourceId) {
+        this.sourceId = sourceId;
+    }
+
+    public List<Long> getItemIds() {
+        return itemIds;
+    }
+
+    public void setItemIds(List<Long> itemIds) {
+        this.itemIds = itemIds;
+    }
+
+    public boolean isResync() {
+        return resync;
+    }
+
+    public void setResync(boolean resync) {
+        this.resync = resync;
+    }
+}
@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
 public class AvailabilityRequest {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "availability_requests_seq")
+    @SequenceGenerator(name = "availability_requests_seq", sequenceName = "availability_requests_id_seq", allocationSize = 50)
     private Long id;
 
     // Reference to the storage item being requested
@@ -0,0 +1,120 @@
+package com.magictech.modules.storage.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Inventory Snapshot Entity
+ * Compressed copy of the active storage_item_locations quantities at one point in time.
+ * A FULL snapshot holds every (location, item, quantity) row; a DELTA holds only the rows
+ * that changed or disappeared since the previous snapshot of the same day and points at
+ * the FULL snapshot it builds on. The payload is written by InventorySnapshotCodec.
+ */
+@Entity
+@Table(name = "inventory_snapshots", indexes = {
+        @Index(name = "idx_inventory_snapshots_type_taken", columnList = "snapshot_type, taken_at"),
+        @Index(name = "idx_inventory_snapshots_base", columnList = "base_snapshot_id, taken_at")
+})
+public class InventorySnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inventory_snapshots_seq")
+    @SequenceGenerator(name = "inventory_snapshots_seq", sequenceName = "inventory_snapshots_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "snapshot_type", length = 10, nullable = false)
+    private SnapshotType snapshotType;
+
+    @Column(name = "taken_at", nullable = false)
+    private LocalDateTime takenAt;
+
+    // FULL snapshot a DELTA applies to (null for FULL snapshots)
+    @Column(name = "base_snapshot_id")
+    private Long baseSnapshotId;
+
+    // Rows encoded in the payload
+    @Column(name = "row_count", nullable = false)
+    private Integer rowCount;
+
+    // Compressed columnar rows - BYTEA without @Lob to avoid OID issues in Hibernate 6
+    @Column(name = "payload", columnDefinition = "BYTEA", nullable = false)
+    private byte[] payload;
+
+    public enum SnapshotType {
+        FULL,
+        DELTA
+    }
+
+    // Constructors
+    public InventorySnapshot() {
+    }
+
+    public InventorySnapshot(SnapshotType snapshotType, LocalDateTime takenAt, Long baseSnapshotId,
+                             int rowCount, byte[] payload) {
+        this.snapshotType = snapshotType;
+        this.takenAt = takenAt;
+        this.baseSnapshotId = baseSnapshotId;
+        this.rowCount = rowCount;
+        this.payload = payload;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public SnapshotType getSnapshotType() {
+        return snapshotType;
+    }
+
+    public void setSnapshotType(SnapshotType snapshotType) {
+        this.snapshotType = snapshotType;
+    }
+
+    public LocalDateTime getTakenAt() {
+        return takenAt;
+    }
+
+    public void setTakenAt(LocalDateTime takenAt) {
+        this.takenAt = takenAt;
+    }
+
+    public Long getBaseSnapshotId() {
+        return baseSnapshotId;
+    }
+
+    public void setBaseSnapshotId(Long baseSnapshotId) {
+        this.baseSnapshotId = baseSnapshotId;
+    }
+
+    public Integer getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(Integer rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+
+    @Override
+    public String toString() {
+        return "InventorySnapshot{" +
+                "id=" + id +
+                ", snapshotType=" + snapshotType +
+                ", takenAt=" + takenAt +
+                ", rowCount=" + rowCount +
+                '}';
+    }
+}
@@ -0,0 +1,154 @@
+package com.magictech.modules.storage.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Stock Drift Report Entity
+ * One row per item whose StorageItem.quantity differed from the sum of its active
+ * StorageItemLocation quantities when StockReconciliationService scanned it.
+ * Rows of one reconciliation run share the same run_started_at.
+ */
+@Entity
+@Table(name = "stock_drift_reports", indexes = {
+        @Index(name = "idx_stock_drift_reports_run", columnList = "run_started_at"),
+        @Index(name = "idx_stock_drift_reports_item", columnList = "storage_item_id, detected_at")
+})
+public class StockDriftReport {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_drift_reports_seq")
+    @SequenceGenerator(name = "stock_drift_reports_seq", sequenceName = "stock_drift_reports_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "run_started_at", nullable = false)
+    private LocalDateTime runStartedAt;
+
+    @Column(name = "storage_item_id", nullable = false)
+    private Long storageItemId;
+
+    // StorageItem.quantity at scan time
+    @Column(name = "item_quantity", nullable = false)
+    private Integer itemQuantity;
+
+    // Sum of active StorageItemLocation.quantity at scan time
+    @Column(name = "location_quantity", nullable = false)
+    private Integer locationQuantity;
+
+    // itemQuantity - locationQuantity
+    @Column(name = "drift", nullable = false)
+    private Integer drift;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action", length = 30, nullable = false)
+    private DriftAction action;
+
+    @Column(name = "detected_at", nullable = false)
+    private LocalDateTime detectedAt;
+
+    public enum DriftAction {
+        REPORTED,           // Policy is report-only, or the drift exceeds the auto-correct limit
+        CORRECTED,          // Item quantity was set to the location total plus item-only movements
+        CORRECTION_SKIPPED, // Item quantity changed between scan and correction; next run re-checks it
+        ITEM_ONLY_MOVEMENTS // Written by earlier versions for any item with item-only deductions or
+                            // returns; those movements are now subtracted from the drift instead
+    }
+
+    // Constructors
+    public StockDriftReport() {
+        this.detectedAt = LocalDateTime.now();
+    }
+
+    public StockDriftReport(LocalDateTime runStartedAt, Long storageItemId,
+                            int itemQuantity, int locationQuantity, DriftAction action) {
+        this();
+        this.runStartedAt = runStartedAt;
+        this.storageItemId = storageItemId;
+        this.itemQuantity = itemQuantity;
+        this.locationQuantity = locationQuantity;
+        this.drift = itemQuantity - locationQuantity;
+        this.action = action;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (detectedAt == null) {
+            detectedAt = LocalDateTime.now();
+        }
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDateTime getRunStartedAt() {
+        return runStartedAt;
+    }
+
+    public void setRunStartedAt(LocalDateTime runStartedAt) {
+        this.runStartedAt = runStartedAt;
+    }
+
+    public Long getStorageItemId() {
+        return storageItemId;
+    }
+
+    public void setStorageItemId(Long storageItemId) {
+        this.storageItemId = storageItemId;
+    }
+
+    public Integer getItemQuantity() {
+        return itemQuantity;
+    }
+
+    public void setItemQuantity(Integer itemQuantity) {
+        this.itemQuantity = itemQuantity;
+    }
+
+    public Integer getLocationQuantity() {
+        return locationQuantity;
+    }
+
+    public void setLocationQuantity(Integer locationQuantity) {
+        this.locationQuantity = locationQuantity;
+    }
+
+    public Integer getDrift() {
+        return drift;
+    }
+
+    public void setDrift(Integer drift) {
+        this.drift = drift;
+    }
+
+    public DriftAction getAction() {
+        return action;
+    }
+
+    public void setAction(DriftAction action) {
+        this.action = action;
+    }
+
+    public LocalDateTime getDetectedAt() {
+        return detectedAt;
+    }
+
+    public void setDetectedAt(LocalDateTime detectedAt) {
+        this.detectedAt = detectedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "StockDriftReport{" +
+                "storageItemId=" + storageItemId +
+                ", itemQuantity=" + itemQuantity +
+                ", locationQuantity=" + locationQuantity +
+                ", action=" + action +
+                '}';
+    }
+}
@@ -0,0 +1,169 @@
+package com.magictech.modules.storage.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Stock Movement Entity - append-only ledger row
+ * Every deduction, return, receipt, transfer and inventory check writes exactly one row here.
+ * Rows are never updated or deleted; the current quantity lives on StorageItem /
+ * StorageItemLocation and is changed with conditional UPDATE statements by StockLedger.
+ */
+@Entity
+@Table(name = "stock_movements", indexes = {
+        @Index(name = "idx_stock_movements_item", columnList = "storage_item_id, created_at"),
+        @Index(name = "idx_stock_movements_reference", columnList = "reference")
+})
+public class StockMovement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_movements_seq")
+    @SequenceGenerator(name = "stock_movements_seq", sequenceName = "stock_movements_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "storage_item_id", nullable = false)
+    private Long storageItemId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "movement_type", length = 30, nullable = false)
+    private MovementType movementType;
+
+    // Signed change applied to the item (negative for deductions);
+    // for transfers this is the quantity moved between the two locations
+    @Column(name = "quantity_delta", nullable = false)
+    private Integer quantityDelta;
+
+    // Optional location context (receipts, transfers and inventory checks)
+    @Column(name = "from_location_id")
+    private Long fromLocationId;
+
+    @Column(name = "to_location_id")
+    private Long toLocationId;
+
+    // Free-form business reference, e.g. "PROJECT_ELEMENT:42" or "SALES_ORDER:7"
+    @Column(name = "reference", length = 100)
+    private String reference;
+
+    @Column(name = "performed_by", length = 100)
+    private String performedBy;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public enum MovementType {
+        DEDUCTION,
+        RETURN,
+        RECEIPT,
+        TRANSFER,
+        INVENTORY_CHECK
+    }
+
+    // Constructors
+    public StockMovement() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public StockMovement(Long storageItemId, MovementType movementType, Integer quantityDelta,
+                         String reference, String performedBy) {
+        this();
+        this.storageItemId = storageItemId;
+        this.movementType = movementType;
+        this.quantityDelta = quantityDelta;
+        this.reference = reference;
+        this.performedBy = performedBy;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getStorageItemId() {
+        return storageItemId;
+    }
+
+    public void setStorageItemId(Long storageItemId) {
+        this.storageItemId = storageItemId;
+    }
+
+    public MovementType getMovementType() {
+        return movementType;
+    }
+
+    public void setMovementType(MovementType movementType) {
+        this.movementType = movementType;
+    }
+
+    public Integer getQuantityDelta() {
+        return quantityDelta;
+    }
+
+    public void setQuantityDelta(Integer quantityDelta) {
+        this.quantityDelta = quantityDelta;
+    }
+
+    public Long getFromLocationId() {
+        return fromLocationId;
+    }
+
+    public void setFromLocationId(Long fromLocationId) {
+        this.fromLocationId = fromLocationId;
+    }
+
+    public Long getToLocationId() {
+        return toLocationId;
+    }
+
+    public void setToLocationId(Long toLocationId) {
+        this.toLocationId = toLocationId;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public void setReference(String reference) {
+        this.reference = reference;
+    }
+
+    public String getPerformedBy() {
+        return performedBy;
+    }
+
+    public void setPerformedBy(String performedBy) {
+        this.performedBy = performedBy;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "StockMovement{" +
+                "id=" + id +
+                ", storageItemId=" + storageItemId +
+                ", movementType=" + movementType +
+                ", quantityDelta=" + quantityDelta +
+                ", fromLocationId=" + fromLocationId +
+                ", toLocationId=" + toLocationId +
+                ", reference='" + reference + '\'' +
+                ", performedBy='" + performedBy + '\'' +
+                '}';
+    }
+}
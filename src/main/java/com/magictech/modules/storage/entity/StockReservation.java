@@ -0,0 +1,136 @@
+package com.magictech.modules.storage.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Stock Reservation Entity - soft hold on stock for a pending sales order line.
+ * Reserved quantity is not deducted from StorageItem.quantity; it only lowers the
+ * available quantity (on-hand minus reserved) until it is committed, released or expires.
+ */
+@Entity
+@Table(name = "stock_reservations", indexes = {
+        @Index(name = "idx_stock_reservations_item", columnList = "storage_item_id"),
+        @Index(name = "idx_stock_reservations_expires", columnList = "expires_at")
+})
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_reservations_seq")
+    @SequenceGenerator(name = "stock_reservations_seq", sequenceName = "stock_reservations_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "storage_item_id", nullable = false)
+    private Long storageItemId;
+
+    // Owner of the hold, e.g. "SALES_ORDER_ITEM:15" - one reservation per holder
+    @Column(name = "holder_key", nullable = false, unique = true, length = 100)
+    private String holderKey;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Column(name = "created_by", length = 100)
+    private String createdBy;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // Constructors
+    public StockReservation() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public StockReservation(Long storageItemId, String holderKey, Integer quantity,
+                            String createdBy, LocalDateTime expiresAt) {
+        this();
+        this.storageItemId = storageItemId;
+        this.holderKey = holderKey;
+        this.quantity = quantity;
+        this.createdBy = createdBy;
+        this.expiresAt = expiresAt;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    // Helper methods
+    public boolean isExpired() {
+        return expiresAt != null && !expiresAt.isAfter(LocalDateTime.now());
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getStorageItemId() {
+        return storageItemId;
+    }
+
+    public void setStorageItemId(Long storageItemId) {
+        this.storageItemId = storageItemId;
+    }
+
+    public String getHolderKey() {
+        return holderKey;
+    }
+
+    public void setHolderKey(String holderKey) {
+        this.holderKey = holderKey;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public String toString() {
+        return "StockReservation{" +
+                "id=" + id +
+                ", storageItemId=" + storageItemId +
+                ", holderKey='" + holderKey + '\'' +
+                ", quantity=" + quantity +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+}
@@ -11,7 +11,8 @@ import jakarta.persistence.*;
 public class StorageColumnConfig {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "storage_column_configs_seq")
+    @SequenceGenerator(name = "storage_column_configs_seq", sequenceName = "storage_column_configs_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "column_name", nullable = false, unique = true, length = 100)
@@ -1,6 +1,7 @@
 package com.magictech.modules.storage.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnTransformer;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
@@ -9,11 +10,14 @@ import java.time.LocalDateTime;
  * Matches your table: ID | Manufacture | Product Name | Code | Serial Number | Quantity | Price
  */
 @Entity
-@Table(name = "storage_items")
+@Table(name = "storage_items", indexes = {
+        @Index(name = "idx_storage_items_name_id", columnList = "product_name, id") // Keyset paging
+})
 public class StorageItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "storage_items_seq")
+    @SequenceGenerator(name = "storage_items_seq", sequenceName = "storage_items_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "system_type", length = 100)
@@ -61,8 +65,10 @@ public class StorageItem {
     @Column(nullable = false)
     private Boolean active = true;
 
-    // Custom fields storage (JSON format)
-    @Column(name = "custom_fields", columnDefinition = "TEXT")
+    // Custom fields (JSON object keyed by StorageColumnConfig column name) - jsonb with a GIN index,
+    // filtered and sorted in SQL through StorageItemLocationRepository.findPageByCustomFields
+    @Column(name = "custom_fields", columnDefinition = "jsonb")
+    @ColumnTransformer(write = "?::jsonb")
     private String customFields;
 
     // Constructors
@@ -11,18 +11,22 @@ import java.time.LocalDateTime;
  */
 @Entity
 @Table(name = "storage_item_locations",
-       uniqueConstraints = @UniqueConstraint(columnNames = {"storage_item_id", "storage_location_id"}))
+       uniqueConstraints = @UniqueConstraint(columnNames = {"storage_item_id", "storage_location_id"}),
+       indexes = @Index(name = "idx_storage_item_locations_location_id", columnList = "storage_location_id, id"))
 public class StorageItemLocation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "storage_item_locations_seq")
+    @SequenceGenerator(name = "storage_item_locations_seq", sequenceName = "storage_item_locations_id_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    // LAZY - list views read ItemInLocationDTO projections; queries that need the
+    // entities fetch-join them explicitly
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "storage_item_id", nullable = false)
     private StorageItem storageItem;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "storage_location_id", nullable = false)
     private StorageLocation storageLocation;
 
@@ -106,7 +110,11 @@ public class StorageItemLocation {
 
     // Helper methods
     public boolean isLowStock() {
-        if (minStockLevel == null) return false;
+        return isLowStock(quantity, minStockLevel);
+    }
+
+    public static boolean isLowStock(Integer quantity, Integer minStockLevel) {
+        if (minStockLevel == null || quantity == null) return false;
         return quantity <= minStockLevel;
     }
 
@@ -116,6 +124,10 @@ public class StorageItemLocation {
     }
 
     public String getFullBinLocation() {
+        return formatBinLocation(rowNumber, shelfNumber, binLocation);
+    }
+
+    public static String formatBinLocation(String rowNumber, String shelfNumber, String binLocation) {
         StringBuilder sb = new StringBuilder();
         if (rowNumber != null && !rowNumber.isEmpty()) {
             sb.append("Row ").append(rowNumber);
@@ -264,8 +276,9 @@ public class StorageItemLocation {
     public String toString() {
         return "StorageItemLocation{" +
                 "id=" + id +
-                ", storageItem=" + (storageItem != null ? storageItem.getProductName() : "null") +
-                ", storageLocation=" + (storageLocation != null ? storageLocation.getName() : "null") +
+                // Ids only - reading them does not initialize the lazy proxies
+                ", storageItemId=" + (storageItem != null ? storageItem.getId() : "null") +
+                ", storageLocationId=" + (storageLocation != null ? storageLocation.getId() : "null") +
                 ", quantity=" + quantity +
                 ", binLocation='" + binLocation + '\'' +
                 ", active=" + active +
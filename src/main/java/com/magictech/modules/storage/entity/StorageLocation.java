@@ -12,7 +12,8 @@ import java.time.LocalDateTime;
 public class StorageLocation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "storage_locations_seq")
+    @SequenceGenerator(name = "storage_locations_seq", sequenceName = "storage_locations_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "name", nullable = false, length = 100)
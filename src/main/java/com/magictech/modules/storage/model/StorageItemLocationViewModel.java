@@ -1,5 +1,6 @@
 package com.magictech.modules.storage.model;
 
+import com.magictech.modules.storage.dto.ItemInLocationDTO;
 import com.magictech.modules.storage.entity.StorageItemLocation;
 import javafx.beans.property.*;
 
@@ -53,6 +54,26 @@ public class StorageItemLocationViewModel {
         }
     }
 
+    /**
+     * From a projection row - the sheets load these instead of entities
+     */
+    public StorageItemLocationViewModel(ItemInLocationDTO dto) {
+        this.itemLocationId.set(dto.getItemLocationId());
+        this.itemId.set(dto.getItemId());
+        this.manufacture.set(dto.getManufacture() != null ? dto.getManufacture() : "");
+        this.productName.set(dto.getProductName());
+        this.code.set(dto.getCode() != null ? dto.getCode() : "");
+        this.serialNumber.set(dto.getSerialNumber() != null ? dto.getSerialNumber() : "");
+        this.quantity.set(dto.getQuantity() != null ? dto.getQuantity() : 0);
+        this.price.set(dto.getPrice() != null ? dto.getPrice() : BigDecimal.ZERO);
+        this.binLocation.set(dto.getBinLocation());
+        this.locationName.set(dto.getLocationName());
+        this.locationId.set(dto.getLocationId());
+        this.locationCode.set(dto.getLocationCode() != null ? dto.getLocationCode() : "");
+        this.lowStock.set(dto.isLowStock());
+        updateAvailabilityStatus();
+    }
+
     public void updateAvailabilityStatus() {
         if (quantity.get() > 0) {
             availabilityStatus.set("✅ Available (" + quantity.get() + ")");
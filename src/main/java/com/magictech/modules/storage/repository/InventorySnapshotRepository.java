@@ -0,0 +1,39 @@
+package com.magictech.modules.storage.repository;
+
+import com.magictech.modules.storage.entity.InventorySnapshot;
+import com.magictech.modules.storage.entity.InventorySnapshot.SnapshotType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for compressed inventory snapshots
+ */
+@Repository
+public interface InventorySnapshotRepository extends JpaRepository<InventorySnapshot, Long> {
+
+    // Nearest snapshot of a type at or before a point in time
+    Optional<InventorySnapshot> findTopBySnapshotTypeAndTakenAtLessThanEqualOrderByTakenAtDesc(
+            SnapshotType snapshotType, LocalDateTime at);
+
+    // Most recent snapshot of any type
+    Optional<InventorySnapshot> findTopByOrderByTakenAtDesc();
+
+    // Deltas of a full snapshot up to a point in time, in replay order
+    List<InventorySnapshot> findByBaseSnapshotIdAndTakenAtLessThanEqualOrderByTakenAtAsc(
+            Long baseSnapshotId, LocalDateTime at);
+
+    boolean existsBySnapshotTypeAndTakenAtGreaterThanEqual(SnapshotType snapshotType, LocalDateTime since);
+
+    // Retention - snapshots older than the cutoff, plus deltas whose full snapshot is
+    @Modifying
+    @Query("DELETE FROM InventorySnapshot s WHERE s.takenAt < :cutoff OR s.baseSnapshotId IN " +
+           "(SELECT f.id FROM InventorySnapshot f WHERE f.takenAt < :cutoff)")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
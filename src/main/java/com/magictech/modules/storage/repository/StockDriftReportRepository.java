@@ -0,0 +1,30 @@
+package com.magictech.modules.storage.repository;
+
+import com.magictech.modules.storage.entity.StockDriftReport;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for stock drift reports written by the reconciliation job
+ */
+@Repository
+public interface StockDriftReportRepository extends JpaRepository<StockDriftReport, Long> {
+
+    // Most recent reports first
+    List<StockDriftReport> findAllByOrderByDetectedAtDesc(Pageable pageable);
+
+    // Drift history for one item, newest first
+    List<StockDriftReport> findByStorageItemIdOrderByDetectedAtDesc(Long storageItemId);
+
+    // Retention - single DELETE statement
+    @Modifying
+    @Query("DELETE FROM StockDriftReport r WHERE r.detectedAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
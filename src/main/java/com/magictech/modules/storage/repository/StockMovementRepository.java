@@ -0,0 +1,24 @@
+package com.magictech.modules.storage.repository;
+
+import com.magictech.modules.storage.entity.StockMovement;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for the append-only stock movement ledger
+ */
+@Repository
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+
+    // Movement history for one item, newest first
+    List<StockMovement> findByStorageItemIdOrderByCreatedAtDesc(Long storageItemId);
+
+    // Movements recorded against a business reference (order, project element, ...)
+    List<StockMovement> findByReferenceOrderByCreatedAtAsc(String reference);
+
+    // Movements in a time window (audits)
+    List<StockMovement> findByCreatedAtBetweenOrderByCreatedAtAsc(LocalDateTime from, LocalDateTime to);
+}
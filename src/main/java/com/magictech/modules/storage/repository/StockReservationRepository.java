@@ -0,0 +1,41 @@
+package com.magictech.modules.storage.repository;
+
+import com.magictech.modules.storage.entity.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for soft stock reservations
+ */
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    // Find the reservation owned by a holder (order line)
+    Optional<StockReservation> findByHolderKey(String holderKey);
+
+    // Live reserved quantity for one item (used on the reserve path only)
+    @Query("SELECT COALESCE(SUM(r.quantity), 0) FROM StockReservation r " +
+           "WHERE r.storageItemId = :itemId AND r.expiresAt > :now")
+    int sumActiveReservedForItem(@Param("itemId") Long itemId, @Param("now") LocalDateTime now);
+
+    // Live reserved quantity per item - one grouped query to rebuild the in-memory counters
+    @Query("SELECT r.storageItemId, SUM(r.quantity) FROM StockReservation r " +
+           "WHERE r.expiresAt > :now GROUP BY r.storageItemId")
+    List<Object[]> sumActiveReservedByItem(@Param("now") LocalDateTime now);
+
+    // Holders of the holds the expiry sweep is about to delete
+    @Query("SELECT r.holderKey FROM StockReservation r WHERE r.expiresAt <= :now")
+    List<String> findExpiredHolderKeys(@Param("now") LocalDateTime now);
+
+    // Bulk expiry sweep - single DELETE statement
+    @Modifying
+    @Query("DELETE FROM StockReservation r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,24 @@
+package com.magictech.modules.storage.repository;
+
+import com.magictech.modules.storage.dto.CustomFieldQuery;
+import com.magictech.modules.storage.dto.ItemInLocationDTO;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+/**
+ * Keyset pages of the storage tables filtered and sorted on custom fields (jsonb) in SQL.
+ * Implemented with native queries in StorageItemLocationCustomFieldRepositoryImpl.
+ */
+public interface StorageItemLocationCustomFieldRepository {
+
+    /**
+     * Next page of active item-location rows after {@code afterId} (0 for the first page), in one
+     * location or across all (locationId null), matching every filter of the query and ordered
+     * by {@code columnSort} (a built-in column such as "productName" or "quantity") or else by
+     * the query's sort, then row id. With {@code searchPattern} set (lower-case LIKE pattern),
+     * only rows whose item search document or location name matches it are returned.
+     */
+    List<ItemInLocationDTO> findPageByCustomFields(Long locationId, long afterId, CustomFieldQuery query,
+                                                   Sort.Order columnSort, String searchPattern, int limit);
+}
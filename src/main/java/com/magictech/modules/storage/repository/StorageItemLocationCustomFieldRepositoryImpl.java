@@ -0,0 +1,220 @@
+package com.magictech.modules.storage.repository;
+
+import com.magictech.modules.storage.dto.CustomFieldQuery;
+import com.magictech.modules.storage.dto.CustomFieldQuery.Filter;
+import com.magictech.modules.storage.dto.CustomFieldQuery.Sort;
+import com.magictech.modules.storage.dto.ItemInLocationDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Native SQL for custom field filters and sorts.
+ *
+ * Text and yes/no equality are written as jsonb containment ({@code custom_fields @> ...}) so
+ * the GIN index on storage_items.custom_fields answers them. Ranges and sorts read the field as
+ * its configured type; values that do not parse as that type count as missing instead of
+ * failing the query. Field names are always bound as parameters. A column sort (table header)
+ * takes the place of the custom field sort and is keyed the same way.
+ */
+public class StorageItemLocationCustomFieldRepositoryImpl implements StorageItemLocationCustomFieldRepository {
+
+    private static final String SELECT_DTO =
+            "SELECT sil.id, s.id, s.manufacture, s.product_name, s.code, s.serial_number, sil.quantity, s.price, " +
+            "sil.row_number, sil.shelf_number, sil.bin_location, sil.min_stock_level, l.id, l.name, l.code " +
+            "FROM storage_item_locations sil " +
+            "JOIN storage_items s ON s.id = sil.storage_item_id " +
+            "JOIN storage_locations l ON l.id = sil.storage_location_id";
+
+    private static final String NUMBER_PATTERN = "'^\\s*-?[0-9]+(\\.[0-9]+)?\\s*$'";
+    // Year 0000 does not exist in Postgres; the day is checked against the month separately
+    private static final String DATE_PATTERN = "'^(?!0000)[0-9]{4}-(0[1-9]|1[0-2])-(0[1-9]|[12][0-9]|3[01])'";
+
+    /**
+     * Sort key over an item alias and an item-location alias, adding its parameters to args
+     */
+    @FunctionalInterface
+    private interface SortKey {
+        String of(String item, String row, List<Object> args);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<ItemInLocationDTO> findPageByCustomFields(Long locationId, long afterId, CustomFieldQuery query,
+                                                          Order columnSort, String searchPattern, int limit) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(SELECT_DTO);
+        Sort fieldSort = query.sort();
+        SortKey key = null;
+        boolean descending = false;
+        if (columnSort != null) {
+            String property = columnSort.getProperty();
+            columnKey(property, "s", "sil"); // Fail early on columns that cannot be sorted
+            key = (item, row, keyArgs) -> columnKey(property, item, row);
+            descending = columnSort.isDescending();
+        } else if (fieldSort != null) {
+            key = (item, row, keyArgs) -> typedField(item, fieldSort.field(), fieldSort.type(), keyArgs);
+            descending = fieldSort.descending();
+        }
+        boolean keyset = key != null && afterId > 0;
+
+        // Sort key of the last row of the previous page
+        if (keyset) {
+            sql.append(" LEFT JOIN LATERAL (SELECT ").append(key.of("ls", "lsil", args))
+               .append(" AS k FROM storage_item_locations lsil JOIN storage_items ls ON ls.id = lsil.storage_item_id")
+               .append(" WHERE lsil.id = ?) last ON true");
+            args.add(afterId);
+        }
+
+        sql.append(" WHERE sil.active = true");
+        if (locationId != null) {
+            sql.append(" AND l.id = ?");
+            args.add(locationId);
+        }
+        if (searchPattern != null) {
+            sql.append(" AND (").append(StorageItemRepository.searchDocument("s")).append(" LIKE ? OR LOWER(l.name) LIKE ?)");
+            args.add(searchPattern);
+            args.add(searchPattern);
+        }
+        for (Filter filter : query.filters()) {
+            sql.append(" AND ").append(predicate(filter, args));
+        }
+
+        if (key == null) {
+            sql.append(" AND sil.id > ? ORDER BY sil.id");
+            args.add(afterId);
+        } else {
+            if (keyset) {
+                // (key, id) after the last row's, items without a value last
+                String comparison = descending ? " < " : " > ";
+                sql.append(" AND (CASE WHEN last.k IS NULL THEN ")
+                   .append(key.of("s", "sil", args)).append(" IS NULL AND sil.id > ?");
+                args.add(afterId);
+                sql.append(" ELSE (").append(key.of("s", "sil", args))
+                   .append(comparison).append("last.k OR (")
+                   .append(key.of("s", "sil", args)).append(" = last.k AND sil.id > ?)");
+                args.add(afterId);
+                sql.append(" OR ").append(key.of("s", "sil", args)).append(" IS NULL) END)");
+            }
+            sql.append(" ORDER BY ").append(key.of("s", "sil", args))
+               .append(descending ? " DESC" : " ASC").append(" NULLS LAST, sil.id");
+        }
+        sql.append(" LIMIT ?");
+        args.add(limit);
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new ItemInLocationDTO(
+                rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getString(4), rs.getString(5),
+                rs.getString(6), rs.getInt(7), rs.getBigDecimal(8), rs.getString(9), rs.getString(10),
+                rs.getString(11), rs.getObject(12, Integer.class), rs.getLong(13), rs.getString(14),
+                rs.getString(15)), args.toArray());
+    }
+
+    private static String predicate(Filter filter, List<Object> args) {
+        String field = filter.field();
+        switch (filter.operator()) {
+            case IS_SET -> {
+                args.add(field);
+                return "COALESCE(s.custom_fields ->> ?::text, '') <> ''";
+            }
+            case CONTAINS -> {
+                args.add(field);
+                args.add("%" + escapeLike(filter.typedValue().toString().toLowerCase()) + "%");
+                return "LOWER(s.custom_fields ->> ?::text) LIKE ?";
+            }
+            case EQUALS -> {
+                switch (filter.type()) {
+                    case TEXT -> {
+                        args.add(field);
+                        args.add(filter.typedValue());
+                        return "s.custom_fields @> jsonb_build_object(?::text, ?::text)";
+                    }
+                    case BOOLEAN -> {
+                        Boolean value = (Boolean) filter.typedValue();
+                        args.add(field);
+                        args.add(value);
+                        args.add(field);
+                        args.add(value.toString());
+                        return "(s.custom_fields @> jsonb_build_object(?::text, ?::boolean) " +
+                               "OR s.custom_fields @> jsonb_build_object(?::text, ?::text))";
+                    }
+                    default -> {
+                        String typed = typedField("s", field, filter.type(), args);
+                        args.add(filter.typedValue());
+                        return typed + " = ?";
+                    }
+                }
+            }
+            case AT_LEAST -> {
+                String typed = typedField("s", field, filter.type(), args);
+                args.add(filter.typedValue());
+                return typed + " >= ?";
+            }
+            case AT_MOST -> {
+                String typed = typedField("s", field, filter.type(), args);
+                args.add(filter.typedValue());
+                return typed + " <= ?";
+            }
+            default -> throw new IllegalArgumentException("Unsupported operator: " + filter.operator());
+        }
+    }
+
+    /**
+     * The field of {@code alias}.custom_fields as its configured type, null when it does not parse
+     */
+    private static String typedField(String alias, String field, CustomFieldQuery.FieldType type, List<Object> args) {
+        String text = "(" + alias + ".custom_fields ->> ?::text)";
+        switch (type) {
+            case NUMBER -> {
+                args.add(field);
+                args.add(field);
+                return "(CASE WHEN " + text + " ~ " + NUMBER_PATTERN + " THEN " + text + "::numeric END)";
+            }
+            case DATE -> {
+                // Nested CASE so the day is only compared once the pattern matched, and the cast
+                // only runs for days the month has ('2024-02-30'::date would fail the query)
+                String day = "substring(" + text + " from 9 for 2)::int";
+                String lastDay = "extract(day from (substring(" + text + " from 1 for 7) || '-01')::date" +
+                                 " + interval '1 month - 1 day')";
+                for (int i = 0; i < 4; i++) {
+                    args.add(field);
+                }
+                return "(CASE WHEN " + text + " ~ " + DATE_PATTERN + " THEN CASE WHEN " + day + " <= " + lastDay +
+                       " THEN substring(" + text + " from 1 for 10)::date END END)";
+            }
+            case BOOLEAN -> {
+                args.add(field);
+                return "(CASE lower(" + text + ") WHEN 'true' THEN true WHEN 'false' THEN false END)";
+            }
+            default -> {
+                args.add(field);
+                return text;
+            }
+        }
+    }
+
+    /**
+     * A built-in column of the item ({@code item}) or its location row ({@code row}), by the
+     * view model property shown in the table
+     */
+    private static String columnKey(String property, String item, String row) {
+        return switch (property) {
+            case "manufacture" -> item + ".manufacture";
+            case "productName" -> item + ".product_name";
+            case "code" -> item + ".code";
+            case "serialNumber" -> item + ".serial_number";
+            case "price" -> item + ".price";
+            case "quantity" -> row + ".quantity";
+            case "binLocation" -> row + ".bin_location";
+            default -> throw new IllegalArgumentException("Cannot sort on " + property);
+        };
+    }
+
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
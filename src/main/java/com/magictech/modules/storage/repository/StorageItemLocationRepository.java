@@ -1,35 +1,51 @@
 package com.magictech.modules.storage.repository;
 
+import com.magictech.modules.storage.dto.ItemInLocationDTO;
 import com.magictech.modules.storage.entity.StorageItemLocation;
 import com.magictech.modules.storage.entity.StorageLocation;
 import com.magictech.modules.storage.entity.StorageItem;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository for StorageItemLocation junction entity
  */
 @Repository
-public interface StorageItemLocationRepository extends JpaRepository<StorageItemLocation, Long> {
+public interface StorageItemLocationRepository extends JpaRepository<StorageItemLocation, Long>,
+        StorageItemLocationCustomFieldRepository {
+
+    // Columns of an ItemInLocationDTO, in constructor order (sil, s = item, l = location)
+    String ITEM_IN_LOCATION_DTO = "new com.magictech.modules.storage.dto.ItemInLocationDTO(" +
+            "sil.id, s.id, s.manufacture, s.productName, s.code, s.serialNumber, sil.quantity, s.price, " +
+            "sil.rowNumber, sil.shelfNumber, sil.binLocation, sil.minStockLevel, l.id, l.name, l.code)";
 
     // Find all items in a specific location
     List<StorageItemLocation> findByStorageLocationAndActiveTrue(StorageLocation location);
 
-    // Find all items in a specific location by location ID
-    @Query("SELECT sil FROM StorageItemLocation sil WHERE sil.storageLocation.id = :locationId AND sil.active = true")
+    // Find all items in a specific location by location ID (item and location fetched)
+    @Query("SELECT sil FROM StorageItemLocation sil JOIN FETCH sil.storageItem JOIN FETCH sil.storageLocation l " +
+           "WHERE l.id = :locationId AND sil.active = true")
     List<StorageItemLocation> findByLocationId(@Param("locationId") Long locationId);
 
     // Find all locations for a specific item
     List<StorageItemLocation> findByStorageItemAndActiveTrue(StorageItem item);
 
-    // Find all locations for a specific item by item ID
-    @Query("SELECT sil FROM StorageItemLocation sil WHERE sil.storageItem.id = :itemId AND sil.active = true")
+    // Find all locations for a specific item by item ID (item and location fetched)
+    @Query("SELECT sil FROM StorageItemLocation sil JOIN FETCH sil.storageItem s JOIN FETCH sil.storageLocation " +
+           "WHERE s.id = :itemId AND sil.active = true")
     List<StorageItemLocation> findByItemId(@Param("itemId") Long itemId);
 
     // Find specific item in specific location
@@ -50,21 +66,39 @@ public interface StorageItemLocationRepository extends JpaRepository<StorageItem
     @Query("SELECT COALESCE(SUM(sil.quantity), 0) FROM StorageItemLocation sil WHERE sil.storageLocation.id = :locationId AND sil.active = true")
     int sumQuantityInLocation(@Param("locationId") Long locationId);
 
-    // Find low stock items in a location
-    @Query("SELECT sil FROM StorageItemLocation sil WHERE sil.storageLocation.id = :locationId AND sil.active = true AND sil.minStockLevel IS NOT NULL AND sil.quantity <= sil.minStockLevel")
+    // Find low stock items in a location (item and location fetched)
+    @Query("SELECT sil FROM StorageItemLocation sil JOIN FETCH sil.storageItem JOIN FETCH sil.storageLocation l " +
+           "WHERE l.id = :locationId AND sil.active = true AND sil.minStockLevel IS NOT NULL AND sil.quantity <= sil.minStockLevel")
     List<StorageItemLocation> findLowStockInLocation(@Param("locationId") Long locationId);
 
-    // Find all active records (for total view)
+    // Rows with a minimum level for the given items (low-stock re-check):
+    // itemId, productName, item quantity, locationId, locationName, quantity, minStockLevel
+    @Query("SELECT s.id, s.productName, s.quantity, l.id, l.name, sil.quantity, sil.minStockLevel " +
+           "FROM StorageItemLocation sil JOIN sil.storageItem s JOIN sil.storageLocation l " +
+           "WHERE sil.active = true AND s.active = true AND sil.minStockLevel IS NOT NULL AND s.id IN :itemIds")
+    List<Object[]> findMinLevelRowsForItems(@Param("itemIds") Collection<Long> itemIds);
+
+    // Items with a low location row, or whose on-hand quantity is at most the sum of their
+    // locations' minimums (nightly low-stock sweep, served by idx_storage_item_locations_min_level)
+    @Query(value = "SELECT sil.storage_item_id FROM storage_item_locations sil " +
+                   "JOIN storage_items s ON s.id = sil.storage_item_id " +
+                   "WHERE sil.active = true AND sil.min_stock_level IS NOT NULL AND s.active = true " +
+                   "GROUP BY sil.storage_item_id, s.quantity " +
+                   "HAVING bool_or(sil.quantity <= sil.min_stock_level) OR s.quantity <= SUM(sil.min_stock_level)",
+           nativeQuery = true)
+    List<Long> findLowStockItemIds();
+
+    // Find all active records (item and location fetched)
+    @Query("SELECT sil FROM StorageItemLocation sil JOIN FETCH sil.storageItem JOIN FETCH sil.storageLocation " +
+           "WHERE sil.active = true")
     List<StorageItemLocation> findByActiveTrue();
 
-    // Search items within a location
-    @Query("SELECT sil FROM StorageItemLocation sil WHERE sil.storageLocation.id = :locationId AND sil.active = true AND " +
-           "(LOWER(sil.storageItem.productName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(sil.storageItem.manufacture) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(sil.storageItem.code) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
-    List<StorageItemLocation> searchInLocation(
+    // Rows of the given items in a location, item and location fetched in the same query (search results)
+    @Query("SELECT sil FROM StorageItemLocation sil JOIN FETCH sil.storageItem s JOIN FETCH sil.storageLocation l " +
+           "WHERE l.id = :locationId AND sil.active = true AND s.active = true AND s.id IN :itemIds")
+    List<StorageItemLocation> findInLocationByItemIds(
             @Param("locationId") Long locationId,
-            @Param("searchTerm") String searchTerm);
+            @Param("itemIds") Collection<Long> itemIds);
 
     // Get total quantity of an item across all locations
     @Query("SELECT COALESCE(SUM(sil.quantity), 0) FROM StorageItemLocation sil WHERE sil.storageItem.id = :itemId AND sil.active = true")
@@ -85,4 +119,77 @@ public interface StorageItemLocationRepository extends JpaRepository<StorageItem
     @Modifying
     @Query("UPDATE StorageItemLocation sil SET sil.active = false WHERE sil.storageItem.id = :itemId")
     void softDeleteByItemId(@Param("itemId") Long itemId);
+
+    // ==================== Atomic quantity updates (StockLedger) ====================
+
+    // Item ID, location ID and quantity of a row, without loading the entity into the persistence context
+    @Query("SELECT sil.storageItem.id, sil.storageLocation.id, sil.quantity FROM StorageItemLocation sil WHERE sil.id = :id")
+    List<Object[]> findQuantitySnapshot(@Param("id") Long id);
+
+    // Update the shelf details of an item-location row - quantity is changed through StockLedger only
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE StorageItemLocation sil SET sil.binLocation = :binLocation, sil.shelfNumber = :shelfNumber, " +
+           "sil.rowNumber = :rowNumber, sil.minStockLevel = :minStockLevel, sil.maxStockLevel = :maxStockLevel, " +
+           "sil.notes = :notes, sil.lastUpdated = :now WHERE sil.id = :id")
+    int updateDetails(@Param("id") Long id,
+                      @Param("binLocation") String binLocation,
+                      @Param("shelfNumber") String shelfNumber,
+                      @Param("rowNumber") String rowNumber,
+                      @Param("minStockLevel") Integer minStockLevel,
+                      @Param("maxStockLevel") Integer maxStockLevel,
+                      @Param("notes") String notes,
+                      @Param("now") LocalDateTime now);
+
+    // Record a counted quantity for an item-location row
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE StorageItemLocation sil SET sil.quantity = :qty, sil.lastInventoryCheck = :now, " +
+           "sil.lastInventoryBy = :checkedBy, sil.lastUpdated = :now WHERE sil.id = :id")
+    int recordCountedQuantity(@Param("id") Long id,
+                              @Param("qty") int qty,
+                              @Param("checkedBy") String checkedBy,
+                              @Param("now") LocalDateTime now);
+
+    // Items in one location as scalar export rows (quantity is the quantity in this location):
+    // id, manufacture, productName, code, serialNumber, quantity, price
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT s.id, s.manufacture, s.productName, s.code, s.serialNumber, sil.quantity, s.price " +
+           "FROM StorageItemLocation sil JOIN sil.storageItem s " +
+           "WHERE sil.storageLocation.id = :locationId AND sil.active = true AND s.active = true ORDER BY s.id")
+    Stream<Object[]> streamExportRowsForLocation(@Param("locationId") Long locationId);
+
+    // ==================== View projections ====================
+
+    // Items in a location as DTOs - only the displayed columns, in one joined query
+    @Query("SELECT " + ITEM_IN_LOCATION_DTO + " FROM StorageItemLocation sil JOIN sil.storageItem s JOIN sil.storageLocation l " +
+           "WHERE l.id = :locationId AND sil.active = true ORDER BY sil.id")
+    List<ItemInLocationDTO> findDTOsByLocationId(@Param("locationId") Long locationId);
+
+    // All active item-location rows as DTOs (total view)
+    @Query("SELECT " + ITEM_IN_LOCATION_DTO + " FROM StorageItemLocation sil JOIN sil.storageItem s JOIN sil.storageLocation l " +
+           "WHERE sil.active = true ORDER BY sil.id")
+    List<ItemInLocationDTO> findAllActiveDTOs();
+
+    // ==================== Keyset pages (storage tables) ====================
+
+    // Next page of active rows after the given id as DTOs, in one location or across all (locationId null).
+    // The page size comes from the Pageable (use page 0).
+    @Query("SELECT " + ITEM_IN_LOCATION_DTO + " FROM StorageItemLocation sil JOIN sil.storageItem s JOIN sil.storageLocation l " +
+           "WHERE sil.active = true AND sil.id > :afterId " +
+           "AND (:locationId IS NULL OR l.id = :locationId) " +
+           "ORDER BY sil.id")
+    List<ItemInLocationDTO> findPageAfter(@Param("locationId") Long locationId,
+                                          @Param("afterId") Long afterId,
+                                          Pageable page);
+
+    // Same as findPageAfter, limited to rows whose item search document or location name
+    // matches the LIKE pattern (lower case, see StorageSearchService.containsPattern)
+    @Query("SELECT " + ITEM_IN_LOCATION_DTO + " FROM StorageItemLocation sil JOIN sil.storageItem s JOIN sil.storageLocation l " +
+           "WHERE sil.active = true AND sil.id > :afterId " +
+           "AND (:locationId IS NULL OR l.id = :locationId) " +
+           "AND (" + StorageItemRepository.SEARCH_DOCUMENT_JPQL + " LIKE :pattern OR LOWER(l.name) LIKE :pattern) " +
+           "ORDER BY sil.id")
+    List<ItemInLocationDTO> findPageAfterMatching(@Param("locationId") Long locationId,
+                                                  @Param("afterId") Long afterId,
+                                                  @Param("pattern") String pattern,
+                                                  Pageable page);
 }
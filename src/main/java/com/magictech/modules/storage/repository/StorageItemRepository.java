@@ -1,12 +1,23 @@
 package com.magictech.modules.storage.repository;
 
 import com.magictech.modules.storage.entity.StorageItem;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Storage Item Repository - UPDATED
@@ -14,6 +25,29 @@ import java.util.List;
 @Repository
 public interface StorageItemRepository extends JpaRepository<StorageItem, Long> {
 
+    /**
+     * Searchable text of an item (SQL expression). The pg_trgm GIN index is built on exactly
+     * this expression - queries must repeat it verbatim for the index to be used.
+     */
+    String SEARCH_DOCUMENT = "lower(coalesce(manufacture, '') || ' ' || product_name || ' ' || " +
+            "coalesce(code, '') || ' ' || coalesce(serial_number, ''))";
+
+    /**
+     * The same search document in JPQL over the item alias {@code s}, for paged queries that
+     * filter on a search term (LIKE pattern from StorageSearchService.containsPattern)
+     */
+    String SEARCH_DOCUMENT_JPQL = "LOWER(CONCAT(COALESCE(s.manufacture, ''), ' ', s.productName, ' ', " +
+            "COALESCE(s.code, ''), ' ', COALESCE(s.serialNumber, '')))";
+
+    /**
+     * {@link #SEARCH_DOCUMENT} with its columns qualified by a table alias, for native queries
+     * that join other tables
+     */
+    static String searchDocument(String alias) {
+        return "lower(coalesce(" + alias + ".manufacture, '') || ' ' || " + alias + ".product_name || ' ' || " +
+                "coalesce(" + alias + ".code, '') || ' ' || coalesce(" + alias + ".serial_number, ''))";
+    }
+
     /**
      * Find all active storage items
      */
@@ -39,16 +73,6 @@ public interface StorageItemRepository extends JpaRepository<StorageItem, Long>
      */
     List<StorageItem> findBySerialNumberAndActiveTrue(String serialNumber);
 
-    /**
-     * Search items across multiple fields (NEW FIELDS)
-     */
-    @Query("SELECT s FROM StorageItem s WHERE s.active = true AND " +
-            "(LOWER(s.manufacture) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-            "LOWER(s.productName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-            "LOWER(s.code) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-            "LOWER(s.serialNumber) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
-    List<StorageItem> searchItems(@Param("searchTerm") String searchTerm);
-
     /**
      * Find items with low quantity (for alerts)
      */
@@ -79,4 +103,203 @@ public interface StorageItemRepository extends JpaRepository<StorageItem, Long>
      */
     @Override
     List<StorageItem> findAllById(Iterable<Long> ids);
-}
\ No newline at end of file
+
+    /**
+     * Items added or changed since a point in time, including deactivated ones (catalog cache refresh)
+     */
+    @Query("SELECT s FROM StorageItem s WHERE COALESCE(s.lastUpdated, s.dateAdded) >= :since")
+    List<StorageItem> findChangedSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Ids of all active items (catalog cache check for hard-deleted rows)
+     */
+    @Query("SELECT s.id FROM StorageItem s WHERE s.active = true")
+    List<Long> findActiveIds();
+
+    /**
+     * Load an item with a row lock (serializes reservations on the same item across desks)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM StorageItem s WHERE s.id = :id")
+    Optional<StorageItem> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Lock an item's row and read its quantity (same lock as {@link #findByIdForUpdate}, without
+     * loading the entity) - the stock ledger checks live reservations under it before deducting
+     */
+    @Query(value = "SELECT COALESCE(quantity, 0) FROM storage_items WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Integer> lockQuantity(@Param("id") Long id);
+
+    // ==================== Atomic quantity updates (StockLedger) ====================
+
+    /**
+     * Deduct quantity only if enough stock is on hand - returns 0 when stock is insufficient
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE StorageItem s SET s.quantity = s.quantity - :qty, s.lastUpdated = :now " +
+            "WHERE s.id = :id AND s.quantity >= :qty")
+    int deductQuantityIfAvailable(@Param("id") Long id,
+                                  @Param("qty") int qty,
+                                  @Param("now") LocalDateTime now);
+
+    /**
+     * Add quantity in place (no read-modify-write)
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE StorageItem s SET s.quantity = s.quantity + :qty, s.lastUpdated = :now WHERE s.id = :id")
+    int incrementQuantity(@Param("id") Long id,
+                          @Param("qty") int qty,
+                          @Param("now") LocalDateTime now);
+
+    /**
+     * Update price only - leaves quantity untouched so concurrent stock movements are not overwritten
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE StorageItem s SET s.price = :price, s.lastUpdated = :now WHERE s.id = :id")
+    int updatePrice(@Param("id") Long id,
+                    @Param("price") BigDecimal price,
+                    @Param("now") LocalDateTime now);
+
+    /**
+     * Update the item's details only - leaves quantity untouched so concurrent stock movements are not overwritten
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE StorageItem s SET s.manufacture = :manufacture, s.productName = :productName, " +
+            "s.code = :code, s.serialNumber = :serialNumber, s.price = :price, s.lastUpdated = :now " +
+            "WHERE s.id = :id")
+    int updateDetails(@Param("id") Long id,
+                      @Param("manufacture") String manufacture,
+                      @Param("productName") String productName,
+                      @Param("code") String code,
+                      @Param("serialNumber") String serialNumber,
+                      @Param("price") BigDecimal price,
+                      @Param("now") LocalDateTime now);
+
+    /**
+     * Set the quantity only if it still equals the value the caller read - returns 0 when
+     * another desk changed it in between (used by stock reconciliation)
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE StorageItem s SET s.quantity = :target, s.lastUpdated = :now " +
+            "WHERE s.id = :id AND s.quantity = :expected")
+    int setQuantityIfUnchanged(@Param("id") Long id,
+                               @Param("expected") int expected,
+                               @Param("target") int target,
+                               @Param("now") LocalDateTime now);
+
+    // ==================== Stock reconciliation ====================
+
+    /**
+     * Item quantity against the sum of its active location rows for the next chunk of
+     * active items after {@code afterId} (keyset on id): id, item quantity, location total,
+     * location row count, and the net quantity of deductions and returns without a location
+     * since the item's last full reconciliation (movements whose reference matches
+     * {@code reconciledReference}).
+     * One grouped join per chunk; the caller keeps the drifted rows.
+     */
+    @Query(value = "SELECT c.id, c.quantity, COALESCE(SUM(sil.quantity), 0), COUNT(sil.id), " +
+                   "(SELECT COALESCE(SUM(m.quantity_delta), 0) FROM stock_movements m WHERE m.storage_item_id = c.id " +
+                   "AND m.movement_type IN ('DEDUCTION', 'RETURN') " +
+                   "AND m.from_location_id IS NULL AND m.to_location_id IS NULL " +
+                   "AND m.created_at > COALESCE((SELECT MAX(r.created_at) FROM stock_movements r " +
+                   "WHERE r.storage_item_id = c.id AND r.movement_type = 'INVENTORY_CHECK' " +
+                   "AND r.reference LIKE :reconciledReference), '-infinity')) " +
+                   "FROM (SELECT id, quantity FROM storage_items " +
+                   "WHERE active = true AND id > :afterId ORDER BY id LIMIT :limit) c " +
+                   "LEFT JOIN storage_item_locations sil " +
+                   "ON sil.storage_item_id = c.id AND sil.active = true " +
+                   "GROUP BY c.id, c.quantity ORDER BY c.id",
+           nativeQuery = true)
+    List<Object[]> findStockBalanceChunk(@Param("afterId") Long afterId, @Param("limit") int limit,
+                                         @Param("reconciledReference") String reconciledReference);
+
+    // ==================== Export row sources ====================
+
+    /**
+     * Active items as scalar rows for Excel export, fetched from the cursor 500 at a time:
+     * id, manufacture, productName, code, serialNumber, quantity, price.
+     * Must be consumed inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT s.id, s.manufacture, s.productName, s.code, s.serialNumber, s.quantity, s.price " +
+           "FROM StorageItem s WHERE s.active = true ORDER BY s.id")
+    Stream<Object[]> streamExportRows();
+
+    // ==================== Keyset pages (catalog tables) ====================
+
+    /**
+     * Next page of active items ordered by (productName, id), starting after the given key -
+     * pass ("", 0) for the first page. The row comparison is served by the
+     * (product_name, id) index; the page size comes from the Pageable (use page 0).
+     * Null filters are ignored; productType matches the first words of the product name.
+     */
+    @Query("SELECT s FROM StorageItem s WHERE s.active = true " +
+           "AND (s.productName, s.id) > (CAST(:lastName AS String), CAST(:lastId AS Long)) " +
+           "AND (:systemType IS NULL OR s.systemType = :systemType) " +
+           "AND (:manufacture IS NULL OR s.manufacture = :manufacture) " +
+           "AND (:productType IS NULL OR s.productName = :productType " +
+           "OR s.productName LIKE CONCAT(:productType, ' %')) " +
+           "ORDER BY s.productName, s.id")
+    List<StorageItem> findPageAfter(@Param("lastName") String lastName,
+                                    @Param("lastId") Long lastId,
+                                    @Param("systemType") String systemType,
+                                    @Param("manufacture") String manufacture,
+                                    @Param("productType") String productType,
+                                    Pageable page);
+
+    /**
+     * Same as {@link #findPageAfter} but limited to items whose search document matches the
+     * pattern, so every match can be paged to
+     */
+    @Query("SELECT s FROM StorageItem s WHERE s.active = true AND " + SEARCH_DOCUMENT_JPQL + " LIKE :pattern " +
+           "AND (s.productName, s.id) > (CAST(:lastName AS String), CAST(:lastId AS Long)) " +
+           "AND (:systemType IS NULL OR s.systemType = :systemType) " +
+           "AND (:manufacture IS NULL OR s.manufacture = :manufacture) " +
+           "AND (:productType IS NULL OR s.productName = :productType " +
+           "OR s.productName LIKE CONCAT(:productType, ' %')) " +
+           "ORDER BY s.productName, s.id")
+    List<StorageItem> findPageAfterMatching(@Param("pattern") String pattern,
+                                            @Param("lastName") String lastName,
+                                            @Param("lastId") Long lastId,
+                                            @Param("systemType") String systemType,
+                                            @Param("manufacture") String manufacture,
+                                            @Param("productType") String productType,
+                                            Pageable page);
+
+    /**
+     * Distinct (systemType, manufacture, product type) combinations of active items - feeds the
+     * cascading filter combos without loading the catalog. Product type is the first two
+     * words of the product name.
+     */
+    @Query(value = "SELECT DISTINCT system_type, manufacture, " +
+                   "CASE WHEN split_part(name, ' ', 2) = '' THEN name " +
+                   "ELSE split_part(name, ' ', 1) || ' ' || split_part(name, ' ', 2) END " +
+                   "FROM (SELECT system_type, manufacture, " +
+                   "regexp_replace(trim(product_name), '\\s+', ' ', 'g') AS name " +
+                   "FROM storage_items WHERE active = true) items",
+           nativeQuery = true)
+    List<Object[]> findFilterCombinations();
+
+    // ==================== Search ====================
+
+    /**
+     * Ids of active items whose search document contains the pattern, ranked: exact product
+     * name, product name prefix, then trigram word similarity. Needs pg_trgm.
+     */
+    @Query(value = "SELECT id FROM storage_items WHERE active = true AND " + SEARCH_DOCUMENT + " LIKE :pattern " +
+                   "ORDER BY (lower(product_name) = :term) DESC, (lower(product_name) LIKE :prefix) DESC, " +
+                   "word_similarity(:term, " + SEARCH_DOCUMENT + ") DESC, id LIMIT :limit",
+           nativeQuery = true)
+    List<Long> searchRankedIds(@Param("term") String term,
+                               @Param("pattern") String pattern,
+                               @Param("prefix") String prefix,
+                               @Param("limit") int limit);
+
+    /**
+     * Searchable columns of active items for the in-memory search index:
+     * id, manufacture, productName, code, serialNumber
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT s.id, s.manufacture, s.productName, s.code, s.serialNumber FROM StorageItem s WHERE s.active = true")
+    Stream<Object[]> streamSearchRows();
+}
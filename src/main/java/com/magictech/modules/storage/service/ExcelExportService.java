@@ -1,83 +1,69 @@
 package com.magictech.modules.storage.service;
 
-import com.magictech.modules.storage.entity.StorageItem;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import com.magictech.core.export.StreamingExcelWriter;
+import com.magictech.modules.storage.repository.StorageItemLocationRepository;
+import com.magictech.modules.storage.repository.StorageItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Excel Export Service
- * Exports storage items to Excel file
+ * Exports storage items to Excel file - rows are streamed from the database
+ * into a StreamingExcelWriter, so memory does not grow with inventory size.
  */
 @Service
+@Transactional(readOnly = true)
 public class ExcelExportService {
 
-    /**
-     * Export storage items to Excel file
-     */
-    public File exportToExcel(List<StorageItem> items, String fileName) throws IOException {
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("Storage Items");
+    private static final String[] COLUMNS = {"ID", "Manufacture", "Product Name", "Code", "Serial Number", "Quantity", "Price"};
 
-        // Create header style
-        CellStyle headerStyle = workbook.createCellStyle();
-        Font headerFont = workbook.createFont();
-        headerFont.setBold(true);
-        headerFont.setFontHeightInPoints((short) 12);
-        headerStyle.setFont(headerFont);
-        headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        headerStyle.setBorderBottom(BorderStyle.THIN);
-        headerStyle.setBorderTop(BorderStyle.THIN);
-        headerStyle.setBorderLeft(BorderStyle.THIN);
-        headerStyle.setBorderRight(BorderStyle.THIN);
+    @Autowired
+    private StorageItemRepository itemRepository;
 
-        // Create header row
-        Row headerRow = sheet.createRow(0);
-        String[] columns = {"ID", "Manufacture", "Product Name", "Code", "Serial Number", "Quantity", "Price"};
-
-        for (int i = 0; i < columns.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(columns[i]);
-            cell.setCellStyle(headerStyle);
-        }
+    @Autowired
+    private StorageItemLocationRepository itemLocationRepository;
 
-        // Create data rows
-        int rowNum = 1;
-        for (StorageItem item : items) {
-            Row row = sheet.createRow(rowNum++);
+    /**
+     * Export all active storage items (total quantities)
+     * @return number of exported items
+     */
+    public int exportAllItems(File file) throws IOException {
+        return exportToExcel(itemRepository.streamExportRows(), file);
+    }
 
-            row.createCell(0).setCellValue(item.getId());
-            row.createCell(1).setCellValue(item.getManufacture() != null ? item.getManufacture() : "");
-            row.createCell(2).setCellValue(item.getProductName() != null ? item.getProductName() : "");
-            row.createCell(3).setCellValue(item.getCode() != null ? item.getCode() : "");
-            row.createCell(4).setCellValue(item.getSerialNumber() != null ? item.getSerialNumber() : "");
-            row.createCell(5).setCellValue(item.getQuantity() != null ? item.getQuantity() : 0);
+    /**
+     * Export the items of one location (quantities in that location)
+     * @return number of exported items
+     */
+    public int exportLocationItems(Long locationId, File file) throws IOException {
+        return exportToExcel(itemLocationRepository.streamExportRowsForLocation(locationId), file);
+    }
 
-            if (item.getPrice() != null) {
-                row.createCell(6).setCellValue(item.getPrice().doubleValue());
-            } else {
-                row.createCell(6).setCellValue(0);
-            }
-        }
+    /**
+     * Export scalar item rows: id, manufacture, product name, code, serial number, quantity, price
+     */
+    public int exportToExcel(Stream<Object[]> rows, File file) throws IOException {
+        try (StreamingExcelWriter writer = new StreamingExcelWriter()) {
+            StreamingExcelWriter.SheetWriter sheet = writer.createSheet("Storage Items");
+            sheet.header(writer.headerStyle(), COLUMNS);
 
-        // Auto-size columns
-        for (int i = 0; i < columns.length; i++) {
-            sheet.autoSizeColumn(i);
-        }
+            int count = sheet.rows(rows, row -> new Object[]{
+                    row[0],
+                    row[1] != null ? row[1] : "",
+                    row[2] != null ? row[2] : "",
+                    row[3] != null ? row[3] : "",
+                    row[4] != null ? row[4] : "",
+                    row[5] != null ? row[5] : 0,
+                    row[6] != null ? row[6] : 0
+            });
 
-        // Write to file
-        File file = new File(fileName);
-        try (FileOutputStream outputStream = new FileOutputStream(file)) {
-            workbook.write(outputStream);
+            writer.writeTo(file);
+            return count;
         }
-        workbook.close();
-
-        return file;
     }
-}
\ No newline at end of file
+}
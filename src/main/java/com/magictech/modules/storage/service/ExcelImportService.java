@@ -1,148 +1,397 @@
 package com.magictech.modules.storage.service;
 
 import com.magictech.modules.storage.entity.StorageItem;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
+import javax.xml.parsers.ParserConfigurationException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.text.DecimalFormatSymbols;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 /**
- * Excel Import Service - UPDATED FOR NEW STRUCTURE
+ * Excel Import Service - STREAMING
  * Expected columns: Manufacture | Product Name | Code | Serial Number | Quantity | Price
+ *
+ * Reads the first sheet of an .xlsx file with POI's SAX event reader (the workbook is never
+ * loaded into memory), collects rows into chunks and writes each chunk with one batched insert
+ * into storage_items and one into storage_item_locations. Invalid rows are collected in an
+ * ImportReport instead of being printed; a chunk the database rejects is reported for its rows
+ * and the import goes on with the next chunk.
+ *
+ * Numeric cells are read from their stored value. Numbers typed as text are read with this
+ * desk's decimal and grouping separators; anything ambiguous (e.g. "1,5" where ',' groups
+ * thousands) is reported instead of guessed. Quantities must be whole numbers.
  */
 @Service
 public class ExcelImportService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ExcelImportService.class);
+
+    static final int CHUNK_SIZE = 1000;
+
+    // Keep the report bounded for files full of bad rows
+    private static final int MAX_REPORTED_ERRORS = 500;
+
+    @Autowired
+    private StorageImportBatchWriter batchWriter;
+
     /**
-     * Read Excel file and convert to StorageItem list
-     * Expected columns: Manufacture | Product Name | Code | Serial Number | Quantity | Price
+     * Progress callback - invoked once per written chunk
      */
-    public List<StorageItem> importFromExcel(File file) throws IOException {
-        List<StorageItem> items = new ArrayList<>();
-
-        try (FileInputStream fis = new FileInputStream(file);
-             Workbook workbook = new XSSFWorkbook(fis)) {
-
-            Sheet sheet = workbook.getSheetAt(0); // Read first sheet
-
-            // Skip header row (row 0)
-            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null) continue;
-
-                try {
-                    StorageItem item = new StorageItem();
-
-                    // Column 0: Manufacture
-                    Cell manufactureCell = row.getCell(0);
-                    if (manufactureCell != null) {
-                        item.setManufacture(getCellValueAsString(manufactureCell));
-                    }
-
-                    // Column 1: Product Name (REQUIRED)
-                    Cell productNameCell = row.getCell(1);
-                    if (productNameCell != null) {
-                        item.setProductName(getCellValueAsString(productNameCell));
-                    }
-
-                    // Column 2: Code
-                    Cell codeCell = row.getCell(2);
-                    if (codeCell != null) {
-                        item.setCode(getCellValueAsString(codeCell));
-                    }
-
-                    // Column 3: Serial Number
-                    Cell serialCell = row.getCell(3);
-                    if (serialCell != null) {
-                        item.setSerialNumber(getCellValueAsString(serialCell));
-                    }
-
-                    // Column 4: Quantity
-                    Cell quantityCell = row.getCell(4);
-                    if (quantityCell != null) {
-                        item.setQuantity((int) getNumericCellValue(quantityCell));
-                    } else {
-                        item.setQuantity(0);
-                    }
-
-                    // Column 5: Price
-                    Cell priceCell = row.getCell(5);
-                    if (priceCell != null) {
-                        double priceValue = getNumericCellValue(priceCell);
-                        item.setPrice(BigDecimal.valueOf(priceValue));
-                    }
-
-                    // Set defaults
-                    item.setDateAdded(LocalDateTime.now());
-                    item.setActive(true);
-
-                    // Only add if product name is not empty
-                    if (item.getProductName() != null && !item.getProductName().trim().isEmpty()) {
-                        items.add(item);
-                    }
-
-                } catch (Exception e) {
-                    System.err.println("Error reading row " + (i + 1) + ": " + e.getMessage());
-                    // Continue to next row
-                }
+    @FunctionalInterface
+    public interface ImportProgressListener {
+        void onProgress(int rowsRead, int rowsImported);
+    }
+
+    /**
+     * Import all rows of the first sheet into a storage location
+     */
+    public ImportReport importToLocation(File file, Long locationId, String createdBy,
+                                         ImportProgressListener listener) throws IOException {
+        ImportReport report = new ImportReport(file.getName());
+
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return report;
             }
+
+            try (InputStream sheet = sheets.next()) {
+                RawValueFormatter formatter = new RawValueFormatter();
+                ChunkingRowHandler handler = new ChunkingRowHandler(report, formatter,
+                        DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)),
+                        (chunk, firstRow, lastRow) -> {
+                            try {
+                                batchWriter.writeChunk(chunk, locationId, createdBy);
+                                report.importedRows += chunk.size();
+                            } catch (RuntimeException e) {
+                                // The chunk's transaction rolled back - report its rows and go on
+                                logger.warn("Import chunk (rows {}-{}) of {} failed: {}",
+                                        firstRow, lastRow, file.getName(), e.getMessage());
+                                report.addChunkError(firstRow, lastRow, chunk.size(),
+                                        "Not saved: " + rootMessage(e));
+                            }
+                            if (listener != null) {
+                                listener.onProgress(report.totalRows, report.importedRows);
+                            }
+                        });
+
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(
+                        styles, null, strings, handler, formatter, false));
+                parser.parse(new InputSource(sheet));
+                handler.flush();
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Invalid Excel file (.xlsx expected): " + e.getMessage(), e);
         }
 
-        return items;
+        logger.info("Imported {} of {} rows from {} ({} errors)",
+                report.importedRows, report.totalRows, file.getName(), report.errorCount);
+        return report;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : root.getClass().getSimpleName();
     }
 
+    // ==================== Row Handling ====================
+
     /**
-     * Get cell value as string regardless of cell type
+     * Writes one chunk of rows; {@code firstRow}..{@code lastRow} are its Excel row numbers
      */
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) return "";
-
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue().trim();
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getDateCellValue().toString();
-                }
-                // Check if it's a whole number
-                double numValue = cell.getNumericCellValue();
-                if (numValue == (long) numValue) {
-                    return String.valueOf((long) numValue);
-                }
-                return String.valueOf(numValue);
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                return cell.getCellFormula();
-            case BLANK:
-                return "";
-            default:
-                return "";
+    @FunctionalInterface
+    private interface ChunkWriter {
+        void write(List<StorageItem> chunk, int firstRow, int lastRow);
+    }
+
+    /**
+     * Keeps the stored value of the last numeric cell it formatted, so numbers are not read back
+     * from their locale-formatted text. The sheet handler formats each cell right before passing
+     * it on, so the value always belongs to the next cell() call.
+     */
+    private static class RawValueFormatter extends DataFormatter {
+
+        private String lastNumber;
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString) {
+            lastNumber = BigDecimal.valueOf(value).toPlainString();
+            return super.formatRawCellContents(value, formatIndex, formatString);
+        }
+
+        String takeLastNumber() {
+            String number = lastNumber;
+            lastNumber = null;
+            return number;
         }
     }
 
     /**
-     * Get numeric value from cell
+     * Receives SAX cell events, turns each data row into a StorageItem and hands
+     * full chunks to the writer
      */
-    private double getNumericCellValue(Cell cell) {
-        if (cell == null) return 0;
+    private static class ChunkingRowHandler implements SheetContentsHandler {
+
+        private final ImportReport report;
+        private final RawValueFormatter formatter;
+        private final ChunkWriter chunkWriter;
+        private final Pattern plainNumber;
+        private final Pattern groupedNumber;
+        private final char decimalSeparator;
+        private final char groupingSeparator;
+        private final String[] cells = new String[6];
+        // Stored value of numeric cells (null for text cells)
+        private final String[] numbers = new String[6];
+        private List<StorageItem> chunk = new ArrayList<>(CHUNK_SIZE);
+        private int chunkFirstRow;
+        private int chunkLastRow;
+        private int currentColumn;
+
+        ChunkingRowHandler(ImportReport report, RawValueFormatter formatter, DecimalFormatSymbols symbols,
+                           ChunkWriter chunkWriter) {
+            this.report = report;
+            this.formatter = formatter;
+            this.chunkWriter = chunkWriter;
+            this.decimalSeparator = symbols.getDecimalSeparator();
+            // Non-breaking spaces group thousands in some locales; typed text uses plain spaces
+            this.groupingSeparator = Character.isSpaceChar(symbols.getGroupingSeparator())
+                    ? ' ' : symbols.getGroupingSeparator();
+            String decimal = Pattern.quote(String.valueOf(decimalSeparator));
+            String grouping = Pattern.quote(String.valueOf(groupingSeparator));
+            this.plainNumber = Pattern.compile("-?\\d+(" + decimal + "\\d+)?");
+            this.groupedNumber = Pattern.compile("-?\\d{1,3}(" + grouping + "\\d{3})+(" + decimal + "\\d+)?");
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            java.util.Arrays.fill(cells, null);
+            java.util.Arrays.fill(numbers, null);
+            currentColumn = -1;
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null
+                    ? new CellReference(cellReference).getCol()
+                    : currentColumn + 1;
+            currentColumn = column;
+            String number = formatter.takeLastNumber();
+            if (column < cells.length) {
+                cells[column] = formattedValue != null ? formattedValue.trim() : null;
+                numbers[column] = number;
+            }
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (rowNum == 0) {
+                return; // Header row
+            }
+            if (isBlankRow()) {
+                return;
+            }
+
+            report.totalRows++;
+            int excelRow = rowNum + 1;
+
+            if (isEmpty(cells[1])) {
+                report.addError(excelRow, "Product Name is empty");
+                return;
+            }
 
-        if (cell.getCellType() == CellType.NUMERIC) {
-            return cell.getNumericCellValue();
-        } else if (cell.getCellType() == CellType.STRING) {
             try {
-                return Double.parseDouble(cell.getStringCellValue().trim());
+                StorageItem item = new StorageItem();
+                item.setManufacture(cells[0]);
+                item.setProductName(cells[1]);
+                item.setCode(cells[2]);
+                item.setSerialNumber(cells[3]);
+                item.setQuantity(isEmpty(cells[4]) ? 0 : parseQuantity(4));
+                item.setPrice(isEmpty(cells[5]) ? null : parseDecimal(5));
+                item.setDateAdded(LocalDateTime.now());
+                item.setActive(true);
+                chunk.add(item);
             } catch (NumberFormatException e) {
-                return 0;
+                report.addError(excelRow, "Invalid number: " + e.getMessage());
+                return;
+            }
+            if (chunk.size() == 1) {
+                chunkFirstRow = excelRow;
+            }
+            chunkLastRow = excelRow;
+
+            if (chunk.size() >= CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            chunkWriter.write(chunk, chunkFirstRow, chunkLastRow);
+            chunk = new ArrayList<>(CHUNK_SIZE);
+        }
+
+        private boolean isBlankRow() {
+            for (String value : cells) {
+                if (!isEmpty(value)) return false;
+            }
+            return true;
+        }
+
+        private static boolean isEmpty(String value) {
+            return value == null || value.isEmpty();
+        }
+
+        private int parseQuantity(int column) {
+            String value = cells[column];
+            BigDecimal decimal = parseDecimal(column);
+            if (decimal.signum() < 0) {
+                throw new NumberFormatException("negative quantity '" + value + "'");
+            }
+            if (decimal.stripTrailingZeros().scale() > 0) {
+                throw new NumberFormatException("quantity must be a whole number '" + value + "'");
+            }
+            try {
+                return decimal.intValueExact();
+            } catch (ArithmeticException e) {
+                throw new NumberFormatException("quantity too large '" + value + "'");
+            }
+        }
+
+        /**
+         * Numeric cells use their stored value. Text may carry currency symbols and this desk's
+         * grouping separators ("1,250", "$12.50"); grouping must come in threes so that a
+         * separator meant as a decimal point is rejected rather than dropped.
+         */
+        private BigDecimal parseDecimal(int column) {
+            if (numbers[column] != null) {
+                return new BigDecimal(numbers[column]);
+            }
+            String value = cells[column];
+            StringBuilder cleaned = new StringBuilder();
+            for (char c : value.toCharArray()) {
+                if (Character.isDigit(c) || c == '-' || c == decimalSeparator || c == groupingSeparator) {
+                    cleaned.append(c);
+                } else if (Character.isSpaceChar(c) && groupingSeparator == ' ') {
+                    cleaned.append(' '); // e.g. a non-breaking space grouping thousands
+                }
+                // Currency symbols and other spacing are dropped
+            }
+            String number = cleaned.toString().trim();
+            boolean plain = plainNumber.matcher(number).matches();
+            if (!plain && !groupedNumber.matcher(number).matches()) {
+                throw new NumberFormatException("'" + value + "'");
+            }
+            if (!plain) {
+                number = number.replace(String.valueOf(groupingSeparator), "");
+            }
+            return new BigDecimal(number.replace(decimalSeparator, '.'));
+        }
+    }
+
+    // ==================== Report ====================
+
+    /**
+     * Outcome of an import - counts plus per-row errors (1-based Excel row numbers)
+     */
+    public static class ImportReport {
+        private final String fileName;
+        private int totalRows;
+        private int importedRows;
+        private int errorCount;
+        private int listedErrorCount;
+        private final List<RowError> errors = new ArrayList<>();
+
+        public ImportReport(String fileName) {
+            this.fileName = fileName;
+        }
+
+        void addError(int rowNumber, String message) {
+            addChunkError(rowNumber, rowNumber, 1, message);
+        }
+
+        /**
+         * {@code rowCount} rows between {@code firstRow} and {@code lastRow} failed for the same reason
+         */
+        void addChunkError(int firstRow, int lastRow, int rowCount, String message) {
+            errorCount += rowCount;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(firstRow, lastRow, message));
+                listedErrorCount += rowCount;
+            }
+        }
+
+        public String getFileName() { return fileName; }
+        public int getTotalRows() { return totalRows; }
+        public int getImportedRows() { return importedRows; }
+        public int getErrorCount() { return errorCount; }
+        /** Failed rows beyond the listed errors */
+        public int getUnlistedErrorCount() { return errorCount - listedErrorCount; }
+        public List<RowError> getErrors() { return Collections.unmodifiableList(errors); }
+        public boolean hasErrors() { return errorCount > 0; }
+    }
+
+    public static class RowError {
+        private final int rowNumber;
+        private final int lastRowNumber;
+        private final String message;
+
+        public RowError(int rowNumber, String message) {
+            this(rowNumber, rowNumber, message);
+        }
+
+        public RowError(int rowNumber, int lastRowNumber, String message) {
+            this.rowNumber = rowNumber;
+            this.lastRowNumber = lastRowNumber;
+            this.message = message;
+        }
+
+        public int getRowNumber() { return rowNumber; }
+        public int getLastRowNumber() { return lastRowNumber; }
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            if (lastRowNumber != rowNumber) {
+                return "Rows " + rowNumber + "-" + lastRowNumber + ": " + message;
             }
+            return "Row " + rowNumber + ": " + message;
         }
-        return 0;
     }
-}
\ No newline at end of file
+}
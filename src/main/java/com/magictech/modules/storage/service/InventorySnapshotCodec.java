@@ -0,0 +1,165 @@
+package com.magictech.modules.storage.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Columnar encoding of inventory snapshot rows (location, item, quantity).
+ *
+ * Rows are written in (location, item) order as three columns, each a run of varints:
+ * location ids as gaps to the previous row, item ids as gaps to the previous item of the same
+ * location, and quantities zigzag-encoded plus one, with 0 marking a removed row (deltas only).
+ * Sorted gaps are small and the columns repeat a lot, so the deflated payload is a fraction
+ * of the raw table.
+ */
+final class InventorySnapshotCodec {
+
+    /**
+     * Receives decoded rows; {@code quantity} is null for a row removed since the previous snapshot
+     */
+    @FunctionalInterface
+    interface RowConsumer {
+        void accept(long locationId, long itemId, Integer quantity);
+    }
+
+    private InventorySnapshotCodec() {
+    }
+
+    /**
+     * Encode location -> (item -> quantity); null quantities mark removed rows.
+     * Both map levels must iterate in ascending key order (e.g. TreeMap).
+     */
+    static byte[] encode(Map<Long, ? extends Map<Long, Integer>> rows) {
+        int count = rows.values().stream().mapToInt(Map::size).sum();
+        ByteArrayOutputStream locations = new ByteArrayOutputStream();
+        ByteArrayOutputStream items = new ByteArrayOutputStream();
+        ByteArrayOutputStream quantities = new ByteArrayOutputStream();
+
+        long previousLocation = 0;
+        for (Map.Entry<Long, ? extends Map<Long, Integer>> location : rows.entrySet()) {
+            long previousItem = 0;
+            for (Map.Entry<Long, Integer> item : location.getValue().entrySet()) {
+                writeVarLong(locations, location.getKey() - previousLocation);
+                writeVarLong(items, item.getKey() - previousItem);
+                Integer quantity = item.getValue();
+                writeVarLong(quantities, quantity == null ? 0 : zigzag(quantity) + 1);
+                previousLocation = location.getKey();
+                previousItem = item.getKey();
+            }
+        }
+
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(
+                5 + locations.size() + items.size() + quantities.size());
+        writeVarLong(raw, count);
+        raw.writeBytes(locations.toByteArray());
+        raw.writeBytes(items.toByteArray());
+        raw.writeBytes(quantities.toByteArray());
+        return deflate(raw.toByteArray());
+    }
+
+    /**
+     * Decode a payload, passing every row to the consumer in (location, item) order
+     */
+    static void decode(byte[] payload, RowConsumer consumer) {
+        byte[] raw = inflate(payload);
+        int[] position = {0};
+        int count = (int) readVarLong(raw, position);
+
+        long[] locationIds = new long[count];
+        long location = 0;
+        for (int i = 0; i < count; i++) {
+            location += readVarLong(raw, position);
+            locationIds[i] = location;
+        }
+
+        long[] itemIds = new long[count];
+        long item = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && locationIds[i] != locationIds[i - 1]) {
+                item = 0; // Item gaps restart with every location
+            }
+            item += readVarLong(raw, position);
+            itemIds[i] = item;
+        }
+
+        for (int i = 0; i < count; i++) {
+            long encoded = readVarLong(raw, position);
+            consumer.accept(locationIds[i], itemIds[i], encoded == 0 ? null : unzigzag(encoded - 1));
+        }
+    }
+
+    // ==================== Varints ====================
+
+    private static long zigzag(int value) {
+        return ((long) value << 1) ^ ((long) value >> 63);
+    }
+
+    private static int unzigzag(long value) {
+        return (int) ((value >>> 1) ^ -(value & 1));
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] in, int[] position) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = in[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    // ==================== Compression ====================
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] payload) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new UncheckedIOException(new IOException("Truncated inventory snapshot payload"));
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Corrupt inventory snapshot payload", e));
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.magictech.modules.storage.service;
+
+import com.magictech.modules.storage.entity.InventorySnapshot;
+import com.magictech.modules.storage.entity.InventorySnapshot.SnapshotType;
+import com.magictech.modules.storage.repository.InventorySnapshotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Point-in-time inventory history.
+ *
+ * A FULL snapshot of the active storage_item_locations quantities is taken daily and a DELTA
+ * (rows changed or removed since the previous snapshot) during the day, both compressed with
+ * InventorySnapshotCodec. Stock at any timestamp is rebuilt from the nearest FULL snapshot at
+ * or before it plus that day's deltas, so a query decodes at most one day of snapshots no
+ * matter how far back it goes. Resolution is the delta interval. When several desks run the
+ * schedule, a transaction-scoped advisory lock lets only one of them write each snapshot.
+ */
+@Service
+public class InventorySnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventorySnapshotService.class);
+
+    // pg_try_advisory_xact_lock key shared by all desks
+    private static final long SNAPSHOT_LOCK_KEY = 0x534E4150L; // "SNAP"
+
+    private static final String CURRENT_ROWS_SQL =
+            "SELECT storage_location_id, storage_item_id, quantity FROM storage_item_locations WHERE active = true";
+
+    @Autowired
+    private InventorySnapshotRepository snapshotRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // A delta is skipped when the latest snapshot is younger than this (another desk took it)
+    @Value("${magictech.inventory-snapshots.min-delta-gap-minutes:30}")
+    private long minDeltaGapMinutes;
+
+    @Value("${magictech.inventory-snapshots.retention-days:730}")
+    private int retentionDays;
+
+    // State after the latest snapshot written or replayed here - saves a replay per delta
+    private Long cachedSnapshotId;
+    private TreeMap<Long, TreeMap<Long, Integer>> cachedState;
+
+    /**
+     * Stock as of a snapshot: location -> (item -> quantity), plus the snapshot time it reflects
+     */
+    public record HistoricalStock(LocalDateTime requestedAt, LocalDateTime asOf,
+                                  Map<Long, Map<Long, Integer>> quantitiesByLocation) {
+
+        public Map<Long, Integer> forLocation(Long locationId) {
+            return quantitiesByLocation.getOrDefault(locationId, Map.of());
+        }
+
+        /**
+         * location -> quantity for one item
+         */
+        public Map<Long, Integer> forItem(Long itemId) {
+            Map<Long, Integer> byLocation = new TreeMap<>();
+            quantitiesByLocation.forEach((locationId, items) -> {
+                Integer quantity = items.get(itemId);
+                if (quantity != null) {
+                    byLocation.put(locationId, quantity);
+                }
+            });
+            return byLocation;
+        }
+    }
+
+    // ==================== Scheduled snapshots ====================
+
+    /**
+     * Daily full snapshot (one per day across all desks)
+     */
+    @Scheduled(cron = "${magictech.inventory-snapshots.full-cron:0 5 0 * * *}")
+    @Transactional
+    public void scheduledFullSnapshot() {
+        try {
+            if (!tryLock() || snapshotRepository.existsBySnapshotTypeAndTakenAtGreaterThanEqual(
+                    SnapshotType.FULL, LocalDate.now().atStartOfDay())) {
+                return;
+            }
+            takeFullSnapshot();
+            if (retentionDays > 0) {
+                int removed = snapshotRepository.deleteOlderThan(LocalDateTime.now().minusDays(retentionDays));
+                if (removed > 0) {
+                    logger.info("Removed {} inventory snapshots older than {} days", removed, retentionDays);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Full inventory snapshot failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Intra-day delta snapshot
+     */
+    @Scheduled(cron = "${magictech.inventory-snapshots.delta-cron:0 0 * * * *}")
+    @Transactional
+    public void scheduledDeltaSnapshot() {
+        try {
+            Optional<InventorySnapshot> latest = snapshotRepository.findTopByOrderByTakenAtDesc();
+            if (latest.isPresent() && latest.get().getTakenAt()
+                    .isAfter(LocalDateTime.now().minusMinutes(minDeltaGapMinutes))) {
+                return;
+            }
+            if (!tryLock()) {
+                return;
+            }
+            takeDeltaSnapshot();
+        } catch (Exception e) {
+            logger.error("Delta inventory snapshot failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Write a full snapshot of the current quantities
+     */
+    @Transactional
+    public synchronized InventorySnapshot takeFullSnapshot() {
+        LocalDateTime takenAt = LocalDateTime.now();
+        TreeMap<Long, TreeMap<Long, Integer>> current = readCurrentState();
+
+        InventorySnapshot snapshot = snapshotRepository.save(new InventorySnapshot(SnapshotType.FULL, takenAt, null,
+                countRows(current), InventorySnapshotCodec.encode(current)));
+        remember(snapshot.getId(), current);
+
+        logger.info("Full inventory snapshot: {} rows, {} bytes", snapshot.getRowCount(), snapshot.getPayload().length);
+        return snapshot;
+    }
+
+    /**
+     * Write the rows changed since the latest snapshot (a full snapshot if there is none today);
+     * returns empty when nothing changed
+     */
+    @Transactional
+    public synchronized Optional<InventorySnapshot> takeDeltaSnapshot() {
+        LocalDateTime takenAt = LocalDateTime.now();
+        Optional<InventorySnapshot> base = snapshotRepository
+                .findTopBySnapshotTypeAndTakenAtLessThanEqualOrderByTakenAtDesc(SnapshotType.FULL, takenAt);
+        if (base.isEmpty() || base.get().getTakenAt().toLocalDate().isBefore(takenAt.toLocalDate())) {
+            return Optional.of(takeFullSnapshot());
+        }
+
+        InventorySnapshot latest = snapshotRepository.findTopByOrderByTakenAtDesc().orElseThrow();
+        TreeMap<Long, TreeMap<Long, Integer>> previous = latest.getId().equals(cachedSnapshotId)
+                ? cachedState
+                : replay(base.get(), latest.getTakenAt(), null, null);
+        TreeMap<Long, TreeMap<Long, Integer>> current = readCurrentState();
+
+        TreeMap<Long, TreeMap<Long, Integer>> changes = diff(previous, current);
+        int changedRows = countRows(changes);
+        if (changedRows == 0) {
+            remember(latest.getId(), current);
+            return Optional.empty();
+        }
+
+        InventorySnapshot snapshot = snapshotRepository.save(new InventorySnapshot(SnapshotType.DELTA, takenAt,
+                base.get().getId(), changedRows, InventorySnapshotCodec.encode(changes)));
+        remember(snapshot.getId(), current);
+
+        logger.info("Delta inventory snapshot: {} changed rows, {} bytes", changedRows, snapshot.getPayload().length);
+        return Optional.of(snapshot);
+    }
+
+    // ==================== Point-in-time queries ====================
+
+    /**
+     * Stock in every location at the given time
+     */
+    @Transactional(readOnly = true)
+    public HistoricalStock getStockAt(LocalDateTime at) {
+        return getStockAt(at, null, null);
+    }
+
+    /**
+     * Stock at the given time, optionally limited to one location and/or one item
+     * @throws RuntimeException if no snapshot exists at or before {@code at}
+     */
+    @Transactional(readOnly = true)
+    public HistoricalStock getStockAt(LocalDateTime at, Long locationId, Long itemId) {
+        InventorySnapshot base = snapshotRepository
+                .findTopBySnapshotTypeAndTakenAtLessThanEqualOrderByTakenAtDesc(SnapshotType.FULL, at)
+                .orElseThrow(() -> new RuntimeException("No inventory snapshot exists at or before " + at));
+
+        List<InventorySnapshot> deltas = snapshotRepository
+                .findByBaseSnapshotIdAndTakenAtLessThanEqualOrderByTakenAtAsc(base.getId(), at);
+        LocalDateTime asOf = deltas.isEmpty() ? base.getTakenAt() : deltas.get(deltas.size() - 1).getTakenAt();
+
+        Map<Long, Map<Long, Integer>> quantities = new TreeMap<>(replay(base, deltas, locationId, itemId));
+        return new HistoricalStock(at, asOf, quantities);
+    }
+
+    /**
+     * item -> quantity in one location at the given time
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Integer> getLocationStockAt(Long locationId, LocalDateTime at) {
+        return getStockAt(at, locationId, null).forLocation(locationId);
+    }
+
+    /**
+     * location -> quantity of one item at the given time
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Integer> getItemStockAt(Long itemId, LocalDateTime at) {
+        return getStockAt(at, null, itemId).forItem(itemId);
+    }
+
+    // ==================== Helpers ====================
+
+    private TreeMap<Long, TreeMap<Long, Integer>> replay(InventorySnapshot base, LocalDateTime until,
+                                                         Long locationId, Long itemId) {
+        return replay(base, snapshotRepository
+                .findByBaseSnapshotIdAndTakenAtLessThanEqualOrderByTakenAtAsc(base.getId(), until), locationId, itemId);
+    }
+
+    /**
+     * Decode the full snapshot and apply its deltas in order; rows outside the filters are skipped
+     */
+    private TreeMap<Long, TreeMap<Long, Integer>> replay(InventorySnapshot base, List<InventorySnapshot> deltas,
+                                                         Long locationId, Long itemId) {
+        TreeMap<Long, TreeMap<Long, Integer>> state = new TreeMap<>();
+        InventorySnapshotCodec.RowConsumer apply = (location, item, quantity) -> {
+            if ((locationId != null && location != locationId) || (itemId != null && item != itemId)) {
+                return;
+            }
+            if (quantity == null) {
+                TreeMap<Long, Integer> items = state.get(location);
+                if (items != null) {
+                    items.remove(item);
+                    if (items.isEmpty()) {
+                        state.remove(location);
+                    }
+                }
+            } else {
+                state.computeIfAbsent(location, l -> new TreeMap<>()).put(item, quantity);
+            }
+        };
+
+        InventorySnapshotCodec.decode(base.getPayload(), apply);
+        for (InventorySnapshot delta : deltas) {
+            InventorySnapshotCodec.decode(delta.getPayload(), apply);
+        }
+        return state;
+    }
+
+    private TreeMap<Long, TreeMap<Long, Integer>> readCurrentState() {
+        TreeMap<Long, TreeMap<Long, Integer>> state = new TreeMap<>();
+        jdbcTemplate.query(CURRENT_ROWS_SQL, rs -> {
+            state.computeIfAbsent(rs.getLong(1), l -> new TreeMap<>()).put(rs.getLong(2), rs.getInt(3));
+        });
+        return state;
+    }
+
+    /**
+     * Rows of {@code current} that differ from {@code previous}, plus null entries for removed rows
+     */
+    private static TreeMap<Long, TreeMap<Long, Integer>> diff(Map<Long, TreeMap<Long, Integer>> previous,
+                                                              Map<Long, TreeMap<Long, Integer>> current) {
+        TreeMap<Long, TreeMap<Long, Integer>> changes = new TreeMap<>();
+        current.forEach((location, items) -> {
+            Map<Long, Integer> before = previous.getOrDefault(location, new TreeMap<>());
+            items.forEach((item, quantity) -> {
+                if (!quantity.equals(before.get(item))) {
+                    changes.computeIfAbsent(location, l -> new TreeMap<>()).put(item, quantity);
+                }
+            });
+        });
+        previous.forEach((location, items) -> {
+            Map<Long, Integer> after = current.getOrDefault(location, new TreeMap<>());
+            items.keySet().forEach(item -> {
+                if (!after.containsKey(item)) {
+                    changes.computeIfAbsent(location, l -> new TreeMap<>()).put(item, null);
+                }
+            });
+        });
+        return changes;
+    }
+
+    private static int countRows(Map<Long, ? extends Map<Long, Integer>> state) {
+        return state.values().stream().mapToInt(Map::size).sum();
+    }
+
+    private void remember(Long snapshotId, TreeMap<Long, TreeMap<Long, Integer>> state) {
+        cachedSnapshotId = snapshotId;
+        cachedState = state;
+    }
+
+    private boolean tryLock() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, SNAPSHOT_LOCK_KEY));
+    }
+}
@@ -0,0 +1,143 @@
+package com.magictech.modules.storage.service;
+
+import com.magictech.core.util.TransactionUtil;
+import com.magictech.modules.storage.repository.StorageItemLocationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory read model of per-location item counts and total quantities.
+ *
+ * Loaded with one grouped query on first use, then kept current by deltas reported by
+ * every service that changes an active StorageItemLocation row (applied after commit),
+ * so the map and location cards read it without touching the database. A scheduled
+ * resync with the same grouped query picks up changes made by other desks.
+ */
+@Service
+public class LocationSummaryReadModel {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationSummaryReadModel.class);
+
+    @Autowired
+    private StorageItemLocationRepository itemLocationRepository;
+
+    // locationId -> {itemCount, totalQuantity}
+    private final Map<Long, int[]> countersByLocation = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    // ==================== Reads (no DB once loaded) ====================
+
+    public int getItemCount(Long locationId) {
+        ensureLoaded();
+        int[] counters = countersByLocation.get(locationId);
+        return counters != null ? counters[0] : 0;
+    }
+
+    public int getTotalQuantity(Long locationId) {
+        ensureLoaded();
+        int[] counters = countersByLocation.get(locationId);
+        return counters != null ? counters[1] : 0;
+    }
+
+    // ==================== Deltas ====================
+
+    /**
+     * A new active row with {@code quantity} units was added to a location
+     */
+    public void rowAdded(Long locationId, int quantity) {
+        rowsAdded(locationId, 1, quantity);
+    }
+
+    /**
+     * {@code rows} new active rows holding {@code quantity} units in total were added to a location
+     */
+    public void rowsAdded(Long locationId, int rows, int quantity) {
+        applyAfterCommit(locationId, rows, quantity);
+    }
+
+    /**
+     * An active row holding {@code quantity} units was deactivated or deleted
+     */
+    public void rowRemoved(Long locationId, int quantity) {
+        applyAfterCommit(locationId, -1, -quantity);
+    }
+
+    /**
+     * {@code rows} active rows holding {@code quantity} units in total were deactivated or deleted
+     */
+    public void rowsRemoved(Long locationId, int rows, int quantity) {
+        applyAfterCommit(locationId, -rows, -quantity);
+    }
+
+    /**
+     * The quantity of an existing active row changed by {@code delta}
+     */
+    public void quantityChanged(Long locationId, int delta) {
+        if (delta != 0) {
+            applyAfterCommit(locationId, 0, delta);
+        }
+    }
+
+    // ==================== Load / Resync ====================
+
+    /**
+     * Replace all counters with the result of one grouped query
+     */
+    @Scheduled(fixedDelayString = "${magictech.location-summary.resync-interval-ms:300000}",
+               initialDelayString = "${magictech.location-summary.resync-interval-ms:300000}")
+    public void resync() {
+        try {
+            reload();
+        } catch (Exception e) {
+            logger.error("Location summary resync failed: {}", e.getMessage());
+        }
+    }
+
+    private synchronized void reload() {
+        List<Object[]> rows = itemLocationRepository.getLocationSummary();
+        Map<Long, int[]> fresh = new ConcurrentHashMap<>();
+        for (Object[] row : rows) {
+            // locationId, locationName, COUNT, SUM
+            int itemCount = row[2] != null ? ((Number) row[2]).intValue() : 0;
+            int totalQuantity = row[3] != null ? ((Number) row[3]).intValue() : 0;
+            fresh.put((Long) row[0], new int[]{itemCount, totalQuantity});
+        }
+        countersByLocation.keySet().retainAll(fresh.keySet());
+        countersByLocation.putAll(fresh);
+        loaded = true;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    private void applyAfterCommit(Long locationId, int rowDelta, int quantityDelta) {
+        if (locationId == null) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            if (!loaded) {
+                return; // The first load reads the committed state
+            }
+            countersByLocation.compute(locationId, (id, current) -> {
+                int[] next = current != null ? current.clone() : new int[2];
+                next[0] += rowDelta;
+                next[1] += quantityDelta;
+                return next;
+            });
+        });
+    }
+}
@@ -0,0 +1,234 @@
+package com.magictech.modules.storage.service;
+
+import com.magictech.core.messaging.constants.NotificationConstants;
+import com.magictech.core.messaging.service.NotificationService;
+import com.magictech.core.util.TransactionUtil;
+import com.magictech.modules.storage.entity.StorageItemLocation;
+import com.magictech.modules.storage.repository.StorageItemLocationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Low-stock alerting engine.
+ *
+ * Every service that changes a stock quantity or a minimum level reports the item here
+ * (after commit) - an O(1) map put. Once an item has been quiet for the debounce window,
+ * its min-level rows are re-read in one batched, indexed query and compared with the
+ * minimums: a location row is low when quantity <= minStockLevel, and the item as a whole is
+ * low when its on-hand quantity (StorageItem.quantity, which sales deductions change) falls
+ * to the sum of its locations' minimums. Only newly low items raise a storage notification,
+ * at most once per cooldown per item (checked against the notifications table, so desks do
+ * not repeat each other's alerts). A nightly sweep over the partial low-stock index catches
+ * changes made outside these services.
+ */
+@Service
+public class LowStockAlertEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(LowStockAlertEngine.class);
+
+    // Low key of the item-level check (location rows use their location id)
+    private static final Long ITEM_TOTAL = 0L;
+
+    // Bound on ids per IN list
+    private static final int QUERY_CHUNK = 1000;
+
+    private static final String CREATE_INDEX_SQL =
+            "CREATE INDEX IF NOT EXISTS idx_storage_item_locations_min_level " +
+            "ON storage_item_locations (storage_item_id, min_stock_level) " +
+            "WHERE active = true AND min_stock_level IS NOT NULL";
+
+    @Autowired
+    private StorageItemLocationRepository itemLocationRepository;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${magictech.low-stock.debounce-ms:5000}")
+    private long debounceMs;
+
+    @Value("${magictech.low-stock.cooldown-minutes:240}")
+    private long cooldownMinutes;
+
+    // itemId -> time of the last reported change (millis)
+    private final Map<Long, Long> pendingItems = new ConcurrentHashMap<>();
+
+    // itemId -> keys currently low (location ids, ITEM_TOTAL); only items with something low
+    private final Map<Long, Set<Long>> lowKeysByItem = new ConcurrentHashMap<>();
+
+    // itemId -> when this desk last alerted it
+    private final Map<Long, LocalDateTime> lastAlertAt = new ConcurrentHashMap<>();
+
+    /**
+     * Make sure the partial index used by the re-check and the sweep exists
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeIndex() {
+        try {
+            jdbcTemplate.execute(CREATE_INDEX_SQL);
+        } catch (Exception e) {
+            logger.warn("Could not create low-stock index: {}", e.getMessage());
+        }
+    }
+
+    // ==================== Change hooks ====================
+
+    /**
+     * The quantity or minimum level of an item (or one of its location rows) changed
+     */
+    public void itemChanged(Long itemId) {
+        if (itemId == null) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> pendingItems.put(itemId, System.currentTimeMillis()));
+    }
+
+    /**
+     * Several items changed
+     */
+    public void itemsChanged(Collection<Long> itemIds) {
+        if (itemIds == null || itemIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(itemIds);
+        TransactionUtil.afterCommit(() -> {
+            long now = System.currentTimeMillis();
+            ids.forEach(id -> pendingItems.put(id, now));
+        });
+    }
+
+    // ==================== Evaluation ====================
+
+    /**
+     * Re-check the items whose last change is older than the debounce window
+     */
+    @Scheduled(fixedDelayString = "${magictech.low-stock.check-interval-ms:2000}")
+    public void checkPendingItems() {
+        if (pendingItems.isEmpty()) {
+            return;
+        }
+        long quietSince = System.currentTimeMillis() - debounceMs;
+        List<Long> due = new ArrayList<>();
+        pendingItems.forEach((itemId, changedAt) -> {
+            // Removes only if no newer change arrived in the meantime
+            if (changedAt <= quietSince && pendingItems.remove(itemId, changedAt)) {
+                due.add(itemId);
+            }
+        });
+
+        try {
+            evaluate(due);
+        } catch (Exception e) {
+            logger.error("Low-stock check failed: {}", e.getMessage());
+            long now = System.currentTimeMillis();
+            due.forEach(id -> pendingItems.putIfAbsent(id, now)); // Retry on the next tick
+        }
+    }
+
+    /**
+     * Nightly safety net: re-check every item the low-stock index reports, plus every item
+     * currently considered low (it may have recovered without passing through the hooks)
+     */
+    @Scheduled(cron = "${magictech.low-stock.sweep-cron:0 30 2 * * *}")
+    public void nightlySweep() {
+        try {
+            Set<Long> itemIds = new LinkedHashSet<>(itemLocationRepository.findLowStockItemIds());
+            itemIds.addAll(lowKeysByItem.keySet());
+            evaluate(new ArrayList<>(itemIds));
+            logger.info("Low-stock sweep checked {} items, {} currently low", itemIds.size(), lowKeysByItem.size());
+        } catch (Exception e) {
+            logger.error("Low-stock sweep failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Items currently low (as last evaluated)
+     */
+    public Set<Long> getLowItemIds() {
+        return Collections.unmodifiableSet(lowKeysByItem.keySet());
+    }
+
+    private void evaluate(List<Long> itemIds) {
+        for (int from = 0; from < itemIds.size(); from += QUERY_CHUNK) {
+            List<Long> chunk = itemIds.subList(from, Math.min(from + QUERY_CHUNK, itemIds.size()));
+
+            // itemId, productName, itemQuantity, locationId, locationName, quantity, minStockLevel
+            Map<Long, List<Object[]>> rowsByItem = new HashMap<>();
+            for (Object[] row : itemLocationRepository.findMinLevelRowsForItems(chunk)) {
+                rowsByItem.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add(row);
+            }
+
+            for (Long itemId : chunk) {
+                evaluateItem(itemId, rowsByItem.getOrDefault(itemId, List.of()));
+            }
+        }
+    }
+
+    private void evaluateItem(Long itemId, List<Object[]> rows) {
+        Set<Long> lowKeys = new HashSet<>();
+        List<String> lines = new ArrayList<>();
+        int minimumTotal = 0;
+
+        for (Object[] row : rows) {
+            Integer quantity = (Integer) row[5];
+            Integer minStockLevel = (Integer) row[6];
+            minimumTotal += minStockLevel;
+            if (StorageItemLocation.isLowStock(quantity, minStockLevel)) {
+                lowKeys.add((Long) row[3]);
+                lines.add(String.format("%s: %d left (minimum %d)", row[4], quantity, minStockLevel));
+            }
+        }
+        if (!rows.isEmpty()) {
+            Integer onHand = (Integer) rows.get(0)[2];
+            if (StorageItemLocation.isLowStock(onHand, minimumTotal)) {
+                lowKeys.add(ITEM_TOTAL);
+                lines.add(String.format("Total on hand: %d (locations' minimum %d)", onHand, minimumTotal));
+            }
+        }
+
+        Set<Long> previous = lowKeysByItem.getOrDefault(itemId, Set.of());
+        if (lowKeys.isEmpty()) {
+            lowKeysByItem.remove(itemId);
+            return;
+        }
+        lowKeysByItem.put(itemId, lowKeys);
+
+        if (!previous.containsAll(lowKeys)) {
+            alert(itemId, (String) rows.get(0)[1], lines);
+        }
+    }
+
+    private void alert(Long itemId, String itemName, List<String> lines) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cooldownStart = now.minusMinutes(cooldownMinutes);
+
+        LocalDateTime last = lastAlertAt.get(itemId);
+        if (last != null && last.isAfter(cooldownStart)) {
+            return;
+        }
+        // Another desk (or this one before a restart) may have alerted already
+        if (notificationService.hasRecentNotification(NotificationConstants.ACTION_LOW_STOCK,
+                NotificationConstants.ENTITY_STORAGE_ITEM, itemId, cooldownStart)) {
+            lastAlertAt.put(itemId, now);
+            return;
+        }
+
+        notificationService.notifyLowStock(itemId, itemName, String.join("\n", lines));
+        lastAlertAt.put(itemId, now);
+        lastAlertAt.values().removeIf(time -> time.isBefore(cooldownStart));
+        logger.info("Low-stock alert for item {} ({})", itemId, itemName);
+    }
+}
@@ -0,0 +1,142 @@
+package com.magictech.modules.storage.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory trigram index over the searchable text of storage items - the fallback used
+ * by StorageSearchService when the database has no pg_trgm extension.
+ *
+ * Each item's document (manufacture, product name, code, serial number) is lowercased and
+ * split into 3-character grams; a query is answered by intersecting the posting lists of
+ * its grams, verifying the substring match and ranking like the SQL search does.
+ * Instances are immutable - rebuild and swap to pick up catalog changes.
+ */
+class NgramSearchIndex {
+
+    private static final int GRAM = 3;
+
+    private final Entry[] entries;
+    private final Map<String, int[]> postings; // gram -> sorted entry positions
+    private final long builtAt;
+
+    private record Entry(long id, String name, String document) {
+    }
+
+    private NgramSearchIndex(Entry[] entries, Map<String, int[]> postings) {
+        this.entries = entries;
+        this.postings = postings;
+        this.builtAt = System.currentTimeMillis();
+    }
+
+    long getBuiltAt() {
+        return builtAt;
+    }
+
+    int size() {
+        return entries.length;
+    }
+
+    /**
+     * Collects rows of id, manufacture, productName, code, serialNumber
+     */
+    static class Builder {
+        private final List<Entry> entries = new ArrayList<>();
+
+        void add(long id, String manufacture, String productName, String code, String serialNumber) {
+            String name = productName != null ? productName.toLowerCase() : "";
+            entries.add(new Entry(id, name, StorageSearchService.document(manufacture, productName, code, serialNumber)));
+        }
+
+        NgramSearchIndex build() {
+            Map<String, List<Integer>> lists = new HashMap<>();
+            for (int position = 0; position < entries.size(); position++) {
+                String document = entries.get(position).document();
+                for (int i = 0; i + GRAM <= document.length(); i++) {
+                    List<Integer> list = lists.computeIfAbsent(document.substring(i, i + GRAM), g -> new ArrayList<>());
+                    // Positions are added in order - skip repeats of a gram within one document
+                    if (list.isEmpty() || list.get(list.size() - 1) != position) {
+                        list.add(position);
+                    }
+                }
+            }
+
+            Map<String, int[]> postings = new HashMap<>(lists.size() * 2);
+            lists.forEach((gram, list) -> postings.put(gram, list.stream().mapToInt(Integer::intValue).toArray()));
+            return new NgramSearchIndex(entries.toArray(new Entry[0]), postings);
+        }
+    }
+
+    /**
+     * Ids of items whose document contains {@code term} (lowercase), best matches first
+     */
+    List<Long> search(String term, int limit) {
+        int[] candidates = candidates(term);
+
+        List<Entry> matches = new ArrayList<>();
+        for (int position : candidates) {
+            Entry entry = entries[position];
+            if (entry.document().contains(term)) {
+                matches.add(entry);
+            }
+        }
+
+        // Exact name, then name prefix, then earliest match in the document
+        matches.sort(Comparator
+                .comparing((Entry e) -> !e.name().equals(term))
+                .thenComparing(e -> !e.name().startsWith(term))
+                .thenComparingInt(e -> e.document().indexOf(term))
+                .thenComparingLong(Entry::id));
+
+        List<Long> ids = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && ids.size() < limit; i++) {
+            ids.add(matches.get(i).id());
+        }
+        return ids;
+    }
+
+    /**
+     * Entry positions that contain every gram of the term; short terms scan all entries
+     */
+    private int[] candidates(String term) {
+        if (term.length() < GRAM) {
+            int[] all = new int[entries.length];
+            Arrays.setAll(all, i -> i);
+            return all;
+        }
+
+        int[] result = null;
+        for (int i = 0; i + GRAM <= term.length(); i++) {
+            int[] posting = postings.get(term.substring(i, i + GRAM));
+            if (posting == null) {
+                return new int[0];
+            }
+            result = result == null ? posting : intersect(result, posting);
+            if (result.length == 0) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
@@ -0,0 +1,49 @@
+package com.magictech.modules.storage.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reserves entity ids for rows inserted with plain JDBC (bulk import, batch transfers).
+ */
+@Component
+class PooledIdAllocator {
+
+    private static final String SEQUENCE_INCREMENT_SQL =
+            "SELECT increment_by FROM pg_sequences WHERE sequencename = ?";
+
+    private static final String NEXT_BLOCKS_SQL =
+            "SELECT nextval(?::regclass) FROM generate_series(1, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Reserve {@code count} ids from a pooled sequence. Each nextval value V owns the block
+     * (V - increment, V], the same convention Hibernate's pooled optimizer uses, so ids never
+     * collide with entities saved through JPA on this or any other desk.
+     */
+    List<Long> allocate(String sequenceName, int count) {
+        Long increment = jdbcTemplate.queryForObject(SEQUENCE_INCREMENT_SQL, Long.class, sequenceName);
+        long blockSize = increment != null && increment > 0 ? increment : 1;
+        int blocks = (int) ((count + blockSize - 1) / blockSize);
+
+        List<Long> ids = new ArrayList<>(count);
+        for (Long hi : jdbcTemplate.queryForList(NEXT_BLOCKS_SQL, Long.class, sequenceName, blocks)) {
+            for (long id = hi - blockSize + 1; id <= hi && ids.size() < count; id++) {
+                if (id > 0) {
+                    ids.add(id);
+                }
+            }
+        }
+        // A fresh sequence starts at 1, so the first block is short - top up one id at a time
+        while (ids.size() < count) {
+            ids.add(jdbcTemplate.queryForObject(NEXT_BLOCKS_SQL, Long.class, sequenceName, 1));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,143 @@
+package com.magictech.modules.storage.service;
+
+import com.magictech.modules.storage.entity.StockDriftReport;
+import com.magictech.modules.storage.entity.StockDriftReport.DriftAction;
+import com.magictech.modules.storage.repository.StockDriftReportRepository;
+import com.magictech.modules.storage.repository.StorageItemRepository;
+import com.magictech.modules.storage.service.StockReconciliationService.Policy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reconciles one chunk of storage items in its own short transaction: one grouped query
+ * compares each item's quantity with its location total, drifted items are written to
+ * stock_drift_reports and, if the policy allows, corrected through the StockLedger.
+ * Deductions and returns that touched no location since the item's last full reconciliation
+ * (e.g. a sale deducted from the item only) are legitimate, so only the drift they do not
+ * explain is reported and corrected: the item is set to its location total plus their net
+ * quantity. Only a correction with no such movements is full and starts a new count.
+ * Row locks are only taken by the conditional corrections and released at chunk commit;
+ * a lock timeout makes the chunk fail rather than wait behind a busy desk.
+ * Chunks commit on their own, also inside the run-wide transaction of runLocked().
+ */
+@Service
+public class StockDriftChunkProcessor {
+
+    private static final String LOCK_TIMEOUT_SQL = "SET LOCAL lock_timeout = '2s'";
+
+    // Reference of the ledger movements written by full corrections, followed by the run start;
+    // item-only movements are counted from the last of them
+    private static final String RECONCILIATION_REFERENCE = "RECONCILIATION:";
+    // Corrections that keep item-only movements, followed by the run start
+    private static final String PARTIAL_RECONCILIATION_REFERENCE = "RECONCILIATION-PARTIAL:";
+
+    // Only one desk reconciles at a time
+    private static final long RECONCILIATION_LOCK_KEY = 0x52434E43L; // "RCNC"
+
+    @Autowired
+    private StorageItemRepository itemRepository;
+
+    @Autowired
+    private StockDriftReportRepository driftReportRepository;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Outcome of one chunk; {@code lastItemId} is the keyset cursor for the next chunk
+     */
+    public record ChunkResult(Long lastItemId, int scanned, int drifted, int corrected, int skipped,
+                              long absoluteDrift, int maxAbsoluteDrift) {
+    }
+
+    /**
+     * Run a reconciliation while holding the cross-desk reconciliation lock, which is released
+     * when the run's transaction ends
+     * @return false, without running it, if another desk is reconciling
+     */
+    @Transactional
+    public boolean runLocked(Runnable run) {
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, RECONCILIATION_LOCK_KEY))) {
+            return false;
+        }
+        run.run();
+        return true;
+    }
+
+    /**
+     * Reconcile up to {@code chunkSize} active items with id greater than {@code afterId}
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public ChunkResult processChunk(Long afterId, int chunkSize, LocalDateTime runStartedAt, Policy policy,
+                                    int maxAutoCorrect, boolean includeUnplaced) {
+        jdbcTemplate.execute(LOCK_TIMEOUT_SQL);
+
+        List<Object[]> rows = itemRepository.findStockBalanceChunk(afterId, chunkSize, RECONCILIATION_REFERENCE + "%");
+
+        Long lastItemId = afterId;
+        int drifted = 0;
+        int corrected = 0;
+        int skipped = 0;
+        long absoluteDrift = 0;
+        int maxAbsoluteDrift = 0;
+        List<StockDriftReport> reports = new ArrayList<>();
+
+        for (Object[] row : rows) {
+            // id, item quantity, location total, location row count, net item-only movements
+            Long itemId = ((Number) row[0]).longValue();
+            int itemQuantity = row[1] != null ? ((Number) row[1]).intValue() : 0;
+            int locationQuantity = ((Number) row[2]).intValue();
+            long locationRows = ((Number) row[3]).longValue();
+            int itemOnlyQuantity = ((Number) row[4]).intValue();
+            lastItemId = itemId;
+
+            int expectedQuantity = locationQuantity + itemOnlyQuantity;
+            if (itemQuantity == expectedQuantity || (locationRows == 0 && !includeUnplaced)) {
+                continue;
+            }
+
+            int drift = Math.abs(itemQuantity - expectedQuantity);
+            drifted++;
+            absoluteDrift += drift;
+            maxAbsoluteDrift = Math.max(maxAbsoluteDrift, drift);
+
+            DriftAction action = DriftAction.REPORTED;
+            if (policy == Policy.TRUST_LOCATIONS && expectedQuantity >= 0
+                    && (maxAutoCorrect <= 0 || drift <= maxAutoCorrect)) {
+                String reference = (itemOnlyQuantity == 0 ? RECONCILIATION_REFERENCE : PARTIAL_RECONCILIATION_REFERENCE)
+                        + runStartedAt;
+                boolean applied = stockLedger.reconcileItemQuantity(itemId, itemQuantity, expectedQuantity,
+                        reference, "system").isPresent();
+                action = applied ? DriftAction.CORRECTED : DriftAction.CORRECTION_SKIPPED;
+                if (applied) {
+                    corrected++;
+                } else {
+                    skipped++;
+                }
+            }
+            reports.add(new StockDriftReport(runStartedAt, itemId, itemQuantity, locationQuantity, action));
+        }
+
+        driftReportRepository.saveAll(reports);
+        return new ChunkResult(lastItemId, rows.size(), drifted, corrected, skipped, absoluteDrift, maxAbsoluteDrift);
+    }
+
+    /**
+     * Delete drift reports detected before the cutoff
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int purgeReportsBefore(LocalDateTime cutoff) {
+        return driftReportRepository.deleteOlderThan(cutoff);
+    }
+}
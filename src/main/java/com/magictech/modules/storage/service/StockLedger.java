@@ -0,0 +1,657 @@
+package com.magictech.modules.storage.service;
+
+import com.magictech.modules.storage.entity.StockMovement;
+import com.magictech.modules.storage.entity.StockMovement.MovementType;
+import com.magictech.modules.storage.repository.StockMovementRepository;
+import com.magictech.modules.storage.repository.StockReservationRepository;
+import com.magictech.modules.storage.repository.StorageItemLocationRepository;
+import com.magictech.modules.storage.repository.StorageItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Stock Ledger - the single entry point for changing stock quantities.
+ *
+ * Every movement is applied with one conditional UPDATE
+ * (quantity = quantity - n WHERE quantity >= n) and recorded as an append-only
+ * StockMovement row in the same transaction. Callers never read an entity, change
+ * its quantity and save it back, so concurrent desks cannot lose each other's updates.
+ * Transfers lock the affected item-location rows in id order and write them with one
+ * set-based UPDATE (see {@link #transferBatch}); stock added to or corrected in a single
+ * location is written to its locked row the same way.
+ */
+@Service
+@Transactional
+public class StockLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockLedger.class);
+
+    @Autowired
+    private StorageItemRepository itemRepository;
+
+    @Autowired
+    private StorageItemLocationRepository itemLocationRepository;
+
+    @Autowired
+    private LocationSummaryReadModel locationSummaries;
+
+    @Autowired
+    private LowStockAlertEngine lowStockAlerts;
+
+    @Autowired
+    private StorageCatalogCache catalogCache;
+
+    @Autowired
+    private StockMovementRepository movementRepository;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private PooledIdAllocator idAllocator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static final String EXISTING_ROWS_SQL =
+            "SELECT sil.storage_item_id, sil.storage_location_id FROM storage_item_locations sil " +
+            "JOIN unnest(?::bigint[], ?::bigint[]) AS k(item_id, location_id) " +
+            "ON sil.storage_item_id = k.item_id AND sil.storage_location_id = k.location_id";
+
+    private static final String EXISTING_LOCATIONS_SQL =
+            "SELECT id FROM storage_locations WHERE id = ANY(?)";
+
+    private static final String INSERT_EMPTY_ROWS_SQL =
+            "INSERT INTO storage_item_locations (id, storage_item_id, storage_location_id, quantity, " +
+            "date_added, created_by, active) " +
+            "SELECT k.id, k.item_id, k.location_id, 0, ?, ?, true " +
+            "FROM unnest(?::bigint[], ?::bigint[], ?::bigint[]) AS k(id, item_id, location_id) " +
+            "ORDER BY k.item_id, k.location_id " +
+            "ON CONFLICT (storage_item_id, storage_location_id) DO NOTHING " +
+            "RETURNING storage_item_id, storage_location_id";
+
+    private static final String LOCK_ROWS_SQL =
+            "SELECT sil.id, sil.storage_item_id, sil.storage_location_id, sil.quantity, sil.active " +
+            "FROM storage_item_locations sil " +
+            "JOIN unnest(?::bigint[], ?::bigint[]) AS k(item_id, location_id) " +
+            "ON sil.storage_item_id = k.item_id AND sil.storage_location_id = k.location_id " +
+            "ORDER BY sil.id FOR UPDATE OF sil";
+
+    private static final String UPDATE_ROWS_SQL =
+            "UPDATE storage_item_locations sil SET quantity = d.quantity, active = true, last_updated = ? " +
+            "FROM unnest(?::bigint[], ?::int[]) AS d(id, quantity) WHERE sil.id = d.id";
+
+    // Counted rows are locked in id order; the variance is applied on top of the current quantity
+    private static final String APPLY_COUNTS_SQL =
+            "UPDATE storage_item_locations sil SET quantity = GREATEST(o.quantity + d.delta, 0), " +
+            "last_inventory_check = ?, last_inventory_by = ?, last_updated = ? " +
+            "FROM (SELECT id, quantity FROM storage_item_locations WHERE id = ANY(?::bigint[]) " +
+            "ORDER BY id FOR UPDATE) o " +
+            "JOIN unnest(?::bigint[], ?::int[]) AS d(id, delta) ON d.id = o.id " +
+            "WHERE sil.id = o.id " +
+            "RETURNING sil.id, sil.storage_item_id, sil.storage_location_id, o.quantity, sil.quantity, sil.active";
+
+    private static final String INSERT_COUNT_MOVEMENTS_SQL =
+            "INSERT INTO stock_movements (id, storage_item_id, movement_type, quantity_delta, to_location_id, " +
+            "reference, performed_by, created_at) " +
+            "SELECT m.id, m.item_id, 'INVENTORY_CHECK', m.delta, m.location_id, ?, ?, ? " +
+            "FROM unnest(?::bigint[], ?::bigint[], ?::int[], ?::bigint[]) AS m(id, item_id, delta, location_id)";
+
+    private static final Comparator<RowKey> ROW_KEY_ORDER =
+            Comparator.comparing(RowKey::itemId).thenComparing(RowKey::locationId);
+
+    /**
+     * Thrown when a conditional deduction matched no row because stock is insufficient
+     */
+    public static class InsufficientStockException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public InsufficientStockException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * One line of a batch transfer
+     */
+    public record TransferLine(Long itemId, Long fromLocationId, Long toLocationId, int quantity) {
+    }
+
+    public enum TransferOutcome {
+        TRANSFERRED,
+        INSUFFICIENT_STOCK,
+        INVALID
+    }
+
+    /**
+     * Outcome of one transfer line; {@code movement} is set when the line was applied
+     */
+    public record TransferResult(TransferLine line, TransferOutcome outcome, String message,
+                                 StockMovement movement) {
+        public boolean isTransferred() {
+            return outcome == TransferOutcome.TRANSFERRED;
+        }
+    }
+
+    /**
+     * One counted row of a stocktake: the quantity the count started from and the counted quantity
+     */
+    public record CountLine(Long itemLocationId, int baselineQuantity, int countedQuantity) {
+    }
+
+    /**
+     * Quantity of a counted row before and after its variance was applied
+     */
+    public record CountAdjustment(Long itemLocationId, Long itemId, Long locationId,
+                                  int previousQuantity, int newQuantity) {
+        public int delta() {
+            return newQuantity - previousQuantity;
+        }
+    }
+
+    private record RowKey(Long itemId, Long locationId) {
+    }
+
+    /**
+     * An item-location row locked by a batch transfer, with its running balance
+     */
+    private static class LockedRow {
+        final long id;
+        final Long locationId;
+        final int originalQuantity;
+        final boolean originalActive;
+        final boolean inserted;
+        int quantity;
+        boolean active;
+
+        LockedRow(long id, Long locationId, int quantity, boolean active, boolean inserted) {
+            this.id = id;
+            this.locationId = locationId;
+            this.originalQuantity = quantity;
+            this.originalActive = active;
+            this.inserted = inserted;
+            this.quantity = quantity;
+            this.active = active;
+        }
+
+        boolean isChanged() {
+            return quantity != originalQuantity || active != originalActive;
+        }
+    }
+
+    // ==================== Item-level movements ====================
+
+    /**
+     * Deduct quantity from a storage item (sales allocation, project element approval).
+     * Stock held by live reservations is not available: the item row is locked the way
+     * {@link StockReservationService#reserve} locks it, and the deduction only goes ahead if
+     * on-hand - reserved covers it. A holder committing its own hold releases it first.
+     * @throws InsufficientStockException if less than {@code quantity} is available
+     */
+    public StockMovement deduct(Long itemId, int quantity, String reference, String performedBy) {
+        requirePositive(quantity);
+
+        // Row lock held until commit - reservations of this item wait here, so the sum stays valid
+        int onHand = itemRepository.lockQuantity(itemId)
+                .orElseThrow(() -> new RuntimeException("Storage item not found with id: " + itemId));
+        LocalDateTime now = LocalDateTime.now();
+        int reserved = reservationRepository.sumActiveReservedForItem(itemId, now);
+
+        if (onHand - reserved < quantity
+                || itemRepository.deductQuantityIfAvailable(itemId, quantity, now) == 0) {
+            throw new InsufficientStockException(
+                    "Insufficient stock for item " + itemId + " - requested " + quantity +
+                    " units, available " + Math.max(0, onHand - reserved));
+        }
+
+        lowStockAlerts.itemChanged(itemId);
+        catalogCache.itemChanged(itemId);
+        logger.info("Ledger: deducted {} units from item {} ({})", quantity, itemId, reference);
+        return movementRepository.save(
+                new StockMovement(itemId, MovementType.DEDUCTION, -quantity, reference, performedBy));
+    }
+
+    /**
+     * Return quantity to a storage item (order line removed, project element rejected/deleted)
+     */
+    public StockMovement returnStock(Long itemId, int quantity, String reference, String performedBy) {
+        requirePositive(quantity);
+
+        int updated = itemRepository.incrementQuantity(itemId, quantity, LocalDateTime.now());
+        if (updated == 0) {
+            throw new RuntimeException("Storage item not found with id: " + itemId);
+        }
+
+        lowStockAlerts.itemChanged(itemId);
+        catalogCache.itemChanged(itemId);
+        logger.info("Ledger: returned {} units to item {} ({})", quantity, itemId, reference);
+        return movementRepository.save(
+                new StockMovement(itemId, MovementType.RETURN, quantity, reference, performedBy));
+    }
+
+    /**
+     * Set an item's quantity to {@code target} if it still equals {@code expected}
+     * (stock reconciliation); the difference is recorded as an inventory check
+     * @return the movement, or empty if the quantity changed since it was read
+     */
+    public Optional<StockMovement> reconcileItemQuantity(Long itemId, int expected, int target,
+                                                         String reference, String performedBy) {
+        if (target < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative: " + target);
+        }
+        if (expected == target) {
+            return Optional.empty();
+        }
+
+        int updated = itemRepository.setQuantityIfUnchanged(itemId, expected, target, LocalDateTime.now());
+        if (updated == 0) {
+            return Optional.empty();
+        }
+
+        lowStockAlerts.itemChanged(itemId);
+        catalogCache.itemChanged(itemId);
+        logger.info("Ledger: reconciled item {} ({} -> {}, {})", itemId, expected, target, reference);
+        return Optional.of(movementRepository.save(
+                new StockMovement(itemId, MovementType.INVENTORY_CHECK, target - expected, reference, performedBy)));
+    }
+
+    // ==================== Location-level movements ====================
+
+    /**
+     * Transfer quantity of an item between two locations
+     * @throws InsufficientStockException if the source location holds less than {@code quantity}
+     */
+    public StockMovement transfer(Long itemId, Long fromLocationId, Long toLocationId,
+                                  int quantity, String performedBy) {
+        requirePositive(quantity);
+        if (fromLocationId.equals(toLocationId)) {
+            throw new IllegalArgumentException("Source and destination location must differ");
+        }
+
+        TransferResult result = transferBatch(
+                List.of(new TransferLine(itemId, fromLocationId, toLocationId, quantity)), performedBy).get(0);
+        if (result.outcome() == TransferOutcome.INSUFFICIENT_STOCK) {
+            throw new InsufficientStockException(result.message());
+        }
+        if (!result.isTransferred()) {
+            throw new RuntimeException(result.message());
+        }
+        return result.movement();
+    }
+
+    /**
+     * Add quantity of an item to a location (stock received). The row is created if it does not
+     * exist (ON CONFLICT DO NOTHING, as for transfers), locked, and increased in place; an
+     * inactive row is reactivated starting from zero.
+     * @return the movement, or empty if {@code quantity} is zero
+     */
+    public Optional<StockMovement> addToLocation(Long itemId, Long locationId, int quantity,
+                                                 String reference, String performedBy) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative: " + quantity);
+        }
+        LockedRow row = lockOrCreateRow(itemId, locationId, performedBy);
+        int previous = row.active ? row.quantity : 0;
+        return writeLocationRow(itemId, row, previous + quantity, MovementType.RECEIPT, reference, performedBy);
+    }
+
+    /**
+     * Set the quantity of an item in a location (manual correction), creating the row if needed.
+     * With {@code expected} the change is refused if the row no longer holds that quantity, so an
+     * edit made from a stale screen cannot overwrite another desk's movement. The difference is
+     * recorded as an inventory check.
+     * @return the movement, or empty if the quantity did not change
+     */
+    public Optional<StockMovement> setLocationQuantity(Long itemId, Long locationId, Integer expected, int target,
+                                                       String reference, String performedBy) {
+        if (target < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative: " + target);
+        }
+        LockedRow row = lockOrCreateRow(itemId, locationId, performedBy);
+        int previous = row.active ? row.quantity : 0;
+        if (expected != null && previous != expected) {
+            throw new RuntimeException("Quantity of item " + itemId + " in location " + locationId +
+                    " changed from " + expected + " to " + previous + " since it was read - reload and try again");
+        }
+        return writeLocationRow(itemId, row, target, MovementType.INVENTORY_CHECK, reference, performedBy);
+    }
+
+    /**
+     * Apply several transfer lines in one transaction and report the outcome of each.
+     *
+     * Missing destination rows are created first (in item/location order, ON CONFLICT DO NOTHING),
+     * then every affected item-location row is locked in id order - the same order on every desk,
+     * so concurrent batches wait for each other instead of deadlocking. Lines are checked in order
+     * against the locked quantities (a line may use stock moved in by an earlier line); lines that
+     * cannot be applied are reported and skipped. All changed rows are written with one UPDATE.
+     */
+    public List<TransferResult> transferBatch(List<TransferLine> lines, String performedBy) {
+        TransferResult[] results = new TransferResult[lines.size()];
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String problem = validate(lines.get(i));
+            if (problem != null) {
+                results[i] = new TransferResult(lines.get(i), TransferOutcome.INVALID, problem, null);
+            } else {
+                candidates.add(i);
+            }
+        }
+
+        if (!candidates.isEmpty()) {
+            // Pending JPA changes must reach the database before the rows are read with JDBC
+            movementRepository.flush();
+            applyTransfers(lines, candidates, results, performedBy);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Record the counted quantity of an item-location row; the variance is written to the ledger
+     */
+    public StockMovement recordInventoryCheck(Long itemLocationId, int countedQuantity, String checkedBy) {
+        if (countedQuantity < 0) {
+            throw new IllegalArgumentException("Counted quantity cannot be negative");
+        }
+
+        List<Object[]> snapshot = itemLocationRepository.findQuantitySnapshot(itemLocationId);
+        if (snapshot.isEmpty()) {
+            throw new RuntimeException("Item location not found: " + itemLocationId);
+        }
+        Long itemId = (Long) snapshot.get(0)[0];
+        Long locationId = (Long) snapshot.get(0)[1];
+        int previous = snapshot.get(0)[2] != null ? (Integer) snapshot.get(0)[2] : 0;
+
+        itemLocationRepository.recordCountedQuantity(itemLocationId, countedQuantity, checkedBy, LocalDateTime.now());
+        locationSummaries.quantityChanged(locationId, countedQuantity - previous);
+        lowStockAlerts.itemChanged(itemId);
+
+        StockMovement movement = new StockMovement(itemId, MovementType.INVENTORY_CHECK,
+                countedQuantity - previous, "INVENTORY_CHECK:" + itemLocationId, checkedBy);
+        movement.setToLocationId(locationId);
+
+        logger.info("Ledger: inventory check on item-location {} ({} -> {})",
+                itemLocationId, previous, countedQuantity);
+        return movementRepository.save(movement);
+    }
+
+    /**
+     * Apply a whole stocktake in one statement: each row moves by (counted - baseline), so
+     * movements made since the baseline was frozen are kept, and never below zero. All non-zero
+     * adjustments are written to the ledger with one INSERT under {@code reference}.
+     */
+    public List<CountAdjustment> applyCounts(List<CountLine> lines, String reference, String checkedBy) {
+        if (lines.isEmpty()) {
+            return List.of();
+        }
+        for (CountLine line : lines) {
+            if (line.countedQuantity() < 0) {
+                throw new IllegalArgumentException("Counted quantity cannot be negative");
+            }
+        }
+
+        // Pending JPA changes must reach the database before the rows are read with JDBC
+        movementRepository.flush();
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Long[] ids = lines.stream().map(CountLine::itemLocationId).toArray(Long[]::new);
+        Integer[] deltas = lines.stream()
+                .map(line -> line.countedQuantity() - line.baselineQuantity())
+                .toArray(Integer[]::new);
+
+        List<CountAdjustment> adjustments = new ArrayList<>();
+        Map<Long, Integer> activeDeltas = new HashMap<>();
+        jdbcTemplate.query(APPLY_COUNTS_SQL, rs -> {
+            CountAdjustment adjustment = new CountAdjustment(rs.getLong(1), rs.getLong(2), rs.getLong(3),
+                    rs.getInt(4), rs.getInt(5));
+            adjustments.add(adjustment);
+            if (rs.getBoolean(6)) {
+                activeDeltas.merge(adjustment.locationId(), adjustment.delta(), Integer::sum);
+            }
+        }, now, checkedBy, now, ids, ids, deltas);
+
+        List<CountAdjustment> changed = adjustments.stream().filter(a -> a.delta() != 0).toList();
+        if (!changed.isEmpty()) {
+            List<Long> movementIds = idAllocator.allocate("stock_movements_id_seq", changed.size());
+            jdbcTemplate.update(INSERT_COUNT_MOVEMENTS_SQL, reference, checkedBy, now,
+                    movementIds.toArray(new Long[0]),
+                    changed.stream().map(CountAdjustment::itemId).toArray(Long[]::new),
+                    changed.stream().map(CountAdjustment::delta).toArray(Integer[]::new),
+                    changed.stream().map(CountAdjustment::locationId).toArray(Long[]::new));
+        }
+
+        activeDeltas.forEach(locationSummaries::quantityChanged);
+        lowStockAlerts.itemsChanged(changed.stream().map(CountAdjustment::itemId).collect(Collectors.toSet()));
+
+        logger.info("Ledger: applied {} counted rows ({} adjusted, {})", adjustments.size(), changed.size(), reference);
+        return adjustments;
+    }
+
+    // ==================== History ====================
+
+    @Transactional(readOnly = true)
+    public List<StockMovement> getMovementsForItem(Long itemId) {
+        return movementRepository.findByStorageItemIdOrderByCreatedAtDesc(itemId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<StockMovement> getMovementsForReference(String reference) {
+        return movementRepository.findByReferenceOrderByCreatedAtAsc(reference);
+    }
+
+    // ==================== Helpers ====================
+
+    private void applyTransfers(List<TransferLine> lines, List<Integer> candidates,
+                                TransferResult[] results, String performedBy) {
+        LocalDateTime now = LocalDateTime.now();
+
+        Set<RowKey> keys = new LinkedHashSet<>();
+        for (int i : candidates) {
+            TransferLine line = lines.get(i);
+            keys.add(new RowKey(line.itemId(), line.fromLocationId()));
+            keys.add(new RowKey(line.itemId(), line.toLocationId()));
+        }
+        Set<RowKey> existing = new HashSet<>();
+        jdbcTemplate.query(EXISTING_ROWS_SQL, rs -> {
+            existing.add(new RowKey(rs.getLong(1), rs.getLong(2)));
+        }, itemIdsOf(keys), locationIdsOf(keys));
+
+        // Destination rows to create: only for items held in the source and locations that exist
+        Set<Long> destinationLocations = new HashSet<>();
+        for (int i : candidates) {
+            destinationLocations.add(lines.get(i).toLocationId());
+        }
+        Set<Long> knownLocations = new HashSet<>(jdbcTemplate.queryForList(EXISTING_LOCATIONS_SQL, Long.class,
+                (Object) destinationLocations.toArray(new Long[0])));
+        Set<RowKey> missing = new TreeSet<>(ROW_KEY_ORDER);
+        for (int i : candidates) {
+            TransferLine line = lines.get(i);
+            RowKey destination = new RowKey(line.itemId(), line.toLocationId());
+            if (existing.contains(new RowKey(line.itemId(), line.fromLocationId()))
+                    && knownLocations.contains(line.toLocationId()) && !existing.contains(destination)) {
+                missing.add(destination);
+            }
+        }
+        Set<RowKey> inserted = insertEmptyRows(missing, performedBy, now);
+
+        // Lock every affected row in id order
+        Map<RowKey, LockedRow> rows = new HashMap<>();
+        jdbcTemplate.query(LOCK_ROWS_SQL, rs -> {
+            RowKey key = new RowKey(rs.getLong(2), rs.getLong(3));
+            rows.put(key, new LockedRow(rs.getLong(1), key.locationId(), rs.getInt(4),
+                    rs.getBoolean(5), inserted.contains(key)));
+        }, itemIdsOf(keys), locationIdsOf(keys));
+
+        List<StockMovement> movements = new ArrayList<>();
+        List<Integer> applied = new ArrayList<>();
+        for (int i : candidates) {
+            TransferLine line = lines.get(i);
+            LockedRow source = rows.get(new RowKey(line.itemId(), line.fromLocationId()));
+            LockedRow destination = rows.get(new RowKey(line.itemId(), line.toLocationId()));
+
+            if (source == null || !source.active) {
+                results[i] = new TransferResult(line, TransferOutcome.INSUFFICIENT_STOCK,
+                        "Item " + line.itemId() + " is not stored in location " + line.fromLocationId(), null);
+                continue;
+            }
+            if (source.quantity < line.quantity()) {
+                results[i] = new TransferResult(line, TransferOutcome.INSUFFICIENT_STOCK,
+                        "Only " + source.quantity + " units of item " + line.itemId() +
+                        " in location " + line.fromLocationId(), null);
+                continue;
+            }
+            if (destination == null) {
+                results[i] = new TransferResult(line, TransferOutcome.INVALID,
+                        "Destination location not found: " + line.toLocationId(), null);
+                continue;
+            }
+
+            if (!destination.active) {
+                destination.active = true; // Reactivated row starts empty
+                destination.quantity = 0;
+            }
+            source.quantity -= line.quantity();
+            destination.quantity += line.quantity();
+
+            StockMovement movement = new StockMovement(line.itemId(), MovementType.TRANSFER, line.quantity(),
+                    null, performedBy);
+            movement.setFromLocationId(line.fromLocationId());
+            movement.setToLocationId(line.toLocationId());
+            movements.add(movement);
+            applied.add(i);
+        }
+
+        List<LockedRow> changed = rows.values().stream().filter(LockedRow::isChanged).toList();
+        if (!changed.isEmpty()) {
+            jdbcTemplate.update(UPDATE_ROWS_SQL, Timestamp.valueOf(now),
+                    changed.stream().map(row -> row.id).toArray(Long[]::new),
+                    changed.stream().map(row -> row.quantity).toArray(Integer[]::new));
+        }
+        for (LockedRow row : rows.values()) {
+            if (row.inserted || (!row.originalActive && row.active)) {
+                locationSummaries.rowAdded(row.locationId, row.quantity);
+            } else if (row.active) {
+                locationSummaries.quantityChanged(row.locationId, row.quantity - row.originalQuantity);
+            }
+        }
+
+        List<StockMovement> saved = movementRepository.saveAll(movements);
+        Set<Long> itemIds = new HashSet<>();
+        for (int n = 0; n < applied.size(); n++) {
+            int i = applied.get(n);
+            results[i] = new TransferResult(lines.get(i), TransferOutcome.TRANSFERRED, null, saved.get(n));
+            itemIds.add(lines.get(i).itemId());
+        }
+        lowStockAlerts.itemsChanged(itemIds);
+
+        logger.info("Ledger: batch transfer applied {} of {} lines", applied.size(), lines.size());
+    }
+
+    /**
+     * Lock the item-location row of an item in a location, creating an empty one first if it
+     * does not exist
+     */
+    private LockedRow lockOrCreateRow(Long itemId, Long locationId, String performedBy) {
+        // Pending JPA changes must reach the database before the rows are read with JDBC
+        movementRepository.flush();
+
+        RowKey key = new RowKey(itemId, locationId);
+        LockedRow row = lockRow(key, false);
+        if (row == null) {
+            Set<RowKey> missing = new TreeSet<>(ROW_KEY_ORDER);
+            missing.add(key);
+            row = lockRow(key, !insertEmptyRows(missing, performedBy, LocalDateTime.now()).isEmpty());
+        }
+        if (row == null) {
+            throw new RuntimeException("Could not create item " + itemId + " in location " + locationId);
+        }
+        return row;
+    }
+
+    private LockedRow lockRow(RowKey key, boolean inserted) {
+        List<LockedRow> rows = jdbcTemplate.query(LOCK_ROWS_SQL, (rs, rowNum) ->
+                        new LockedRow(rs.getLong(1), key.locationId(), rs.getInt(4), rs.getBoolean(5), inserted),
+                new Long[]{key.itemId()}, new Long[]{key.locationId()});
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Write the new quantity of a locked row, keep the location summary in step and record the
+     * change in the ledger
+     */
+    private Optional<StockMovement> writeLocationRow(Long itemId, LockedRow row, int quantity, MovementType type,
+                                                     String reference, String performedBy) {
+        int previous = row.active ? row.quantity : 0;
+        row.active = true;
+        row.quantity = quantity;
+        if (row.isChanged()) {
+            jdbcTemplate.update(UPDATE_ROWS_SQL, Timestamp.valueOf(LocalDateTime.now()),
+                    new Long[]{row.id}, new Integer[]{row.quantity});
+        }
+        if (row.inserted || !row.originalActive) {
+            locationSummaries.rowAdded(row.locationId, row.quantity);
+        } else if (row.isChanged()) {
+            locationSummaries.quantityChanged(row.locationId, row.quantity - row.originalQuantity);
+        }
+
+        if (quantity == previous) {
+            return Optional.empty();
+        }
+        lowStockAlerts.itemChanged(itemId);
+        StockMovement movement = new StockMovement(itemId, type, quantity - previous, reference, performedBy);
+        movement.setToLocationId(row.locationId);
+        logger.info("Ledger: item {} in location {} {} -> {} ({})", itemId, row.locationId, previous, quantity, reference);
+        return Optional.of(movementRepository.save(movement));
+    }
+
+    /**
+     * Create empty active rows for the given item/location pairs, in key order; rows another
+     * desk created in the meantime are left alone. Returns the pairs actually inserted.
+     */
+    private Set<RowKey> insertEmptyRows(Set<RowKey> missing, String createdBy, LocalDateTime now) {
+        Set<RowKey> inserted = new HashSet<>();
+        if (missing.isEmpty()) {
+            return inserted;
+        }
+        List<Long> ids = idAllocator.allocate("storage_item_locations_id_seq", missing.size());
+        jdbcTemplate.query(INSERT_EMPTY_ROWS_SQL, rs -> {
+            inserted.add(new RowKey(rs.getLong(1), rs.getLong(2)));
+        }, Timestamp.valueOf(now), createdBy, ids.toArray(new Long[0]), itemIdsOf(missing), locationIdsOf(missing));
+        return inserted;
+    }
+
+    private static String validate(TransferLine line) {
+        if (line.itemId() == null || line.fromLocationId() == null || line.toLocationId() == null) {
+            return "Item, source and destination are required";
+        }
+        if (line.quantity() <= 0) {
+            return "Quantity must be positive: " + line.quantity();
+        }
+        if (line.fromLocationId().equals(line.toLocationId())) {
+            return "Source and destination location must differ";
+        }
+        return null;
+    }
+
+    private static Long[] itemIdsOf(Collection<RowKey> keys) {
+        return keys.stream().map(RowKey::itemId).toArray(Long[]::new);
+    }
+
+    private static Long[] locationIdsOf(Collection<RowKey> keys) {
+        return keys.stream().map(RowKey::locationId).toArray(Long[]::new);
+    }
+
+    private void requirePositive(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.magictech.modules.storage.service;
+
+import com.magictech.modules.storage.entity.StockDriftReport;
+import com.magictech.modules.storage.repository.StockDriftReportRepository;
+import com.magictech.modules.storage.service.StockDriftChunkProcessor.ChunkResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stock Reconciliation - background check of StorageItem.quantity against the sum of the
+ * item's active StorageItemLocation quantities.
+ *
+ * The two drift apart because some paths only change one of them (sales deductions touch
+ * the item only). A scheduled run walks the catalog in keyset chunks, each handled in its
+ * own short transaction by StockDriftChunkProcessor, and records every drifted item in
+ * stock_drift_reports. Item-only deductions and returns since an item's last full
+ * correction explain part of its drift and are not counted. With policy TRUST_LOCATIONS
+ * drifts up to max-auto-correct units are corrected by setting the item quantity to the
+ * location total plus those movements.
+ * Only one desk runs at a time (advisory lock held for the run); the figures of the last
+ * run on this desk are kept in memory as the drift metric.
+ */
+@Service
+public class StockReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReconciliationService.class);
+
+    /**
+     * What to do with a drifted item
+     */
+    public enum Policy {
+        REPORT_ONLY,     // Only write drift reports
+        TRUST_LOCATIONS  // Set the item quantity to the location total (locations are the counted truth),
+                         // keeping item-only movements since the last full correction
+    }
+
+    /**
+     * Drift metric - the figures of the last completed reconciliation run
+     */
+    public record DriftMetrics(LocalDateTime runStartedAt, LocalDateTime runFinishedAt,
+                               long itemsScanned, long itemsDrifted, long itemsCorrected,
+                               long correctionsSkipped, long totalAbsoluteDrift, int maxAbsoluteDrift,
+                               boolean completed) {
+    }
+
+    @Autowired
+    private StockDriftChunkProcessor chunkProcessor;
+
+    @Autowired
+    private StockDriftReportRepository driftReportRepository;
+
+    @Value("${magictech.reconciliation.policy:REPORT_ONLY}")
+    private Policy policy;
+
+    @Value("${magictech.reconciliation.chunk-size:500}")
+    private int chunkSize;
+
+    // Larger drifts are only reported, even with TRUST_LOCATIONS (0 = no limit)
+    @Value("${magictech.reconciliation.max-auto-correct:50}")
+    private int maxAutoCorrect;
+
+    // Also report items that are not placed in any location
+    @Value("${magictech.reconciliation.include-unplaced:false}")
+    private boolean includeUnplaced;
+
+    @Value("${magictech.reconciliation.report-retention-days:30}")
+    private int reportRetentionDays;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile DriftMetrics lastMetrics;
+
+    /**
+     * Scheduled reconciliation run
+     */
+    @Scheduled(fixedDelayString = "${magictech.reconciliation.interval-ms:900000}",
+               initialDelayString = "${magictech.reconciliation.initial-delay-ms:120000}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            logger.error("Stock reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Run one reconciliation over the whole catalog
+     * @return the run's metrics, or the previous metrics if a run is already in progress
+     *         here or on another desk
+     */
+    public DriftMetrics reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Stock reconciliation already running - skipped");
+            return lastMetrics;
+        }
+
+        try {
+            if (!chunkProcessor.runLocked(this::runChunks)) {
+                logger.info("Stock reconciliation running on another desk - skipped");
+            }
+        } catch (Exception e) {
+            logger.error("Stock reconciliation lock failed: {}", e.getMessage());
+        } finally {
+            running.set(false);
+        }
+        return lastMetrics;
+    }
+
+    /**
+     * Walk the catalog chunk by chunk; called with the reconciliation lock held
+     */
+    private void runChunks() {
+        LocalDateTime runStartedAt = LocalDateTime.now();
+        long scanned = 0, drifted = 0, corrected = 0, skipped = 0, absoluteDrift = 0;
+        int maxDrift = 0;
+        boolean completed = false;
+
+        try {
+            Long afterId = 0L;
+            while (true) {
+                ChunkResult chunk = chunkProcessor.processChunk(afterId, chunkSize, runStartedAt, policy,
+                        maxAutoCorrect, includeUnplaced);
+                scanned += chunk.scanned();
+                drifted += chunk.drifted();
+                corrected += chunk.corrected();
+                skipped += chunk.skipped();
+                absoluteDrift += chunk.absoluteDrift();
+                maxDrift = Math.max(maxDrift, chunk.maxAbsoluteDrift());
+
+                if (chunk.scanned() < chunkSize) {
+                    break;
+                }
+                afterId = chunk.lastItemId();
+            }
+            completed = true;
+
+            if (reportRetentionDays > 0) {
+                chunkProcessor.purgeReportsBefore(runStartedAt.minusDays(reportRetentionDays));
+            }
+        } catch (Exception e) {
+            // Chunks committed so far stay committed; the next run starts over
+            logger.error("Stock reconciliation stopped after {} items: {}", scanned, e.getMessage());
+        } finally {
+            lastMetrics = new DriftMetrics(runStartedAt, LocalDateTime.now(), scanned, drifted, corrected,
+                    skipped, absoluteDrift, maxDrift, completed);
+        }
+
+        logger.info("Stock reconciliation ({}): {} items scanned, {} drifted, {} corrected, {} skipped",
+                policy, scanned, drifted, corrected, skipped);
+    }
+
+    /**
+     * Metrics of the last run (null before the first run)
+     */
+    public DriftMetrics getLastMetrics() {
+        return lastMetrics;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    @Transactional(readOnly = true)
+    public List<StockDriftReport> getRecentReports(int limit) {
+        return driftReportRepository.findAllByOrderByDetectedAtDesc(PageRequest.of(0, limit));
+    }
+
+    @Transactional(readOnly = true)
+    public List<StockDriftReport> getReportsForItem(Long itemId) {
+        return driftReportRepository.findByStorageItemIdOrderByDetectedAtDesc(itemId);
+    }
+}
@@ -0,0 +1,233 @@
+package com.magictech.modules.storage.service;
+
+import com.magictech.core.util.TransactionUtil;
+import com.magictech.modules.storage.entity.StockReservation;
+import com.magictech.modules.storage.entity.StorageItem;
+import com.magictech.modules.storage.repository.StockReservationRepository;
+import com.magictech.modules.storage.repository.StorageItemRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Soft stock reservation engine for sales orders.
+ *
+ * Reservations are persisted to stock_reservations and mirrored in an in-memory
+ * per-item counter, so available = on-hand - reserved is an O(1) map lookup for
+ * tables and selection panels. Reservations of the same item are serialized by a
+ * row lock on storage_items, which covers threads of this desk and other desks alike.
+ * Expired holds are removed in one bulk DELETE by a scheduled sweep, which also
+ * rebuilds the counters with a single grouped query (picking up other desks' holds)
+ * and tells the expiry listeners which holders lost their hold.
+ */
+@Service
+@Transactional
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private StorageItemRepository itemRepository;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Value("${magictech.reservation.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    // storageItemId -> live reserved quantity
+    private final Map<Long, Integer> reservedByItem = new ConcurrentHashMap<>();
+
+    // Called by the sweep, in its transaction, with the holder keys of expired holds
+    private final List<Consumer<List<String>>> expiryListeners = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        try {
+            rebuildCounters();
+        } catch (Exception e) {
+            // Don't block startup - counters are rebuilt by the next sweep
+            logger.warn("Could not load stock reservations at startup: {}", e.getMessage());
+        }
+    }
+
+    // ==================== Availability (O(1), no DB) ====================
+
+    /**
+     * Quantity currently held by live reservations for an item
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public int getReservedQuantity(Long itemId) {
+        if (itemId == null) return 0;
+        return reservedByItem.getOrDefault(itemId, 0);
+    }
+
+    /**
+     * Available quantity = on-hand - reserved, never negative
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public int getAvailableQuantity(StorageItem item) {
+        if (item == null) return 0;
+        int onHand = item.getQuantity() != null ? item.getQuantity() : 0;
+        return Math.max(0, onHand - getReservedQuantity(item.getId()));
+    }
+
+    // ==================== Reserve / Release / Commit ====================
+
+    /**
+     * Place a soft hold of {@code quantity} units for a holder (e.g. "SALES_ORDER_ITEM:15")
+     * @throws StockLedger.InsufficientStockException if available stock is too low
+     */
+    public StockReservation reserve(Long itemId, int quantity, String holderKey, String createdBy) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+
+        // Row lock held until commit - concurrent reservations of this item wait here
+        StorageItem item = itemRepository.findByIdForUpdate(itemId)
+                .orElseThrow(() -> new RuntimeException("Storage item not found with id: " + itemId));
+
+        LocalDateTime now = LocalDateTime.now();
+        int onHand = item.getQuantity() != null ? item.getQuantity() : 0;
+        int reserved = reservationRepository.sumActiveReservedForItem(itemId, now);
+
+        if (onHand - reserved < quantity) {
+            throw new StockLedger.InsufficientStockException(
+                    "Insufficient stock for " + item.getProductName() +
+                    " - requested " + quantity + ", available " + Math.max(0, onHand - reserved));
+        }
+
+        StockReservation reservation = reservationRepository.save(new StockReservation(
+                itemId, holderKey, quantity, createdBy, now.plusMinutes(ttlMinutes)));
+
+        // Counter is authoritative for this item as of now: reserved in DB + this hold
+        int newTotal = reserved + quantity;
+        TransactionUtil.afterCommit(() -> reservedByItem.put(itemId, newTotal));
+
+        logger.info("Reserved {} units of item {} for {}", quantity, itemId, holderKey);
+        return reservation;
+    }
+
+    /**
+     * Hand the hold of {@code fromHolderKey} over to {@code toHolderKey} and renew it. If that
+     * hold expired or does not match the item and quantity, the stock is reserved again
+     * (and the call fails if it is no longer available).
+     */
+    public StockReservation moveHold(String fromHolderKey, String toHolderKey, Long itemId, int quantity,
+                                     String createdBy) {
+        LocalDateTime now = LocalDateTime.now();
+        Optional<StockReservation> live = reservationRepository.findByHolderKey(fromHolderKey)
+                .filter(reservation -> reservation.getExpiresAt().isAfter(now)
+                        && reservation.getStorageItemId().equals(itemId)
+                        && reservation.getQuantity() == quantity);
+        if (live.isPresent()) {
+            StockReservation reservation = live.get();
+            reservation.setHolderKey(toHolderKey);
+            reservation.setExpiresAt(now.plusMinutes(ttlMinutes));
+            logger.info("Moved reservation {} to {}", fromHolderKey, toHolderKey);
+            return reservationRepository.save(reservation);
+        }
+        release(fromHolderKey);
+        return reserve(itemId, quantity, toHolderKey, createdBy);
+    }
+
+    /**
+     * Release the hold owned by a holder; no-op if it does not exist or already expired
+     */
+    public void release(String holderKey) {
+        reservationRepository.findByHolderKey(holderKey).ifPresent(reservation -> {
+            reservationRepository.delete(reservation);
+            adjustCounterAfterCommit(reservation.getStorageItemId(), -reservation.getQuantity());
+            logger.info("Released reservation {} ({} units of item {})",
+                    holderKey, reservation.getQuantity(), reservation.getStorageItemId());
+        });
+    }
+
+    /**
+     * Turn a hold into a real deduction through the stock ledger.
+     * Deducts {@code quantity} even if the hold already expired, so stock is never skipped.
+     * The hold is released first (same transaction) so the deduction does not count it as
+     * reserved by someone else.
+     */
+    public void commit(String holderKey, Long itemId, int quantity, String reference, String performedBy) {
+        release(holderKey);
+        stockLedger.deduct(itemId, quantity, reference, performedBy);
+    }
+
+    /**
+     * Extend a live hold by another TTL period
+     */
+    public Optional<StockReservation> renew(String holderKey) {
+        return reservationRepository.findByHolderKey(holderKey).map(reservation -> {
+            reservation.setExpiresAt(LocalDateTime.now().plusMinutes(ttlMinutes));
+            return reservationRepository.save(reservation);
+        });
+    }
+
+    // ==================== Expiry Sweep ====================
+
+    /**
+     * Register a callback that receives the holder keys of expired holds, so holders can
+     * update their own state in the sweep's transaction
+     */
+    public void addExpiryListener(Consumer<List<String>> listener) {
+        expiryListeners.add(listener);
+    }
+
+    /**
+     * Remove expired holds in bulk and resync counters with all desks
+     */
+    @Scheduled(fixedDelayString = "${magictech.reservation.sweep-interval-ms:60000}")
+    public void sweepExpired() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<String> expiredHolders = reservationRepository.findExpiredHolderKeys(now);
+            int removed = reservationRepository.deleteExpired(now);
+            if (removed > 0) {
+                logger.info("Expired {} stock reservations", removed);
+            }
+            if (!expiredHolders.isEmpty()) {
+                expiryListeners.forEach(listener -> listener.accept(expiredHolders));
+            }
+            rebuildCounters();
+        } catch (Exception e) {
+            logger.error("Stock reservation sweep failed: {}", e.getMessage());
+        }
+    }
+
+    private void rebuildCounters() {
+        List<Object[]> rows = reservationRepository.sumActiveReservedByItem(LocalDateTime.now());
+        Map<Long, Integer> fresh = new ConcurrentHashMap<>();
+        for (Object[] row : rows) {
+            fresh.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        reservedByItem.keySet().retainAll(fresh.keySet());
+        reservedByItem.putAll(fresh);
+    }
+
+    // ==================== Helpers ====================
+
+    private void adjustCounterAfterCommit(Long itemId, int delta) {
+        TransactionUtil.afterCommit(() -> reservedByItem.compute(itemId, (id, current) -> {
+            int next = (current != null ? current : 0) + delta;
+            return next > 0 ? next : null;
+        }));
+    }
+}
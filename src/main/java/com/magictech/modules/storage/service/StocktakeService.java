@@ -0,0 +1,176 @@
+package com.magictech.modules.storage.service;
+
+import com.magictech.modules.storage.dto.StocktakeReport;
+import com.magictech.modules.storage.entity.StorageLocation;
+import com.magictech.modules.storage.repository.StorageItemLocationRepository;
+import com.magictech.modules.storage.repository.StorageLocationRepository;
+import com.magictech.modules.storage.service.StockLedger.CountAdjustment;
+import com.magictech.modules.storage.service.StockLedger.CountLine;
+import com.magictech.modules.storage.service.StocktakeSession.BaselineRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stocktake (full inventory count) of a location.
+ *
+ * Starting a session freezes the location's rows in memory; scans and CSV imports are counted
+ * against that baseline without touching the database. Committing applies every counted row
+ * through StockLedger.applyCounts - one UPDATE for the rows and one INSERT for the ledger,
+ * all under the reference "STOCKTAKE:&lt;session id&gt;" - and returns the variance report.
+ * Open sessions live in this desk's memory only. Commits of a location are serialised with a
+ * Postgres advisory lock, and a count is refused if another stocktake of the location was
+ * committed after it started, so two desks counting the same location cannot both apply.
+ */
+@Service
+@Transactional
+public class StocktakeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StocktakeService.class);
+
+    public static final String REFERENCE_PREFIX = "STOCKTAKE:";
+
+    // Held until the commit's transaction ends; the first key keeps it apart from other advisory locks
+    private static final String LOCK_LOCATION_SQL = "SELECT pg_advisory_xact_lock(hashtext('" + REFERENCE_PREFIX + "'), ?)";
+
+    // Served by idx_stock_movements_item (storage_item_id, created_at)
+    private static final String COMMITTED_SINCE_SQL =
+            "SELECT EXISTS (SELECT 1 FROM stock_movements WHERE storage_item_id = ANY(?::bigint[]) " +
+            "AND created_at >= ? AND movement_type = 'INVENTORY_CHECK' AND to_location_id = ? " +
+            "AND reference LIKE '" + REFERENCE_PREFIX + "%')";
+
+    @Autowired
+    private StorageItemLocationRepository itemLocationRepository;
+
+    @Autowired
+    private StorageLocationRepository locationRepository;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<String, StocktakeSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Freeze the location's rows and open a session (an open session of the location is reused)
+     */
+    @Transactional(readOnly = true)
+    public StocktakeSession startSession(Long locationId, String startedBy) {
+        Optional<StocktakeSession> open = findOpenSession(locationId);
+        if (open.isPresent()) {
+            return open.get();
+        }
+
+        StorageLocation location = locationRepository.findById(locationId)
+                .orElseThrow(() -> new RuntimeException("Location not found: " + locationId));
+        String sessionId = UUID.randomUUID().toString().substring(0, 8);
+        StocktakeSession session = new StocktakeSession(sessionId, locationId, location.getName(), startedBy,
+                itemLocationRepository.findDTOsByLocationId(locationId));
+        sessions.put(sessionId, session);
+
+        logger.info("Stocktake {} started for {} ({} rows) by {}",
+                sessionId, location.getName(), session.getBaselineSize(), startedBy);
+        return session;
+    }
+
+    public Optional<StocktakeSession> getSession(String sessionId) {
+        return Optional.ofNullable(sessions.get(sessionId));
+    }
+
+    public Optional<StocktakeSession> findOpenSession(Long locationId) {
+        return sessions.values().stream()
+                .filter(session -> session.getLocationId().equals(locationId))
+                .findFirst();
+    }
+
+    /**
+     * Discard an open session without changing stock
+     */
+    public void cancelSession(String sessionId) {
+        if (sessions.remove(sessionId) != null) {
+            logger.info("Stocktake {} cancelled", sessionId);
+        }
+    }
+
+    /**
+     * Apply the counts of a session and close it.
+     * The session is taken out first, so a second commit (double click, retry) finds nothing to apply;
+     * it is put back if the commit rolls back.
+     * @param zeroUncounted rows nobody scanned were counted as empty
+     */
+    public StocktakeReport commit(String sessionId, boolean zeroUncounted, String committedBy) {
+        StocktakeSession session = sessions.remove(sessionId);
+        if (session == null) {
+            throw new RuntimeException("Stocktake session not found or already committed: " + sessionId);
+        }
+        restoreOnRollback(session);
+
+        List<String> unresolved = session.getUnresolvedSharedCodes();
+        if (!unresolved.isEmpty()) {
+            throw new RuntimeException("Codes shared by several rows were scanned (" + String.join(", ", unresolved) +
+                    ") - set the count of each of their rows before committing");
+        }
+
+        Map<BaselineRow, Integer> counts = session.getCounts(zeroUncounted);
+        List<CountLine> lines = new ArrayList<>(counts.size());
+        counts.forEach((row, counted) -> lines.add(new CountLine(row.itemLocationId(), row.quantity(), counted)));
+
+        jdbcTemplate.query(LOCK_LOCATION_SQL, (RowCallbackHandler) rs -> { }, session.getLocationId().intValue());
+        Long[] itemIds = counts.keySet().stream().map(BaselineRow::itemId).distinct().toArray(Long[]::new);
+        Boolean committedSince = jdbcTemplate.queryForObject(COMMITTED_SINCE_SQL, Boolean.class,
+                itemIds, Timestamp.valueOf(session.getStartedAt()), session.getLocationId());
+        if (Boolean.TRUE.equals(committedSince)) {
+            throw new RuntimeException("Another stocktake of " + session.getLocationName() +
+                    " was committed after this count started - discard this count and start again");
+        }
+
+        List<CountAdjustment> adjustments = stockLedger.applyCounts(lines, REFERENCE_PREFIX + sessionId, committedBy);
+
+        List<StocktakeReport.Line> reportLines = new ArrayList<>(adjustments.size());
+        for (CountAdjustment adjustment : adjustments) {
+            BaselineRow row = session.getBaselineRow(adjustment.itemLocationId());
+            reportLines.add(new StocktakeReport.Line(row.itemLocationId(), row.itemId(), row.code(),
+                    row.productName(), row.price(), row.quantity(), counts.get(row),
+                    adjustment.previousQuantity(), adjustment.newQuantity()));
+        }
+        if (adjustments.size() < lines.size()) {
+            logger.warn("Stocktake {}: {} counted rows were deleted during the count and not adjusted",
+                    sessionId, lines.size() - adjustments.size());
+        }
+
+        StocktakeReport report = new StocktakeReport(sessionId, session.getLocationId(), session.getLocationName(),
+                session.getStartedAt(), LocalDateTime.now(), committedBy, reportLines, session.getUnmatchedCodes());
+        logger.info("Stocktake {} committed: {} rows counted, {} with variance, {} unmatched codes",
+                sessionId, reportLines.size(), report.getLinesWithVariance(), report.unmatchedCodes().size());
+        return report;
+    }
+
+    /**
+     * The session stays open if the commit rolls back
+     */
+    private void restoreOnRollback(StocktakeSession session) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        sessions.putIfAbsent(session.getId(), session);
+                    }
+                }
+            });
+        }
+    }
+}
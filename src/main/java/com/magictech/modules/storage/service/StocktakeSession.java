@@ -0,0 +1,281 @@
+package com.magictech.modules.storage.service;
+
+import com.magictech.modules.storage.dto.ItemInLocationDTO;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * An open stocktake of one location, held in memory by StocktakeService.
+ *
+ * The location's rows are frozen when the session starts. Scanned codes are resolved against
+ * an index of item codes and serial numbers built from that baseline, so a scan never touches
+ * the database; counts accumulate per row until the session is committed. A code shared by
+ * several rows of the location cannot tell them apart: its scans are kept as unmatched, and
+ * each of those rows must be counted with {@link #setCount(Long, int)} before the session
+ * can be committed. Methods are synchronized - scans come from the FX thread while a CSV
+ * import may run in the background.
+ */
+public class StocktakeSession {
+
+    /**
+     * A row of the location as it was when the count started
+     */
+    public record BaselineRow(Long itemLocationId, Long itemId, String code, String serialNumber,
+                              String productName, BigDecimal price, int quantity) {
+    }
+
+    /**
+     * Outcome of a scan; {@code row} is null when the code matched no row of the location, or
+     * more than one ({@code sharedBy} then lists them)
+     */
+    public record ScanResult(String code, BaselineRow row, int counted, List<BaselineRow> sharedBy) {
+        public ScanResult(String code, BaselineRow row, int counted) {
+            this(code, row, counted, List.of());
+        }
+
+        public boolean isMatched() {
+            return row != null;
+        }
+
+        public boolean isShared() {
+            return !sharedBy.isEmpty();
+        }
+    }
+
+    private final String id;
+    private final Long locationId;
+    private final String locationName;
+    private final String startedBy;
+    private final LocalDateTime startedAt;
+
+    private final Map<Long, BaselineRow> baseline = new LinkedHashMap<>();
+    // Lower-cased item code / serial number -> item-location id
+    private final Map<String, Long> codeIndex = new HashMap<>();
+    // Lower-cased code / serial number held by more than one row -> those rows
+    private final Map<String, List<Long>> sharedCodes = new HashMap<>();
+
+    private final Map<Long, Integer> counts = new LinkedHashMap<>();
+    private final Map<String, Integer> unmatchedCodes = new LinkedHashMap<>();
+    // Shared codes that were scanned; cleared once each of their rows has a count
+    private final Set<String> unresolvedSharedCodes = new LinkedHashSet<>();
+    private int scans;
+
+    StocktakeSession(String id, Long locationId, String locationName, String startedBy,
+                     List<ItemInLocationDTO> rows) {
+        this.id = id;
+        this.locationId = locationId;
+        this.locationName = locationName;
+        this.startedBy = startedBy;
+        this.startedAt = LocalDateTime.now();
+
+        for (ItemInLocationDTO dto : rows) {
+            BaselineRow row = new BaselineRow(dto.getItemLocationId(), dto.getItemId(), dto.getCode(),
+                    dto.getSerialNumber(), dto.getProductName(), dto.getPrice(),
+                    dto.getQuantity() != null ? dto.getQuantity() : 0);
+            baseline.put(row.itemLocationId(), row);
+        }
+        // Codes win over serial numbers; a code or serial held by several rows matches none of them
+        indexCodes(BaselineRow::code);
+        indexCodes(BaselineRow::serialNumber);
+    }
+
+    // ==================== Counting ====================
+
+    /**
+     * One scan of a barcode (keyboard-wedge scanners send one code per unit)
+     */
+    public ScanResult scan(String code) {
+        return addCount(code, 1);
+    }
+
+    /**
+     * Add {@code quantity} units of a code to the count
+     */
+    public synchronized ScanResult addCount(String code, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative: " + quantity);
+        }
+        String key = normalize(code);
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Empty code");
+        }
+        scans++;
+
+        Long itemLocationId = codeIndex.get(key);
+        if (itemLocationId == null) {
+            int counted = unmatchedCodes.merge(code.trim(), quantity, Integer::sum);
+            List<BaselineRow> sharedBy = rowsSharing(key);
+            if (!sharedBy.isEmpty() && !sharedBy.stream().allMatch(row -> counts.containsKey(row.itemLocationId()))) {
+                unresolvedSharedCodes.add(key);
+            }
+            return new ScanResult(code.trim(), null, counted, sharedBy);
+        }
+        int counted = counts.merge(itemLocationId, quantity, Integer::sum);
+        return new ScanResult(code.trim(), baseline.get(itemLocationId), counted);
+    }
+
+    /**
+     * Replace the count of a code (manual correction)
+     */
+    public synchronized ScanResult setCount(String code, int quantity) {
+        String key = normalize(code);
+        Long itemLocationId = codeIndex.get(key);
+        if (itemLocationId == null) {
+            if (sharedCodes.containsKey(key)) {
+                throw new IllegalArgumentException("Code " + code.trim() + " is shared by " +
+                        sharedCodes.get(key).size() + " rows - set the count of each row");
+            }
+            throw new IllegalArgumentException("Code not stored in " + locationName + ": " + code);
+        }
+        return setCount(itemLocationId, quantity);
+    }
+
+    /**
+     * Replace the count of one row (manual correction; the only way to count rows sharing a code)
+     */
+    public synchronized ScanResult setCount(Long itemLocationId, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative: " + quantity);
+        }
+        BaselineRow row = baseline.get(itemLocationId);
+        if (row == null) {
+            throw new IllegalArgumentException("Row not stored in " + locationName + ": " + itemLocationId);
+        }
+        counts.put(itemLocationId, quantity);
+        unresolvedSharedCodes.removeIf(key -> rowsSharing(key).stream()
+                .allMatch(shared -> counts.containsKey(shared.itemLocationId())));
+        return new ScanResult(row.code(), row, quantity);
+    }
+
+    /**
+     * Read counts from CSV lines of {@code code[,quantity]} (quantity defaults to 1, a header
+     * line is skipped). Counts are added to what was already scanned.
+     * @return number of lines counted
+     */
+    public int importCsv(BufferedReader reader) throws IOException {
+        List<String[]> entries = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] fields = line.split("[,;\\t]", -1);
+            String code = unquote(fields[0]);
+            String quantity = fields.length > 1 ? unquote(fields[1]) : "1";
+            if (!quantity.matches("\\d+")) {
+                if (lineNumber == 1) {
+                    continue; // Header
+                }
+                throw new IllegalArgumentException("Line " + lineNumber + ": invalid quantity '" + quantity + "'");
+            }
+            if (!code.isEmpty()) {
+                entries.add(new String[]{code, quantity});
+            }
+        }
+
+        // Parse everything first so a bad line leaves the session unchanged
+        synchronized (this) {
+            for (String[] entry : entries) {
+                addCount(entry[0], Integer.parseInt(entry[1]));
+            }
+        }
+        return entries.size();
+    }
+
+    // ==================== State ====================
+
+    public String getId() { return id; }
+    public Long getLocationId() { return locationId; }
+    public String getLocationName() { return locationName; }
+    public String getStartedBy() { return startedBy; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+
+    public int getBaselineSize() {
+        return baseline.size();
+    }
+
+    public synchronized int getScanCount() {
+        return scans;
+    }
+
+    public synchronized int getCountedRowCount() {
+        return counts.size();
+    }
+
+    public BaselineRow getBaselineRow(Long itemLocationId) {
+        return baseline.get(itemLocationId);
+    }
+
+    /**
+     * Counted rows in baseline order; with {@code includeUncounted} rows nobody scanned count as zero
+     */
+    public synchronized Map<BaselineRow, Integer> getCounts(boolean includeUncounted) {
+        Map<BaselineRow, Integer> result = new LinkedHashMap<>();
+        for (BaselineRow row : baseline.values()) {
+            Integer counted = counts.get(row.itemLocationId());
+            if (counted != null || includeUncounted) {
+                result.put(row, counted != null ? counted : 0);
+            }
+        }
+        return result;
+    }
+
+    public synchronized Map<String, Integer> getUnmatchedCodes() {
+        return new LinkedHashMap<>(unmatchedCodes);
+    }
+
+    /**
+     * Rows of the location that share a code or serial number (empty if it is unique or unknown)
+     */
+    public synchronized List<BaselineRow> getRowsSharing(String code) {
+        return rowsSharing(normalize(code));
+    }
+
+    /**
+     * Shared codes that were scanned while some of their rows still have no count - the
+     * session cannot be committed until those rows are counted with {@link #setCount(Long, int)}
+     */
+    public synchronized List<String> getUnresolvedSharedCodes() {
+        return new ArrayList<>(unresolvedSharedCodes);
+    }
+
+    private void indexCodes(Function<BaselineRow, String> codeOf) {
+        Map<String, List<Long>> rowsByCode = new LinkedHashMap<>();
+        for (BaselineRow row : baseline.values()) {
+            String key = normalize(codeOf.apply(row));
+            if (!key.isEmpty() && !codeIndex.containsKey(key) && !sharedCodes.containsKey(key)) {
+                rowsByCode.computeIfAbsent(key, k -> new ArrayList<>()).add(row.itemLocationId());
+            }
+        }
+        rowsByCode.forEach((key, rowIds) -> {
+            if (rowIds.size() == 1) {
+                codeIndex.put(key, rowIds.get(0));
+            } else {
+                sharedCodes.put(key, rowIds);
+            }
+        });
+    }
+
+    private List<BaselineRow> rowsSharing(String key) {
+        return sharedCodes.getOrDefault(key, List.of()).stream().map(baseline::get).toList();
+    }
+
+    private static String normalize(String code) {
+        return code == null ? "" : code.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String unquote(String field) {
+        String value = field.trim();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1).replace("\"\"", "\"").trim();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,257 @@
+package com.magictech.modules.storage.service;
+
+import com.magictech.modules.storage.entity.WorkflowStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Set-based actions on multi-selected rows of the storage views.
+ *
+ * Each action is one UPDATE/DELETE ... WHERE id = ANY(?) per chunk of ids instead of a lookup
+ * and a write per row. RETURNING hands back what changed, so the location summaries, low stock
+ * alerts and the catalog cache get one change report per batch.
+ */
+@Service
+@Transactional
+public class StorageBulkOperations {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageBulkOperations.class);
+
+    // Ids bound to one statement (one round trip)
+    private static final int CHUNK_SIZE = 1000;
+
+    // Item-location statements return: location id, item id, quantity, whether the row was active
+    private static final String DELETE_ITEM_LOCATIONS_SQL =
+            "DELETE FROM storage_item_locations WHERE id = ANY(?::bigint[]) " +
+            "RETURNING storage_location_id, storage_item_id, quantity, active";
+
+    private static final String DEACTIVATE_ITEM_LOCATIONS_SQL =
+            "UPDATE storage_item_locations SET active = false, last_updated = ? " +
+            "WHERE id = ANY(?::bigint[]) AND active = true " +
+            "RETURNING storage_location_id, storage_item_id, quantity, true";
+
+    private static final String REACTIVATE_ITEM_LOCATIONS_SQL =
+            "UPDATE storage_item_locations SET active = true, last_updated = ? " +
+            "WHERE id = ANY(?::bigint[]) AND active = false " +
+            "RETURNING storage_location_id, storage_item_id, quantity, true";
+
+    private static final String SET_MIN_STOCK_SQL =
+            "UPDATE storage_item_locations SET min_stock_level = ?::integer, last_updated = ? " +
+            "WHERE id = ANY(?::bigint[]) " +
+            "RETURNING storage_location_id, storage_item_id, quantity, false";
+
+    // Item statements return the changed item ids
+    private static final String DEACTIVATE_ITEMS_SQL =
+            "UPDATE storage_items SET active = false, last_updated = ? " +
+            "WHERE id = ANY(?::bigint[]) AND active = true RETURNING id";
+
+    private static final String REACTIVATE_ITEMS_SQL =
+            "UPDATE storage_items SET active = true, last_updated = ? " +
+            "WHERE id = ANY(?::bigint[]) AND active = false RETURNING id";
+
+    private static final String SET_PRICE_SQL =
+            "UPDATE storage_items SET price = ?, last_updated = ? WHERE id = ANY(?::bigint[]) RETURNING id";
+
+    private static final String SET_WORKFLOW_STATUS_SQL =
+            "UPDATE storage_items SET workflow_status = ?, workflow_updated_at = ?, workflow_updated_by = ?, " +
+            "last_updated = ? WHERE id = ANY(?::bigint[]) RETURNING id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LocationSummaryReadModel locationSummaries;
+
+    @Autowired
+    private LowStockAlertEngine lowStockAlerts;
+
+    @Autowired
+    private StorageCatalogCache catalogCache;
+
+    // ==================== Item-location rows ====================
+
+    /**
+     * Permanently delete item-location rows by id
+     * @return number of rows deleted
+     */
+    public int deleteItemLocations(Collection<Long> itemLocationIds) {
+        RowChanges changes = updateRows(DELETE_ITEM_LOCATIONS_SQL, itemLocationIds);
+        changes.reportRemoved();
+        logger.info("Bulk deleted {} item-location rows", changes.count);
+        return changes.count;
+    }
+
+    /**
+     * Deactivate item-location rows by id (soft delete)
+     * @return number of rows deactivated
+     */
+    public int softDeleteItemLocations(Collection<Long> itemLocationIds) {
+        RowChanges changes = updateRows(DEACTIVATE_ITEM_LOCATIONS_SQL, itemLocationIds, now());
+        changes.reportRemoved();
+        return changes.count;
+    }
+
+    /**
+     * Reactivate soft-deleted item-location rows by id
+     * @return number of rows restored
+     */
+    public int restoreItemLocations(Collection<Long> itemLocationIds) {
+        RowChanges changes = updateRows(REACTIVATE_ITEM_LOCATIONS_SQL, itemLocationIds, now());
+        changes.byLocation.forEach((locationId, counters) ->
+                locationSummaries.rowsAdded(locationId, counters[0], counters[1]));
+        lowStockAlerts.itemsChanged(changes.itemIds);
+        return changes.count;
+    }
+
+    /**
+     * Set the minimum stock level of item-location rows (null clears it)
+     * @return number of rows updated
+     */
+    public int setMinStockLevel(Collection<Long> itemLocationIds, Integer minStockLevel) {
+        if (minStockLevel != null && minStockLevel < 0) {
+            throw new IllegalArgumentException("Minimum stock level cannot be negative");
+        }
+        RowChanges changes = updateRows(SET_MIN_STOCK_SQL, itemLocationIds, minStockLevel, now());
+        lowStockAlerts.itemsChanged(changes.itemIds);
+        return changes.count;
+    }
+
+    // ==================== Items ====================
+
+    /**
+     * Deactivate items by id (soft delete)
+     * @return number of items deactivated
+     */
+    public int softDeleteItems(Collection<Long> itemIds) {
+        List<Long> changed = updateItems(DEACTIVATE_ITEMS_SQL, itemIds, now());
+        reportItemsChanged(changed, true);
+        return changed.size();
+    }
+
+    /**
+     * Reactivate soft-deleted items by id
+     * @return number of items restored
+     */
+    public int restoreItems(Collection<Long> itemIds) {
+        List<Long> changed = updateItems(REACTIVATE_ITEMS_SQL, itemIds, now());
+        reportItemsChanged(changed, true);
+        return changed.size();
+    }
+
+    /**
+     * Set the same price on items (never writes quantity)
+     * @return number of items updated
+     */
+    public int setPrice(Collection<Long> itemIds, BigDecimal price) {
+        if (price == null || price.signum() < 0) {
+            throw new IllegalArgumentException("Price must be zero or more");
+        }
+        List<Long> changed = updateItems(SET_PRICE_SQL, itemIds, price, now());
+        reportItemsChanged(changed, false);
+        return changed.size();
+    }
+
+    /**
+     * Move items to a workflow status
+     * @return number of items updated
+     */
+    public int setWorkflowStatus(Collection<Long> itemIds, WorkflowStatus status, String updatedBy) {
+        if (status == null) {
+            throw new IllegalArgumentException("Workflow status is required");
+        }
+        Timestamp now = now();
+        List<Long> changed = updateItems(SET_WORKFLOW_STATUS_SQL, itemIds, status.name(), now, updatedBy, now);
+        reportItemsChanged(changed, false);
+        return changed.size();
+    }
+
+    // ==================== Helpers ====================
+
+    private void reportItemsChanged(List<Long> itemIds, boolean stockAffected) {
+        if (stockAffected) {
+            lowStockAlerts.itemsChanged(itemIds);
+        }
+        catalogCache.itemsChanged(itemIds);
+    }
+
+    /**
+     * Run an item statement for each chunk of ids; the id array is bound last
+     */
+    private List<Long> updateItems(String sql, Collection<Long> itemIds, Object... leadingArgs) {
+        List<Long> changed = new ArrayList<>();
+        for (Long[] chunk : chunks(itemIds)) {
+            changed.addAll(jdbcTemplate.queryForList(sql, Long.class, withIds(leadingArgs, chunk)));
+        }
+        return changed;
+    }
+
+    /**
+     * Run an item-location statement for each chunk of ids; the id array is bound last
+     */
+    private RowChanges updateRows(String sql, Collection<Long> itemLocationIds, Object... leadingArgs) {
+        RowChanges changes = new RowChanges();
+        for (Long[] chunk : chunks(itemLocationIds)) {
+            jdbcTemplate.query(sql, rs -> {
+                changes.add(rs.getLong(1), rs.getLong(2), rs.getInt(3), rs.getBoolean(4));
+            }, withIds(leadingArgs, chunk));
+        }
+        return changes;
+    }
+
+    private static Object[] withIds(Object[] leadingArgs, Long[] ids) {
+        Object[] args = Arrays.copyOf(leadingArgs, leadingArgs.length + 1);
+        args[leadingArgs.length] = ids;
+        return args;
+    }
+
+    private static List<Long[]> chunks(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        List<Long> distinct = ids.stream().filter(Objects::nonNull).distinct().toList();
+        List<Long[]> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += CHUNK_SIZE) {
+            chunks.add(distinct.subList(from, Math.min(from + CHUNK_SIZE, distinct.size())).toArray(new Long[0]));
+        }
+        return chunks;
+    }
+
+    private static Timestamp now() {
+        return Timestamp.valueOf(LocalDateTime.now());
+    }
+
+    /**
+     * Rows changed by an item-location statement, totalled per location
+     */
+    private class RowChanges {
+        final Set<Long> itemIds = new LinkedHashSet<>();
+        // locationId -> {active rows, their quantity}
+        final Map<Long, int[]> byLocation = new HashMap<>();
+        int count;
+
+        void add(long locationId, long itemId, int quantity, boolean active) {
+            count++;
+            itemIds.add(itemId);
+            if (active) {
+                int[] counters = byLocation.computeIfAbsent(locationId, id -> new int[2]);
+                counters[0]++;
+                counters[1] += quantity;
+            }
+        }
+
+        void reportRemoved() {
+            byLocation.forEach((locationId, counters) ->
+                    locationSummaries.rowsRemoved(locationId, counters[0], counters[1]));
+            lowStockAlerts.itemsChanged(itemIds);
+        }
+    }
+}
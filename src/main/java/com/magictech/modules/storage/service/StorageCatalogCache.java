@@ -0,0 +1,381 @@
+package com.magictech.modules.storage.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.magictech.core.messaging.constants.NotificationConstants;
+import com.magictech.core.util.TransactionUtil;
+import com.magictech.modules.storage.dto.StorageCatalogDelta;
+import com.magictech.modules.storage.entity.StorageItem;
+import com.magictech.modules.storage.repository.StorageItemRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-memory copy of the active storage catalog, shared by all modules of this desk.
+ *
+ * The catalog is loaded once, on first read; after that reads never query the database.
+ * StorageService, StockLedger and the Excel import report changed items here after commit:
+ * on a background thread (outside the committed transaction's persistence context) the rows
+ * are re-read by id and the ids are published on a Redis channel so the other desks re-read
+ * them too. If messages are missed (Redis down, desk asleep), a periodic refresh
+ * re-reads items whose lastUpdated/dateAdded moved past the last one seen and drops ids
+ * that no longer exist.
+ *
+ * Returned entities are shared between modules - treat them as read-only.
+ */
+@Service
+public class StorageCatalogCache implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageCatalogCache.class);
+
+    // Deltas with more ids than this are published as a resync request
+    private static final int MAX_DELTA_IDS = 500;
+
+    // Bound on ids per IN list
+    private static final int QUERY_CHUNK = 1000;
+
+    private static final String CREATE_INDEX_SQL =
+            "CREATE INDEX IF NOT EXISTS idx_storage_items_changed " +
+            "ON storage_items ((COALESCE(last_updated, date_added)))";
+
+    @Autowired
+    private StorageItemRepository itemRepository;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer messageListenerContainer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Timestamps come from each desk's clock - the refresh re-reads this far back
+    @Value("${magictech.catalog-cache.clock-skew-ms:300000}")
+    private long clockSkewMs;
+
+    // Identifies this desk's own messages on the channel
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Map<Long, StorageItem> items = new ConcurrentHashMap<>();
+
+    // Re-reads and publishes local changes off the committing thread
+    private final ExecutorService changeExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "storage-catalog-cache");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Told about every change of the cached catalog (derived caches invalidate themselves)
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+    // Serializes loads and updates; reads do not lock
+    private final Object updateLock = new Object();
+
+    private volatile boolean loaded;
+
+    // Newest lastUpdated/dateAdded seen - the refresh reads rows changed since
+    private volatile LocalDateTime watermark;
+
+    // Sorted read view, rebuilt after a change (bumps version)
+    private volatile long version;
+    private volatile List<StorageItem> sortedView;
+
+    @PostConstruct
+    public void subscribe() {
+        try {
+            messageListenerContainer.addMessageListener(this,
+                    new ChannelTopic(NotificationConstants.CHANNEL_STORAGE_CATALOG));
+        } catch (Exception e) {
+            logger.warn("Storage catalog channel not subscribed, relying on periodic refresh: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        changeExecutor.shutdownNow();
+    }
+
+    /**
+     * Make sure the expression index used by the incremental refresh exists, then warm the
+     * cache in the background so the first module opened does not wait for it
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            jdbcTemplate.execute(CREATE_INDEX_SQL);
+        } catch (Exception e) {
+            logger.warn("Could not create catalog refresh index: {}", e.getMessage());
+        }
+        changeExecutor.execute(() -> {
+            try {
+                ensureLoaded();
+            } catch (Exception e) {
+                logger.warn("Catalog cache warm-up failed, loading on first read: {}", e.getMessage());
+            }
+        });
+    }
+
+    // ==================== Reads ====================
+
+    /**
+     * All active items in id order (loads the catalog on first use)
+     */
+    public List<StorageItem> getAllItems() {
+        ensureLoaded();
+        List<StorageItem> view = sortedView;
+        if (view != null) {
+            return view;
+        }
+
+        long viewVersion = version;
+        List<StorageItem> rebuilt = new ArrayList<>(items.values());
+        rebuilt.sort(Comparator.comparing(StorageItem::getId));
+        rebuilt = Collections.unmodifiableList(rebuilt);
+        if (viewVersion == version) {
+            sortedView = rebuilt;
+        }
+        return rebuilt;
+    }
+
+    /**
+     * An active item by id
+     */
+    public Optional<StorageItem> getItem(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        ensureLoaded();
+        return Optional.ofNullable(items.get(id));
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Run {@code listener} whenever the cached catalog changes (local, remote or refreshed rows).
+     * Listeners run on the updating thread and must be quick.
+     */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    // ==================== Change reports ====================
+
+    /**
+     * Report a changed, added or deleted item (re-read and published after commit)
+     */
+    public void itemChanged(Long itemId) {
+        if (itemId != null) {
+            itemsChanged(List.of(itemId));
+        }
+    }
+
+    /**
+     * Report changed, added or deleted items (re-read and published after commit)
+     */
+    public void itemsChanged(Collection<Long> itemIds) {
+        if (itemIds == null || itemIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(itemIds);
+        TransactionUtil.afterCommit(() -> changeExecutor.execute(() -> {
+            try {
+                refreshItems(ids);
+            } catch (Exception e) {
+                logger.warn("Could not re-read {} changed items: {}", ids.size(), e.getMessage());
+            }
+            publish(ids);
+        }));
+    }
+
+    private void publish(List<Long> ids) {
+        try {
+            StorageCatalogDelta delta = ids.size() > MAX_DELTA_IDS
+                    ? new StorageCatalogDelta(instanceId, List.of(), true)
+                    : new StorageCatalogDelta(instanceId, ids, false);
+            redisTemplate.convertAndSend(NotificationConstants.CHANNEL_STORAGE_CATALOG, delta);
+        } catch (Exception e) {
+            logger.warn("Could not publish catalog delta ({} items): {}", ids.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Delta from another desk
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            StorageCatalogDelta delta = objectMapper.readValue(message.getBody(), StorageCatalogDelta.class);
+            if (instanceId.equals(delta.getSourceId()) || !loaded) {
+                return; // Own change (already applied) or nothing cached yet
+            }
+            if (delta.isResync()) {
+                refreshChanged();
+            } else {
+                refreshItems(delta.getItemIds());
+            }
+        } catch (Exception e) {
+            logger.error("Error applying catalog delta: {}", e.getMessage(), e);
+        }
+    }
+
+    // ==================== Loading and refresh ====================
+
+    /**
+     * Safety net for missed deltas: re-read recently changed rows and drop deleted ones
+     */
+    @Scheduled(fixedDelayString = "${magictech.catalog-cache.refresh-interval-ms:60000}",
+               initialDelayString = "${magictech.catalog-cache.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (!loaded) {
+            return;
+        }
+        try {
+            refreshChanged();
+            if (itemRepository.countByActiveTrue() != items.size()) {
+                reconcileIds();
+            }
+        } catch (Exception e) {
+            logger.warn("Catalog cache refresh failed: {}", e.getMessage());
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (updateLock) {
+            if (loaded) {
+                return;
+            }
+            List<StorageItem> rows = itemRepository.findByActiveTrue();
+            items.clear();
+            LocalDateTime newest = null;
+            for (StorageItem item : rows) {
+                items.put(item.getId(), item);
+                newest = later(newest, changedAt(item));
+            }
+            watermark = newest != null ? newest : LocalDateTime.now();
+            changed();
+            loaded = true;
+            logger.info("Storage catalog cache loaded {} items", rows.size());
+        }
+    }
+
+    /**
+     * Re-read items by id; rows that are gone or inactive are dropped
+     */
+    private void refreshItems(List<Long> ids) {
+        if (!loaded || ids == null || ids.isEmpty()) {
+            return;
+        }
+        synchronized (updateLock) {
+            Set<Long> missing = new HashSet<>(ids);
+            for (int from = 0; from < ids.size(); from += QUERY_CHUNK) {
+                List<Long> chunk = ids.subList(from, Math.min(from + QUERY_CHUNK, ids.size()));
+                for (StorageItem item : itemRepository.findAllById(chunk)) {
+                    missing.remove(item.getId());
+                    apply(item);
+                }
+            }
+            missing.forEach(items::remove);
+            changed();
+        }
+    }
+
+    /**
+     * Re-read rows changed since the watermark (minus the clock skew allowance)
+     */
+    private void refreshChanged() {
+        synchronized (updateLock) {
+            List<StorageItem> rows = itemRepository.findChangedSince(watermark.minus(Duration.ofMillis(clockSkewMs)));
+            LocalDateTime newest = watermark;
+            for (StorageItem item : rows) {
+                apply(item);
+                newest = later(newest, changedAt(item));
+            }
+            watermark = newest;
+            if (!rows.isEmpty()) {
+                changed();
+            }
+        }
+    }
+
+    /**
+     * Hard deletes leave no lastUpdated trace - compare the id sets
+     */
+    private void reconcileIds() {
+        synchronized (updateLock) {
+            Set<Long> activeIds = new HashSet<>(itemRepository.findActiveIds());
+            int removed = 0;
+            for (Iterator<Long> it = items.keySet().iterator(); it.hasNext(); ) {
+                if (!activeIds.contains(it.next())) {
+                    it.remove();
+                    removed++;
+                }
+            }
+            activeIds.removeAll(items.keySet());
+            changed();
+            logger.info("Catalog cache reconciled: {} removed, {} missing re-read", removed, activeIds.size());
+            if (!activeIds.isEmpty()) {
+                refreshItems(new ArrayList<>(activeIds));
+            }
+        }
+    }
+
+    private void apply(StorageItem item) {
+        if (Boolean.TRUE.equals(item.getActive())) {
+            items.put(item.getId(), item);
+        } else {
+            items.remove(item.getId());
+        }
+    }
+
+    private void changed() {
+        version++;
+        sortedView = null;
+        for (Runnable listener : changeListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                logger.warn("Catalog change listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static LocalDateTime changedAt(StorageItem item) {
+        return item.getLastUpdated() != null ? item.getLastUpdated() : item.getDateAdded();
+    }
+
+    private static LocalDateTime later(LocalDateTime a, LocalDateTime b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return b.isAfter(a) ? b : a;
+    }
+}
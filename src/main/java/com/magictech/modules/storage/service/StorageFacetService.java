@@ -0,0 +1,176 @@
+package com.magictech.modules.storage.service;
+
+import com.magictech.modules.storage.repository.StorageItemRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Facet counts for the storage filter UIs.
+ *
+ * Distinct manufacture, system type and workflow status values of active items, each with its
+ * item count, come from one GROUPING SETS query instead of loading the catalog. Counts can be
+ * limited to the items matching a search term: the search predicate is part of that query, so
+ * the counts cover the same matches the paged tables show, however many there are.
+ * Results are cached per term and dropped whenever StorageCatalogCache sees a change; a short
+ * maximum age covers changes that reach this desk late.
+ */
+@Service
+public class StorageFacetService {
+
+    // Cached results are re-queried after this long even without a change notice
+    private static final long MAX_AGE_MS = 60_000;
+
+    // Search terms with cached facets; the cache is cleared when it grows past this
+    private static final int MAX_CACHED_TERMS = 64;
+
+    // GROUPING(...) bitmask of each grouping set: bit 2 = manufacture, 1 = system_type, 0 = workflow_status
+    private static final int BY_MANUFACTURE = 0b011;
+    private static final int BY_SYSTEM_TYPE = 0b101;
+    private static final int BY_WORKFLOW_STATUS = 0b110;
+
+    private static final String FACETS_SQL =
+            "SELECT GROUPING(manufacture, system_type, workflow_status), manufacture, system_type, " +
+            "workflow_status, COUNT(*) FROM storage_items WHERE active = true%s " +
+            "GROUP BY GROUPING SETS ((manufacture), (system_type), (workflow_status), ())";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StorageItemRepository itemRepository;
+
+    @Autowired
+    private StorageCatalogCache catalogCache;
+
+    /**
+     * One distinct value and the number of active items that have it
+     */
+    public record FacetValue(String value, long count) {
+    }
+
+    /**
+     * Facet values in alphabetical order; {@code total} counts all items in scope
+     */
+    public record Facets(List<FacetValue> manufacturers, List<FacetValue> systemTypes,
+                         List<FacetValue> workflowStatuses, long total) {
+    }
+
+    private record Cached<T>(T value, long loadedAt) {
+
+        boolean isFresh() {
+            return System.currentTimeMillis() - loadedAt < MAX_AGE_MS;
+        }
+    }
+
+    // Normalized search term ("" = whole catalog) -> facets
+    private final Map<String, Cached<Facets>> facetCache = new ConcurrentHashMap<>();
+    private volatile Cached<List<Object[]>> filterCombinations;
+
+    // Bumped by invalidate() so results computed before a change are not cached
+    private volatile long generation;
+
+    @PostConstruct
+    public void registerInvalidation() {
+        catalogCache.addChangeListener(this::invalidate);
+    }
+
+    /**
+     * Drop all cached facets and filter combinations
+     */
+    public void invalidate() {
+        generation++;
+        facetCache.clear();
+        filterCombinations = null;
+    }
+
+    /**
+     * Facets of the whole active catalog
+     */
+    @Transactional(readOnly = true)
+    public Facets getFacets() {
+        return getFacets(null);
+    }
+
+    /**
+     * Facets of the active items matching the search term (whole catalog for a blank term)
+     */
+    @Transactional(readOnly = true)
+    public Facets getFacets(String searchTerm) {
+        String term = searchTerm == null ? "" : searchTerm.trim().toLowerCase();
+        Cached<Facets> cached = facetCache.get(term);
+        if (cached != null && cached.isFresh()) {
+            return cached.value();
+        }
+
+        long requestGeneration = generation;
+        Facets facets = queryFacets(StorageSearchService.containsPattern(term));
+
+        if (requestGeneration == generation) {
+            if (facetCache.size() >= MAX_CACHED_TERMS) {
+                facetCache.clear();
+            }
+            facetCache.put(term, new Cached<>(facets, System.currentTimeMillis()));
+        }
+        return facets;
+    }
+
+    /**
+     * Distinct (systemType, manufacture, product type) combinations for the cascading filter combos
+     */
+    @Transactional(readOnly = true)
+    public List<Object[]> getFilterCombinations() {
+        Cached<List<Object[]>> cached = filterCombinations;
+        if (cached != null && cached.isFresh()) {
+            return cached.value();
+        }
+
+        long requestGeneration = generation;
+        List<Object[]> combinations = Collections.unmodifiableList(itemRepository.findFilterCombinations());
+        if (requestGeneration == generation) {
+            filterCombinations = new Cached<>(combinations, System.currentTimeMillis());
+        }
+        return combinations;
+    }
+
+    private Facets queryFacets(String searchPattern) {
+        List<FacetValue> manufacturers = new ArrayList<>();
+        List<FacetValue> systemTypes = new ArrayList<>();
+        List<FacetValue> workflowStatuses = new ArrayList<>();
+        long[] total = {0};
+
+        // The search document is repeated verbatim so the pg_trgm index can serve the LIKE
+        String sql = String.format(FACETS_SQL,
+                searchPattern != null ? " AND " + StorageItemRepository.SEARCH_DOCUMENT + " LIKE ?" : "");
+        Object[] args = searchPattern != null ? new Object[]{searchPattern} : new Object[0];
+
+        jdbcTemplate.query(sql, rs -> {
+            int grouping = rs.getInt(1);
+            long count = rs.getLong(5);
+            switch (grouping) {
+                case BY_MANUFACTURE -> addValue(manufacturers, rs.getString(2), count);
+                case BY_SYSTEM_TYPE -> addValue(systemTypes, rs.getString(3), count);
+                case BY_WORKFLOW_STATUS -> addValue(workflowStatuses, rs.getString(4), count);
+                default -> total[0] = count;
+            }
+        }, args);
+
+        Comparator<FacetValue> byValue = Comparator.comparing(FacetValue::value, String.CASE_INSENSITIVE_ORDER);
+        manufacturers.sort(byValue);
+        systemTypes.sort(byValue);
+        workflowStatuses.sort(byValue);
+        return new Facets(List.copyOf(manufacturers), List.copyOf(systemTypes), List.copyOf(workflowStatuses), total[0]);
+    }
+
+    // Items without a value count towards the total only
+    private static void addValue(List<FacetValue> values, String value, long count) {
+        if (value != null && !value.trim().isEmpty()) {
+            values.add(new FacetValue(value, count));
+        }
+    }
+}
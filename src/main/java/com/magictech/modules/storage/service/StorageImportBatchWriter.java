@@ -0,0 +1,98 @@
+package com.magictech.modules.storage.service;
+
+import com.magictech.modules.storage.entity.StorageItem;
+import com.magictech.modules.storage.entity.WorkflowStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes one import chunk with plain JDBC batches, bypassing the persistence context:
+ * ids for the whole chunk are taken from the same sequences the entities use (one nextval
+ * per pooled block), then storage_items and storage_item_locations are each written as a
+ * single batch. Each chunk is its own transaction, so a failed chunk leaves earlier chunks committed.
+ */
+@Service
+public class StorageImportBatchWriter {
+
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO storage_items (id, manufacture, product_name, code, serial_number, quantity, price, " +
+            "workflow_status, workflow_updated_at, date_added, created_by, active) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, true)";
+
+    private static final String INSERT_ITEM_LOCATION_SQL =
+            "INSERT INTO storage_item_locations (id, storage_item_id, storage_location_id, quantity, " +
+            "date_added, created_by, active) VALUES (?, ?, ?, ?, ?, ?, true)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PooledIdAllocator idAllocator;
+
+    @Autowired
+    private LocationSummaryReadModel locationSummaries;
+
+    @Autowired
+    private StorageCatalogCache catalogCache;
+
+    /**
+     * Insert a chunk of items and place each one in the given location
+     */
+    @Transactional
+    public void writeChunk(List<StorageItem> items, Long locationId, String createdBy) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = idAllocator.allocate("storage_items_id_seq", items.size());
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).setId(ids.get(i));
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, items, items.size(), (ps, item) -> {
+            ps.setLong(1, item.getId());
+            ps.setString(2, item.getManufacture());
+            ps.setString(3, item.getProductName());
+            ps.setString(4, item.getCode());
+            ps.setString(5, item.getSerialNumber());
+            ps.setInt(6, item.getQuantity() != null ? item.getQuantity() : 0);
+            if (item.getPrice() != null) {
+                ps.setBigDecimal(7, item.getPrice());
+            } else {
+                ps.setNull(7, Types.NUMERIC);
+            }
+            ps.setString(8, WorkflowStatus.DRAFT.name());
+            ps.setTimestamp(9, now);
+            ps.setTimestamp(10, item.getDateAdded() != null ? Timestamp.valueOf(item.getDateAdded()) : now);
+            ps.setString(11, createdBy);
+        });
+        catalogCache.itemsChanged(ids);
+
+        if (locationId == null) {
+            return;
+        }
+
+        Iterator<Long> locationIds = idAllocator.allocate("storage_item_locations_id_seq", items.size()).iterator();
+        jdbcTemplate.batchUpdate(INSERT_ITEM_LOCATION_SQL, items, items.size(), (ps, item) -> {
+            ps.setLong(1, locationIds.next());
+            ps.setLong(2, item.getId());
+            ps.setLong(3, locationId);
+            ps.setInt(4, item.getQuantity() != null ? item.getQuantity() : 0);
+            ps.setTimestamp(5, now);
+            ps.setString(6, createdBy);
+        });
+
+        int totalQuantity = items.stream().mapToInt(item -> item.getQuantity() != null ? item.getQuantity() : 0).sum();
+        locationSummaries.rowsAdded(locationId, items.size(), totalQuantity);
+    }
+}
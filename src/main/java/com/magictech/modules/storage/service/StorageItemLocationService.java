@@ -1,12 +1,14 @@
 package com.magictech.modules.storage.service;
 
-import com.magictech.modules.storage.entity.StorageItem;
-import com.magictech.modules.storage.entity.StorageLocation;
+import com.magictech.modules.storage.dto.CustomFieldQuery;
+import com.magictech.modules.storage.dto.ItemInLocationDTO;
 import com.magictech.modules.storage.entity.StorageItemLocation;
 import com.magictech.modules.storage.repository.StorageItemRepository;
 import com.magictech.modules.storage.repository.StorageLocationRepository;
 import com.magictech.modules.storage.repository.StorageItemLocationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -30,66 +32,67 @@ public class StorageItemLocationService {
     @Autowired
     private StorageLocationRepository locationRepository;
 
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private StorageSearchService searchService;
+
+    @Autowired
+    private LocationSummaryReadModel locationSummaries;
+
+    @Autowired
+    private LowStockAlertEngine lowStockAlerts;
+
     // ==================== CRUD Operations ====================
 
     /**
-     * Add an item to a location with specified quantity
+     * Add an item to a location with specified quantity (added to what the location already holds).
+     * Goes through StockLedger: the row is created or increased in place and the receipt recorded.
      */
     public StorageItemLocation addItemToLocation(Long itemId, Long locationId, Integer quantity, String createdBy) {
-        StorageItem item = itemRepository.findById(itemId)
-                .orElseThrow(() -> new RuntimeException("Storage item not found: " + itemId));
-
-        StorageLocation location = locationRepository.findById(locationId)
-                .orElseThrow(() -> new RuntimeException("Storage location not found: " + locationId));
-
-        // Check if relationship already exists
-        Optional<StorageItemLocation> existing = itemLocationRepository
-                .findByItemIdAndLocationId(itemId, locationId);
+        requireItemAndLocation(itemId, locationId);
 
-        if (existing.isPresent()) {
-            // Update existing quantity
-            StorageItemLocation sil = existing.get();
-            sil.setQuantity(sil.getQuantity() + quantity);
-            return itemLocationRepository.save(sil);
-        }
-
-        // Create new relationship
-        StorageItemLocation sil = new StorageItemLocation(item, location, quantity);
-        sil.setCreatedBy(createdBy);
-        return itemLocationRepository.save(sil);
+        stockLedger.addToLocation(itemId, locationId, quantity, "LOCATION:" + locationId, createdBy);
+        return itemLocationRepository.findByItemIdAndLocationId(itemId, locationId)
+                .orElseThrow(() -> new RuntimeException("Item " + itemId + " not found in location " + locationId));
     }
 
     /**
-     * Set exact quantity for an item in a location
+     * Set exact quantity for an item in a location. With {@code expectedQuantity} (the quantity
+     * the user saw) the change is refused if another desk moved stock in the meantime.
      */
-    public StorageItemLocation setItemQuantityInLocation(Long itemId, Long locationId, Integer quantity, String updatedBy) {
-        Optional<StorageItemLocation> existing = itemLocationRepository.findByItemIdAndLocationId(itemId, locationId);
-
-        if (existing.isPresent()) {
-            StorageItemLocation sil = existing.get();
-            sil.setQuantity(quantity);
-            return itemLocationRepository.save(sil);
-        } else {
-            return addItemToLocation(itemId, locationId, quantity, updatedBy);
-        }
+    public StorageItemLocation setItemQuantityInLocation(Long itemId, Long locationId, Integer expectedQuantity,
+                                                         Integer quantity, String updatedBy) {
+        requireItemAndLocation(itemId, locationId);
+
+        stockLedger.setLocationQuantity(itemId, locationId, expectedQuantity, quantity,
+                "LOCATION:" + locationId, updatedBy);
+        return itemLocationRepository.findByItemIdAndLocationId(itemId, locationId)
+                .orElseThrow(() -> new RuntimeException("Item " + itemId + " not found in location " + locationId));
     }
 
     /**
-     * Update item location details
+     * Update item location details; a changed quantity goes through StockLedger
      */
     public StorageItemLocation updateItemLocation(Long id, StorageItemLocation updated) {
-        StorageItemLocation existing = itemLocationRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Item location not found: " + id));
+        List<Object[]> snapshot = itemLocationRepository.findQuantitySnapshot(id);
+        if (snapshot.isEmpty()) {
+            throw new RuntimeException("Item location not found: " + id);
+        }
+        Long itemId = (Long) snapshot.get(0)[0];
+        Long locationId = (Long) snapshot.get(0)[1];
 
-        existing.setQuantity(updated.getQuantity());
-        existing.setBinLocation(updated.getBinLocation());
-        existing.setShelfNumber(updated.getShelfNumber());
-        existing.setRowNumber(updated.getRowNumber());
-        existing.setMinStockLevel(updated.getMinStockLevel());
-        existing.setMaxStockLevel(updated.getMaxStockLevel());
-        existing.setNotes(updated.getNotes());
+        if (updated.getQuantity() != null) {
+            stockLedger.setLocationQuantity(itemId, locationId, null, updated.getQuantity(),
+                    "LOCATION:" + locationId, updated.getCreatedBy());
+        }
+        itemLocationRepository.updateDetails(id, updated.getBinLocation(), updated.getShelfNumber(),
+                updated.getRowNumber(), updated.getMinStockLevel(), updated.getMaxStockLevel(),
+                updated.getNotes(), LocalDateTime.now());
+        lowStockAlerts.itemChanged(itemId);
 
-        return itemLocationRepository.save(existing);
+        return itemLocationRepository.findById(id).orElseThrow();
     }
 
     /**
@@ -100,6 +103,8 @@ public class StorageItemLocationService {
         existing.ifPresent(sil -> {
             sil.setActive(false);
             itemLocationRepository.save(sil);
+            locationSummaries.rowRemoved(locationId, sil.getQuantity());
+            lowStockAlerts.itemChanged(itemId);
         });
     }
 
@@ -107,7 +112,13 @@ public class StorageItemLocationService {
      * Hard delete item from location by ID
      */
     public void hardRemoveItemFromLocation(Long id) {
-        itemLocationRepository.deleteById(id);
+        itemLocationRepository.findById(id).ifPresent(sil -> {
+            if (Boolean.TRUE.equals(sil.getActive())) {
+                locationSummaries.rowRemoved(sil.getStorageLocation().getId(), sil.getQuantity());
+            }
+            lowStockAlerts.itemChanged(sil.getStorageItem().getId());
+            itemLocationRepository.delete(sil);
+        });
     }
 
     /**
@@ -116,29 +127,37 @@ public class StorageItemLocationService {
      */
     public void hardRemoveItemFromLocation(Long itemId, Long locationId) {
         Optional<StorageItemLocation> existing = itemLocationRepository.findByItemIdAndLocationId(itemId, locationId);
-        existing.ifPresent(sil -> itemLocationRepository.delete(sil));
+        existing.ifPresent(sil -> {
+            itemLocationRepository.delete(sil);
+            locationSummaries.rowRemoved(locationId, sil.getQuantity());
+            lowStockAlerts.itemChanged(itemId);
+        });
+    }
+
+    private void requireItemAndLocation(Long itemId, Long locationId) {
+        if (!itemRepository.existsById(itemId)) {
+            throw new RuntimeException("Storage item not found: " + itemId);
+        }
+        if (!locationRepository.existsById(locationId)) {
+            throw new RuntimeException("Storage location not found: " + locationId);
+        }
     }
 
     // ==================== Transfer Operations ====================
 
     /**
-     * Transfer quantity from one location to another
+     * Transfer quantity from one location to another (atomic, recorded in the stock ledger)
      */
     public void transferItem(Long itemId, Long fromLocationId, Long toLocationId, Integer quantity, String transferredBy) {
-        // Get source
-        StorageItemLocation source = itemLocationRepository.findByItemIdAndLocationId(itemId, fromLocationId)
-                .orElseThrow(() -> new RuntimeException("Item not found in source location"));
-
-        if (source.getQuantity() < quantity) {
-            throw new RuntimeException("Insufficient quantity in source location. Available: " + source.getQuantity());
-        }
-
-        // Reduce from source
-        source.setQuantity(source.getQuantity() - quantity);
-        itemLocationRepository.save(source);
+        stockLedger.transfer(itemId, fromLocationId, toLocationId, quantity, transferredBy);
+    }
 
-        // Add to destination
-        addItemToLocation(itemId, toLocationId, quantity, transferredBy);
+    /**
+     * Transfer many (item, from, to, quantity) lines in one transaction; lines that cannot be
+     * applied (insufficient stock, unknown location) are reported and the rest are transferred
+     */
+    public List<StockLedger.TransferResult> transferItems(List<StockLedger.TransferLine> lines, String transferredBy) {
+        return stockLedger.transferBatch(lines, transferredBy);
     }
 
     // ==================== Read Operations ====================
@@ -165,10 +184,44 @@ public class StorageItemLocationService {
     }
 
     /**
-     * Search items within a location
+     * Next page of item-location rows after {@code afterId} (null for the first page), in one
+     * location or across all locations when {@code locationId} is null
+     */
+    @Transactional(readOnly = true)
+    public List<ItemInLocationDTO> getItemLocationsPage(Long locationId, Long afterId, String searchTerm, int limit) {
+        long after = afterId != null ? afterId : 0L;
+        if (searchTerm == null || searchTerm.trim().isEmpty()) {
+            return itemLocationRepository.findPageAfter(locationId, after, PageRequest.of(0, limit));
+        }
+
+        // Item search document and location name are matched in the page query itself
+        return itemLocationRepository.findPageAfterMatching(locationId, after,
+                StorageSearchService.containsPattern(searchTerm), PageRequest.of(0, limit));
+    }
+
+    /**
+     * Same as {@link #getItemLocationsPage(Long, Long, String, int)}, additionally filtered and
+     * ordered on custom fields in SQL, or ordered by the table column {@code sort} when given
+     * (no custom query and no sort = the plain page)
+     */
+    @Transactional(readOnly = true)
+    public List<ItemInLocationDTO> getItemLocationsPage(Long locationId, Long afterId, String searchTerm,
+                                                        CustomFieldQuery customQuery, Sort.Order sort, int limit) {
+        if ((customQuery == null || customQuery.isEmpty()) && sort == null) {
+            return getItemLocationsPage(locationId, afterId, searchTerm, limit);
+        }
+
+        return itemLocationRepository.findPageByCustomFields(locationId, afterId != null ? afterId : 0L,
+                customQuery != null ? customQuery : new CustomFieldQuery(List.of(), null), sort,
+                StorageSearchService.containsPattern(searchTerm), limit);
+    }
+
+    /**
+     * Search items within a location - best matches first, at most
+     * {@link StorageSearchService#DEFAULT_LIMIT} results
      */
     public List<StorageItemLocation> searchInLocation(Long locationId, String searchTerm) {
-        return itemLocationRepository.searchInLocation(locationId, searchTerm);
+        return searchService.searchInLocation(locationId, searchTerm, StorageSearchService.DEFAULT_LIMIT);
     }
 
     /**
@@ -195,80 +248,29 @@ public class StorageItemLocationService {
     // ==================== Inventory Operations ====================
 
     /**
-     * Record inventory check
+     * Record inventory check (variance is recorded in the stock ledger)
      */
     public StorageItemLocation recordInventoryCheck(Long id, Integer actualQuantity, String checkedBy) {
-        StorageItemLocation sil = itemLocationRepository.findById(id)
+        stockLedger.recordInventoryCheck(id, actualQuantity, checkedBy);
+        return itemLocationRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Item location not found: " + id));
-
-        sil.setQuantity(actualQuantity);
-        sil.setLastInventoryCheck(LocalDateTime.now());
-        sil.setLastInventoryBy(checkedBy);
-
-        return itemLocationRepository.save(sil);
     }
 
-    // ==================== DTO for View ====================
-
-    /**
-     * DTO for displaying items in location with full details
-     */
-    public static class ItemInLocationDTO {
-        private Long itemLocationId;
-        private Long itemId;
-        private String manufacture;
-        private String productName;
-        private String code;
-        private String serialNumber;
-        private Integer quantity;
-        private String binLocation;
-        private String locationName;
-        private Long locationId;
-        private boolean lowStock;
-
-        public ItemInLocationDTO(StorageItemLocation sil) {
-            this.itemLocationId = sil.getId();
-            this.itemId = sil.getStorageItem().getId();
-            this.manufacture = sil.getStorageItem().getManufacture();
-            this.productName = sil.getStorageItem().getProductName();
-            this.code = sil.getStorageItem().getCode();
-            this.serialNumber = sil.getStorageItem().getSerialNumber();
-            this.quantity = sil.getQuantity();
-            this.binLocation = sil.getFullBinLocation();
-            this.locationName = sil.getStorageLocation().getName();
-            this.locationId = sil.getStorageLocation().getId();
-            this.lowStock = sil.isLowStock();
-        }
-
-        // Getters
-        public Long getItemLocationId() { return itemLocationId; }
-        public Long getItemId() { return itemId; }
-        public String getManufacture() { return manufacture; }
-        public String getProductName() { return productName; }
-        public String getCode() { return code; }
-        public String getSerialNumber() { return serialNumber; }
-        public Integer getQuantity() { return quantity; }
-        public String getBinLocation() { return binLocation; }
-        public String getLocationName() { return locationName; }
-        public Long getLocationId() { return locationId; }
-        public boolean isLowStock() { return lowStock; }
-    }
+    // ==================== DTOs for View ====================
 
     /**
-     * Get all items in a location as DTOs
+     * Get all items in a location as DTOs (projection query, no entities loaded)
      */
+    @Transactional(readOnly = true)
     public List<ItemInLocationDTO> getItemDTOsInLocation(Long locationId) {
-        return getItemsInLocation(locationId).stream()
-                .map(ItemInLocationDTO::new)
-                .toList();
+        return itemLocationRepository.findDTOsByLocationId(locationId);
     }
 
     /**
      * Get all items across all locations as DTOs (for Total view)
      */
+    @Transactional(readOnly = true)
     public List<ItemInLocationDTO> getAllItemDTOs() {
-        return getAllItemLocations().stream()
-                .map(ItemInLocationDTO::new)
-                .toList();
+        return itemLocationRepository.findAllActiveDTOs();
     }
 }
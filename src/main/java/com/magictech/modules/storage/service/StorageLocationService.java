@@ -2,7 +2,6 @@ package com.magictech.modules.storage.service;
 
 import com.magictech.modules.storage.entity.StorageLocation;
 import com.magictech.modules.storage.repository.StorageLocationRepository;
-import com.magictech.modules.storage.repository.StorageItemLocationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,7 +20,7 @@ public class StorageLocationService {
     private StorageLocationRepository locationRepository;
 
     @Autowired
-    private StorageItemLocationRepository itemLocationRepository;
+    private LocationSummaryReadModel locationSummaries;
 
     // ==================== CRUD Operations ====================
 
@@ -100,12 +99,13 @@ public class StorageLocationService {
         return locationRepository.countByActiveTrue();
     }
 
+    // Served from the in-memory read model - no query once it is loaded
     public int getItemCountInLocation(Long locationId) {
-        return (int) itemLocationRepository.countItemsInLocation(locationId);
+        return locationSummaries.getItemCount(locationId);
     }
 
     public int getTotalQuantityInLocation(Long locationId) {
-        return itemLocationRepository.sumQuantityInLocation(locationId);
+        return locationSummaries.getTotalQuantity(locationId);
     }
 
     /**
@@ -0,0 +1,188 @@
+package com.magictech.modules.storage.service;
+
+import com.magictech.modules.storage.entity.StorageItem;
+import com.magictech.modules.storage.entity.StorageItemLocation;
+import com.magictech.modules.storage.repository.StorageItemLocationRepository;
+import com.magictech.modules.storage.repository.StorageItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Storage Catalog Search
+ *
+ * Substring search over manufacture, product name, code and serial number, ranked
+ * (exact name, name prefix, then similarity) and limited. On PostgreSQL the search document
+ * is covered by a pg_trgm GIN index, so a lookup reads only matching index entries instead of
+ * scanning storage_items. Without pg_trgm (other databases, or no permission to create the
+ * extension) an in-memory trigram index built from the catalog answers the same queries.
+ */
+@Service
+public class StorageSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageSearchService.class);
+
+    public static final int DEFAULT_LIMIT = 100;
+
+    // Upper bound of ranked catalog matches taken before keeping those stored in one location
+    private static final int LOCATION_MATCH_LIMIT = 2000;
+
+    // The in-memory fallback is rebuilt when older than this (other desks change the catalog too)
+    private static final long FALLBACK_MAX_AGE_MS = 60_000;
+
+    private static final String CREATE_INDEX_SQL =
+            "CREATE INDEX IF NOT EXISTS idx_storage_items_search_trgm ON storage_items " +
+            "USING gin ((" + StorageItemRepository.SEARCH_DOCUMENT + ") gin_trgm_ops)";
+
+    @Autowired
+    private StorageItemRepository itemRepository;
+
+    @Autowired
+    private StorageItemLocationRepository itemLocationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile boolean trigramIndexAvailable;
+    private volatile NgramSearchIndex fallbackIndex;
+
+    /**
+     * Enable pg_trgm and create the search index if possible; otherwise use the in-memory index
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeSearchIndex() {
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            jdbcTemplate.execute(CREATE_INDEX_SQL);
+            trigramIndexAvailable = true;
+            logger.info("Storage search uses the pg_trgm index");
+        } catch (Exception e) {
+            trigramIndexAvailable = false;
+            logger.warn("pg_trgm not available ({}), storage search uses the in-memory n-gram index", e.getMessage());
+        }
+    }
+
+    /**
+     * Active items matching the term, best matches first
+     */
+    @Transactional(readOnly = true)
+    public List<StorageItem> search(String searchTerm, int limit) {
+        List<Long> ids = findMatchingItemIds(searchTerm, limit);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // The in-memory index may lag behind deletions made since it was built
+        List<StorageItem> active = itemRepository.findAllById(ids).stream()
+                .filter(item -> Boolean.TRUE.equals(item.getActive()))
+                .collect(Collectors.toList());
+        return inRankOrder(ids, active, StorageItem::getId);
+    }
+
+    /**
+     * Item-location rows of one location whose item matches the term, best matches first
+     */
+    @Transactional(readOnly = true)
+    public List<StorageItemLocation> searchInLocation(Long locationId, String searchTerm, int limit) {
+        // Rank over the whole catalog, then keep the items stored in this location
+        List<Long> ids = findMatchingItemIds(searchTerm, LOCATION_MATCH_LIMIT);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<StorageItemLocation> rows = inRankOrder(ids,
+                itemLocationRepository.findInLocationByItemIds(locationId, ids),
+                sil -> sil.getStorageItem().getId());
+        return rows.size() > limit ? new ArrayList<>(rows.subList(0, limit)) : rows;
+    }
+
+    /**
+     * Ids of active items matching the term, best matches first (empty for a blank term)
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findMatchingItemIds(String searchTerm, int limit) {
+        if (searchTerm == null || searchTerm.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        String term = searchTerm.trim().toLowerCase();
+
+        if (trigramIndexAvailable) {
+            String escaped = escapeLike(term);
+            return itemRepository.searchRankedIds(term, "%" + escaped + "%", escaped + "%", limit);
+        }
+        return fallbackIndex().search(term, limit);
+    }
+
+    /**
+     * LIKE pattern matching search documents that contain the term - what the paged tables
+     * filter on, so every match can be paged to (null for a blank term)
+     */
+    public static String containsPattern(String searchTerm) {
+        if (searchTerm == null || searchTerm.trim().isEmpty()) {
+            return null;
+        }
+        return "%" + escapeLike(searchTerm.trim().toLowerCase()) + "%";
+    }
+
+    /**
+     * The searchable text of an item - must produce the same string as
+     * {@link StorageItemRepository#SEARCH_DOCUMENT} does in SQL
+     */
+    static String document(String manufacture, String productName, String code, String serialNumber) {
+        return ((manufacture != null ? manufacture : "") + " " +
+                (productName != null ? productName : "") + " " +
+                (code != null ? code : "") + " " +
+                (serialNumber != null ? serialNumber : "")).toLowerCase();
+    }
+
+    private NgramSearchIndex fallbackIndex() {
+        NgramSearchIndex index = fallbackIndex;
+        if (index == null || System.currentTimeMillis() - index.getBuiltAt() > FALLBACK_MAX_AGE_MS) {
+            synchronized (this) {
+                index = fallbackIndex;
+                if (index == null || System.currentTimeMillis() - index.getBuiltAt() > FALLBACK_MAX_AGE_MS) {
+                    index = buildFallbackIndex();
+                    fallbackIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private NgramSearchIndex buildFallbackIndex() {
+        NgramSearchIndex.Builder builder = new NgramSearchIndex.Builder();
+        try (Stream<Object[]> rows = itemRepository.streamSearchRows()) {
+            rows.forEach(row -> builder.add((Long) row[0], (String) row[1], (String) row[2],
+                    (String) row[3], (String) row[4]));
+        }
+        NgramSearchIndex index = builder.build();
+        logger.debug("Built in-memory storage search index over {} items", index.size());
+        return index;
+    }
+
+    /**
+     * LIKE wildcards in the user's text are matched literally (backslash is the default escape)
+     */
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static <T> List<T> inRankOrder(List<Long> rankedIds, List<T> rows, Function<T, Long> idOf) {
+        Map<Long, Integer> rank = new HashMap<>();
+        for (int i = 0; i < rankedIds.size(); i++) {
+            rank.put(rankedIds.get(i), i);
+        }
+        return rows.stream()
+                .filter(row -> rank.containsKey(idOf.apply(row)))
+                .sorted(Comparator.comparingInt(row -> rank.get(idOf.apply(row))))
+                .collect(Collectors.toList());
+    }
+}
@@ -2,14 +2,21 @@ package com.magictech.modules.storage.service;
 
 import com.magictech.modules.storage.entity.StorageItem;
 import com.magictech.modules.storage.repository.StorageItemRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -22,9 +29,37 @@ public class StorageService {
 
     private static final Logger logger = LoggerFactory.getLogger(StorageService.class);
 
+    // Header sorts of the item pages: property -> JPQL key (never null, so (key, id) is a total order)
+    private static final Map<String, String> PAGE_SORT_KEYS = Map.of(
+            "productName", "COALESCE(s.productName, '')",
+            "manufacture", "COALESCE(s.manufacture, '')",
+            "systemType", "COALESCE(s.systemType, '')",
+            "code", "COALESCE(s.code, '')",
+            "serialNumber", "COALESCE(s.serialNumber, '')",
+            "quantity", "COALESCE(s.quantity, 0)",
+            "price", "COALESCE(s.price, 0)");
+
     @Autowired
     private StorageItemRepository repository;
 
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private StorageSearchService searchService;
+
+    @Autowired
+    private LowStockAlertEngine lowStockAlerts;
+
+    @Autowired
+    private StorageCatalogCache catalogCache;
+
+    @Autowired
+    private StorageFacetService facetService;
+
+    @Autowired
+    private EntityManager entityManager;
+
     /**
      * Get all active storage items ONLY
      * ✅ CRITICAL: Must use findByActiveTrue() to exclude soft-deleted items
@@ -71,29 +106,24 @@ public class StorageService {
             item.setDateAdded(LocalDateTime.now());
         }
         item.setActive(true);
-        return repository.save(item);
+        StorageItem saved = repository.save(item);
+        catalogCache.itemChanged(saved.getId());
+        return saved;
     }
 
     /**
-     * Update existing storage item
+     * Update an item's details. The quantity is not written: it only changes through the
+     * StockLedger, so a movement committed since the caller read the item is not overwritten.
+     * @return the item as stored, with its current quantity
      */
     public StorageItem updateItem(Long id, StorageItem updatedItem) {
-        Optional<StorageItem> existingItem = repository.findById(id);
-
-        if (existingItem.isPresent()) {
-            StorageItem item = existingItem.get();
-            item.setManufacture(updatedItem.getManufacture());
-            item.setProductName(updatedItem.getProductName());
-            item.setCode(updatedItem.getCode());
-            item.setSerialNumber(updatedItem.getSerialNumber());
-            item.setQuantity(updatedItem.getQuantity());
-            item.setPrice(updatedItem.getPrice());
-            item.setLastUpdated(LocalDateTime.now());
-
-            return repository.save(item);
+        int updated = repository.updateDetails(id, updatedItem.getManufacture(), updatedItem.getProductName(),
+                updatedItem.getCode(), updatedItem.getSerialNumber(), updatedItem.getPrice(), LocalDateTime.now());
+        if (updated == 0) {
+            throw new RuntimeException("Storage item not found with id: " + id);
         }
-
-        throw new RuntimeException("Storage item not found with id: " + id);
+        catalogCache.itemChanged(id);
+        return repository.findById(id).orElseThrow();
     }
 
     /**
@@ -104,6 +134,8 @@ public class StorageService {
         System.out.println("🗑️ PERMANENT DELETE - Removing item ID: " + id);
         repository.deleteById(id);
         repository.flush(); // Force commit
+        lowStockAlerts.itemChanged(id);
+        catalogCache.itemChanged(id);
         System.out.println("✓ Item ID " + id + " permanently deleted from database");
     }
 
@@ -122,6 +154,8 @@ public class StorageService {
         // Delete all by IDs
         repository.deleteAllById(ids);
         repository.flush(); // Force commit
+        lowStockAlerts.itemsChanged(ids);
+        catalogCache.itemsChanged(ids);
 
         System.out.println("✓ Successfully PERMANENTLY deleted " + ids.size() + " items from database");
     }
@@ -145,13 +179,105 @@ public class StorageService {
     }
 
     /**
-     * Search items across multiple fields
+     * Search items across multiple fields - best matches first, at most
+     * {@link StorageSearchService#DEFAULT_LIMIT} results
      */
     public List<StorageItem> searchItems(String searchTerm) {
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
             return getAllItems();
         }
-        return repository.searchItems(searchTerm.trim());
+        return searchService.search(searchTerm, StorageSearchService.DEFAULT_LIMIT);
+    }
+
+    /**
+     * Next page of active items in product name order, after {@code lastItem} (null for the
+     * first page). Null or blank filters are ignored.
+     */
+    @Transactional(readOnly = true)
+    public List<StorageItem> getItemsPage(StorageItem lastItem, int limit, String systemType,
+                                          String manufacture, String productType, String searchTerm) {
+        String lastName = lastItem != null ? lastItem.getProductName() : "";
+        Long lastId = lastItem != null ? lastItem.getId() : 0L;
+
+        if (blankToNull(searchTerm) == null) {
+            return repository.findPageAfter(lastName, lastId, blankToNull(systemType), blankToNull(manufacture),
+                    blankToNull(productType), PageRequest.of(0, limit));
+        }
+
+        // The search predicate is part of the page query, so every match can be paged to
+        return repository.findPageAfterMatching(StorageSearchService.containsPattern(searchTerm), lastName, lastId,
+                blankToNull(systemType), blankToNull(manufacture), blankToNull(productType), PageRequest.of(0, limit));
+    }
+
+    /**
+     * Same as {@link #getItemsPage(StorageItem, int, String, String, String, String)}, ordered by
+     * {@code sort} (a property of {@link #PAGE_SORT_KEYS}; null = product name) and then id
+     */
+    @Transactional(readOnly = true)
+    public List<StorageItem> getItemsPage(StorageItem lastItem, int limit, String systemType, String manufacture,
+                                          String productType, String searchTerm, Sort.Order sort) {
+        if (sort == null || (sort.isAscending() && sort.getProperty().equals("productName"))) {
+            return getItemsPage(lastItem, limit, systemType, manufacture, productType, searchTerm);
+        }
+        String key = PAGE_SORT_KEYS.get(sort.getProperty());
+        if (key == null) {
+            throw new IllegalArgumentException("Items cannot be sorted by " + sort.getProperty());
+        }
+
+        StringBuilder jpql = new StringBuilder("SELECT s FROM StorageItem s WHERE s.active = true");
+        Map<String, Object> params = new HashMap<>();
+        if (blankToNull(searchTerm) != null) {
+            jpql.append(" AND ").append(StorageItemRepository.SEARCH_DOCUMENT_JPQL).append(" LIKE :pattern");
+            params.put("pattern", StorageSearchService.containsPattern(searchTerm));
+        }
+        if (blankToNull(systemType) != null) {
+            jpql.append(" AND s.systemType = :systemType");
+            params.put("systemType", blankToNull(systemType));
+        }
+        if (blankToNull(manufacture) != null) {
+            jpql.append(" AND s.manufacture = :manufacture");
+            params.put("manufacture", blankToNull(manufacture));
+        }
+        if (blankToNull(productType) != null) {
+            jpql.append(" AND (s.productName = :productType OR s.productName LIKE CONCAT(:productType, ' %'))");
+            params.put("productType", blankToNull(productType));
+        }
+        if (lastItem != null) {
+            // (key, id) after the last row's, with the key compared in the sort direction
+            jpql.append(" AND (").append(key).append(sort.isDescending() ? " < " : " > ").append(":lastKey OR (")
+                .append(key).append(" = :lastKey AND s.id > :lastId))");
+            params.put("lastKey", pageSortKey(lastItem, sort.getProperty()));
+            params.put("lastId", lastItem.getId());
+        }
+        jpql.append(" ORDER BY ").append(key).append(sort.isDescending() ? " DESC" : " ASC").append(", s.id");
+
+        TypedQuery<StorageItem> query = entityManager.createQuery(jpql.toString(), StorageItem.class);
+        params.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Next page of all active items in product name order
+     */
+    @Transactional(readOnly = true)
+    public List<StorageItem> getItemsPage(StorageItem lastItem, int limit) {
+        return getItemsPage(lastItem, limit, null, null, null, null);
+    }
+
+    /**
+     * Next page of all active items ordered by {@code sort} (null = product name)
+     */
+    @Transactional(readOnly = true)
+    public List<StorageItem> getItemsPage(StorageItem lastItem, int limit, Sort.Order sort) {
+        return getItemsPage(lastItem, limit, null, null, null, null, sort);
+    }
+
+    /**
+     * Distinct (systemType, manufacture, product type) combinations of active items
+     */
+    @Transactional(readOnly = true)
+    public List<Object[]> getFilterCombinations() {
+        return facetService.getFilterCombinations();
     }
 
     /**
@@ -169,60 +295,48 @@ public class StorageService {
     }
 
     /**
-     * Update item quantity
+     * Deduct quantity from storage item (used when approving project elements)
+     * Delegates to StockLedger - fails instead of clamping when stock is insufficient
+     * @return the item with its new quantity
      */
     @Transactional
-    public StorageItem updateQuantity(Long id, Integer newQuantity) {
-        Optional<StorageItem> item = repository.findById(id);
-
-        if (item.isPresent()) {
-            StorageItem storageItem = item.get();
-            storageItem.setQuantity(newQuantity);
-            storageItem.setLastUpdated(LocalDateTime.now());
-            return repository.save(storageItem);
-        }
-
-        throw new RuntimeException("Storage item not found with id: " + id);
+    public StorageItem deductQuantity(Long id, Integer quantityToDeduct, String reference, String performedBy) {
+        stockLedger.deduct(id, quantityToDeduct, reference, performedBy);
+        return reloadItem(id);
     }
 
     /**
-     * Deduct quantity from storage item (used when approving project elements)
+     * Add quantity back to storage item (used when rejecting project elements)
+     * Delegates to StockLedger
+     * @return the item with its new quantity
      */
     @Transactional
-    public StorageItem deductQuantity(Long id, Integer quantityToDeduct) {
-        StorageItem item = repository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Storage item not found with id: " + id));
-
-        int currentQuantity = item.getQuantity() != null ? item.getQuantity() : 0;
-        int newQuantity = Math.max(0, currentQuantity - quantityToDeduct);
-
-        item.setQuantity(newQuantity);
-        item.setLastUpdated(LocalDateTime.now());
-
-        logger.info("Deducted {} units from storage item {} (was: {}, now: {})",
-                quantityToDeduct, id, currentQuantity, newQuantity);
-
-        return repository.save(item);
+    public StorageItem addQuantity(Long id, Integer quantityToAdd, String reference, String performedBy) {
+        stockLedger.returnStock(id, quantityToAdd, reference, performedBy);
+        return reloadItem(id);
     }
 
     /**
-     * Add quantity back to storage item (used when rejecting project elements)
+     * The ledger changes quantities with bulk UPDATEs, which bypass the persistence context -
+     * an instance loaded earlier in the transaction is refreshed from the database
      */
-    @Transactional
-    public StorageItem addQuantity(Long id, Integer quantityToAdd) {
+    private StorageItem reloadItem(Long id) {
         StorageItem item = repository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Storage item not found with id: " + id));
+        entityManager.refresh(item);
+        return item;
+    }
 
-        int currentQuantity = item.getQuantity() != null ? item.getQuantity() : 0;
-        int newQuantity = currentQuantity + quantityToAdd;
-
-        item.setQuantity(newQuantity);
-        item.setLastUpdated(LocalDateTime.now());
-
-        logger.info("Added {} units to storage item {} (was: {}, now: {})",
-                quantityToAdd, id, currentQuantity, newQuantity);
-
-        return repository.save(item);
+    /**
+     * Update price only (Pricing module) - never writes quantity, so stock movements are not overwritten
+     */
+    @Transactional
+    public void updatePrice(Long id, BigDecimal price) {
+        int updated = repository.updatePrice(id, price, LocalDateTime.now());
+        if (updated == 0) {
+            throw new RuntimeException("Storage item not found with id: " + id);
+        }
+        catalogCache.itemChanged(id);
     }
 
     /**
@@ -264,18 +378,18 @@ public class StorageService {
             }
             item.setActive(true);
         });
-        return repository.saveAll(items);
+        List<StorageItem> saved = repository.saveAll(items);
+        catalogCache.itemsChanged(saved.stream().map(StorageItem::getId).toList());
+        return saved;
     }
 
     /**
-     * Get all manufactures (distinct)
+     * Get all manufactures (distinct, from the cached facet counts)
      */
+    @Transactional(readOnly = true)
     public List<String> getAllManufactures() {
-        return repository.findByActiveTrue().stream()
-                .map(StorageItem::getManufacture)
-                .filter(m -> m != null && !m.isEmpty())
-                .distinct()
-                .sorted()
+        return facetService.getFacets().manufacturers().stream()
+                .map(StorageFacetService.FacetValue::value)
                 .toList();
     }
 
@@ -292,6 +406,8 @@ public class StorageService {
             item.setLastUpdated(LocalDateTime.now());
             repository.save(item);
             repository.flush();
+            lowStockAlerts.itemChanged(id);
+            catalogCache.itemChanged(id);
             System.out.println("✓ Restored item ID: " + id);
         }
     }
@@ -304,4 +420,24 @@ public class StorageService {
                 .filter(item -> !item.getActive())
                 .toList();
     }
+
+    /**
+     * The value of a {@link #PAGE_SORT_KEYS} key for an item, as the query computes it
+     */
+    private static Object pageSortKey(StorageItem item, String property) {
+        return switch (property) {
+            case "productName" -> Optional.ofNullable(item.getProductName()).orElse("");
+            case "manufacture" -> Optional.ofNullable(item.getManufacture()).orElse("");
+            case "systemType" -> Optional.ofNullable(item.getSystemType()).orElse("");
+            case "code" -> Optional.ofNullable(item.getCode()).orElse("");
+            case "serialNumber" -> Optional.ofNullable(item.getSerialNumber()).orElse("");
+            case "quantity" -> Optional.ofNullable(item.getQuantity()).orElse(0);
+            case "price" -> Optional.ofNullable(item.getPrice()).orElse(BigDecimal.ZERO);
+            default -> throw new IllegalArgumentException("Items cannot be sorted by " + property);
+        };
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
 }
\ No newline at end of file
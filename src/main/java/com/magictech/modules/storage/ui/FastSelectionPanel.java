@@ -1,15 +1,16 @@
 package com.magictech.modules.storage.ui;
 
 import com.magictech.core.auth.User;
+import com.magictech.core.ui.components.BackgroundTableFilter;
+import com.magictech.core.ui.components.PagedTableLoader;
 import com.magictech.modules.storage.entity.AvailabilityRequest;
 import com.magictech.modules.storage.entity.StorageItem;
 import com.magictech.modules.storage.service.AvailabilityRequestService;
+import com.magictech.modules.storage.service.StockReservationService;
 import com.magictech.modules.storage.service.StorageService;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -17,6 +18,7 @@ import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
+import org.springframework.data.domain.Sort;
 
 import java.math.BigDecimal;
 import java.util.*;
@@ -31,6 +33,7 @@ import java.util.stream.Collectors;
  * - ARM-style cascading filters (System Type -> Manufacturer -> Product)
  * - Clean, elegant UI design
  * - No quantity displayed (availability via request only)
+ * - Optional available/unavailable indicator from soft reservations (no numbers)
  * - Request availability functionality with email integration
  */
 public class FastSelectionPanel extends VBox {
@@ -38,6 +41,7 @@ public class FastSelectionPanel extends VBox {
     // Services (must be set externally)
     private StorageService storageService;
     private AvailabilityRequestService availabilityRequestService;
+    private StockReservationService reservationService; // optional - enables availability column
 
     // Current user and module context
     private User currentUser;
@@ -48,12 +52,18 @@ public class FastSelectionPanel extends VBox {
     private ComboBox<String> manufacturerCombo;
     private ComboBox<String> productTypeCombo;
     private TextField searchField;
+    private PauseTransition searchDebounce;
     private Button clearFiltersButton;
 
     // UI Components - Table
     private TableView<StorageItem> itemsTable;
-    private ObservableList<StorageItem> allItems;
-    private FilteredList<StorageItem> filteredItems;
+    private PagedTableLoader<StorageItem> itemsPager;
+
+    // Distinct filter combinations of the catalog - the cascading combos are built from these
+    private List<FilterCombination> filterCombinations = new ArrayList<>();
+
+    // Filters of the current result set, read by page fetches on background threads
+    private volatile ActiveFilters activeFilters = new ActiveFilters(null, null, null, null);
 
     // UI Components - Actions
     private Button requestAvailabilityButton;
@@ -96,6 +106,17 @@ public class FastSelectionPanel extends VBox {
         loadData();
     }
 
+    /**
+     * Optional: show an availability indicator (on-hand minus reserved) without exposing quantities.
+     * Must be called before initialize().
+     */
+    public void setReservationService(StockReservationService reservationService) {
+        this.reservationService = reservationService;
+        if (reservationService != null && itemsTable != null) {
+            itemsTable.getColumns().add(createAvailabilityColumn());
+        }
+    }
+
     private void buildUI() {
         // Header
         VBox header = createHeader();
@@ -192,7 +213,10 @@ public class FastSelectionPanel extends VBox {
                 "-fx-border-radius: 8;" +
                 "-fx-padding: 10 15;"
         );
-        searchField.textProperty().addListener((obs, old, newVal) -> applyFilters());
+        // Each search is a database query - wait until typing pauses
+        searchDebounce = new PauseTransition(BackgroundTableFilter.DEFAULT_DEBOUNCE);
+        searchDebounce.setOnFinished(e -> applyFilters());
+        searchField.textProperty().addListener((obs, old, newVal) -> searchDebounce.playFromStart());
 
         filterGrid.add(productLabel, 2, 0);
         filterGrid.add(productTypeCombo, 2, 1);
@@ -267,6 +291,11 @@ public class FastSelectionPanel extends VBox {
 
         buildTableColumns();
 
+        // Rows are loaded page by page as the user scrolls; filters run in the database
+        itemsPager = new PagedTableLoader<>(itemsTable, PagedTableLoader.DEFAULT_PAGE_SIZE, this::fetchPage);
+        itemsPager.setOnPageLoaded(page -> updateResultCount());
+        itemsPager.setOnFailed(ex -> System.err.println("Failed to load items: " + ex.getMessage()));
+
         // Row selection handler
         itemsTable.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
         itemsTable.getSelectionModel().selectedItemProperty().addListener((obs, old, newVal) -> {
@@ -284,6 +313,7 @@ public class FastSelectionPanel extends VBox {
         systemCol.setCellValueFactory(data -> new SimpleStringProperty(
                 data.getValue().getSystemType() != null ? data.getValue().getSystemType() : "-"));
         styleColumn(systemCol);
+        PagedTableLoader.setSortProperty(systemCol, "systemType");
 
         // Manufacturer Column
         TableColumn<StorageItem, String> mfgCol = new TableColumn<>("Manufacturer");
@@ -291,12 +321,14 @@ public class FastSelectionPanel extends VBox {
         mfgCol.setCellValueFactory(data -> new SimpleStringProperty(
                 data.getValue().getManufacture() != null ? data.getValue().getManufacture() : "-"));
         styleColumn(mfgCol);
+        PagedTableLoader.setSortProperty(mfgCol, "manufacture");
 
         // Product Name Column
         TableColumn<StorageItem, String> nameCol = new TableColumn<>("Product Name");
         nameCol.setPrefWidth(200);
         nameCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getProductName()));
         styleColumn(nameCol);
+        PagedTableLoader.setSortProperty(nameCol, "productName");
 
         // Code Column
         TableColumn<StorageItem, String> codeCol = new TableColumn<>("Code");
@@ -304,6 +336,7 @@ public class FastSelectionPanel extends VBox {
         codeCol.setCellValueFactory(data -> new SimpleStringProperty(
                 data.getValue().getCode() != null ? data.getValue().getCode() : "-"));
         styleColumn(codeCol);
+        PagedTableLoader.setSortProperty(codeCol, "code");
 
         // Serial Number Column
         TableColumn<StorageItem, String> serialCol = new TableColumn<>("Serial Number");
@@ -311,6 +344,7 @@ public class FastSelectionPanel extends VBox {
         serialCol.setCellValueFactory(data -> new SimpleStringProperty(
                 data.getValue().getSerialNumber() != null ? data.getValue().getSerialNumber() : "-"));
         styleColumn(serialCol);
+        PagedTableLoader.setSortProperty(serialCol, "serialNumber");
 
         // Price Column
         TableColumn<StorageItem, String> priceCol = new TableColumn<>("Price");
@@ -320,6 +354,7 @@ public class FastSelectionPanel extends VBox {
             return new SimpleStringProperty(price != null ? String.format("$%.2f", price) : "-");
         });
         priceCol.setStyle("-fx-alignment: CENTER-RIGHT;");
+        PagedTableLoader.setSortProperty(priceCol, "price");
         styleColumn(priceCol);
 
         // Note: NO QUANTITY COLUMN - as per requirements
@@ -357,6 +392,18 @@ public class FastSelectionPanel extends VBox {
         });
     }
 
+    /**
+     * Availability indicator - reads the in-memory reservation counters, no query per row
+     */
+    private TableColumn<StorageItem, String> createAvailabilityColumn() {
+        TableColumn<StorageItem, String> availabilityCol = new TableColumn<>("Availability");
+        availabilityCol.setPrefWidth(110);
+        availabilityCol.setCellValueFactory(data -> new SimpleStringProperty(
+                reservationService.getAvailableQuantity(data.getValue()) > 0 ? "✓ Available" : "✗ Unavailable"));
+        styleColumn(availabilityCol);
+        return availabilityCol;
+    }
+
     private void styleColumn(TableColumn<StorageItem, String> column) {
         column.setStyle("-fx-alignment: CENTER-LEFT; -fx-text-fill: white;");
     }
@@ -426,25 +473,20 @@ public class FastSelectionPanel extends VBox {
             return;
         }
 
-        Task<List<StorageItem>> loadTask = new Task<>() {
+        Task<List<FilterCombination>> loadTask = new Task<>() {
             @Override
-            protected List<StorageItem> call() {
-                return storageService.findAllActive();
+            protected List<FilterCombination> call() {
+                return storageService.getFilterCombinations().stream()
+                        .map(row -> new FilterCombination((String) row[0], (String) row[1], (String) row[2]))
+                        .collect(Collectors.toList());
             }
         };
 
         loadTask.setOnSucceeded(e -> {
-            List<StorageItem> items = loadTask.getValue();
-            Platform.runLater(() -> {
-                allItems = FXCollections.observableArrayList(items);
-                filteredItems = new FilteredList<>(allItems, p -> true);
-                itemsTable.setItems(filteredItems);
-
-                populateFilterCombos();
-                updateResultCount();
-
-                System.out.println("✓ FastSelectionPanel loaded " + items.size() + " items");
-            });
+            filterCombinations = loadTask.getValue();
+            populateFilterCombos();
+            applyFilters();
+            System.out.println("✓ FastSelectionPanel loaded " + filterCombinations.size() + " filter combinations");
         });
 
         loadTask.setOnFailed(e -> {
@@ -454,10 +496,19 @@ public class FastSelectionPanel extends VBox {
         new Thread(loadTask).start();
     }
 
+    /**
+     * Page source for the items table - runs on a background thread
+     */
+    private List<StorageItem> fetchPage(StorageItem lastItem, int limit, Sort.Order sort) {
+        ActiveFilters filters = activeFilters;
+        return storageService.getItemsPage(lastItem, limit, filters.systemType(), filters.manufacturer(),
+                filters.productType(), filters.searchText(), sort);
+    }
+
     private void populateFilterCombos() {
         // Populate System Type combo
-        Set<String> systemTypes = allItems.stream()
-                .map(StorageItem::getSystemType)
+        Set<String> systemTypes = filterCombinations.stream()
+                .map(FilterCombination::systemType)
                 .filter(s -> s != null && !s.isEmpty())
                 .collect(Collectors.toCollection(TreeSet::new));
         systemTypeCombo.getItems().clear();
@@ -466,8 +517,8 @@ public class FastSelectionPanel extends VBox {
         systemTypeCombo.setValue("All System Types");
 
         // Populate Manufacturer combo
-        Set<String> manufacturers = allItems.stream()
-                .map(StorageItem::getManufacture)
+        Set<String> manufacturers = filterCombinations.stream()
+                .map(FilterCombination::manufacturer)
                 .filter(s -> s != null && !s.isEmpty())
                 .collect(Collectors.toCollection(TreeSet::new));
         manufacturerCombo.getItems().clear();
@@ -476,10 +527,8 @@ public class FastSelectionPanel extends VBox {
         manufacturerCombo.setValue("All Manufacturers");
 
         // Populate Product Type combo (based on product name patterns)
-        Set<String> productTypes = allItems.stream()
-                .map(StorageItem::getProductName)
-                .filter(s -> s != null && !s.isEmpty())
-                .map(this::extractProductType)
+        Set<String> productTypes = filterCombinations.stream()
+                .map(FilterCombination::productType)
                 .filter(s -> s != null && !s.isEmpty())
                 .collect(Collectors.toCollection(TreeSet::new));
         productTypeCombo.getItems().clear();
@@ -488,27 +537,17 @@ public class FastSelectionPanel extends VBox {
         productTypeCombo.setValue("All Products");
     }
 
-    private String extractProductType(String productName) {
-        // Extract main product type from name (e.g., "IP CAM 8MP" -> "IP CAM")
-        if (productName == null) return null;
-        String[] parts = productName.split("\\s+");
-        if (parts.length >= 2) {
-            return parts[0] + " " + parts[1];
-        }
-        return productName;
-    }
-
     // ==================== FILTER HANDLERS ====================
 
     private void onSystemTypeChanged() {
         String selectedSystem = systemTypeCombo.getValue();
 
         // Update manufacturer combo based on selected system type
-        Set<String> filteredManufacturers = allItems.stream()
-                .filter(item -> selectedSystem == null ||
+        Set<String> filteredManufacturers = filterCombinations.stream()
+                .filter(combo -> selectedSystem == null ||
                         selectedSystem.equals("All System Types") ||
-                        selectedSystem.equals(item.getSystemType()))
-                .map(StorageItem::getManufacture)
+                        selectedSystem.equals(combo.systemType()))
+                .map(FilterCombination::manufacturer)
                 .filter(s -> s != null && !s.isEmpty())
                 .collect(Collectors.toCollection(TreeSet::new));
 
@@ -531,16 +570,14 @@ public class FastSelectionPanel extends VBox {
         String selectedMfg = manufacturerCombo.getValue();
 
         // Update product type combo based on selected filters
-        Set<String> filteredProducts = allItems.stream()
-                .filter(item -> selectedSystem == null ||
+        Set<String> filteredProducts = filterCombinations.stream()
+                .filter(combo -> selectedSystem == null ||
                         selectedSystem.equals("All System Types") ||
-                        selectedSystem.equals(item.getSystemType()))
-                .filter(item -> selectedMfg == null ||
+                        selectedSystem.equals(combo.systemType()))
+                .filter(combo -> selectedMfg == null ||
                         selectedMfg.equals("All Manufacturers") ||
-                        selectedMfg.equals(item.getManufacture()))
-                .map(StorageItem::getProductName)
-                .filter(s -> s != null && !s.isEmpty())
-                .map(this::extractProductType)
+                        selectedMfg.equals(combo.manufacturer()))
+                .map(FilterCombination::productType)
                 .filter(s -> s != null && !s.isEmpty())
                 .collect(Collectors.toCollection(TreeSet::new));
 
@@ -559,49 +596,20 @@ public class FastSelectionPanel extends VBox {
     }
 
     private void applyFilters() {
-        if (filteredItems == null) return;
+        if (storageService == null) return;
 
         String systemType = systemTypeCombo.getValue();
         String manufacturer = manufacturerCombo.getValue();
         String productType = productTypeCombo.getValue();
-        String searchText = searchField.getText();
-
-        filteredItems.setPredicate(item -> {
-            // System Type filter
-            if (systemType != null && !systemType.equals("All System Types")) {
-                if (!systemType.equals(item.getSystemType())) {
-                    return false;
-                }
-            }
 
-            // Manufacturer filter
-            if (manufacturer != null && !manufacturer.equals("All Manufacturers")) {
-                if (!manufacturer.equals(item.getManufacture())) {
-                    return false;
-                }
-            }
-
-            // Product Type filter
-            if (productType != null && !productType.equals("All Products")) {
-                String itemProductType = extractProductType(item.getProductName());
-                if (!productType.equals(itemProductType)) {
-                    return false;
-                }
-            }
-
-            // Search filter
-            if (searchText != null && !searchText.isEmpty()) {
-                String lower = searchText.toLowerCase();
-                return (item.getProductName() != null && item.getProductName().toLowerCase().contains(lower)) ||
-                       (item.getManufacture() != null && item.getManufacture().toLowerCase().contains(lower)) ||
-                       (item.getCode() != null && item.getCode().toLowerCase().contains(lower)) ||
-                       (item.getSerialNumber() != null && item.getSerialNumber().toLowerCase().contains(lower)) ||
-                       (item.getSystemType() != null && item.getSystemType().toLowerCase().contains(lower));
-            }
-
-            return true;
-        });
+        // "All ..." entries mean no filter; the search matches name, manufacturer, code, serial and system type
+        activeFilters = new ActiveFilters(
+                "All System Types".equals(systemType) ? null : systemType,
+                "All Manufacturers".equals(manufacturer) ? null : manufacturer,
+                "All Products".equals(productType) ? null : productType,
+                searchField.getText());
 
+        itemsPager.reset();
         updateResultCount();
     }
 
@@ -610,14 +618,15 @@ public class FastSelectionPanel extends VBox {
         manufacturerCombo.setValue("All Manufacturers");
         productTypeCombo.setValue("All Products");
         searchField.clear();
+        searchDebounce.stop(); // Applied right below
         populateFilterCombos();
         applyFilters();
     }
 
     private void updateResultCount() {
-        if (filteredItems != null) {
-            resultCountLabel.setText(filteredItems.size() + " items");
-        }
+        // Until the last page is in, only a lower bound is known
+        int loaded = itemsPager.getItems().size();
+        resultCountLabel.setText(loaded + (itemsPager.isExhausted() ? " items" : "+ items"));
     }
 
     private void updateSelectedItems() {
@@ -796,4 +805,12 @@ public class FastSelectionPanel extends VBox {
     public void refresh() {
         loadData();
     }
+
+    // ==================== FILTER STATE ====================
+
+    private record FilterCombination(String systemType, String manufacturer, String productType) {
+    }
+
+    private record ActiveFilters(String systemType, String manufacturer, String productType, String searchText) {
+    }
 }
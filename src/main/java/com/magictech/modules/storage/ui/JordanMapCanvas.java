@@ -0,0 +1,728 @@
+package com.magictech.modules.storage.ui;
+
+import com.magictech.modules.storage.service.StorageLocationService.LocationSummary;
+import javafx.animation.AnimationTimer;
+import javafx.beans.InvalidationListener;
+import javafx.beans.value.ChangeListener;
+import javafx.geometry.Point2D;
+import javafx.geometry.VPos;
+import javafx.scene.Cursor;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.effect.DropShadow;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.CycleMethod;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.paint.Stop;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.shape.StrokeLineJoin;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+import static com.magictech.modules.storage.ui.JordanMapPane.*;
+
+/**
+ * Canvas renderer of JordanMapPane (RenderMode.CANVAS).
+ *
+ * The map is drawn on one canvas only when the view changes; pins are drawn on a second canvas
+ * by one shared animation clock (about 30 fps) that runs only while the map is on screen.
+ * Pins closer than CLUSTER_RADIUS on screen are merged into a cluster per zoom level, and
+ * hit-testing goes through a quadtree of the drawn markers - the cost per frame follows the
+ * markers on screen, not the number of locations.
+ */
+final class JordanMapCanvas extends Region {
+
+    // Pins closer than this on screen are merged (pixels at the pin's scale)
+    private static final double CLUSTER_RADIUS = 40;
+
+    // Pin head radius used for hit-testing, and distance from the head to the tip
+    private static final double PIN_HEAD_RADIUS = 20;
+    private static final double PIN_TIP_OFFSET = 28;
+
+    // One frame every ~33 ms
+    private static final long FRAME_NANOS = 33_000_000L;
+
+    // Same timings as the node pins: 1 -> 1.08 -> 1 over 1.2 s staggered by 100 ms, ring over 1.5 s
+    private static final double PULSE_PERIOD_MS = 1200;
+    private static final double PULSE_STAGGER_MS = 100;
+    private static final double PULSE_AMPLITUDE = 0.08;
+    private static final double RING_PERIOD_MS = 1500;
+
+    private static final Color DEFAULT_PIN_COLOR = Color.web("#6366f1");
+    private static final Font NAME_FONT = Font.font("Arial", FontWeight.BOLD, 10);
+    private static final Font COUNT_FONT = Font.font("Arial", FontWeight.BOLD, 9);
+    private static final Font ICON_FONT = Font.font(10);
+    private static final Font CLUSTER_FONT = Font.font("Arial", FontWeight.BOLD, 12);
+    private static final Font CARD_FONT = Font.font("Arial", 12);
+    private static final Text MEASURE = new Text();
+
+    /**
+     * A location with its map coordinates
+     */
+    private record MapPoint(LocationSummary location, int index, double x, double y, Color color,
+                            String name, double nameWidth) {
+    }
+
+    /**
+     * What is drawn at a spot: one pin, or a cluster anchored at its largest location
+     */
+    private record Marker(double x, double y, List<MapPoint> members, int itemCount, int totalQuantity) {
+        MapPoint anchor() {
+            return members.get(0);
+        }
+
+        boolean isCluster() {
+            return members.size() > 1;
+        }
+    }
+
+    private final Canvas mapLayer = new Canvas();
+    private final Canvas pinLayer = new Canvas();
+
+    private List<MapPoint> points = List.of();
+    private PinQuadTree<MapPoint> pointIndex = PinQuadTree.of(List.of(), MapPoint::x, MapPoint::y);
+    // Clusters per zoom level (zoom * 100); cleared when the locations change
+    private final Map<Long, List<Marker>> clusterCache = new HashMap<>();
+    private List<Marker> markers = List.of();
+    private PinQuadTree<Marker> markerIndex = PinQuadTree.of(List.of(), Marker::x, Marker::y);
+    private Marker hovered;
+
+    // View: map point shown at the center of the canvas, and the zoom on top of the fit scale
+    private double zoom = 1.0;
+    private double centerX = MAP_WIDTH / 2;
+    private double centerY = MAP_HEIGHT / 2;
+    private double scale = 1.0;
+    private double pinSize = 1.0;
+
+    private double dragX, dragY;
+
+    private Consumer<LocationSummary> onLocationClick;
+    private DoubleConsumer onZoomChanged;
+
+    // Animation clock and what decides whether it runs
+    private final AnimationTimer clock;
+    private final long startNanos = System.nanoTime();
+    private long lastFrameNanos;
+    private boolean clockRunning;
+    private boolean disposed;
+
+    private final InvalidationListener showingListener = obs -> updateClock();
+    private final InvalidationListener ancestryListener = obs -> watchAncestors();
+    private final List<Node> watchedAncestors = new ArrayList<>();
+    private final ChangeListener<Scene> sceneListener = (obs, oldScene, newScene) -> watchScene(oldScene, newScene);
+    private final ChangeListener<Window> windowListener = (obs, oldWindow, newWindow) -> watchWindow(oldWindow, newWindow);
+
+    JordanMapCanvas() {
+        setPrefSize(MAP_WIDTH, MAP_HEIGHT);
+        setMinSize(0, 0);
+        getChildren().addAll(mapLayer, pinLayer);
+        pinLayer.setMouseTransparent(true);
+
+        clock = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (now - lastFrameNanos >= FRAME_NANOS) {
+                    lastFrameNanos = now;
+                    drawPins(now);
+                }
+            }
+        };
+
+        setOnScroll(this::handleScroll);
+        setOnMousePressed(e -> {
+            dragX = e.getX();
+            dragY = e.getY();
+        });
+        setOnMouseDragged(this::handleDrag);
+        setOnMouseReleased(e -> setCursor(hovered != null ? Cursor.HAND : Cursor.DEFAULT));
+        setOnMouseMoved(e -> setHovered(markerAt(e.getX(), e.getY())));
+        setOnMouseExited(e -> setHovered(null));
+        setOnMouseClicked(this::handleClick);
+
+        watchAncestors();
+        sceneProperty().addListener(sceneListener);
+        watchScene(null, getScene());
+    }
+
+    // ==================== Public API ====================
+
+    void setLocations(List<LocationSummary> locations) {
+        List<MapPoint> newPoints = new ArrayList<>();
+        for (LocationSummary location : locations) {
+            if (location.getMapX() != null && location.getMapY() != null) {
+                // Convert percentage to actual map coordinates
+                String name = location.getLocationName().replace(" Storage", "");
+                newPoints.add(new MapPoint(location, newPoints.size(),
+                        (location.getMapX() / 100.0) * MAP_WIDTH,
+                        (location.getMapY() / 100.0) * MAP_HEIGHT,
+                        parseColor(location.getColor()), name, textWidth(name, NAME_FONT)));
+            }
+        }
+        points = newPoints;
+        pointIndex = PinQuadTree.of(points, MapPoint::x, MapPoint::y);
+        clusterCache.clear();
+        hovered = null;
+        viewChanged();
+        updateClock();
+    }
+
+    void setOnLocationClick(Consumer<LocationSummary> handler) {
+        this.onLocationClick = handler;
+    }
+
+    void setOnZoomChanged(DoubleConsumer handler) {
+        this.onZoomChanged = handler;
+    }
+
+    void zoomIn() {
+        zoomAround(zoom + ZOOM_STEP, getWidth() / 2, getHeight() / 2);
+    }
+
+    void zoomOut() {
+        zoomAround(zoom - ZOOM_STEP, getWidth() / 2, getHeight() / 2);
+    }
+
+    void resetView() {
+        zoom = 1.0;
+        centerX = MAP_WIDTH / 2;
+        centerY = MAP_HEIGHT / 2;
+        viewChanged();
+    }
+
+    /**
+     * Stop the clock and detach every listener (the canvas cannot be shown again)
+     */
+    void dispose() {
+        disposed = true;
+        clock.stop();
+        clockRunning = false;
+        unwatchAncestors();
+        sceneProperty().removeListener(sceneListener);
+        watchScene(getScene(), null);
+    }
+
+    // ==================== View ====================
+
+    @Override
+    protected void layoutChildren() {
+        double width = getWidth();
+        double height = getHeight();
+        if (mapLayer.getWidth() != width || mapLayer.getHeight() != height) {
+            mapLayer.setWidth(width);
+            mapLayer.setHeight(height);
+            pinLayer.setWidth(width);
+            pinLayer.setHeight(height);
+            viewChanged();
+            updateClock();
+        }
+    }
+
+    private void zoomAround(double newZoom, double screenX, double screenY) {
+        newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, newZoom));
+        if (newZoom == zoom) {
+            return;
+        }
+        // Keep the map point under (screenX, screenY) where it is
+        Point2D anchor = toMap(screenX, screenY);
+        zoom = newZoom;
+        double newScale = fitScale() * zoom;
+        centerX = anchor.getX() - (screenX - getWidth() / 2) / newScale;
+        centerY = anchor.getY() - (screenY - getHeight() / 2) / newScale;
+        viewChanged();
+    }
+
+    private void viewChanged() {
+        centerX = Math.max(0, Math.min(MAP_WIDTH, centerX));
+        centerY = Math.max(0, Math.min(MAP_HEIGHT, centerY));
+        scale = fitScale() * zoom;
+        pinSize = fitScale() * pinScale(zoom);
+
+        markers = clusterCache.computeIfAbsent(Math.round(zoom * 100), key -> cluster(zoom));
+        markerIndex = PinQuadTree.of(markers, Marker::x, Marker::y);
+        if (hovered != null && !markers.contains(hovered)) {
+            hovered = null;
+        }
+
+        drawMap();
+        drawPins(System.nanoTime());
+        if (onZoomChanged != null) {
+            onZoomChanged.accept(zoom);
+        }
+    }
+
+    private double fitScale() {
+        double width = getWidth();
+        double height = getHeight();
+        if (width <= 0 || height <= 0) {
+            return 1.0;
+        }
+        return Math.min(width / MAP_WIDTH, height / MAP_HEIGHT);
+    }
+
+    private double toScreenX(double mapX) {
+        return getWidth() / 2 + (mapX - centerX) * scale;
+    }
+
+    private double toScreenY(double mapY) {
+        return getHeight() / 2 + (mapY - centerY) * scale;
+    }
+
+    private Point2D toMap(double screenX, double screenY) {
+        return new Point2D(centerX + (screenX - getWidth() / 2) / scale,
+                centerY + (screenY - getHeight() / 2) / scale);
+    }
+
+    // ==================== Clustering ====================
+
+    /**
+     * Greedy clustering: the location with the most items anchors a cluster of every unassigned
+     * location within CLUSTER_RADIUS (screen pixels at this zoom), then the next one, and so on
+     */
+    private List<Marker> cluster(double forZoom) {
+        double radius = CLUSTER_RADIUS * pinScale(forZoom) / forZoom;
+        List<MapPoint> bySize = new ArrayList<>(points);
+        bySize.sort(Comparator.comparingInt((MapPoint p) -> p.location().getItemCount()).reversed()
+                .thenComparingInt(MapPoint::index));
+
+        Set<MapPoint> assigned = new HashSet<>();
+        List<Marker> result = new ArrayList<>();
+        for (MapPoint point : bySize) {
+            if (!assigned.add(point)) {
+                continue;
+            }
+            List<MapPoint> members = new ArrayList<>();
+            members.add(point);
+            for (MapPoint neighbour : pointIndex.within(point.x(), point.y(), radius)) {
+                if (assigned.add(neighbour)) {
+                    members.add(neighbour);
+                }
+            }
+            int itemCount = 0;
+            int totalQuantity = 0;
+            for (MapPoint member : members) {
+                itemCount += member.location().getItemCount();
+                totalQuantity += member.location().getTotalQuantity();
+            }
+            result.add(new Marker(point.x(), point.y(), List.copyOf(members), itemCount, totalQuantity));
+        }
+        return result;
+    }
+
+    // ==================== Mouse ====================
+
+    private void handleScroll(ScrollEvent e) {
+        if (e.getDeltaY() > 0) {
+            zoomAround(zoom + ZOOM_STEP, e.getX(), e.getY());
+        } else if (e.getDeltaY() < 0) {
+            zoomAround(zoom - ZOOM_STEP, e.getX(), e.getY());
+        }
+        e.consume();
+    }
+
+    private void handleDrag(MouseEvent e) {
+        centerX -= (e.getX() - dragX) / scale;
+        centerY -= (e.getY() - dragY) / scale;
+        dragX = e.getX();
+        dragY = e.getY();
+        setCursor(Cursor.CLOSED_HAND);
+        viewChanged();
+    }
+
+    private void handleClick(MouseEvent e) {
+        if (!e.isStillSincePress()) {
+            return;
+        }
+        Marker marker = markerAt(e.getX(), e.getY());
+        if (marker == null) {
+            return;
+        }
+        if (marker.isCluster()) {
+            // Zoom in on the cluster until it splits
+            zoom = Math.min(MAX_ZOOM, Math.max(zoom * 2, zoom + ZOOM_STEP));
+            centerX = marker.x();
+            centerY = marker.y();
+            viewChanged();
+        } else if (onLocationClick != null) {
+            onLocationClick.accept(marker.anchor().location());
+        }
+    }
+
+    /**
+     * The marker whose pin head is under (screenX, screenY), or null
+     */
+    private Marker markerAt(double screenX, double screenY) {
+        // The marker's coordinates are the pin tip; the head sits above it
+        Point2D tip = toMap(screenX, screenY + PIN_TIP_OFFSET * pinSize);
+        return markerIndex.nearest(tip.getX(), tip.getY(), PIN_HEAD_RADIUS * pinSize / scale);
+    }
+
+    private void setHovered(Marker marker) {
+        if (marker == hovered) {
+            return;
+        }
+        hovered = marker;
+        setCursor(marker != null ? Cursor.HAND : Cursor.DEFAULT);
+        if (!clockRunning) {
+            drawPins(System.nanoTime());
+        }
+    }
+
+    // ==================== Drawing ====================
+
+    /**
+     * Border, water, labels, compass and scale bar - only when the view changes
+     */
+    private void drawMap() {
+        GraphicsContext gc = mapLayer.getGraphicsContext2D();
+        gc.setTransform(1, 0, 0, 1, 0, 0);
+        gc.clearRect(0, 0, mapLayer.getWidth(), mapLayer.getHeight());
+        gc.setTransform(scale, 0, 0, scale, getWidth() / 2 - centerX * scale, getHeight() / 2 - centerY * scale);
+
+        // Jordan fill with gradient and glow
+        gc.setFill(new LinearGradient(
+            0, 0, 0, 1, true, CycleMethod.NO_CYCLE,
+            new Stop(0, Color.web("#1e3a5f", 0.8)),
+            new Stop(0.5, Color.web("#1e293b", 0.9)),
+            new Stop(1, Color.web("#0f172a", 0.85))
+        ));
+        gc.setStroke(Color.web("#6366f1", 0.9));
+        gc.setLineWidth(3);
+        gc.setLineCap(StrokeLineCap.ROUND);
+        gc.setLineJoin(StrokeLineJoin.ROUND);
+        DropShadow glow = new DropShadow();
+        glow.setColor(Color.web("#6366f1", 0.6));
+        glow.setRadius(20);
+        glow.setSpread(0.2);
+        gc.setEffect(glow);
+        fillPath(gc, JORDAN_BORDER_PATH, true);
+        gc.setEffect(null);
+
+        // Dead Sea and Gulf of Aqaba
+        gc.setFill(Color.web("#0ea5e9", 0.5));
+        gc.setStroke(Color.web("#0ea5e9", 0.7));
+        gc.setLineWidth(2);
+        fillPath(gc, DEAD_SEA_PATH, true);
+        gc.setFill(Color.web("#0ea5e9", 0.6));
+        gc.setStroke(Color.web("#0ea5e9", 0.8));
+        gc.setLineWidth(1);
+        fillPath(gc, AQABA_GULF_PATH, true);
+
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.setTextBaseline(VPos.BASELINE);
+        for (MapLabel label : MAP_LABELS) {
+            gc.setFont(label.font());
+            gc.setFill(Color.web(label.color(), label.opacity()));
+            gc.fillText(label.text(), label.x(), label.y());
+        }
+
+        drawCompass(gc, 550, 50);
+        drawScaleIndicator(gc, 500, 580);
+    }
+
+    private void drawCompass(GraphicsContext gc, double x, double y) {
+        gc.setFill(Color.web("#1e293b", 0.8));
+        gc.setStroke(Color.web("#6366f1", 0.6));
+        gc.setLineWidth(2);
+        gc.fillOval(x - 30, y - 30, 60, 60);
+        gc.strokeOval(x - 30, y - 30, 60, 60);
+
+        gc.setFill(Color.web("#ef4444"));
+        gc.fillPolygon(new double[]{x, x - 6, x + 6}, new double[]{y - 20, y - 5, y - 5}, 3);
+        gc.setFont(Font.font("Arial", FontWeight.BOLD, 14));
+        gc.fillText("N", x - 6, y - 12);
+
+        gc.setFill(Color.web("#94a3b8", 0.7));
+        gc.setFont(Font.font("Arial", 10));
+        gc.fillText("S", x - 5, y + 22);
+        gc.fillText("E", x + 15, y + 5);
+        gc.fillText("W", x - 24, y + 5);
+    }
+
+    private void drawScaleIndicator(GraphicsContext gc, double x, double y) {
+        gc.setFill(Color.web("#ffffff", 0.8));
+        gc.setStroke(Color.web("#1e293b"));
+        gc.setLineWidth(1);
+        gc.fillRoundRect(x, y, 80, 6, 3, 3);
+        gc.strokeRoundRect(x, y, 80, 6, 3, 3);
+        for (double division : new double[]{0, 40, 80}) {
+            gc.strokeLine(x + division, y, x + division, y + 8);
+        }
+        gc.setFill(Color.web("#94a3b8", 0.8));
+        gc.setFont(Font.font("Arial", 9));
+        gc.fillText("0     50    100 km", x, y + 20);
+    }
+
+    /**
+     * One frame of the pins (screen coordinates, so pins keep their size while zooming)
+     */
+    private void drawPins(long now) {
+        GraphicsContext gc = pinLayer.getGraphicsContext2D();
+        double width = pinLayer.getWidth();
+        double height = pinLayer.getHeight();
+        gc.clearRect(0, 0, width, height);
+        if (markers.isEmpty() || width <= 0 || height <= 0) {
+            return;
+        }
+
+        double elapsedMs = (now - startNanos) / 1_000_000.0;
+        double ringPhase = (elapsedMs % RING_PERIOD_MS) / RING_PERIOD_MS;
+        double margin = 80 * pinSize;
+
+        for (Marker marker : markers) {
+            if (marker != hovered) {
+                drawMarker(gc, marker, elapsedMs, ringPhase, width, height, margin, false);
+            }
+        }
+        if (hovered != null) {
+            drawMarker(gc, hovered, elapsedMs, ringPhase, width, height, margin, true);
+            drawCard(gc, hovered, width, height);
+        }
+    }
+
+    private void drawMarker(GraphicsContext gc, Marker marker, double elapsedMs, double ringPhase,
+                            double width, double height, double margin, boolean highlighted) {
+        double x = toScreenX(marker.x());
+        double y = toScreenY(marker.y());
+        if (x < -margin || x > width + margin || y < -margin || y > height + margin) {
+            return; // Off screen
+        }
+
+        MapPoint anchor = marker.anchor();
+        double pulsePhase = ((elapsedMs - anchor.index() * PULSE_STAGGER_MS) % PULSE_PERIOD_MS + PULSE_PERIOD_MS)
+                % PULSE_PERIOD_MS / PULSE_PERIOD_MS;
+        double pulse = 1 + PULSE_AMPLITUDE * (1 - Math.abs(2 * pulsePhase - 1));
+        double size = pinSize * pulse * (highlighted ? 1.2 : 1.0);
+
+        gc.save();
+        gc.translate(x, y - PIN_TIP_OFFSET * size);
+        gc.scale(size, size);
+
+        // Pulse ring: scale 1 -> 2, opacity 0.5 -> 0
+        double ringRadius = PIN_HEAD_RADIUS * (1 + ringPhase);
+        gc.setGlobalAlpha(0.5 * (1 - ringPhase));
+        gc.setStroke(anchor.color().deriveColor(0, 1, 1, 0.3));
+        gc.setLineWidth(2);
+        gc.strokeOval(-ringRadius, -ringRadius, ringRadius * 2, ringRadius * 2);
+        gc.setGlobalAlpha(1);
+
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.CENTER);
+        if (marker.isCluster()) {
+            double radius = PIN_HEAD_RADIUS + Math.min(10, 3 * Math.log(marker.members().size()) / Math.log(2));
+            gc.setFill(anchor.color());
+            gc.setStroke(Color.WHITE);
+            gc.fillOval(-radius, -radius, radius * 2, radius * 2);
+            gc.strokeOval(-radius, -radius, radius * 2, radius * 2);
+            gc.setFill(Color.WHITE);
+            gc.setFont(CLUSTER_FONT);
+            gc.fillText(String.valueOf(marker.members().size()), 0, 0);
+        } else {
+            gc.setFill(anchor.color());
+            gc.setStroke(Color.WHITE);
+            fillPath(gc, PIN_PATH, true);
+            gc.setFill(Color.WHITE);
+            gc.fillOval(-8, -8, 16, 16);
+            gc.setFont(ICON_FONT);
+            gc.fillText(anchor.location().getIcon() != null ? anchor.location().getIcon() : "", 0, 0);
+        }
+        gc.restore();
+
+        drawMarkerLabel(gc, marker, x, y + 4 * pinSize);
+    }
+
+    /**
+     * Name and item count below the pin, thinned out when zoomed out like the node pins
+     */
+    private void drawMarkerLabel(GraphicsContext gc, Marker marker, double x, double y) {
+        if (zoom < 0.7) {
+            return;
+        }
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.TOP);
+        if (zoom >= 1.0) {
+            String name = marker.isCluster() ? marker.members().size() + " locations" : marker.anchor().name();
+            double nameWidth = marker.isCluster() ? textWidth(name, NAME_FONT) : marker.anchor().nameWidth();
+            gc.setFill(Color.rgb(0, 0, 0, 0.75));
+            gc.fillRoundRect(x - nameWidth / 2 - 6, y, nameWidth + 12, 16, 8, 8);
+            gc.setFill(Color.WHITE);
+            gc.setFont(NAME_FONT);
+            gc.fillText(name, x, y + 2);
+            y += 17;
+        }
+        gc.setFill(marker.anchor().color());
+        gc.setFont(COUNT_FONT);
+        gc.fillText(marker.itemCount() + " items", x, y);
+    }
+
+    /**
+     * Hover card (what the node pins show as a tooltip)
+     */
+    private void drawCard(GraphicsContext gc, Marker marker, double width, double height) {
+        List<String> lines = new ArrayList<>();
+        if (marker.isCluster()) {
+            lines.add(marker.members().size() + " locations");
+            for (MapPoint member : marker.members().subList(0, Math.min(5, marker.members().size()))) {
+                lines.add("📍 " + member.location().getLocationName());
+            }
+            if (marker.members().size() > 5) {
+                lines.add("… and " + (marker.members().size() - 5) + " more");
+            }
+        } else {
+            LocationSummary location = marker.anchor().location();
+            lines.add(location.getLocationName());
+            lines.add("📍 " + location.getCity());
+        }
+        lines.add("📦 " + marker.itemCount() + " unique items");
+        lines.add("🔢 " + marker.totalQuantity() + " total units");
+        if (marker.isCluster()) {
+            lines.add("Click to zoom in");
+        }
+
+        double cardWidth = 0;
+        for (String line : lines) {
+            cardWidth = Math.max(cardWidth, textWidth(line, CARD_FONT));
+        }
+        cardWidth += 20;
+        double lineHeight = 16;
+        double cardHeight = lines.size() * lineHeight + 16;
+
+        double x = toScreenX(marker.x()) + 24 * pinSize;
+        double y = toScreenY(marker.y()) - PIN_TIP_OFFSET * pinSize - cardHeight / 2;
+        x = Math.max(4, Math.min(x, width - cardWidth - 4));
+        y = Math.max(4, Math.min(y, height - cardHeight - 4));
+
+        gc.setFill(Color.web("#1e293b", 0.95));
+        gc.fillRoundRect(x, y, cardWidth, cardHeight, 16, 16);
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.setTextBaseline(VPos.TOP);
+        gc.setFont(CARD_FONT);
+        gc.setFill(Color.WHITE);
+        for (int i = 0; i < lines.size(); i++) {
+            gc.fillText(lines.get(i), x + 10, y + 8 + i * lineHeight);
+        }
+    }
+
+    private static void fillPath(GraphicsContext gc, String svgPath, boolean stroke) {
+        gc.beginPath();
+        gc.appendSVGPath(svgPath);
+        gc.fill();
+        if (stroke) {
+            gc.stroke();
+        }
+    }
+
+    private static double textWidth(String text, Font font) {
+        MEASURE.setFont(font);
+        MEASURE.setText(text);
+        return MEASURE.getLayoutBounds().getWidth();
+    }
+
+    private static Color parseColor(String color) {
+        if (color == null || color.isBlank()) {
+            return DEFAULT_PIN_COLOR;
+        }
+        try {
+            return Color.web(color);
+        } catch (IllegalArgumentException e) {
+            return DEFAULT_PIN_COLOR;
+        }
+    }
+
+    // ==================== Animation clock ====================
+
+    /**
+     * Run the clock only while there are pins and the map is on screen: this node and every
+     * ancestor visible, the window showing and not minimised
+     */
+    private void updateClock() {
+        boolean shouldRun = !disposed && !markers.isEmpty() && isOnScreen();
+        if (shouldRun && !clockRunning) {
+            clock.start();
+            clockRunning = true;
+        } else if (!shouldRun && clockRunning) {
+            clock.stop();
+            clockRunning = false;
+        }
+    }
+
+    private boolean isOnScreen() {
+        if (getWidth() <= 0 || getHeight() <= 0) {
+            return false;
+        }
+        for (Node node = this; node != null; node = node.getParent()) {
+            if (!node.isVisible()) {
+                return false;
+            }
+        }
+        Scene scene = getScene();
+        Window window = scene != null ? scene.getWindow() : null;
+        if (window == null || !window.isShowing()) {
+            return false;
+        }
+        return !(window instanceof Stage stage && stage.isIconified());
+    }
+
+    /**
+     * Listen to visibility of this node and its ancestors; re-walked when an ancestor is reparented
+     */
+    private void watchAncestors() {
+        unwatchAncestors();
+        if (!disposed) {
+            for (Node node = this; node != null; node = node.getParent()) {
+                node.visibleProperty().addListener(showingListener);
+                node.parentProperty().addListener(ancestryListener);
+                watchedAncestors.add(node);
+            }
+        }
+        updateClock();
+    }
+
+    private void unwatchAncestors() {
+        for (Node node : watchedAncestors) {
+            node.visibleProperty().removeListener(showingListener);
+            node.parentProperty().removeListener(ancestryListener);
+        }
+        watchedAncestors.clear();
+    }
+
+    private void watchScene(Scene oldScene, Scene newScene) {
+        if (oldScene != null) {
+            oldScene.windowProperty().removeListener(windowListener);
+            watchWindow(oldScene.getWindow(), null);
+        }
+        if (newScene != null && !disposed) {
+            newScene.windowProperty().addListener(windowListener);
+            watchWindow(null, newScene.getWindow());
+        }
+        updateClock();
+    }
+
+    private void watchWindow(Window oldWindow, Window newWindow) {
+        if (oldWindow != null) {
+            oldWindow.showingProperty().removeListener(showingListener);
+            if (oldWindow instanceof Stage stage) {
+                stage.iconifiedProperty().removeListener(showingListener);
+            }
+        }
+        if (newWindow != null && !disposed) {
+            newWindow.showingProperty().addListener(showingListener);
+            if (newWindow instanceof Stage stage) {
+                stage.iconifiedProperty().addListener(showingListener);
+            }
+        }
+        updateClock();
+    }
+}
@@ -32,17 +32,24 @@ import java.util.function.Consumer;
 /**
  * Interactive Jordan Map component with REAL Jordan borders
  * Features: Zoom in/out, pan, clickable location pins
+ *
+ * Render modes:
+ * - CANVAS (default): map and pins drawn by JordanMapCanvas - clustered pins, one animation
+ *   clock that stops while the map is hidden
+ * - NODES: one node graph and two pulse timelines per pin
  */
 public class JordanMapPane extends StackPane {
 
+    public enum RenderMode { CANVAS, NODES }
+
     // Map dimensions
-    private static final double MAP_WIDTH = 600;
-    private static final double MAP_HEIGHT = 700;
+    static final double MAP_WIDTH = 600;
+    static final double MAP_HEIGHT = 700;
 
     // Zoom settings - enhanced for better control
-    private static final double MIN_ZOOM = 0.4;
-    private static final double MAX_ZOOM = 6.0;
-    private static final double ZOOM_STEP = 0.15;
+    static final double MIN_ZOOM = 0.4;
+    static final double MAX_ZOOM = 6.0;
+    static final double ZOOM_STEP = 0.15;
     private double currentZoom = 1.0;
 
     // Pin sizing constants for dynamic scaling
@@ -50,6 +57,104 @@ public class JordanMapPane extends StackPane {
     private static final double MIN_PIN_SCALE = 0.5;  // Minimum pin size at max zoom out
     private static final double MAX_PIN_SCALE = 1.2;  // Maximum pin size at max zoom in
 
+    // Accurate Jordan border from GeoJSON coordinates (Natural Earth data)
+    // Source: https://github.com/johan/world.geo.json
+    // Coordinates converted from [lon, lat] to SVG coordinates
+    // Bounds: lon [34.92, 39.20], lat [29.20, 33.38]
+    // Scale: 120 pixels per degree, offset for centering
+    static final String JORDAN_BORDER_PATH =
+        // Point 1: Northwest (near Umm Qais) [35.545665, 32.393992]
+        "M 125 148 " +
+        // Point 2: [35.719918, 32.709192]
+        "L 146 110 " +
+        // Point 3: [36.834062, 32.312938]
+        "L 279 158 " +
+        // Point 4: Northeast corner (Syria/Iraq) [38.792341, 33.378686]
+        "L 514 30 " +
+        // Point 5: East (Iraq border) [39.195468, 32.161009]
+        "L 563 176 " +
+        // Point 6: [39.004886, 32.010217]
+        "L 540 194 " +
+        // Point 7: [37.002166, 31.508413]
+        "L 300 254 " +
+        // Point 8: [37.998849, 30.5085]
+        "L 419 374 " +
+        // Point 9: [37.66812, 30.338665]
+        "L 379 395 " +
+        // Point 10: [37.503582, 30.003776]
+        "L 360 435 " +
+        // Point 11: [36.740528, 29.865283]
+        "L 268 452 " +
+        // Point 12: [36.501214, 29.505254]
+        "L 240 495 " +
+        // Point 13: Southernmost (near Aqaba) [36.068941, 29.197495]
+        "L 188 532 " +
+        // Point 14: Aqaba west [34.956037, 29.356555]
+        "L 54 513 " +
+        // Point 15: Aqaba tip [34.922603, 29.501326]
+        "L 50 495 " +
+        // Point 16: Dead Sea south [35.420918, 31.100066]
+        "L 110 303 " +
+        // Point 17: Dead Sea middle [35.397561, 31.489086]
+        "L 107 257 " +
+        // Point 18: Dead Sea north [35.545252, 31.782505]
+        "L 125 222 " +
+        // Close path back to start
+        "L 125 148 Z";
+
+    // Dead Sea shape - positioned along western border (between points 16-18)
+    static final String DEAD_SEA_PATH =
+        "M 115 230 " +
+        "Q 100 260 105 290 " +
+        "Q 108 310 115 330 " +
+        "Q 125 310 120 290 " +
+        "Q 118 260 115 230 Z";
+
+    // Gulf of Aqaba - at the southern tip (around point 15)
+    static final String AQABA_GULF_PATH =
+        "M 45 500 " +
+        "L 40 530 " +
+        "L 55 520 " +
+        "Q 50 510 45 500 Z";
+
+    // Pin marker (teardrop shape)
+    static final String PIN_PATH =
+        "M 0 -20 C -12 -20 -18 -10 -18 0 C -18 12 0 28 0 28 C 0 28 18 12 18 0 C 18 -10 12 -20 0 -20 Z";
+
+    /**
+     * Text drawn on the map (cities and water)
+     */
+    record MapLabel(String text, double x, double y, String color, double opacity, FontWeight weight, double size) {
+        Font font() {
+            return Font.font("Arial", weight, size);
+        }
+    }
+
+    // City labels - positioned based on actual GeoJSON coordinates
+    static final List<MapLabel> MAP_LABELS = List.of(
+        new MapLabel("Dead Sea", 40, 280, "#0ea5e9", 0.8, FontWeight.BOLD, 10),
+        new MapLabel("Gulf of\nAqaba", 5, 545, "#0ea5e9", 0.7, FontWeight.NORMAL, 9),
+        // Amman: approximately [35.93, 31.95] -> SVG ~(170, 201)
+        new MapLabel("AMMAN", 170, 200, "#ffffff", 0.25, FontWeight.BOLD, 14),
+        // Wadi Rum: approximately [35.4, 29.6] -> SVG ~(107, 483)
+        new MapLabel("Wadi Rum", 120, 470, "#f59e0b", 0.4, FontWeight.NORMAL, 10),
+        // Madaba: approximately [35.8, 31.72] -> SVG ~(155, 229)
+        new MapLabel("Madaba", 140, 240, "#ffffff", 0.15, FontWeight.NORMAL, 9),
+        // Kerak: approximately [35.7, 31.18] -> SVG ~(143, 294)
+        new MapLabel("Kerak", 135, 310, "#ffffff", 0.15, FontWeight.NORMAL, 9),
+        // Petra: approximately [35.44, 30.33] -> SVG ~(112, 396)
+        new MapLabel("Petra", 130, 400, "#ffffff", 0.15, FontWeight.NORMAL, 9),
+        // Aqaba: approximately [35.0, 29.53] -> SVG ~(59, 492)
+        new MapLabel("Aqaba", 60, 505, "#ffffff", 0.15, FontWeight.NORMAL, 9),
+        // Irbid: approximately [35.85, 32.55] -> SVG ~(161, 129)
+        new MapLabel("Irbid", 155, 130, "#ffffff", 0.15, FontWeight.NORMAL, 9),
+        // Jerash: approximately [35.9, 32.28] -> SVG ~(167, 161)
+        new MapLabel("Jerash", 165, 165, "#ffffff", 0.15, FontWeight.NORMAL, 9)
+    );
+
+    private final RenderMode renderMode;
+    private JordanMapCanvas mapCanvas; // CANVAS mode only
+
     // Components
     private Pane mapContainer;
     private Group mapGroup;
@@ -65,6 +170,11 @@ public class JordanMapPane extends StackPane {
     private double lastMouseX, lastMouseY;
 
     public JordanMapPane() {
+        this(RenderMode.CANVAS);
+    }
+
+    public JordanMapPane(RenderMode renderMode) {
+        this.renderMode = renderMode;
         setupMap();
     }
 
@@ -127,6 +237,21 @@ public class JordanMapPane extends StackPane {
         mapArea.setStyle("-fx-background-color: rgba(20, 30, 50, 0.5); -fx-background-radius: 15;");
         mapArea.setPadding(new Insets(10));
 
+        if (renderMode == RenderMode.CANVAS) {
+            mapCanvas = new JordanMapCanvas();
+            mapCanvas.setOnLocationClick(location -> {
+                if (onLocationClick != null) {
+                    onLocationClick.accept(location);
+                }
+            });
+            mapCanvas.setOnZoomChanged(zoom -> {
+                currentZoom = zoom;
+                updateZoomLabel();
+            });
+            mapArea.getChildren().add(mapCanvas);
+            return mapArea;
+        }
+
         // Create the map container
         mapContainer = new Pane();
         mapContainer.setPrefSize(MAP_WIDTH, MAP_HEIGHT);
@@ -168,55 +293,8 @@ public class JordanMapPane extends StackPane {
     }
 
     private void drawJordanMap() {
-        // Accurate Jordan border from GeoJSON coordinates (Natural Earth data)
-        // Source: https://github.com/johan/world.geo.json
-        // Coordinates converted from [lon, lat] to SVG coordinates
-        // Bounds: lon [34.92, 39.20], lat [29.20, 33.38]
-        // Scale: 120 pixels per degree, offset for centering
-
-        // Jordan SVG path - accurate geographic border
-        String jordanPathData =
-            // Point 1: Northwest (near Umm Qais) [35.545665, 32.393992]
-            "M 125 148 " +
-            // Point 2: [35.719918, 32.709192]
-            "L 146 110 " +
-            // Point 3: [36.834062, 32.312938]
-            "L 279 158 " +
-            // Point 4: Northeast corner (Syria/Iraq) [38.792341, 33.378686]
-            "L 514 30 " +
-            // Point 5: East (Iraq border) [39.195468, 32.161009]
-            "L 563 176 " +
-            // Point 6: [39.004886, 32.010217]
-            "L 540 194 " +
-            // Point 7: [37.002166, 31.508413]
-            "L 300 254 " +
-            // Point 8: [37.998849, 30.5085]
-            "L 419 374 " +
-            // Point 9: [37.66812, 30.338665]
-            "L 379 395 " +
-            // Point 10: [37.503582, 30.003776]
-            "L 360 435 " +
-            // Point 11: [36.740528, 29.865283]
-            "L 268 452 " +
-            // Point 12: [36.501214, 29.505254]
-            "L 240 495 " +
-            // Point 13: Southernmost (near Aqaba) [36.068941, 29.197495]
-            "L 188 532 " +
-            // Point 14: Aqaba west [34.956037, 29.356555]
-            "L 54 513 " +
-            // Point 15: Aqaba tip [34.922603, 29.501326]
-            "L 50 495 " +
-            // Point 16: Dead Sea south [35.420918, 31.100066]
-            "L 110 303 " +
-            // Point 17: Dead Sea middle [35.397561, 31.489086]
-            "L 107 257 " +
-            // Point 18: Dead Sea north [35.545252, 31.782505]
-            "L 125 222 " +
-            // Close path back to start
-            "L 125 148 Z";
-
         SVGPath jordanBorder = new SVGPath();
-        jordanBorder.setContent(jordanPathData);
+        jordanBorder.setContent(JORDAN_BORDER_PATH);
 
         // Jordan fill with gradient
         LinearGradient jordanFill = new LinearGradient(
@@ -240,10 +318,10 @@ public class JordanMapPane extends StackPane {
 
         mapGroup.getChildren().add(jordanBorder);
 
-        // Add Dead Sea
+        // Add Dead Sea and Gulf of Aqaba
         drawDeadSea();
 
-        // Add major geographical labels (Jordan cities only)
+        // Add major geographical labels (Jordan cities and water)
         addGeographicalLabels();
 
         // Note: Neighboring country labels removed per user request
@@ -256,107 +334,30 @@ public class JordanMapPane extends StackPane {
     }
 
     private void drawDeadSea() {
-        // Dead Sea shape - positioned along western border (between points 16-18)
         SVGPath deadSea = new SVGPath();
-        deadSea.setContent(
-            "M 115 230 " +
-            "Q 100 260 105 290 " +
-            "Q 108 310 115 330 " +
-            "Q 125 310 120 290 " +
-            "Q 118 260 115 230 Z"
-        );
+        deadSea.setContent(DEAD_SEA_PATH);
         deadSea.setFill(Color.web("#0ea5e9", 0.5));
         deadSea.setStroke(Color.web("#0ea5e9", 0.7));
         deadSea.setStrokeWidth(2);
 
-        // Dead Sea label
-        Text deadSeaLabel = new Text("Dead Sea");
-        deadSeaLabel.setX(40);
-        deadSeaLabel.setY(280);
-        deadSeaLabel.setFill(Color.web("#0ea5e9", 0.8));
-        deadSeaLabel.setFont(Font.font("Arial", FontWeight.BOLD, 10));
-
-        // Gulf of Aqaba - at the southern tip (around point 15)
         SVGPath aqabaGulf = new SVGPath();
-        aqabaGulf.setContent(
-            "M 45 500 " +
-            "L 40 530 " +
-            "L 55 520 " +
-            "Q 50 510 45 500 Z"
-        );
+        aqabaGulf.setContent(AQABA_GULF_PATH);
         aqabaGulf.setFill(Color.web("#0ea5e9", 0.6));
         aqabaGulf.setStroke(Color.web("#0ea5e9", 0.8));
         aqabaGulf.setStrokeWidth(1);
 
-        Text aqabaLabel = new Text("Gulf of\nAqaba");
-        aqabaLabel.setX(5);
-        aqabaLabel.setY(545);
-        aqabaLabel.setFill(Color.web("#0ea5e9", 0.7));
-        aqabaLabel.setFont(Font.font("Arial", 9));
-
-        mapGroup.getChildren().addAll(deadSea, deadSeaLabel, aqabaGulf, aqabaLabel);
+        mapGroup.getChildren().addAll(deadSea, aqabaGulf);
     }
 
     private void addGeographicalLabels() {
-        // City labels - positioned based on actual GeoJSON coordinates
-        // Amman: approximately [35.93, 31.95] -> SVG ~(170, 201)
-
-        Text ammanRegion = new Text("AMMAN");
-        ammanRegion.setX(170);
-        ammanRegion.setY(200);
-        ammanRegion.setFill(Color.web("#ffffff", 0.25));
-        ammanRegion.setFont(Font.font("Arial", FontWeight.BOLD, 14));
-
-        // Wadi Rum: approximately [35.4, 29.6] -> SVG ~(107, 483)
-        Text wadiRum = new Text("Wadi Rum");
-        wadiRum.setX(120);
-        wadiRum.setY(470);
-        wadiRum.setFill(Color.web("#f59e0b", 0.4));
-        wadiRum.setFont(Font.font("Arial", FontWeight.NORMAL, 10));
-
-        // Madaba: approximately [35.8, 31.72] -> SVG ~(155, 229)
-        Text madaba = new Text("Madaba");
-        madaba.setX(140);
-        madaba.setY(240);
-        madaba.setFill(Color.web("#ffffff", 0.15));
-        madaba.setFont(Font.font("Arial", FontWeight.NORMAL, 9));
-
-        // Kerak: approximately [35.7, 31.18] -> SVG ~(143, 294)
-        Text kerak = new Text("Kerak");
-        kerak.setX(135);
-        kerak.setY(310);
-        kerak.setFill(Color.web("#ffffff", 0.15));
-        kerak.setFont(Font.font("Arial", FontWeight.NORMAL, 9));
-
-        // Petra: approximately [35.44, 30.33] -> SVG ~(112, 396)
-        Text petra = new Text("Petra");
-        petra.setX(130);
-        petra.setY(400);
-        petra.setFill(Color.web("#ffffff", 0.15));
-        petra.setFont(Font.font("Arial", FontWeight.NORMAL, 9));
-
-        // Aqaba: approximately [35.0, 29.53] -> SVG ~(59, 492)
-        Text aqaba = new Text("Aqaba");
-        aqaba.setX(60);
-        aqaba.setY(505);
-        aqaba.setFill(Color.web("#ffffff", 0.15));
-        aqaba.setFont(Font.font("Arial", FontWeight.NORMAL, 9));
-
-        // Irbid: approximately [35.85, 32.55] -> SVG ~(161, 129)
-        Text irbid = new Text("Irbid");
-        irbid.setX(155);
-        irbid.setY(130);
-        irbid.setFill(Color.web("#ffffff", 0.15));
-        irbid.setFont(Font.font("Arial", FontWeight.NORMAL, 9));
-
-        // Jerash: approximately [35.9, 32.28] -> SVG ~(167, 161)
-        Text jerash = new Text("Jerash");
-        jerash.setX(165);
-        jerash.setY(165);
-        jerash.setFill(Color.web("#ffffff", 0.15));
-        jerash.setFont(Font.font("Arial", FontWeight.NORMAL, 9));
-
-        mapGroup.getChildren().addAll(ammanRegion, wadiRum, madaba, kerak, petra, aqaba, irbid, jerash);
+        for (MapLabel mapLabel : MAP_LABELS) {
+            Text text = new Text(mapLabel.text());
+            text.setX(mapLabel.x());
+            text.setY(mapLabel.y());
+            text.setFill(Color.web(mapLabel.color(), mapLabel.opacity()));
+            text.setFont(mapLabel.font());
+            mapGroup.getChildren().add(text);
+        }
     }
 
     private void addNeighborLabels() {
@@ -537,6 +538,10 @@ public class JordanMapPane extends StackPane {
     }
 
     private void zoomIn() {
+        if (mapCanvas != null) {
+            mapCanvas.zoomIn();
+            return;
+        }
         if (currentZoom < MAX_ZOOM) {
             currentZoom += ZOOM_STEP;
             applyZoom();
@@ -544,6 +549,10 @@ public class JordanMapPane extends StackPane {
     }
 
     private void zoomOut() {
+        if (mapCanvas != null) {
+            mapCanvas.zoomOut();
+            return;
+        }
         if (currentZoom > MIN_ZOOM) {
             currentZoom -= ZOOM_STEP;
             applyZoom();
@@ -551,6 +560,10 @@ public class JordanMapPane extends StackPane {
     }
 
     private void resetZoom() {
+        if (mapCanvas != null) {
+            mapCanvas.resetView();
+            return;
+        }
         currentZoom = 1.0;
         applyZoom();
         scrollPane.setHvalue(0.5);
@@ -560,12 +573,7 @@ public class JordanMapPane extends StackPane {
     private void applyZoom() {
         mapGroup.setScaleX(currentZoom);
         mapGroup.setScaleY(currentZoom);
-
-        // Update zoom label
-        Label zoomLabel = (Label) lookup("#zoomLabel");
-        if (zoomLabel != null) {
-            zoomLabel.setText(String.format("Zoom: %.0f%%", currentZoom * 100));
-        }
+        updateZoomLabel();
 
         // Adjust container size for scrolling
         double newWidth = MAP_WIDTH * currentZoom;
@@ -575,7 +583,7 @@ public class JordanMapPane extends StackPane {
 
         // Dynamic pin scaling: pins get smaller when zoomed out, larger when zoomed in
         // This prevents overlap at low zoom levels and maintains visibility at high zoom
-        double pinScale = calculatePinScale(currentZoom);
+        double pinScale = pinScale(currentZoom);
         for (LocationPin pin : pins) {
             pin.applyDynamicScale(pinScale, currentZoom);
         }
@@ -587,7 +595,7 @@ public class JordanMapPane extends StackPane {
      * At min zoom, pins are smaller to prevent overlap
      * At max zoom, pins are slightly larger for better visibility
      */
-    private double calculatePinScale(double zoom) {
+    static double pinScale(double zoom) {
         if (zoom <= 1.0) {
             // When zoomed out, scale down pins progressively
             // At MIN_ZOOM (0.4), pins should be at MIN_PIN_SCALE (0.5)
@@ -603,6 +611,13 @@ public class JordanMapPane extends StackPane {
         }
     }
 
+    private void updateZoomLabel() {
+        Label zoomLabel = (Label) lookup("#zoomLabel");
+        if (zoomLabel != null) {
+            zoomLabel.setText(String.format("Zoom: %.0f%%", currentZoom * 100));
+        }
+    }
+
     private HBox createTotalButton() {
         HBox buttonContainer = new HBox();
         buttonContainer.setAlignment(Pos.CENTER);
@@ -654,6 +669,11 @@ public class JordanMapPane extends StackPane {
      * Set locations to display on the map
      */
     public void setLocations(List<LocationSummary> locations) {
+        if (mapCanvas != null) {
+            mapCanvas.setLocations(locations);
+            return;
+        }
+
         // Clear existing pins
         pins.forEach(pin -> mapGroup.getChildren().remove(pin));
         pins.clear();
@@ -716,6 +736,9 @@ public class JordanMapPane extends StackPane {
 
     public void cleanup() {
         stopAnimations();
+        if (mapCanvas != null) {
+            mapCanvas.dispose();
+        }
     }
 
     /**
@@ -750,7 +773,7 @@ public class JordanMapPane extends StackPane {
 
             // Pin marker (teardrop shape)
             SVGPath pinShape = new SVGPath();
-            pinShape.setContent("M 0 -20 C -12 -20 -18 -10 -18 0 C -18 12 0 28 0 28 C 0 28 18 12 18 0 C 18 -10 12 -20 0 -20 Z");
+            pinShape.setContent(PIN_PATH);
             pinShape.setFill(Color.web(location.getColor()));
             pinShape.setStroke(Color.WHITE);
             pinShape.setStrokeWidth(2);
@@ -0,0 +1,152 @@
+package com.magictech.modules.storage.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Point quadtree over map coordinates.
+ * JordanMapCanvas uses it to find the pins near a pin when clustering and the marker under
+ * the mouse, without scanning every location.
+ */
+final class PinQuadTree<T> {
+
+    private static final int NODE_CAPACITY = 8;
+    private static final int MAX_DEPTH = 12;
+
+    private final Node<T> root;
+
+    private PinQuadTree(double minX, double minY, double maxX, double maxY) {
+        root = new Node<>(minX, minY, maxX, maxY, 0);
+    }
+
+    /**
+     * Index {@code values} by the given coordinates (bounds are taken from the values)
+     */
+    static <T> PinQuadTree<T> of(List<T> values, ToDoubleFunction<T> x, ToDoubleFunction<T> y) {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (T value : values) {
+            minX = Math.min(minX, x.applyAsDouble(value));
+            minY = Math.min(minY, y.applyAsDouble(value));
+            maxX = Math.max(maxX, x.applyAsDouble(value));
+            maxY = Math.max(maxY, y.applyAsDouble(value));
+        }
+        PinQuadTree<T> tree = values.isEmpty()
+                ? new PinQuadTree<>(0, 0, 1, 1)
+                : new PinQuadTree<>(minX, minY, maxX, maxY);
+        for (T value : values) {
+            tree.root.insert(new Entry<>(x.applyAsDouble(value), y.applyAsDouble(value), value));
+        }
+        return tree;
+    }
+
+    /**
+     * Values within {@code radius} of (x, y)
+     */
+    List<T> within(double x, double y, double radius) {
+        List<Entry<T>> matches = new ArrayList<>();
+        root.collect(x, y, radius, matches);
+        List<T> result = new ArrayList<>(matches.size());
+        for (Entry<T> entry : matches) {
+            result.add(entry.value());
+        }
+        return result;
+    }
+
+    /**
+     * The value closest to (x, y) within {@code radius}, or null
+     */
+    T nearest(double x, double y, double radius) {
+        List<Entry<T>> candidates = new ArrayList<>();
+        root.collect(x, y, radius, candidates);
+        Entry<T> best = null;
+        double bestDistance = Double.MAX_VALUE;
+        for (Entry<T> entry : candidates) {
+            double distance = distanceSq(entry.x(), entry.y(), x, y);
+            if (distance < bestDistance) {
+                best = entry;
+                bestDistance = distance;
+            }
+        }
+        return best != null ? best.value() : null;
+    }
+
+    private static double distanceSq(double x1, double y1, double x2, double y2) {
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        return dx * dx + dy * dy;
+    }
+
+    private record Entry<T>(double x, double y, T value) {
+    }
+
+    private static final class Node<T> {
+        final double minX, minY, maxX, maxY;
+        final int depth;
+        List<Entry<T>> entries = new ArrayList<>();
+        List<Node<T>> children;
+
+        Node(double minX, double minY, double maxX, double maxY, int depth) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.depth = depth;
+        }
+
+        void insert(Entry<T> entry) {
+            if (children != null) {
+                childFor(entry.x(), entry.y()).insert(entry);
+                return;
+            }
+            entries.add(entry);
+            if (entries.size() > NODE_CAPACITY && depth < MAX_DEPTH) {
+                split();
+            }
+        }
+
+        private void split() {
+            double midX = (minX + maxX) / 2;
+            double midY = (minY + maxY) / 2;
+            children = List.of(
+                    new Node<>(minX, minY, midX, midY, depth + 1),
+                    new Node<>(midX, minY, maxX, midY, depth + 1),
+                    new Node<>(minX, midY, midX, maxY, depth + 1),
+                    new Node<>(midX, midY, maxX, maxY, depth + 1));
+            List<Entry<T>> moved = entries;
+            entries = null;
+            for (Entry<T> entry : moved) {
+                childFor(entry.x(), entry.y()).insert(entry);
+            }
+        }
+
+        private Node<T> childFor(double x, double y) {
+            int index = (x < (minX + maxX) / 2 ? 0 : 1) + (y < (minY + maxY) / 2 ? 0 : 2);
+            return children.get(index);
+        }
+
+        private boolean intersects(double x, double y, double radius) {
+            double nearestX = Math.max(minX, Math.min(x, maxX));
+            double nearestY = Math.max(minY, Math.min(y, maxY));
+            return distanceSq(nearestX, nearestY, x, y) <= radius * radius;
+        }
+
+        void collect(double x, double y, double radius, List<Entry<T>> result) {
+            if (!intersects(x, y, radius)) {
+                return;
+            }
+            if (children != null) {
+                for (Node<T> child : children) {
+                    child.collect(x, y, radius, result);
+                }
+                return;
+            }
+            for (Entry<T> entry : entries) {
+                if (distanceSq(entry.x(), entry.y(), x, y) <= radius * radius) {
+                    result.add(entry);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.magictech.modules.sales.entity;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.PersistentClass;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Workflow step entities map only metadata. Hibernate selects exactly the mapped columns, so a
+ * payload column that is not mapped is never read by a findByWorkflowId-style lookup; the
+ * parsed JSON is mapped by WorkflowParsedData alone. Builds the mapping without a database.
+ */
+class StepDataMappingTest {
+
+    private static final Set<String> PAYLOAD_COLUMNS = Set.of("excel_file", "zip_file", "parsed_data");
+
+    private static final List<Class<?>> STEP_ENTITIES = List.of(
+            SiteSurveyData.class,
+            SizingPricingData.class,
+            BankGuaranteeData.class,
+            ProjectCostData.class
+    );
+
+    private static StandardServiceRegistry registry;
+    private static Metadata metadata;
+
+    @BeforeAll
+    static void buildMapping() {
+        registry = new StandardServiceRegistryBuilder()
+                .applySetting("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect")
+                .applySetting("hibernate.temp.use_jdbc_metadata_defaults", "false")
+                .build();
+        MetadataSources sources = new MetadataSources(registry);
+        STEP_ENTITIES.forEach(sources::addAnnotatedClass);
+        sources.addAnnotatedClass(WorkflowParsedData.class);
+        metadata = sources.buildMetadata();
+    }
+
+    @AfterAll
+    static void destroyRegistry() {
+        StandardServiceRegistryBuilder.destroy(registry);
+    }
+
+    @Test
+    void stepEntitiesDoNotSelectPayloadColumns() {
+        for (Class<?> entity : STEP_ENTITIES) {
+            Set<String> columns = mappedColumns(entity);
+            for (String payload : PAYLOAD_COLUMNS) {
+                assertFalse(columns.contains(payload),
+                        entity.getSimpleName() + " selects payload column " + payload);
+            }
+            assertTrue(columns.contains("parsed_data_id"), entity.getSimpleName() + " should map parsed_data_id");
+        }
+    }
+
+    @Test
+    void parsedJsonIsMappedByWorkflowParsedData() {
+        assertTrue(mappedColumns(WorkflowParsedData.class).contains("parsed_data"));
+    }
+
+    private static Set<String> mappedColumns(Class<?> entity) {
+        PersistentClass binding = metadata.getEntityBinding(entity.getName());
+        return binding.getTable().getColumns().stream()
+                .map(Column::getName)
+                .collect(Collectors.toSet());
+    }
+}